@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.snpeff.fileIterator.BigFile;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Custom;
 import org.snpeff.interval.Gene;
@@ -46,6 +47,7 @@ import org.snpeff.snpEffect.commandLine.SnpEffCmdLen;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdPdb;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdProtein;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdSeq;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdServer;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdShow;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdTranslocationsReport;
 import org.snpeff.spliceSites.SnpEffCmdSpliceAnalysis;
@@ -303,6 +305,9 @@ public class SnpEff implements CommandLine {
 		case "seq":
 			return new SnpEffCmdSeq();
 
+		case "server":
+			return new SnpEffCmdServer();
+
 		case "show":
 			return new SnpEffCmdShow();
 
@@ -350,7 +355,7 @@ public class SnpEff implements CommandLine {
 	/**
 	 * Copy values to a new command
 	 */
-	void copyValues(SnpEff cmd) {
+	protected void copyValues(SnpEff cmd) {
 		cmd.canonical = canonical;
 		cmd.canonicalFile = canonicalFile;
 		cmd.configFile = configFile;
@@ -470,6 +475,14 @@ public class SnpEff implements CommandLine {
 	 * Read a custom interval file
 	 */
 	protected int loadCustomFile(String fileName) {
+		// Indexed files (BigBed / BigWig) are not loaded, they are queried for each variant
+		if (BigFile.isBigFile(fileName)) {
+			BigFile bigFile = new BigFile(fileName);
+			if (verbose) Log.info("Using index from " + bigFile);
+			config.getSnpEffectPredictor().addIndexedTrack(bigFile);
+			return (int) Math.min(bigFile.getDataCount(), Integer.MAX_VALUE);
+		}
+
 		Markers markers = loadMarkers(fileName);
 
 		// Add all markers to predictor
@@ -636,6 +649,7 @@ public class SnpEff implements CommandLine {
 
 		genome = config.getSnpEffectPredictor().getGenome();
 		genome.getGenomicSequences().setVerbose(verbose);
+		genome.getGenomicSequences().setConfig(config);
 	}
 
 	/**
@@ -899,6 +913,7 @@ public class SnpEff implements CommandLine {
 				|| args[0].equalsIgnoreCase("pdb") //
 				|| args[0].equalsIgnoreCase("protein") //
 				|| args[0].equalsIgnoreCase("seq") //
+				|| args[0].equalsIgnoreCase("server") //
 				|| args[0].equalsIgnoreCase("show") //
 				|| args[0].equalsIgnoreCase("test") //
 				|| args[0].equalsIgnoreCase("translocreport") //
@@ -1093,9 +1108,9 @@ public class SnpEff implements CommandLine {
 					else usage("Option '-tagNo' without tagName argument");
 					break;
 
-				//				case "-t":
-				//					multiThreaded = true;
-				//					break;
+				case "-t":
+					multiThreaded = true;
+					break;
 
 				case "-treatallasproteincoding":
 					if ((i + 1) < args.length) {
@@ -1243,6 +1258,10 @@ public class SnpEff implements CommandLine {
 		this.log = log;
 	}
 
+	public void setMultiThreaded(boolean multiThreaded) {
+		this.multiThreaded = multiThreaded;
+	}
+
 	public void setNextProt(boolean nextProt) {
 		this.nextProt = nextProt;
 	}
@@ -1251,6 +1270,14 @@ public class SnpEff implements CommandLine {
 		this.nextProtKeepAllTrs = nextProtKeepAllTrs;
 	}
 
+	public void setNumWorkers(int numWorkers) {
+		this.numWorkers = numWorkers;
+	}
+
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+
 	public void setShiftHgvs(boolean shiftHgvs) {
 		hgvsShift = shiftHgvs;
 	}
@@ -1304,6 +1331,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\tpdb                          : Build interaction database (based on PDB data).");
 		System.err.println("\tprotein                      : Compare protein sequences calculated form a SnpEff database to the one in a FASTA file. Used for checking databases correctness.");
 		System.err.println("\tseq                          : Show sequence (from command line) translation.");
+		System.err.println("\tserver                       : Annotation server: Load databases once and annotate VCF files sent over HTTP.");
 		System.err.println("\tshow                         : Show a text representation of genes or transcripts coordiantes, DNA sequence and protein sequence.");
 		System.err.println("\ttranslocReport               : Create a translocations report (from VCF file).");
 		// System.err.println("\tspliceAnalysis : Perform an analysis of splice sites.
@@ -1324,7 +1352,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\t-tag <tagName>               : Only use transcript having a tag 'tagName'. This option can be used multiple times.");
 		System.err.println("\t-notag <tagName>             : Filter out transcript having a tag 'tagName'. This option can be used multiple times.");
 		System.err.println("\t-interaction                 : Annotate using interactions (requires interaction database). Default: " + interaction);
-		System.err.println("\t-interval <file>             : Use a custom intervals in TXT/BED/BigBed/VCF/GFF file (you may use this option many times)");
+		System.err.println("\t-interval <file>             : Use a custom intervals in TXT/BED/BigBed/BigWig/VCF/GFF file (you may use this option many times). BigBed/BigWig files are queried using their index (not loaded into memory)");
 		System.err.println("\t-maxTSL <TSL_number>         : Only use transcripts having Transcript Support Level lower than <TSL_number>.");
 		System.err.println("\t-motif                       : Annotate using motifs (requires Motif database). Default: " + motif);
 		System.err.println("\t-nextProt                    : Annotate using NextProt (requires NextProt database).");
@@ -1359,7 +1387,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\t-h , -help                   : Show this help and exit");
 		System.err.println("\t-noLog                       : Do not report usage statistics to server");
 		System.err.println("\t-q , -quiet                  : Quiet mode (do not show any messages or errors)");
-		//		System.err.println("\t-t                           : Use multiple threads (implies '-noStats'). Default 'off'");
+		System.err.println("\t-t                           : Use multiple threads. Default 'off'");
 		System.err.println("\t-v , -verbose                : Verbose mode");
 		System.err.println("\t-version                     : Show version number and exit");
 	}
@@ -0,0 +1,99 @@
+package org.snpeff.align;
+
+/**
+ * Smith-Waterman (local sequence alignment) score, without traceback.
+ *
+ * Only two rows of the score matrix are kept, so memory is linear
+ * on the length of the second sequence and very long sequences can
+ * be scored (see SmithWaterman for the full alignment).
+ *
+ * Optionally, only cells in a band around the main diagonal are
+ * calculated. The band includes the length difference between the
+ * sequences, plus 'band' cells on each side. Cells outside the band
+ * are scored as zero, so a banded score is never higher than the
+ * (unbanded) Smith-Waterman score.
+ *
+ * Scores are the same as in SmithWaterman (match: 1, mismatch: -1, deletion: -2)
+ *
+ * @author pcingola
+ */
+public class SmithWatermanScore {
+
+	char a[], b[];
+	int band; // Band width (zero or negative means 'no band')
+	int match = 1; // Match score
+	int missMatch = -1; // Mismatch score
+	int deletion = -2; // Deletion score
+
+	public SmithWatermanScore(String a, String b) {
+		this(a, b, 0);
+	}
+
+	public SmithWatermanScore(String a, String b, int band) {
+		this.a = a.toCharArray();
+		this.b = b.toCharArray();
+		this.band = band;
+	}
+
+	/**
+	 * Calculate best local alignment score
+	 */
+	public int score() {
+		int lenA = a.length, lenB = b.length;
+		if ((lenA == 0) || (lenB == 0)) return 0;
+
+		// Band limits, relative to the main diagonal (j - i)
+		int diagMin = -lenA, diagMax = lenB;
+		if (band > 0) {
+			diagMin = Math.min(0, lenB - lenA) - band;
+			diagMax = Math.max(0, lenB - lenA) + band;
+		}
+
+		int prev[] = new int[lenB + 1];
+		int cur[] = new int[lenB + 1];
+		int bestScore = 0;
+		for (int i = 1; i <= lenA; i++) {
+			int jmin = Math.max(1, i + diagMin);
+			int jmax = Math.min(lenB, i + diagMax);
+			if (jmin > jmax) break; // This row (and all the following ones) are outside the band
+
+			char ai = a[i - 1];
+			cur[jmin - 1] = 0; // Left of the band
+			for (int j = jmin; j <= jmax; j++) {
+				int s = prev[j - 1] + (ai == b[j - 1] ? match : missMatch);
+				int del = prev[j] + deletion;
+				int ins = cur[j - 1] + deletion;
+				if (del > s) s = del;
+				if (ins > s) s = ins;
+				if (s < 0) s = 0;
+
+				cur[j] = s;
+				if (s > bestScore) bestScore = s;
+			}
+			if (jmax < lenB) cur[jmax + 1] = 0; // Right of the band (read by next row)
+
+			int tmp[] = prev;
+			prev = cur;
+			cur = tmp;
+		}
+
+		return bestScore;
+	}
+
+	public void setBand(int band) {
+		this.band = band;
+	}
+
+	public void setDeletion(int deletion) {
+		this.deletion = deletion;
+	}
+
+	public void setMatch(int match) {
+		this.match = match;
+	}
+
+	public void setMissMatch(int missMatch) {
+		this.missMatch = missMatch;
+	}
+
+}
@@ -13,6 +13,10 @@ import org.snpeff.util.Log;
  * Note: We perform a 'progressive' realignment, asking for more
  *       reference sequence as we need it
  *
+ * Note: When aligning to the left, bases are compared directly from
+ *       the (2-bit encoded) reference sequence, without creating any
+ *       intermediate strings (see 'realignBases()')
+ *
  * @author pcingola
  */
 public class VariantRealign {
@@ -160,6 +164,97 @@ public class VariantRealign {
 	 * 			there was an error
 	 */
 	public boolean realign() {
+		if (alignLeft) {
+			MarkerSeq ms = genSeqs.queryMarkerSequence(variant);
+			if (ms == null) return false;
+
+			// Variants at the beginning of a sequence (no bases to the left) use progressive realignment
+			if (ms.isStrandPlus() && (variant.getStart() > ms.getStart())) {
+				if (!realignBases(ms)) return false;
+				realigned = createRealignedVariant();
+				if (debug) Log.debug("Realign:\n" + this);
+				return realigned;
+			}
+		}
+
+		return realignProgressive();
+	}
+
+	/**
+	 * Realign variant (to the left) using bases directly from the reference's marker sequence
+	 *
+	 * This is equivalent to a progressive realignment using the whole
+	 * marker sequence as context, but neither 'ref' nor 'alt' sequences
+	 * are created: Bases before and after the variant are identical in
+	 * both sequences, so they are skipped, and the remaining bases are
+	 * decoded one by one only while the sequences match (i.e. within
+	 * the repeat the variant is shifted along).
+	 *
+	 * @return false if the variant's reference does not match the genome
+	 */
+	boolean realignBases(MarkerSeq ms) {
+		String vref = variant.getReference().toLowerCase();
+		String valt = variant.getAlt().toLowerCase();
+
+		// Use the whole marker sequence as context
+		maxBasesLeft = basesAddedLeft = variant.getStart() - ms.getStart();
+		maxBasesRight = basesAddedRight = ms.getEnd() - variant.getEnd();
+		int pre = basesAddedLeft; // Variant's position within the sequence
+		int lenRef = ms.size();
+		int lenAlt = lenRef - vref.length() + valt.length();
+
+		// Sanity check
+		if (pre + vref.length() > lenRef || !vref.equals(ms.getSequence(pre, vref.length()))) {
+			if (debug) Log.debug("Variant not found in reference sequence. This should never happen!" //
+					+ "\n\tVariant's ref: '" + vref + "'" //
+			);
+			return false;
+		}
+
+		// Remove identical bases from the left end. Bases before the variant are always identical
+		basesTrimLeft = pre;
+		while (basesTrimLeft < lenRef && basesTrimLeft < lenAlt && ms.getBase(basesTrimLeft) == altBase(ms, pre, vref, valt, basesTrimLeft))
+			basesTrimLeft++;
+
+		// Remove identical bases from the right end. Bases after the variant are always identical
+		int lenAfter = lenRef - pre - vref.length();
+		basesTrimRight = Math.min(lenAfter, Math.min(lenRef, lenAlt) - basesTrimLeft);
+		for (int refIdx = lenRef - 1 - basesTrimRight, altIdx = lenAlt - 1 - basesTrimRight; refIdx >= basesTrimLeft && altIdx >= basesTrimLeft; refIdx--, altIdx--, basesTrimRight++)
+			if (ms.getBase(refIdx) != altBase(ms, pre, vref, valt, altIdx)) break;
+
+		// Calculate new 'ref' and 'alt'
+		StringBuilder sbRef = new StringBuilder();
+		for (int i = basesTrimLeft; i < lenRef - basesTrimRight; i++)
+			sbRef.append(ms.getBase(i));
+
+		StringBuilder sbAlt = new StringBuilder();
+		for (int i = basesTrimLeft; i < lenAlt - basesTrimRight; i++)
+			sbAlt.append(altBase(ms, pre, vref, valt, i));
+
+		refRealign = sbRef.toString().toUpperCase();
+		altRealign = sbAlt.toString().toUpperCase();
+		return true;
+	}
+
+	/**
+	 * Base at position 'idx' in the 'alt' sequence, i.e. the marker
+	 * sequence having 'vref' replaced by 'valt' at position 'pre'
+	 */
+	char altBase(MarkerSeq ms, int pre, String vref, String valt, int idx) {
+		if (idx < pre) return ms.getBase(idx);
+		if (idx < pre + valt.length()) return valt.charAt(idx - pre);
+		return ms.getBase(idx - valt.length() + vref.length());
+	}
+
+	/**
+	 * Realign variant by asking for progressively longer reference
+	 * sequences (creating 'ref' and 'alt' strings on each iteration)
+	 *
+	 * @return	true if variant was realigned and a new variant (different than
+	 * 			the original one) was created. false if it wasn't realigned or
+	 * 			there was an error
+	 */
+	public boolean realignProgressive() {
 		int basesAddedLeftPrev = 0, basesAddedRightPrev = 0;
 
 		// Progressive realignment
@@ -260,8 +355,8 @@ public class VariantRealign {
 		sb.append("Realigned: " + (realigned ? "Yes" : "No") + "\n");
 		sb.append("\tVariant (original)   : " + variant + "\n");
 		sb.append("\tVariant (realinged)  : " + variantRealigned + "\n");
-		sb.append("\tReference sequence   : '" + sequenceRef + "'\tlen: " + sequenceRef.length() + "\n");
-		sb.append("\tAlternative sequence : '" + sequenceAlt + "'\tlen: " + sequenceAlt.length() + "\n");
+		if (sequenceRef != null) sb.append("\tReference sequence   : '" + sequenceRef + "'\tlen: " + sequenceRef.length() + "\n");
+		if (sequenceAlt != null) sb.append("\tAlternative sequence : '" + sequenceAlt + "'\tlen: " + sequenceAlt.length() + "\n");
 		sb.append("\tRef (after realign)  : '" + refRealign + "'\n");
 		sb.append("\tAlt (after realign)  : '" + altRealign + "'\n");
 		sb.append("\tBases added          : left: " + basesAddedLeft + ", right: " + basesAddedRight + "\n");
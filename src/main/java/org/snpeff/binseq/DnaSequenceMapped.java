@@ -0,0 +1,167 @@
+package org.snpeff.binseq;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Read only DNA sequence backed by a (memory mapped) buffer
+ *
+ * Bases are encoded exactly as in DnaSequence (2 bits per base, 'words' of
+ * 64 bits, first bases in the most significant bits), so bases are decoded
+ * directly from the buffer and no sequence is held in the heap.
+ *
+ * Ambiguous bases are stored as runs of 'N' (coordinates relative to the
+ * beginning of this sequence), as in DnaNSequence they are decoded as 'N'.
+ *
+ * @author pcingola
+ */
+public class DnaSequenceMapped extends DnaSequence {
+
+	private static final long serialVersionUID = -2104581356364307245L;
+
+	transient ByteBuffer buffer; // Buffer containing the 'words'
+	int offset; // Position of the first word in 'buffer'
+	int nStart[], nEnd[]; // Runs of 'N': Start and end (inclusive) of each run, sorted by start
+
+	public DnaSequenceMapped(int length, ByteBuffer buffer, int offset, int nStart[], int nEnd[]) {
+		super(length, null);
+		this.buffer = buffer;
+		this.offset = offset;
+		this.nStart = nStart;
+		this.nEnd = nEnd;
+	}
+
+	@Override
+	public int compareTo(BinarySequence o) {
+		return getSequence().compareTo(o.getSequence());
+	}
+
+	/**
+	 * Index of the first 'N' run ending at or after 'index'
+	 */
+	int firstRun(int index) {
+		int lo = 0, hi = nEnd.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (nEnd[mid] < index) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	@Override
+	public char getBase(int index) {
+		if (isN(index)) return 'N';
+		return coder.toBase(word(index / coder.basesPerWord()), coder.lastBaseinWord() - (index % coder.basesPerWord()));
+	}
+
+	/**
+	 * Get a few bases from this sequence
+	 */
+	@Override
+	public String getBases(int index, int len) {
+		char bases[] = new char[len];
+		if (len <= 0) return "";
+
+		// Decode bases
+		int j = index / coder.basesPerWord();
+		int k = coder.lastBaseinWord() - (index % coder.basesPerWord());
+		long word = word(j);
+		for (int i = 0; i < len; i++) {
+			bases[i] = coder.toBase(word, k);
+			k--;
+			if (k < 0 && (i + 1) < len) {
+				k = coder.lastBaseinWord();
+				word = word(++j);
+			}
+		}
+
+		// Mask 'N' runs
+		int end = index + len - 1;
+		for (int r = firstRun(index); (r < nStart.length) && (nStart[r] <= end); r++)
+			for (int i = Math.max(nStart[r], index); i <= Math.min(nEnd[r], end); i++)
+				bases[i - index] = 'N';
+
+		return new String(bases);
+	}
+
+	@Override
+	public int getCode(int index) {
+		if ((index < 0) || (index > length)) throw new IndexOutOfBoundsException("Index requested " + index + ", sequence length is " + length);
+		return coder.decodeWord(word(index / coder.basesPerWord()), coder.lastBaseinWord() - (index % coder.basesPerWord()));
+	}
+
+	/**
+	 * Note: Codes are copied from the buffer
+	 */
+	@Override
+	public long[] getCodes() {
+		long codes[] = new long[coder.length2words(length)];
+		for (int i = 0; i < codes.length; i++)
+			codes[i] = word(i);
+		return codes;
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = 0;
+		for (int i = 0; i < coder.length2words(length); i++)
+			hash = hash * 33 + word(i);
+		return (int) hash;
+	}
+
+	/**
+	 * Is there an 'N' at position 'index'?
+	 */
+	boolean isN(int index) {
+		int r = firstRun(index);
+		return (r < nStart.length) && (nStart[r] <= index);
+	}
+
+	@Override
+	public BinarySequence overlap(BinarySequence sequence, int start) {
+		return toDnaSequence().overlap(sequence, start);
+	}
+
+	@Override
+	public BinarySequence reverseWc() {
+		return toDnaSequence().reverseWc();
+	}
+
+	@Override
+	public void set(String seqStr, boolean ignoreErrors) {
+		throw new RuntimeException("Cannot modify a mapped sequence");
+	}
+
+	@Override
+	public void setBase(int index, char base) {
+		throw new RuntimeException("Cannot modify a mapped sequence");
+	}
+
+	@Override
+	public void setCodes(long[] codes) {
+		throw new RuntimeException("Cannot modify a mapped sequence");
+	}
+
+	/**
+	 * Copy this sequence to the heap (DnaSequence or DnaNSequence)
+	 */
+	public DnaSequence toDnaSequence() {
+		if (nStart.length > 0) return new DnaNSequence(getSequence());
+		return new DnaSequence(length, getCodes());
+	}
+
+	/**
+	 * Get a 'word' (64 bits, i.e. 32 bases) from the buffer
+	 */
+	long word(int idx) {
+		return buffer.getLong(offset + (idx << 3));
+	}
+
+	@Override
+	public void write(DataOutputStream dataOutStream) throws IOException {
+		toDnaSequence().write(dataOutStream);
+	}
+
+}
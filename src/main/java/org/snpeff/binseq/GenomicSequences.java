@@ -5,7 +5,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Exon;
@@ -30,6 +32,9 @@ import org.snpeff.util.Log;
  * 		ii) Store genomic sequences for those regions of interest
  * 		iii) Retrieve genomic sequences by interval
  *
+ * Thread safety: Sequences for each chromosome are loaded only once (loading
+ * is synchronized). Once a chromosome is loaded, its interval tree is published
+ * in a concurrent map, so queries do not require any locking.
  *
  * @author pcingola
  */
@@ -44,11 +49,14 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	boolean allSmallLoaded; // Have all "small" chromosomes been loaded? (i.e. have we already loaded 'sequence.bin' file?)
 	boolean disableLoad = false; // Do not load sequences from disk. Used minly for test cases
 	Genome genome; // Reference genome
+	transient Config config; // Config used to find sequence files (null means 'Config.get()')
 	IntervalForest intervalForest; // This is an interval forest of 'MarkerSeq' (genomic markers that have sequences)
+	Map<String, Itree> loadedTrees; // Trees (already loaded and built) by chromosome. Used for lock-free queries
 
 	public GenomicSequences(Genome genome) {
 		this.genome = genome;
 		intervalForest = new IntervalForest();
+		loadedTrees = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -126,14 +134,16 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	/**
 	 * Build interval forest
 	 */
-	public void build() {
+	public synchronized void build() {
 		if (verbose) Log.info("Building sequence tree for genome sequences");
 		intervalForest.build();
+		loadedTrees.clear(); // Trees may have changed, they will be published again on next query
 		if (verbose) Log.info("Done.");
 	}
 
-	public void clear() {
+	public synchronized void clear() {
 		intervalForest = new IntervalForest();
+		loadedTrees.clear();
 	}
 
 	/**
@@ -235,9 +245,9 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		if (allSmallLoaded) return false;
 
 		// File does not exists?  Cannot load...
-		String fileName = Config.get().getFileNameSequence();
+		String fileName = config().getFileNameSequence();
 		if (!Gpr.exists(fileName)) {
-			if (Config.get().isDebug()) Log.info("Attempting to load sequences from file '" + fileName + "' failed, nothing done.");
+			if (config().isDebug()) Log.info("Attempting to load sequences from file '" + fileName + "' failed, nothing done.");
 			return false;
 		}
 
@@ -273,16 +283,17 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		if (disableLoad) return false; // Loading form database disabled?
 
 		// File does not exists?  Cannot load...
-		String fileName = Config.get().getFileNameSequence(chr);
+		String fileName = config().getFileNameSequence(chr);
 		if (!Gpr.exists(fileName)) {
-			if (Config.get().isDebug()) Log.info("Attempting to load sequences for chromosome '" + chr + "' from file '" + fileName + "' failed, nothing done.");
+			if (config().isDebug()) Log.info("Attempting to load sequences for chromosome '" + chr + "' from file '" + fileName + "' failed, nothing done.");
 			return false;
 		}
 
 		// Load markers
 		if (verbose) Log.info("Loading sequences for chromosome '" + chr + "' from file '" + fileName + "'");
 		Itree tree = intervalForest.getOrCreateTreeChromo(chr);
-		tree.load(fileName, genome);
+		if (PackedSequenceFile.isPacked(fileName)) tree.add(PackedSequenceFile.load(fileName, genome)); // Packed format: Sequences are mapped, nothing to parse
+		else tree.load(fileName, genome);
 		if (verbose) Log.info("Building sequence tree for chromosome '" + chr + "'");
 		tree.build();
 		if (verbose) Log.info("Done. Loaded " + tree.getIntervals().size() + " sequences.");
@@ -310,15 +321,12 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	 *
 	 * @return A markerSeq containing 'marker' or null if nothing is found
 	 */
-	public synchronized MarkerSeq queryMarkerSequence(Marker marker) {
-		String chr = marker.getChromosomeName();
-
+	public MarkerSeq queryMarkerSequence(Marker marker) {
 		// Get or load interval tree
-		if (!intervalForest.hasTree(chr)) loadOrCreateFromGenome(chr);
-		Itree tree = intervalForest.getTreeChromo(chr);
+		Itree tree = tree(marker.getChromosomeName());
 
 		// Nothing available
-		if (tree == null || tree.isEmpty()) return null;
+		if (tree.isEmpty()) return null;
 
 		// Find marker sequence
 		Markers res = tree.query(marker);
@@ -345,15 +353,16 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		// Calculate start and end coordiantes
 		int sstart = marker.getStart() - ms.getStart();
 		int ssend = marker.size() + sstart;
-		String seq = ms.getSequence().substring(sstart, ssend);
+		String seq = ms.getSequence(sstart, ssend - sstart); // Only decode the bases we need
 
 		// Return sequence in same direction as 'marker'
 		if (marker.isStrandMinus()) seq = GprSeq.reverseWc(seq);
 		return seq;
 	}
 
-	public void reset() {
+	public synchronized void reset() {
 		intervalForest = new IntervalForest();
+		loadedTrees.clear();
 	}
 
 	/**
@@ -389,7 +398,7 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 			}
 
 			// Save to file
-			String fileName = Config.get().getFileNameSequence();
+			String fileName = config().getFileNameSequence();
 			if (verbose) Log.info("Saving sequences for small chromosmes to file '" + fileName + "'");
 			markers.save(fileName);
 		}
@@ -406,9 +415,10 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 
 		// OK, there is something to save => Save markers to file
 		Itree tree = intervalForest.getTreeChromo(chr);
-		String fileName = Config.get().getFileNameSequence(chr);
-		if (verbose) Log.info("Saving sequences for chromosome '" + chr + "' to file '" + fileName + "'");
-		tree.getIntervals().save(fileName, chr);
+		String fileName = config().getFileNameSequence(chr);
+		if (verbose) Log.info("Saving sequences for chromosome '" + chr + "' to file '" + fileName + "'" + (config().isSequencePacked() ? " (packed format)" : ""));
+		if (config().isSequencePacked()) PackedSequenceFile.save(fileName, chr, tree.getIntervals());
+		else tree.getIntervals().save(fileName, chr);
 	}
 
 	/**
@@ -429,6 +439,17 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		return size;
 	}
 
+	/**
+	 * Config used to find sequence files
+	 */
+	Config config() {
+		return config != null ? config : Config.get();
+	}
+
+	public void setConfig(Config config) {
+		this.config = config;
+	}
+
 	public void setDisableLoad(boolean disableLoad) {
 		this.disableLoad = disableLoad;
 	}
@@ -437,6 +458,36 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		this.verbose = verbose;
 	}
 
+	/**
+	 * Get interval tree for chromosome 'chr', loading (or creating)
+	 * sequences if needed. Once the tree has been loaded, no locking
+	 * is required.
+	 *
+	 * @return An interval tree (possibly empty, if no sequences are available)
+	 */
+	Itree tree(String chr) {
+		Itree tree = loadedTrees.get(chr);
+		if (tree != null) return tree;
+		return loadTree(chr);
+	}
+
+	/**
+	 * Load sequences for chromosome 'chr' and publish the tree.
+	 * Only one thread loads sequences, all others wait for it.
+	 */
+	synchronized Itree loadTree(String chr) {
+		// Another thread may have loaded it while we were waiting
+		Itree tree = loadedTrees.get(chr);
+		if (tree != null) return tree;
+
+		if (!intervalForest.hasTree(chr)) loadOrCreateFromGenome(chr);
+		tree = intervalForest.getOrCreateTreeChromo(chr);
+		if (!tree.isInSync()) tree.build();
+
+		loadedTrees.put(chr, tree);
+		return tree;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
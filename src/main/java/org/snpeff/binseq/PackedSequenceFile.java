@@ -0,0 +1,225 @@
+package org.snpeff.binseq;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.snpeff.binseq.coder.DnaCoder;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.MarkerSeq;
+import org.snpeff.interval.Markers;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
+
+/**
+ * Genomic sequences for one chromosome, stored in a packed, memory mappable, file.
+ *
+ * Bases are stored using 2 bits per base (same encoding as DnaSequence) and
+ * ambiguous bases are stored as runs of 'N'. When the file is loaded, it is
+ * memory mapped and sequences are decoded directly from the mapped buffer
+ * (see DnaSequenceMapped), so loading does not parse nor copy any sequence.
+ *
+ * File format:
+ *
+ *     byte[8]      : MAGIC
+ *     int          : Format version
+ *     int + byte[] : Chromosome name (UTF-8)
+ *     int          : Number of sequences
+ *     int          : Number of 'N' runs
+ *     Sequences table, one entry per sequence:
+ *         int : Start (genomic coordinates, plus strand)
+ *         int : End
+ *         int : Index of the first 'N' run for this sequence
+ *     'N' runs table, one entry per run:
+ *         int : Start (relative to sequence's start)
+ *         int : End (inclusive)
+ *     long[] : Packed bases, for each sequence (in the same order as the sequences table)
+ *
+ * @author pcingola
+ */
+public class PackedSequenceFile {
+
+	public static final byte[] MAGIC = "SnpEffSq".getBytes(StandardCharsets.US_ASCII);
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Is this a packed sequence file?
+	 */
+	public static boolean isPacked(String fileName) {
+		if (!Gpr.canRead(fileName)) return false;
+		try (FileInputStream in = new FileInputStream(fileName)) {
+			byte[] magic = in.readNBytes(MAGIC.length);
+			return Arrays.equals(MAGIC, magic);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Load (memory map) sequences from a file
+	 * @return A list of MarkerSeq, having sequences backed by the mapped file
+	 */
+	public static Markers load(String fileName, Genome genome) {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) throw new RuntimeException("Sequence file '" + fileName + "' is too large to be mapped");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			// Header
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(MAGIC, magic)) throw new RuntimeException("Sequence file '" + fileName + "' is not in packed format");
+			int formatVersion = buffer.getInt();
+			if (formatVersion != FORMAT_VERSION) throw new RuntimeException("Sequence file '" + fileName + "' has unsupported format version " + formatVersion + " (expected " + FORMAT_VERSION + ")");
+
+			byte[] chrNameBytes = new byte[buffer.getInt()];
+			buffer.get(chrNameBytes);
+			String chrName = new String(chrNameBytes, StandardCharsets.UTF_8);
+			int numSeqs = buffer.getInt();
+			int numRuns = buffer.getInt();
+
+			// Sequences and 'N' runs tables
+			int starts[] = new int[numSeqs], ends[] = new int[numSeqs], firstRuns[] = new int[numSeqs + 1];
+			for (int i = 0; i < numSeqs; i++) {
+				starts[i] = buffer.getInt();
+				ends[i] = buffer.getInt();
+				firstRuns[i] = buffer.getInt();
+			}
+			firstRuns[numSeqs] = numRuns;
+
+			int nStarts[] = new int[numRuns], nEnds[] = new int[numRuns];
+			for (int i = 0; i < numRuns; i++) {
+				nStarts[i] = buffer.getInt();
+				nEnds[i] = buffer.getInt();
+			}
+
+			// Create markers. Sequences point to the mapped buffer
+			DnaCoder coder = DnaCoder.get();
+			Chromosome chr = genome.getOrCreateChromosome(chrName);
+			Markers markers = new Markers();
+			int offset = buffer.position();
+			for (int i = 0; i < numSeqs; i++) {
+				int len = ends[i] - starts[i] + 1;
+				int nStart[] = Arrays.copyOfRange(nStarts, firstRuns[i], firstRuns[i + 1]);
+				int nEnd[] = Arrays.copyOfRange(nEnds, firstRuns[i], firstRuns[i + 1]);
+
+				MarkerSeq ms = new MarkerSeq(chr, starts[i], ends[i], false, chrName + ":" + starts[i] + "-" + ends[i]);
+				ms.setSequence(new DnaSequenceMapped(len, buffer, offset, nStart, nEnd));
+				markers.add(ms);
+
+				offset += coder.length2words(len) * 8;
+			}
+
+			return markers;
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading sequence file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Save sequences (MarkerSeq) from chromosome 'chr' to a file
+	 * Other markers are ignored
+	 */
+	public static void save(String fileName, String chr, Markers markers) {
+		// Only sequences in this chromosome, sorted by position
+		List<MarkerSeq> markerSeqs = new ArrayList<>();
+		for (Marker m : markers)
+			if ((m instanceof MarkerSeq) && m.getChromosomeName().equals(chr)) markerSeqs.add((MarkerSeq) m);
+		markerSeqs.sort(null);
+
+		// Sequences in genomic coordinates (plus strand). Skip markers without a full sequence
+		List<MarkerSeq> seqs = new ArrayList<>(markerSeqs.size());
+		List<String> sequences = new ArrayList<>(markerSeqs.size());
+		for (MarkerSeq ms : markerSeqs) {
+			String seq = ms.getSequence();
+			if (seq.isEmpty() || seq.length() != ms.size()) continue;
+			seqs.add(ms);
+			sequences.add(ms.isStrandPlus() ? seq : GprSeq.reverseWc(seq));
+		}
+
+		// Find 'N' runs
+		List<int[]> runs = new ArrayList<>();
+		int firstRuns[] = new int[seqs.size()];
+		for (int i = 0; i < sequences.size(); i++) {
+			firstRuns[i] = runs.size();
+			String seq = sequences.get(i);
+			int runStart = -1;
+			for (int j = 0; j <= seq.length(); j++) {
+				boolean n = (j < seq.length()) && isN(seq.charAt(j));
+				if (n && runStart < 0) runStart = j;
+				else if (!n && runStart >= 0) {
+					runs.add(new int[] { runStart, j - 1 });
+					runStart = -1;
+				}
+			}
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			// Header
+			out.write(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			byte[] chrNameBytes = chr.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(chrNameBytes.length);
+			out.write(chrNameBytes);
+			out.writeInt(seqs.size());
+			out.writeInt(runs.size());
+
+			// Sequences and 'N' runs tables
+			for (int i = 0; i < seqs.size(); i++) {
+				out.writeInt(seqs.get(i).getStart());
+				out.writeInt(seqs.get(i).getEnd());
+				out.writeInt(firstRuns[i]);
+			}
+
+			for (int[] run : runs) {
+				out.writeInt(run[0]);
+				out.writeInt(run[1]);
+			}
+
+			// Packed bases
+			for (String seq : sequences) {
+				DnaSequence dnaSeq = new DnaSequence(seq, true);
+				for (long code : dnaSeq.getCodes())
+					out.writeLong(code);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing sequence file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Is this base stored as an 'N'? (same as DnaNSequence)
+	 */
+	static boolean isN(char base) {
+		switch (base) {
+		case 'a':
+		case 'A':
+		case 'c':
+		case 'C':
+		case 'g':
+		case 'G':
+		case 't':
+		case 'T':
+		case 'u':
+		case 'U':
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	private PackedSequenceFile() {
+	}
+
+}
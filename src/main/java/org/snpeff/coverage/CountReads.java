@@ -4,7 +4,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.snpeff.fileIterator.BedFileIterator;
 import org.snpeff.fileIterator.VcfFileIterator;
@@ -14,6 +22,9 @@ import org.snpeff.interval.Marker;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.Variant;
+import org.snpeff.interval.tree.IntervalSweep;
+import org.snpeff.interval.tree.Itree;
+import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.stats.CountByKey;
 import org.snpeff.stats.CountByType;
@@ -23,20 +34,45 @@ import org.snpeff.util.Gpr;
 import org.snpeff.util.Log;
 import org.snpeff.vcf.VcfEntry;
 
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 
 /**
  * Count how many reads map (from many SAM/BAM files) onto markers
  *
+ * Indexed BAM files can be counted using many threads: Each reference
+ * sequence (chromosome) is counted by a different thread and results
+ * are added at the end.
+ *
+ * Reads sorted by position (e.g. coordinate sorted BAM files) are matched
+ * to markers using a sweep line (see IntervalSweep) instead of querying the
+ * interval forest for each read. If reads turn out not to be sorted, the
+ * rest of the file is counted using interval forest queries.
+ *
  * @author pcingola
  */
 public class CountReads {
 
+	/**
+	 * Counters for one marker. Marker type, sub-type and coverage
+	 * statistics are only looked up the first time the marker is hit
+	 */
+	static class MarkerCount {
+		long reads; // Number of reads hitting the marker
+		long bases; // Number of bases (from reads) intersecting the marker
+		String type, subtype;
+		PosStats posStatsType, posStatsSubtype, posStatsExons;
+	}
+
 	public static int SHOW_EVERY = 10000;
 
 	boolean verbose = false; // Be verbose
+	boolean sweep = true; // Use a sweep line to find markers intersecting reads (only while reads are sorted)
+	int numThreads = 1; // Number of threads (only used on indexed BAM files)
 	int countTotalReads;
 	int readLengthCount;
 	int countExceptions = 0;
@@ -50,6 +86,11 @@ public class CountReads {
 	MarkerTypes markerTypes;
 	CoverageByType coverageByType;
 	ArrayList<CoverageByType> coverageByExons;
+	Map<Marker, MarkerCount> countByMarker; // Counters by marker (summarized in 'countReads', 'countBases' and 'countTypes')
+	HashSet<Marker> done; // Markers already counted for the current read
+	String sweepChr; // Chromosome for 'intervalSweep'
+	HashSet<String> sweepChrsDone; // Chromosomes already swept (reads are not sorted if we find them again)
+	IntervalSweep intervalSweep;
 
 	public CountReads(String fileName, SnpEffectPredictor snpEffectPredictor) {
 		this.fileName = fileName;
@@ -74,6 +115,27 @@ public class CountReads {
 		return countReads.keySet();
 	}
 
+	/**
+	 * Add counts from another CountReads (e.g. counted in a different thread)
+	 */
+	void add(CountReads cr) {
+		countTotalReads += cr.countTotalReads;
+		readLengthCount += cr.readLengthCount;
+		readLengthSum += cr.readLengthSum;
+		countExceptions += cr.countExceptions;
+
+		for (Map.Entry<Marker, MarkerCount> e : cr.countByMarker.entrySet()) {
+			MarkerCount mc = markerCount(e.getKey());
+			mc.reads += e.getValue().reads;
+			mc.bases += e.getValue().bases;
+		}
+
+		// Coverage statistics
+		coverageByType.add(cr.coverageByType);
+		for (int exons = 0; exons < cr.coverageByExons.size(); exons++)
+			coverageByExons(exons).add(cr.coverageByExons.get(exons));
+	}
+
 	/**
 	 * Count markers from a file
 	 */
@@ -86,14 +148,12 @@ public class CountReads {
 		// Iterate over all BAM/SAM files
 		try {
 			if (verbose) Log.info("Reading file '" + fileName + "'");
-			countReads = new CountByKey<>();
-			countBases = new CountByKey<>();
-			countTypes = new CountByType();
-			coverageByType = new CoverageByType();
+			initCounters();
 			countFile(fileName);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		summarize();
 
 		if (verbose) {
 			System.err.println("");
@@ -141,43 +201,24 @@ public class CountReads {
 	 */
 	void countMarker(String fileName, Marker read) {
 		// Find all intersects
-		Markers regions = snpEffectPredictor.queryDeep(read);
+		Markers regions = query(read);
 
 		// Count total reads
 		countTotalReads++;
 
 		// Count each marker
-		HashSet<Marker> done = new HashSet<>();
+		done.clear();
 		for (Marker m : regions) {
-			// Make sure we count only once each marker
-			if (!done.contains(m)) {
-				done.add(m);
+			if (!done.add(m)) continue; // Make sure we count only once each marker
 
-				countReads.inc(m); // Count reads
-				countBases.inc(m, m.intersectSize(read)); // Count number bases that intersect
+			MarkerCount mc = markerCount(m);
+			mc.reads++; // Count reads
+			mc.bases += m.intersectSize(read); // Count number bases that intersect
 
-				// Count by marker type (make sure we only count once per read)
-				String type = markerTypes.getType(m);
-				String subtype = markerTypes.getSubType(m);
-				String typeRank = markerTypes.getTypeRank(m);
-
-				countTypes.inc(type); // Count reads
-
-				// Coverage by type
-				PosStats posStats = coverageByType.getOrCreate(type);
-				posStats.sample(read, m);
-
-				// Coverage by number of exons
-				coverageByExons(read, m, typeRank);
-
-				// Count sub-type if any
-				if (subtype != null) {
-					countTypes.inc(subtype); // Count reads
-
-					posStats = coverageByType.getOrCreate(subtype);
-					posStats.sample(read, m);
-				}
-			}
+			// Coverage by type, sub-type and number of exons
+			mc.posStatsType.sample(read, m);
+			if (mc.posStatsSubtype != null) mc.posStatsSubtype.sample(read, m);
+			if (mc.posStatsExons != null) mc.posStatsExons.sample(read, m);
 		}
 	}
 
@@ -201,13 +242,80 @@ public class CountReads {
 	 * Count all markers from a SAM/BAM file
 	 */
 	void countSamFile(String fileName) {
-		// Open file
-		int readNum = 1;
 		// SAMFileReader sam = new SAMFileReader(new File(fileName));
 		// sam.setValidationStringency(ValidationStringency.SILENT);
 		SamReader sam = SamReaderFactory.makeDefault().open(new File(fileName));
 
-		for (SAMRecord samRecord : sam) {
+		if ((numThreads > 1) && sam.hasIndex()) countSamFileIndexed(fileName, sam.getFileHeader());
+		else countSamRecords(sam.iterator());
+
+		try {
+			sam.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error closing SAM/BAM file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Count all markers from an indexed BAM file, using one thread per reference sequence
+	 */
+	void countSamFileIndexed(String fileName, SAMFileHeader header) {
+		if (verbose) Log.info("Counting indexed file '" + fileName + "' using " + numThreads + " threads");
+
+		// Create all chromosomes before counting (worker threads do not modify the genome)
+		List<String> refNames = new ArrayList<>();
+		for (SAMSequenceRecord sr : header.getSequenceDictionary().getSequences()) {
+			genome.getOrCreateChromosome(sr.getSequenceName());
+			refNames.add(sr.getSequenceName());
+		}
+
+		// Count each reference sequence in a separate thread, add results in order
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<CountReads>> futures = new ArrayList<>();
+			for (String refName : refNames)
+				futures.add(executor.submit(() -> countSamReference(fileName, refName)));
+
+			for (int i = 0; i < futures.size(); i++) {
+				add(futures.get(i).get());
+				if (verbose) Log.info("Finished reference sequence '" + refNames.get(i) + "', reads: " + countTotalReads);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while counting file '" + fileName + "'", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error counting file '" + fileName + "'", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Count reads mapped to one reference sequence (uses the BAM index)
+	 * @return A new CountReads object having the counts
+	 */
+	CountReads countSamReference(String fileName, String refName) throws IOException {
+		CountReads cr = new CountReads(fileName, snpEffectPredictor);
+		cr.genome = genome;
+		cr.markerTypes = markerTypes;
+		cr.sweep = sweep;
+		cr.initCounters();
+
+		try (SamReader sam = SamReaderFactory.makeDefault().open(new File(fileName)); //
+				SAMRecordIterator samRecords = sam.query(refName, 0, 0, false) // Whole reference sequence
+		) {
+			cr.countSamRecords(samRecords);
+		}
+		return cr;
+	}
+
+	/**
+	 * Count all markers from SAM records
+	 */
+	void countSamRecords(Iterator<SAMRecord> samRecords) {
+		int readNum = 1;
+		while (samRecords.hasNext()) {
+			SAMRecord samRecord = samRecords.next();
 			try {
 				if (!samRecord.getReadUnmappedFlag()) { // Mapped?
 					Chromosome chr = genome.getOrCreateChromosome(samRecord.getReferenceName());
@@ -228,12 +336,6 @@ public class CountReads {
 				if (countExceptions < 10) e.printStackTrace();
 				else if (countExceptions == 10) System.err.println("Not showing more exceptions!");
 			}
-
-		}
-		try {
-			sam.close();
-		} catch (IOException e) {
-			throw new RuntimeException("Error closing SAM/BAM file '" + fileName + "'", e);
 		}
 	}
 
@@ -259,30 +361,31 @@ public class CountReads {
 		}
 	}
 
+	/**
+	 * Coverage statistics for transcripts having 'exons' exons
+	 */
+	CoverageByType coverageByExons(int exons) {
+		// Do we need to add new counters?
+		if (coverageByExons.size() <= exons) {
+			for (int i = coverageByExons.size(); i <= exons; i++)
+				coverageByExons.add(new CoverageByType());
+		}
+		return coverageByExons.get(exons);
+	}
+
 	/**
 	 * Coverage by number of exons in a transcript
 	 *
-	 * @param m
-	 * @param typeRank
+	 * @return Statistics for marker 'm' (null if 'm' is not in a transcript)
 	 */
-	void coverageByExons(Marker read, Marker m, String typeRank) {
+	PosStats coverageByExons(Marker m, String typeRank) {
 		// Find corresponfing transcript
 		Transcript tr = (Transcript) m.findParent(Transcript.class);
-		if (tr == null) return;
+		if (tr == null) return null;
 
 		// Number of exons
 		int exons = tr.numChilds();
-
-		// Do we need to add new counters?
-		if (coverageByExons.size() <= exons) {
-			for (int i = coverageByExons.size(); i <= exons; i++)
-				coverageByExons.add(new CoverageByType());
-		}
-
-		// Perform stats
-		CoverageByType cbe = coverageByExons.get(exons);
-		PosStats posStats = cbe.getOrCreate(typeRank);
-		posStats.sample(read, m);
+		return coverageByExons(exons).getOrCreate(typeRank);
 	}
 
 	public CountByKey<Marker> getCountBases() {
@@ -344,12 +447,100 @@ public class CountReads {
 	void init(SnpEffectPredictor snpEffectPredictor) {
 	}
 
+	void initCounters() {
+		countReads = new CountByKey<>();
+		countBases = new CountByKey<>();
+		countTypes = new CountByType();
+		coverageByType = new CoverageByType();
+		countByMarker = new HashMap<>();
+		done = new HashSet<>();
+		sweepChr = null;
+		sweepChrsDone = new HashSet<>();
+		intervalSweep = null;
+	}
+
+	/**
+	 * Get (or create) counters for a marker
+	 */
+	MarkerCount markerCount(Marker m) {
+		MarkerCount mc = countByMarker.get(m);
+		if (mc != null) return mc;
+
+		// Marker type and statistics are looked up only once
+		mc = new MarkerCount();
+		mc.type = markerTypes.getType(m);
+		mc.subtype = markerTypes.getSubType(m);
+		mc.posStatsType = coverageByType.getOrCreate(mc.type);
+		if (mc.subtype != null) mc.posStatsSubtype = coverageByType.getOrCreate(mc.subtype);
+		mc.posStatsExons = coverageByExons(m, markerTypes.getTypeRank(m));
+
+		countByMarker.put(m, mc);
+		return mc;
+	}
+
+	/**
+	 * Find all markers intersecting 'read'
+	 * Same results as 'snpEffectPredictor.queryDeep(read)', but using a sweep line while reads are sorted
+	 */
+	Markers query(Marker read) {
+		if (!sweep) return snpEffectPredictor.queryDeep(read);
+
+		// New chromosome? Sweep all intervals in this chromosome
+		String chr = Chromosome.simpleName(read.getChromosomeName());
+		if (!chr.equals(sweepChr)) {
+			if (!sweepChrsDone.add(chr)) return unsorted(read);
+			Itree tree = snpEffectPredictor.getIntervalForest().getTreeChromo(chr);
+			intervalSweep = new IntervalSweep(tree != null ? tree.getIntervals() : null);
+			sweepChr = chr;
+		}
+		if (!intervalSweep.canQuery(read)) return unsorted(read);
+
+		if (Config.get().isErrorOnMissingChromo() && snpEffectPredictor.isChromosomeMissing(read))
+			throw new RuntimeException("Chromosome missing for marker: " + read);
+
+		return snpEffectPredictor.queryDeep(read, intervalSweep.query(read));
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setMarkerTypes(MarkerTypes markerTypes) {
 		this.markerTypes = markerTypes;
 	}
 
+	public void setSweep(boolean sweep) {
+		this.sweep = sweep;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
 
+	/**
+	 * Summarize counters by marker into reads, bases and marker type counts
+	 */
+	void summarize() {
+		for (Map.Entry<Marker, MarkerCount> e : countByMarker.entrySet()) {
+			Marker m = e.getKey();
+			MarkerCount mc = e.getValue();
+			countReads.inc(m, mc.reads);
+			countBases.inc(m, mc.bases);
+
+			// Count by marker type (each read is counted only once per marker)
+			countTypes.inc(mc.type, mc.reads);
+			if (mc.subtype != null) countTypes.inc(mc.subtype, mc.reads);
+		}
+	}
+
+	/**
+	 * Reads are not sorted: Stop using a sweep line
+	 */
+	Markers unsorted(Marker read) {
+		if (verbose) Log.info("Reads in file '" + fileName + "' are not sorted by position (read: " + read + "). Not using a sweep line.");
+		sweep = false;
+		intervalSweep = null;
+		return snpEffectPredictor.queryDeep(read);
+	}
+
 }
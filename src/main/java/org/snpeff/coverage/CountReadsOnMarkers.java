@@ -31,6 +31,7 @@ public class CountReadsOnMarkers {
 	public static boolean debug = true;
 
 	boolean verbose = false; // Be verbose
+	int numThreads = 1; // Number of threads used to count each (indexed BAM) file
 	List<String> fileNames;
 	List<String> names;
 	Genome genome;
@@ -83,6 +84,7 @@ public class CountReadsOnMarkers {
 			CountReads countReads = new CountReads(fileName, snpEffectPredictor);
 			countReads.setMarkerTypes(markerTypes);
 			countReads.setVerbose(verbose);
+			countReads.setNumThreads(numThreads);
 			countReads.count();
 
 			countReadsByFile.add(countReads); // Add count to list
@@ -345,6 +347,10 @@ public class CountReadsOnMarkers {
 		return sb.toString();
 	}
 
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -1,19 +1,33 @@
 package org.snpeff.coverage;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Base by base coverage (one chromsome)
- * 
+ *
+ * Counts are kept as a difference array while reads are added, so
+ * incrementing a region takes constant time (instead of one operation
+ * per base). The array is converted to per base coverage (prefix sums)
+ * the first time coverage is requested, and converted back if more
+ * regions are added.
+ *
+ * Coverage values saturate at Integer.MAX_VALUE
+ *
  * @author pcingola
  */
 public class CoverageChr implements Serializable {
 
-	private static final long serialVersionUID = -5620938926858131251L;
-	short count[];
+	private static final long serialVersionUID = -5620938926858131252L;
+
+	int len;
+	int count[]; // Difference array (see 'summed')
+	boolean summed; // If true, 'count' is the coverage per base, otherwise it is a difference array
 
 	public CoverageChr(int len) {
-		count = new short[len];
+		this.len = len;
+		count = new int[len + 1]; // Extra element for regions ending at the last base
+		summed = false;
 	}
 
 	/**
@@ -29,16 +43,32 @@ public class CoverageChr implements Serializable {
 	 * @return Average coverage per base
 	 */
 	public long coverage(int start, int end) {
+		sum();
+
 		// Calculate the average coverage
 		long sum = 0;
-		for( int i = start; i <= end; i++ )
+		for (int i = start; i <= end; i++)
 			sum += count[i];
 
 		return sum;
 	}
 
-	public short[] getCount() {
-		return count;
+	/**
+	 * Convert per base coverage to a difference array
+	 */
+	void diff() {
+		if (!summed) return;
+		for (int i = len; i > 0; i--)
+			count[i] -= count[i - 1];
+		summed = false;
+	}
+
+	/**
+	 * Coverage per base
+	 */
+	public int[] getCount() {
+		sum();
+		return Arrays.copyOf(count, len);
 	}
 
 	/**
@@ -47,15 +77,35 @@ public class CoverageChr implements Serializable {
 	 * @param end
 	 */
 	public void inc(int start, int end) {
-		for( int i = start; i <= end; i++ )
-			if( count[i] < Short.MAX_VALUE ) count[i]++;
+		if ((start < 0) || (end >= len)) throw new IndexOutOfBoundsException("Region [" + start + ", " + end + "] out of bounds, length is " + len);
+		diff();
+		if ((count[start] == Integer.MAX_VALUE) || (count[end + 1] == Integer.MIN_VALUE)) return; // Saturated
+		count[start]++;
+		count[end + 1]--;
+	}
+
+	/**
+	 * Convert a difference array to per base coverage
+	 * Values saturate at Integer.MAX_VALUE
+	 */
+	void sum() {
+		if (summed) return;
+
+		long sum = 0;
+		for (int i = 0; i <= len; i++) {
+			sum += count[i];
+			count[i] = (int) Math.min(sum, Integer.MAX_VALUE);
+		}
+		summed = true;
 	}
 
 	@Override
 	public String toString() {
+		sum();
+
 		StringBuilder sb = new StringBuilder();
-		for( int i = 0; i < count.length; i++ )
-			if( count[i] != 0 ) sb.append(i + "\t" + count[i] + "\n");
+		for (int i = 0; i < len; i++)
+			if (count[i] != 0) sb.append(i + "\t" + count[i] + "\n");
 		return sb.toString();
 	}
 }
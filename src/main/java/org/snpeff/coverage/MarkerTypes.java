@@ -3,8 +3,9 @@ package org.snpeff.coverage;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.snpeff.interval.Exon;
 import org.snpeff.interval.Intron;
@@ -19,11 +20,11 @@ import org.snpeff.interval.Transcript;
 public class MarkerTypes {
 
 	HashMap<Marker, String> marker2type;
-	HashSet<String> markerTypesClass;
+	Set<String> markerTypesClass; // Concurrent: Types are added while counting (possibly from many threads)
 
 	public MarkerTypes() {
 		marker2type = new HashMap<Marker, String>();
-		markerTypesClass = new HashSet<String>();
+		markerTypesClass = ConcurrentHashMap.newKeySet();
 	}
 
 	public void addType(Marker marker, String type) {
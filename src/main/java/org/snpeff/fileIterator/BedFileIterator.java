@@ -1,5 +1,6 @@
 package org.snpeff.fileIterator;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 
 import org.snpeff.interval.Chromosome;
@@ -45,6 +46,11 @@ public class BedFileIterator extends VariantFileIterator {
 		return markers;
 	}
 
+	public BedFileIterator(BufferedReader reader) {
+		super(reader);
+		inOffset = 0;
+	}
+
 	public BedFileIterator(String fileName) {
 		super(fileName);
 		inOffset = 0;
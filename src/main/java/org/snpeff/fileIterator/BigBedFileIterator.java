@@ -1,77 +1,70 @@
 package org.snpeff.fileIterator;
 
+import java.util.List;
 
 import org.snpeff.interval.Variant;
+import org.snpeff.interval.VariantWithScore;
 
 /**
- * FileIterator for BigBed features
- * WARNING: Removed in 2022-01 due to dependency on IGV's code (which depends on Log4j, which has a major security issue)
+ * FileIterator for BigBed (and BigWig) features
  *
- * Note: I use Broad's IGV code to do all the work, this is just a wrapper
+ * Features are read one chromosome at a time, using the file's
+ * index (see BigFile). To query only a few regions, use BigFile
+ * directly instead of iterating over the whole file.
  *
  * @author pablocingolani
  */
 public class BigBedFileIterator extends VariantFileIterator {
 
-//	BBFileReader readerBb;
-//	BBFileHeader bbFileHdr;
-//	Iterator<BedFeature> iterator;
+	BigFile bigFile;
 	String label;
+	int chrIdx; // Next chromosome to read
+	List<BigFile.Feature> features; // Features in current chromosome
+	int featureIdx; // Next feature to return
 
 	public BigBedFileIterator(String fileName) {
-		super(null);
-//		inOffset = 0;
-//		open(fileName);
+		super((String) null);
+		inOffset = 0;
+		this.fileName = fileName;
+		bigFile = new BigFile(fileName);
+		label = bigFile.getLabel();
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		if (bigFile != null) bigFile.close();
+		bigFile = null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			next = readNext(); // Try reading next item.
+			if (next == null) close(); // End of file
+		}
+		return (next != null);
 	}
 
-//	@Override
-//	public boolean hasNext() {
-//		return iterator.hasNext();
-//	}
-//
-//	@Override
-//	public Variant next() {
-//		return readNext();
-//	}
-//
-//	/**
-//	 * Open file
-//	 * @param fileName
-//	 */
-//	void open(String fileName) {
-//		try {
-//			label = Gpr.removeExt(Gpr.baseName(fileName));
-//
-//			// Open file
-//			BBFileReader readerBb = new BBFileReader(fileName);
-//			BBFileHeader bbFileHdr = readerBb.getBBFileHeader(); // Get header
-//			if (!bbFileHdr.isHeaderOK()) throw new IOException("Bad header for file '" + fileName + "'"); // Sanity check
-//			if (!bbFileHdr.isBigBed()) throw new RuntimeException("Unrecognized header type for file '" + fileName + "' (expecting BigBed)"); // Get file type
-//
-//			iterator = readerBb.getBigBedIterator();
-//		} catch (Exception e) {
-//			throw new RuntimeException("Error loading file '" + fileName + "'.", e);
-//		}
-//	}
-//
 	@Override
 	protected Variant readNext() {
-//		// Get next item
-//		BedFeature f = iterator.next();
-//		if (f == null) return null;
-//
-//		// Create an ID
-//		String id = label + ":" + (f.getStartBase() + 1) + "_" + f.getEndBase(); // Show as one-based coordinates
-//
-//		// Get score
-//		String restOfFields[] = f.getRestOfFields();
-//		double score = Gpr.parseDoubleSafe(restOfFields[1]);
-//
-//		// Create variant
-//		Variant variant = new VariantWithScore(getChromosome(f.getChromosome()), f.getStartBase(), f.getEndBase() - 1, id, score);
-//
-//		return variant;
-		return null;
+		if (bigFile == null) return null;
+
+		// Get next item, read next chromosome if needed
+		while ((features == null) || (featureIdx >= features.size())) {
+			List<String> chrNames = bigFile.getChromosomeNames();
+			if (chrIdx >= chrNames.size()) return null;
+			String chr = chrNames.get(chrIdx++);
+			features = bigFile.query(chr, 0, bigFile.getChromosomeSize(chr) - 1);
+			featureIdx = 0;
+		}
+		BigFile.Feature f = features.get(featureIdx++);
+
+		// Create an ID
+		String id = label + ":" + (f.start + 1) + "_" + (f.end + 1); // Show as one-based coordinates
+
+		// Create variant
+		return new VariantWithScore(getChromosome(f.chr), f.start, f.end, id, f.score);
 	}
 
 }
@@ -0,0 +1,490 @@
+package org.snpeff.fileIterator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Custom;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.util.Gpr;
+
+/**
+ * Indexed access to BigBed and BigWig files (UCSC's binary formats)
+ *
+ * Only the header and the chromosome B+ tree are read when the file is
+ * opened. Queries use the file's R-tree index to read only the data
+ * blocks overlapping the query. R-tree nodes and decompressed data blocks
+ * are cached, so consecutive queries (e.g. variants sorted by position)
+ * seldom read the file. Zoom levels and summaries are not used.
+ *
+ * This class is thread safe: The file is read using positional reads
+ * and caches are synchronized.
+ *
+ * Coordinates in the file are zero-based, half open. Features are
+ * returned as zero-based, closed, intervals (same as Marker).
+ *
+ * Reference: Kent et al. 'BigWig and BigBed: enabling browsing of large
+ * distributed datasets', Bioinformatics 2010.
+ *
+ * @author pcingola
+ */
+public class BigFile implements AutoCloseable {
+
+	public static final int MAGIC_BIGBED = 0x8789F2EB;
+	public static final int MAGIC_BIGWIG = 0x888FFC26;
+	public static final int MAGIC_CHROM_TREE = 0x78CA8C91;
+	public static final int MAGIC_RTREE = 0x2468ACE0;
+	public static final int HEADER_SIZE = 64;
+	public static final int RTREE_HEADER_SIZE = 48;
+
+	public static int MAX_CACHED_BLOCKS = 1024; // Maximum number of decompressed data blocks cached
+
+	// BigWig section types
+	public static final int WIG_TYPE_BEDGRAPH = 1;
+	public static final int WIG_TYPE_VARSTEP = 2;
+	public static final int WIG_TYPE_FIXEDSTEP = 3;
+
+	/**
+	 * A feature (BigBed entry or BigWig value)
+	 */
+	public static class Feature {
+		public String chr;
+		public int start, end; // Zero-based, closed interval
+		public double score;
+		public String rest; // BigBed only: Rest of the fields (tab separated)
+
+		@Override
+		public String toString() {
+			return chr + ":" + start + "-" + end + "\t" + score + (rest != null ? "\t" + rest : "");
+		}
+	}
+
+	/**
+	 * R-tree node
+	 */
+	static class RtreeNode {
+		boolean leaf;
+		int startChr[], startBase[], endChr[], endBase[];
+		long offset[]; // Child node offset (or data block offset, if leaf)
+		long size[]; // Data block size (leaf only)
+	}
+
+	String fileName;
+	String label;
+	FileChannel channel;
+	ByteOrder byteOrder;
+	boolean bigBed;
+	long fullDataOffset, fullIndexOffset;
+	int uncompressBufSize;
+	Map<String, Integer> chrIdByName; // Chromosome ID by (simple) chromosome name
+	List<String> chrNames; // Chromosome names, indexed by chromosome ID
+	List<Integer> chrSizes; // Chromosome sizes, indexed by chromosome ID
+	long dataCount; // Number of records (BigBed) or sections (BigWig)
+	Map<Long, RtreeNode> nodeCache; // R-tree nodes by file offset
+	LinkedHashMap<Long, ByteBuffer> blockCache; // Decompressed data blocks by file offset (LRU)
+
+	public BigFile(String fileName) {
+		this.fileName = fileName;
+		label = Gpr.removeExt(Gpr.baseName(fileName));
+		nodeCache = new ConcurrentHashMap<>();
+		blockCache = new LinkedHashMap<Long, ByteBuffer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest) {
+				return size() > MAX_CACHED_BLOCKS;
+			}
+		};
+		open();
+	}
+
+	/**
+	 * Is this a BigBed or BigWig file? (by file extension)
+	 */
+	public static boolean isBigFile(String fileName) {
+		String fl = fileName.toLowerCase();
+		return fl.endsWith(".bb") || fl.endsWith(".bigbed") || fl.endsWith(".bw") || fl.endsWith(".bigwig");
+	}
+
+	/**
+	 * Parse features in a data block overlapping a query, add them to 'features'
+	 */
+	void addFeatures(ByteBuffer block, int chrId, int start, int end, List<Feature> features) {
+		if (bigBed) addFeaturesBed(block, chrId, start, end, features);
+		else addFeaturesWig(block, chrId, start, end, features);
+	}
+
+	/**
+	 * Parse BigBed records: chrId, start, end, rest (zero terminated string)
+	 */
+	void addFeaturesBed(ByteBuffer block, int chrId, int start, int end, List<Feature> features) {
+		while (block.remaining() >= 12) {
+			int fchr = block.getInt();
+			int fstart = block.getInt();
+			int fend = block.getInt();
+
+			int restStart = block.position();
+			while (block.get() != 0);
+			int restLen = block.position() - restStart - 1;
+
+			if ((fchr != chrId) || (fstart >= end) || (fend <= start)) continue;
+
+			Feature f = new Feature();
+			f.chr = chrNames.get(fchr);
+			f.start = fstart;
+			f.end = Math.max(fstart, fend - 1);
+			f.rest = new String(block.array(), block.arrayOffset() + restStart, restLen, StandardCharsets.UTF_8);
+
+			// Score is the second 'rest' field (i.e. BED's 5th column)
+			String fields[] = f.rest.split("\t");
+			f.score = fields.length > 1 ? Gpr.parseDoubleSafe(fields[1]) : Double.NaN;
+
+			features.add(f);
+		}
+	}
+
+	/**
+	 * Parse BigWig sections (bedGraph, variableStep or fixedStep)
+	 */
+	void addFeaturesWig(ByteBuffer block, int chrId, int start, int end, List<Feature> features) {
+		while (block.remaining() >= 24) {
+			int schr = block.getInt();
+			int sstart = block.getInt();
+			block.getInt(); // Section end
+			int itemStep = block.getInt();
+			int itemSpan = block.getInt();
+			int type = block.get();
+			block.get(); // Reserved
+			int itemCount = block.getShort() & 0xFFFF;
+
+			for (int i = 0; i < itemCount; i++) {
+				int fstart, fend;
+				switch (type) {
+				case WIG_TYPE_BEDGRAPH:
+					fstart = block.getInt();
+					fend = block.getInt();
+					break;
+				case WIG_TYPE_VARSTEP:
+					fstart = block.getInt();
+					fend = fstart + itemSpan;
+					break;
+				case WIG_TYPE_FIXEDSTEP:
+					fstart = sstart + i * itemStep;
+					fend = fstart + itemSpan;
+					break;
+				default:
+					throw new RuntimeException("Unknown BigWig section type " + type + " in file '" + fileName + "'");
+				}
+				float value = block.getFloat();
+
+				if ((schr != chrId) || (fstart >= end) || (fend <= start)) continue;
+
+				Feature f = new Feature();
+				f.chr = chrNames.get(schr);
+				f.start = fstart;
+				f.end = Math.max(fstart, fend - 1);
+				f.score = value;
+				features.add(f);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (channel != null) channel.close();
+			channel = null;
+		} catch (IOException e) {
+			throw new RuntimeException("Error closing file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Get a (decompressed) data block
+	 * @return A buffer having the block's data (a duplicate, so it can be used concurrently)
+	 */
+	ByteBuffer dataBlock(long offset, long size) {
+		ByteBuffer block;
+		synchronized (blockCache) {
+			block = blockCache.get(offset);
+		}
+
+		if (block == null) {
+			block = read(offset, (int) size);
+
+			// Decompress
+			if (uncompressBufSize > 0) {
+				Inflater inflater = new Inflater();
+				try {
+					inflater.setInput(block.array(), block.arrayOffset(), block.remaining());
+					byte out[] = new byte[uncompressBufSize];
+					int len = 0;
+					while (!inflater.finished() && len < out.length) {
+						int n = inflater.inflate(out, len, out.length - len);
+						if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+						len += n;
+					}
+					block = ByteBuffer.wrap(out, 0, len).slice().order(byteOrder);
+				} catch (DataFormatException e) {
+					throw new RuntimeException("Error decompressing data block at offset " + offset + " in file '" + fileName + "'", e);
+				} finally {
+					inflater.end();
+				}
+			}
+
+			synchronized (blockCache) {
+				blockCache.put(offset, block);
+			}
+		}
+
+		return block.duplicate().order(byteOrder);
+	}
+
+	public List<String> getChromosomeNames() {
+		return chrNames;
+	}
+
+	/**
+	 * Chromosome size (or -1 if the chromosome is not in the file)
+	 */
+	public int getChromosomeSize(String chr) {
+		Integer chrId = chrIdByName.get(Chromosome.simpleName(chr));
+		return chrId != null ? chrSizes.get(chrId) : -1;
+	}
+
+	public long getDataCount() {
+		return dataCount;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public boolean isBigBed() {
+		return bigBed;
+	}
+
+	public boolean isBigWig() {
+		return !bigBed;
+	}
+
+	/**
+	 * Read header, chromosome tree and R-tree header
+	 */
+	void open() {
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+
+			// Header. Byte order is detected using the magic number
+			ByteBuffer header = read(0, HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			int magic = header.getInt(0);
+			if ((magic != MAGIC_BIGBED) && (magic != MAGIC_BIGWIG)) {
+				header.order(ByteOrder.BIG_ENDIAN);
+				magic = header.getInt(0);
+				if ((magic != MAGIC_BIGBED) && (magic != MAGIC_BIGWIG)) throw new RuntimeException("File '" + fileName + "' is not a BigBed or BigWig file");
+			}
+			byteOrder = header.order();
+			bigBed = (magic == MAGIC_BIGBED);
+
+			header.position(8); // Skip magic, version and zoomLevels
+			long chromTreeOffset = header.getLong();
+			fullDataOffset = header.getLong();
+			fullIndexOffset = header.getLong();
+			header.position(header.position() + 2 + 2 + 8 + 8); // Skip fieldCount, definedFieldCount, autoSqlOffset and totalSummaryOffset
+			uncompressBufSize = header.getInt();
+
+			readChromosomeTree(chromTreeOffset);
+
+			// R-tree header
+			ByteBuffer rtreeHeader = read(fullIndexOffset, RTREE_HEADER_SIZE);
+			if (rtreeHeader.getInt() != MAGIC_RTREE) throw new RuntimeException("Invalid R-tree index in file '" + fileName + "'");
+
+			dataCount = read(fullDataOffset, 8).getLong();
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Query features overlapping a region
+	 * @param start : Start (zero-based)
+	 * @param end : End (zero-based, inclusive)
+	 */
+	public List<Feature> query(String chr, int start, int end) {
+		List<Feature> features = new ArrayList<>();
+		Integer chrId = chrIdByName.get(Chromosome.simpleName(chr));
+		if (chrId == null) return features; // Chromosome not in file
+
+		// Find data blocks using the R-tree, then parse blocks
+		List<long[]> blocks = new ArrayList<>();
+		queryRtree(fullIndexOffset + RTREE_HEADER_SIZE, chrId, start, end + 1, blocks);
+		for (long[] block : blocks)
+			addFeatures(dataBlock(block[0], block[1]), chrId, start, end + 1, features);
+
+		return features;
+	}
+
+	/**
+	 * Query features overlapping 'marker', as 'Custom' markers
+	 * Parent of each 'Custom' is marker's chromosome
+	 */
+	public Markers query(Marker marker) {
+		Markers results = new Markers();
+		query(marker, results);
+		return results;
+	}
+
+	/**
+	 * Query features overlapping 'marker', add them to 'results' (as 'Custom' markers)
+	 * @return Number of markers added
+	 */
+	public int query(Marker marker, Markers results) {
+		List<Feature> features = query(marker.getChromosomeName(), marker.getStart(), marker.getEnd());
+		Chromosome chr = marker.getChromosome();
+		for (Feature f : features) {
+			String id = label + ":" + (f.start + 1) + "_" + (f.end + 1); // Show as one-based coordinates
+			Custom custom = new Custom(chr, f.start, f.end, false, id, label);
+			custom.setScore(f.score);
+			results.add(custom);
+		}
+		return features.size();
+	}
+
+	/**
+	 * Find all data blocks overlapping a query (half open coordinates)
+	 */
+	void queryRtree(long nodeOffset, int chrId, int start, int end, List<long[]> blocks) {
+		RtreeNode node = rtreeNode(nodeOffset);
+		for (int i = 0; i < node.offset.length; i++) {
+			// Does this item overlap the query? Compare (chromosome, base) pairs
+			boolean startsBeforeEnd = (node.startChr[i] < chrId) || ((node.startChr[i] == chrId) && (node.startBase[i] < end));
+			boolean endsAfterStart = (node.endChr[i] > chrId) || ((node.endChr[i] == chrId) && (node.endBase[i] > start));
+			if (!startsBeforeEnd || !endsAfterStart) continue;
+
+			if (node.leaf) blocks.add(new long[] { node.offset[i], node.size[i] });
+			else queryRtree(node.offset[i], chrId, start, end, blocks);
+		}
+	}
+
+	/**
+	 * Read 'len' bytes from the file
+	 */
+	ByteBuffer read(long offset, int len) {
+		ByteBuffer buffer = ByteBuffer.allocate(len);
+		try {
+			while (buffer.hasRemaining()) {
+				int n = channel.read(buffer, offset + buffer.position());
+				if (n < 0) throw new RuntimeException("Unexpected end of file '" + fileName + "' reading " + len + " bytes at offset " + offset);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading file '" + fileName + "'", e);
+		}
+		buffer.flip();
+		if (byteOrder != null) buffer.order(byteOrder);
+		return buffer;
+	}
+
+	/**
+	 * Read chromosome B+ tree (all chromosome names, IDs and sizes)
+	 */
+	void readChromosomeTree(long offset) {
+		ByteBuffer header = read(offset, 32);
+		if (header.getInt() != MAGIC_CHROM_TREE) throw new RuntimeException("Invalid chromosome tree in file '" + fileName + "'");
+		header.getInt(); // Block size
+		int keySize = header.getInt();
+		header.getInt(); // Value size
+		long count = header.getLong();
+
+		Map<Integer, String> names = new HashMap<>();
+		Map<Integer, Integer> sizes = new HashMap<>();
+		readChromosomeTreeNode(offset + 32, keySize, names, sizes);
+
+		chrIdByName = new HashMap<>();
+		chrNames = new ArrayList<>();
+		chrSizes = new ArrayList<>();
+		for (int chrId = 0; chrId < count; chrId++) {
+			chrNames.add(names.get(chrId));
+			chrSizes.add(sizes.get(chrId));
+			chrIdByName.put(Chromosome.simpleName(names.get(chrId)), chrId);
+		}
+	}
+
+	void readChromosomeTreeNode(long offset, int keySize, Map<Integer, String> names, Map<Integer, Integer> sizes) {
+		ByteBuffer header = read(offset, 4);
+		boolean leaf = header.get() != 0;
+		header.get(); // Reserved
+		int count = header.getShort() & 0xFFFF;
+
+		int itemSize = keySize + 8; // Leaf: chromId and chromSize. Non-leaf: child offset
+		ByteBuffer items = read(offset + 4, count * itemSize);
+		byte key[] = new byte[keySize];
+		for (int i = 0; i < count; i++) {
+			items.get(key);
+			if (leaf) {
+				int len = 0;
+				while (len < keySize && key[len] != 0)
+					len++;
+				int chrId = items.getInt();
+				names.put(chrId, new String(key, 0, len, StandardCharsets.UTF_8));
+				sizes.put(chrId, items.getInt());
+			} else {
+				long childOffset = items.getLong();
+				readChromosomeTreeNode(childOffset, keySize, names, sizes);
+			}
+		}
+	}
+
+	/**
+	 * Get (or read) an R-tree node
+	 */
+	RtreeNode rtreeNode(long offset) {
+		RtreeNode node = nodeCache.get(offset);
+		if (node != null) return node;
+
+		ByteBuffer header = read(offset, 4);
+		node = new RtreeNode();
+		node.leaf = header.get() != 0;
+		header.get(); // Reserved
+		int count = header.getShort() & 0xFFFF;
+
+		node.startChr = new int[count];
+		node.startBase = new int[count];
+		node.endChr = new int[count];
+		node.endBase = new int[count];
+		node.offset = new long[count];
+		if (node.leaf) node.size = new long[count];
+
+		ByteBuffer items = read(offset + 4, count * (node.leaf ? 32 : 24));
+		for (int i = 0; i < count; i++) {
+			node.startChr[i] = items.getInt();
+			node.startBase[i] = items.getInt();
+			node.endChr[i] = items.getInt();
+			node.endBase[i] = items.getInt();
+			node.offset[i] = items.getLong();
+			if (node.leaf) node.size[i] = items.getLong();
+		}
+
+		nodeCache.put(offset, node);
+		return node;
+	}
+
+	@Override
+	public String toString() {
+		return (bigBed ? "BigBed" : "BigWig") + " file '" + fileName + "', chromosomes: " + chrNames.size() + ", " + (bigBed ? "records" : "sections") + ": " + dataCount;
+	}
+}
@@ -0,0 +1,211 @@
+package org.snpeff.fileIterator;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.snpeff.util.Gpr;
+
+/**
+ * Random access to sequences in a FASTA file, using a 'samtools faidx' index (i.e. '.fai' file).
+ *
+ * Each sequence is read directly from its position in the file, so
+ * sequences can be read in any order (and concurrently, this class
+ * is thread safe). Only uncompressed FASTA files are supported.
+ *
+ * Index format (tab separated): name, length, offset, bases per line, bytes per line
+ *
+ * @author pcingola
+ */
+public class FastaIndexedFile {
+
+	public static final String EXTENSION_FAI = ".fai";
+
+	/**
+	 * Index entry for one sequence
+	 */
+	static class FaiEntry {
+		String name;
+		int length; // Sequence length
+		long offset; // Offset of the first base in the file
+		int lineBases; // Bases per line
+		int lineWidth; // Bytes per line (including new line characters)
+	}
+
+	String fastaFile;
+	List<String> names; // Sequence names (same order as in the file)
+	Map<String, FaiEntry> entries;
+	FileChannel channel;
+
+	/**
+	 * Create a '.fai' index for a FASTA file (same as 'samtools faidx')
+	 * Note: All lines in a sequence, except the last one, must have the same length
+	 */
+	public static String createIndex(String fastaFile) {
+		StringBuilder sb = new StringBuilder();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(fastaFile), 1024 * 1024)) {
+			StringBuilder name = null;
+			long pos = 0, offset = 0;
+			int length = 0, lineBases = 0, lineWidth = 0, lineLen = 0, lineBytes = 0;
+			boolean header = false;
+
+			for (int c = in.read(); c >= 0; c = in.read(), pos++) {
+				if (header) {
+					if (c == '\n') {
+						header = false;
+						offset = pos + 1;
+					} else name.append((char) c);
+					continue;
+				}
+
+				if (lineBytes == 0 && c == '>') {
+					if (name != null) sb.append(faiLine(name, length, offset, lineBases, lineWidth));
+					name = new StringBuilder();
+					header = true;
+					length = lineBases = lineWidth = 0;
+					continue;
+				}
+
+				lineBytes++;
+				if (c == '\n') {
+					// End of line: The first line in a sequence defines line length
+					if (lineBases == 0) {
+						lineBases = lineLen;
+						lineWidth = lineBytes;
+					}
+					lineLen = lineBytes = 0;
+				} else if (c != '\r') {
+					lineLen++;
+					length++;
+				}
+			}
+
+			if (name != null) {
+				if (lineBases == 0) { // Single line without new line character
+					lineBases = lineLen;
+					lineWidth = lineBytes;
+				}
+				sb.append(faiLine(name, length, offset, lineBases, lineWidth));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error creating index for file '" + fastaFile + "'", e);
+		}
+
+		String faiFile = fastaFile + EXTENSION_FAI;
+		Gpr.toFile(faiFile, sb);
+		return faiFile;
+	}
+
+	static String faiLine(StringBuilder header, int length, long offset, int lineBases, int lineWidth) {
+		String name = header.toString().trim().split("\\s+")[0];
+		return name + "\t" + length + "\t" + offset + "\t" + lineBases + "\t" + lineWidth + "\n";
+	}
+
+	/**
+	 * Does this FASTA file have an index?
+	 */
+	public static boolean hasIndex(String fastaFile) {
+		return !fastaFile.endsWith(".gz") && Gpr.canRead(fastaFile + EXTENSION_FAI);
+	}
+
+	public FastaIndexedFile(String fastaFile) {
+		this.fastaFile = fastaFile;
+		readIndex(fastaFile + EXTENSION_FAI);
+		try {
+			channel = new RandomAccessFile(fastaFile, "r").getChannel();
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fastaFile + "'", e);
+		}
+	}
+
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Sequence length, or -1 if the sequence is not in the index
+	 */
+	public int getLength(String name) {
+		FaiEntry fe = entries.get(name);
+		return fe != null ? fe.length : -1;
+	}
+
+	/**
+	 * Sequence names, in the same order as in the FASTA file
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * Read a full sequence
+	 * @return Sequence or null if the sequence is not in the index
+	 */
+	public String getSequence(String name) {
+		FaiEntry fe = entries.get(name);
+		if (fe == null) return null;
+		if (fe.length == 0) return "";
+
+		// Number of bytes: full lines plus the bases in the last line
+		long fullLines = (fe.length - 1) / fe.lineBases;
+		long len = fullLines * fe.lineWidth + (fe.length - fullLines * fe.lineBases);
+		if (len > Integer.MAX_VALUE) throw new RuntimeException("Sequence '" + name + "' is too long: " + fe.length);
+
+		// Read bytes (positional reads are thread safe)
+		ByteBuffer buffer = ByteBuffer.allocate((int) len);
+		try {
+			for (long pos = fe.offset; buffer.hasRemaining();) {
+				int read = channel.read(buffer, pos);
+				if (read < 0) throw new RuntimeException("Unexpected end of file '" + fastaFile + "' reading sequence '" + name + "'");
+				pos += read;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading sequence '" + name + "' from file '" + fastaFile + "'", e);
+		}
+
+		// Remove new line characters
+		byte bytes[] = buffer.array();
+		int n = 0;
+		for (int i = 0; i < bytes.length; i++)
+			if (bytes[i] != '\n' && bytes[i] != '\r') bytes[n++] = bytes[i];
+
+		return new String(bytes, 0, n, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Read '.fai' file
+	 */
+	void readIndex(String faiFile) {
+		names = new ArrayList<>();
+		entries = new HashMap<>();
+		for (String line : Gpr.readFile(faiFile).split("\n")) {
+			if (line.isEmpty()) continue;
+			String fields[] = line.split("\t");
+			if (fields.length < 5) throw new RuntimeException("Error parsing index file '" + faiFile + "', line: '" + line + "'");
+
+			FaiEntry fe = new FaiEntry();
+			fe.name = fields[0];
+			fe.length = Gpr.parseIntSafe(fields[1]);
+			fe.offset = Gpr.parseLongSafe(fields[2]);
+			fe.lineBases = Gpr.parseIntSafe(fields[3]);
+			fe.lineWidth = Gpr.parseIntSafe(fields[4]);
+
+			names.add(fe.name);
+			entries.put(fe.name, fe);
+		}
+	}
+
+}
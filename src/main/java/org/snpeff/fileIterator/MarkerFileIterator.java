@@ -27,6 +27,12 @@ public abstract class MarkerFileIterator<M extends Marker> extends FileIterator<
 		this.genome = new Genome("genome");
 	}
 
+	public MarkerFileIterator(BufferedReader reader, Genome genome, int inOffset) {
+		super(reader);
+		this.inOffset = inOffset;
+		this.genome = (genome != null ? genome : new Genome("genome"));
+	}
+
 	public MarkerFileIterator(String fileName, Genome genome, int inOffset) {
 		super(fileName);
 		this.inOffset = inOffset;
@@ -0,0 +1,277 @@
+package org.snpeff.fileIterator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Custom;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.Variant;
+import org.snpeff.util.BgzfInputStream;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+import org.snpeff.vcf.TabixIndex;
+
+/**
+ * Custom intervals from a sorted BED file (optionally bgzip / gzip compressed),
+ * queried in a streaming fashion (i.e. a merge-join against sorted queries).
+ *
+ * Intervals are not loaded into memory: Only a window of 'active' intervals
+ * (the ones that may intersect the current or following queries) is kept.
+ * Queries must be sorted by start position within each chromosome (e.g. entries
+ * in a sorted VCF file).
+ *
+ * The BED file must be sorted by start position within each chromosome, and
+ * all intervals in a chromosome must be together. Ideally chromosomes are in
+ * the same order as the queries: If a query's chromosome was already passed
+ * (or queries are not sorted), the file is read again from the beginning.
+ *
+ * If the file is BGZF compressed and indexed by 'tabix' (file.bed.gz.tbi), the
+ * index is used to jump to the first query in each chromosome instead (e.g. when
+ * annotating a region or a shard of the input, only that part of the file is read).
+ *
+ * Intervals are returned as 'Custom' markers (same as custom intervals
+ * loaded from a BED file, see SnpEff.loadMarkers).
+ *
+ * Note: This class is not thread safe
+ *
+ * @author pcingola
+ */
+public class SortedBedTrack implements AutoCloseable {
+
+	boolean verbose = false;
+	boolean eof; // Have we reached the end of the file at least once? If so, 'fileChrs' has all chromosomes in the file
+	boolean nextFirstInChr; // Is 'next' the first interval in its chromosome?
+	String fileName;
+	String label;
+	BedFileIterator bedFile;
+	Custom next; // Next interval from the file (not in the active window yet)
+	String chr; // Current chromosome
+	int lastStart; // Start of the latest query
+	ArrayList<Custom> active; // Active window: Intervals that may intersect current query
+	HashSet<String> fileChrs; // Chromosomes found in the file so far
+	HashSet<String> passChrs; // Chromosomes found since the file was (re)opened
+	int countRewind; // Number of times the file was read again from the beginning
+	int countSeek; // Number of times the index was used to jump to a position
+	TabixIndex tabixIndex; // Index for BGZF files (null if the file is not indexed)
+
+	/**
+	 * Does the file have a 'tabix' index?
+	 */
+	public static boolean hasIndex(String fileName) {
+		return Gpr.canRead(TabixIndex.indexFileName(fileName));
+	}
+
+	public SortedBedTrack(String fileName) {
+		this.fileName = fileName;
+		label = Gpr.removeExt(Gpr.baseName(fileName));
+		active = new ArrayList<>();
+		fileChrs = new HashSet<>();
+		passChrs = new HashSet<>();
+		loadIndex();
+	}
+
+	@Override
+	public void close() {
+		if (bedFile != null) bedFile.close();
+		bedFile = null;
+		next = null;
+		active.clear();
+	}
+
+	public int getCountRewind() {
+		return countRewind;
+	}
+
+	public int getCountSeek() {
+		return countSeek;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public boolean isIndexed() {
+		return tabixIndex != null;
+	}
+
+	/**
+	 * Load 'tabix' index, if the file is BGZF compressed and indexed
+	 */
+	void loadIndex() {
+		if (!hasIndex(fileName)) return;
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+			if (!BgzfInputStream.isBgzf(in)) return;
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+
+		tabixIndex = new TabixIndex(TabixIndex.indexFileName(fileName));
+		tabixIndex.load();
+	}
+
+	/**
+	 * Move to chromosome 'chrName', for a query starting at 'start'.
+	 * Use the index or read the file from the beginning, if needed
+	 */
+	void moveToChromosome(String chrName, int start) {
+		active.clear();
+		chr = chrName;
+		lastStart = Integer.MIN_VALUE;
+
+		// Indexed file? Jump to the query
+		if (tabixIndex != null) {
+			seek(chrName, start);
+			return;
+		}
+
+		// Chromosome not in the file?
+		if (eof && !fileChrs.contains(chrName)) return;
+
+		// Already passed this chromosome or some of its intervals (or nothing read yet)? Start over
+		if (bedFile == null || (fileChrs.contains(chrName) && !(isChromosome(next, chrName) && nextFirstInChr))) rewind();
+
+		// Skip intervals from other chromosomes
+		while ((next != null) && !isChromosome(next, chrName))
+			readNext();
+	}
+
+	/**
+	 * Is marker 'm' in chromosome 'chrName'?
+	 */
+	boolean isChromosome(Marker m, String chrName) {
+		return (m != null) && Chromosome.simpleName(m.getChromosomeName()).equals(chrName);
+	}
+
+	/**
+	 * Query intervals intersecting [start, end] in chromosome 'chrName'
+	 * @return Number of intervals added to 'results'
+	 */
+	public int query(String chrName, int start, int end, Markers results) {
+		chrName = Chromosome.simpleName(chrName);
+		if (!chrName.equals(chr)) moveToChromosome(chrName, start);
+		else if (start < lastStart) {
+			// Query is not sorted: Start over
+			if (verbose) Log.info("Query " + chrName + ":" + start + " is before previous query (" + chrName + ":" + lastStart + "), reading file '" + fileName + "' " + (tabixIndex != null ? "using the index" : "from the beginning"));
+			moveToChromosome(chrName, start);
+		}
+		lastStart = start;
+
+		// Remove intervals ending before this query (they cannot intersect any further query)
+		int j = 0;
+		for (int i = 0; i < active.size(); i++)
+			if (active.get(i).getEnd() >= start) active.set(j++, active.get(i));
+		while (active.size() > j)
+			active.remove(active.size() - 1);
+
+		// Add intervals starting before the end of this query
+		while ((next != null) && isChromosome(next, chrName) && (next.getStart() <= end)) {
+			if (next.getEnd() >= start) active.add(next);
+			readNext();
+		}
+
+		// Add intervals intersecting the query
+		// Note: Intervals added by a previous (longer) query may start after this query's end
+		int count = 0;
+		for (Custom c : active) {
+			if (c.getStart() <= end) {
+				results.add(c);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Query intervals intersecting 'marker'
+	 * @return Number of intervals added to 'results'
+	 */
+	public int query(Marker marker, Markers results) {
+		return query(marker.getChromosomeName(), marker.getStart(), marker.getEnd(), results);
+	}
+
+	/**
+	 * Read next interval from the file
+	 */
+	void readNext() {
+		Custom prev = next;
+		Variant m = bedFile.hasNext() ? bedFile.next() : null;
+		if (m == null) {
+			next = null;
+			eof = true;
+			return;
+		}
+
+		next = new Custom(m.getParent(), m.getStart(), m.getEnd(), false, m.getId(), label);
+		String chrName = Chromosome.simpleName(next.getChromosomeName());
+		nextFirstInChr = !isChromosome(prev, chrName);
+		if (!nextFirstInChr) {
+			if (next.getStart() < prev.getStart()) throw new RuntimeException("File '" + fileName + "' is not sorted: Interval " + next + " is after " + prev);
+		} else {
+			if (!passChrs.add(chrName)) throw new RuntimeException("File '" + fileName + "' is not sorted: Intervals in chromosome '" + chrName + "' are not together");
+			fileChrs.add(chrName);
+		}
+	}
+
+	/**
+	 * Read file from the beginning
+	 */
+	void rewind() {
+		if (bedFile != null) {
+			bedFile.close();
+			countRewind++;
+		}
+
+		bedFile = new BedFileIterator(fileName);
+		passChrs.clear();
+		next = null;
+		readNext();
+	}
+
+	/**
+	 * Jump to the first interval that may intersect 'chrName:start', using the index
+	 */
+	void seek(String chrName, int start) {
+		if (bedFile != null) bedFile.close();
+		bedFile = null;
+		passChrs.clear();
+		next = null;
+		countSeek++;
+
+		long voffset = tabixIndex.offset(chrName, start + 1); // Index uses one-based coordinates
+		if (voffset < 0) return; // No intervals at or after 'start'
+
+		try {
+			// Virtual offset: Compressed block position and offset within uncompressed block
+			FileInputStream fis = new FileInputStream(fileName);
+			fis.getChannel().position(voffset >>> 16);
+			InputStream bin = new BgzfInputStream(new BufferedInputStream(fis, BgzfInputStream.MAX_BLOCK_SIZE), 1);
+			bin.readNBytes((int) (voffset & 0xffff));
+			bedFile = new BedFileIterator(new BufferedReader(new InputStreamReader(bin)));
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading file '" + fileName + "' at '" + chrName + ":" + start + "'", e);
+		}
+		readNext();
+
+		// Skip intervals from other chromosomes (e.g. the index points to the beginning of the file)
+		while ((next != null) && !isChromosome(next, chrName))
+			readNext();
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	@Override
+	public String toString() {
+		return "Sorted BED track '" + fileName + "', label '" + label + "'";
+	}
+}
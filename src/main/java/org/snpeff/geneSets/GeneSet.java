@@ -55,6 +55,16 @@ public class GeneSet implements Comparable<GeneSet>, Iterable<String>, Serializa
 		setName(namesAll);
 	}
 
+	/**
+	 * Create a copy of 'geneSet' (genes only) that belongs to a collection of gene sets 'geneSets'
+	 * @param geneSet
+	 * @param geneSets
+	 */
+	public GeneSet(GeneSet geneSet, GeneSets geneSets) {
+		this(geneSet.name, geneSet.description, geneSets);
+		genes.addAll(geneSet.genes);
+	}
+
 	/**
 	 * Create an empty gene set (that belongs to a collection of gene sets 'geneSets')
 	 * @param name
@@ -174,6 +174,24 @@ public class GeneSets implements Iterable<GeneSet>, Serializable {
 			gs.setGeneSets(this);
 	}
 
+	/**
+	 * Create a new collection having a copy of every gene set.
+	 * Only genes are copied (no values, ranks or 'interesting' genes), and
+	 * gene sets are not shared, so the copy can be used independently
+	 * (e.g. in another thread)
+	 */
+	public GeneSets copyGeneSets() {
+		GeneSets geneSetsCopy = isRanked() ? new GeneSetsRanked() : new GeneSets();
+		geneSetsCopy.label = label;
+		geneSetsCopy.verbose = verbose;
+		geneSetsCopy.doNotAddIfNotInGeneSet = doNotAddIfNotInGeneSet;
+
+		for (GeneSet gs : this)
+			geneSetsCopy.add(new GeneSet(gs, geneSetsCopy));
+
+		return geneSetsCopy;
+	}
+
 	/**
 	 * Produce a GeneSet based on a list of GeneSets and a 'mask'
 	 *
@@ -4,6 +4,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import org.apfloat.Apfloat;
 import org.snpeff.geneSets.GeneSet;
@@ -56,9 +60,11 @@ public abstract class EnrichmentAlgorithm {
 	boolean debug = false;
 	boolean verbose = false;
 	boolean htmlTable = false;
+	boolean suppressOutput = false; // Do not print results to STDOUT (they are still added to 'output')
 	int minGeneSetSize = 0;
 	int maxGeneSetSize = Integer.MAX_VALUE;
 	int numberToSelect;
+	int numThreads = 1; // Number of threads used to calculate p-values
 	double maxPValue = Double.NaN;
 	double maxPvalueAdjusted = 0.05;
 	StringBuilder output = new StringBuilder();
@@ -106,7 +112,7 @@ public abstract class EnrichmentAlgorithm {
 	}
 
 	protected void print(String str) {
-		System.out.println(str);
+		if (!suppressOutput) System.out.println(str);
 		output.append(str + "\n");
 	}
 
@@ -228,6 +234,38 @@ public abstract class EnrichmentAlgorithm {
 		return pValue(newGeneSet);
 	}
 
+	/**
+	 * Calculate p-values for a list of items (e.g. gene sets)
+	 * Items are evaluated in parallel when 'numThreads > 1'
+	 *
+	 * @return An array of p-values, in the same order as 'items'
+	 */
+	<T> Apfloat[] pValues(List<T> items, Function<T, Apfloat> pValueFunction) {
+		Apfloat pValues[] = new Apfloat[items.size()];
+
+		// Single thread
+		if ((numThreads <= 1) || (items.size() < 2)) {
+			for (int i = 0; i < pValues.length; i++)
+				pValues[i] = pValueFunction.apply(items.get(i));
+			return pValues;
+		}
+
+		// Multi-threaded: Each p-value is stored in its own slot, so the results do not depend on scheduling
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			pool.submit(() -> IntStream.range(0, pValues.length).parallel().forEach(i -> pValues[i] = pValueFunction.apply(items.get(i)))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		return pValues;
+	}
+
 	/**
 	 * Select the 'best' gene sets
 	 * @return
@@ -238,19 +276,19 @@ public abstract class EnrichmentAlgorithm {
 		//---
 		// Calculate pValues for each gene set matching our criteria
 		//---
-		List<Result> results = new ArrayList<Result>();
+		List<GeneSet> selected = new ArrayList<GeneSet>();
 		for (GeneSet geneSet : geneSets) {
 			if ((geneSet.getGeneCount() > 0) // This term is empty? => skip it
 					&& (geneSet.getGeneCount() >= minGeneSetSize) // Use gene sets bigger than minGeneSetSize
 					&& (geneSet.getGeneCount() <= maxGeneSetSize) // Use gene sets smaller than maxGeneSetSize
-			) {
-				// Calculate pValue
-				Apfloat pValue = pValue(geneSet);
-				Result result = new Result(geneSet, pValue, 0); // We'll update the geneSetCount later
-				results.add(result);
-			}
+			) selected.add(geneSet);
 		}
 
+		Apfloat pValues[] = pValues(selected, this::pValue);
+		List<Result> results = new ArrayList<Result>();
+		for (int i = 0; i < pValues.length; i++)
+			results.add(new Result(selected.get(i), pValues[i], 0)); // We'll update the geneSetCount later
+
 		// Update the geneSetCount
 		for (Result res : results)
 			res.setGeneSetCountLast(results.size());
@@ -303,6 +341,14 @@ public abstract class EnrichmentAlgorithm {
 		this.minGeneSetSize = minGeneSetSize;
 	}
 
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public void setSuppressOutput(boolean suppressOutput) {
+		this.suppressOutput = suppressOutput;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -1,5 +1,6 @@
 package org.snpeff.geneSets.algorithm;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -44,8 +45,6 @@ public abstract class EnrichmentAlgorithmGreedy extends EnrichmentAlgorithm {
 	 * @return
 	 */
 	protected Result greedyPvalue(Result prevResult, int minGeneSetSize, int maxGeneSetSize) {
-		Apfloat pValue = Apfloat.ONE;
-		int geneSetCount = 0;
 		HashSet<GeneSet> genesetSet = new HashSet<GeneSet>();
 		if (prevResult.getGeneSets() != null) genesetSet.addAll(prevResult.getGeneSets());
 		start = new Date();
@@ -56,6 +55,7 @@ public abstract class EnrichmentAlgorithmGreedy extends EnrichmentAlgorithm {
 		best.setPvalue(1.0); // Any p-value should be less than this one
 
 		// For each geneSet...
+		List<List<GeneSet>> candidates = new ArrayList<List<GeneSet>>();
 		for (GeneSet geneSet : geneSets) {
 
 			// Check GeneSet's conditions
@@ -68,20 +68,26 @@ public abstract class EnrichmentAlgorithmGreedy extends EnrichmentAlgorithm {
 				List<GeneSet> geneSetListNew = new LinkedList<GeneSet>();
 				if (genesetSet != null) geneSetListNew.addAll(genesetSet);
 				geneSetListNew.add(geneSet);
+				candidates.add(geneSetListNew);
+			}
+		}
 
-				// Calculate p-value
-				pValue = pValue(geneSetListNew);
+		// Calculate p-values (may be in parallel)
+		Apfloat pValues[] = pValues(candidates, this::pValue);
 
-				// Is it better? => Store it
-				if ((pValue.compareTo(Apfloat.ZERO) > 0) && (pValue.compareTo(best.getPvalue()) < 0)) best.set(geneSetListNew, pValue);
+		// Find the best one, in the same order as the gene sets were evaluated
+		for (int i = 0; i < pValues.length; i++) {
+			List<GeneSet> geneSetListNew = candidates.get(i);
+			Apfloat pValue = pValues[i];
 
-				showProgress(geneSetListNew, pValue, best); // Show some progress every now and then
-				geneSetCount++;
-			}
+			// Is it better? => Store it
+			if ((pValue.compareTo(Apfloat.ZERO) > 0) && (pValue.compareTo(best.getPvalue()) < 0)) best.set(geneSetListNew, pValue);
+
+			showProgress(geneSetListNew, pValue, best); // Show some progress every now and then
 		}
 
 		// Update gene set counts. This is used in order to adjust pValue
-		best.addGeneSetCount(geneSetCount);
+		best.addGeneSetCount(candidates.size());
 		if (debug) Log.debug("Select: Best p-value: " + best.getPvalueDouble());
 		return best;
 	}
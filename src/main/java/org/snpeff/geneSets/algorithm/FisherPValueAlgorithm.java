@@ -3,7 +3,7 @@ package org.snpeff.geneSets.algorithm;
 import org.apfloat.Apfloat;
 import org.snpeff.geneSets.GeneSet;
 import org.snpeff.geneSets.GeneSets;
-import org.snpeff.probablility.FisherExactTest;
+import org.snpeff.probablility.PvalueCache;
 import org.snpeff.util.Log;
 
 public class FisherPValueAlgorithm extends EnrichmentAlgorithm {
@@ -26,7 +26,7 @@ public class FisherPValueAlgorithm extends EnrichmentAlgorithm {
 		int D = geneSets.getInterestingGenesCount(); // White marbles
 		int n = geneSet.getGeneCount(); // marbles drawn
 
-		double pValue = FisherExactTest.get().fisherExactTestUp(k, N, D, n, threshold);
+		double pValue = PvalueCache.get().fisherExactTestUp(k, N, D, n, threshold);
 		if (debug) Log.debug("k: " + k + "\tN: " + N + "\tD: " + D + "\tn: " + n + "\tpValue: " + pValue + "\t" + geneSet.getName());
 		return new Apfloat(pValue);
 	}
@@ -3,7 +3,7 @@ package org.snpeff.geneSets.algorithm;
 import org.apfloat.Apfloat;
 import org.snpeff.geneSets.GeneSet;
 import org.snpeff.geneSets.GeneSets;
-import org.snpeff.probablility.FisherExactTest;
+import org.snpeff.probablility.PvalueCache;
 import org.snpeff.util.Log;
 
 public class FisherPValueGreedyAlgorithm extends EnrichmentAlgorithmGreedyVariableSize {
@@ -25,7 +25,7 @@ public class FisherPValueGreedyAlgorithm extends EnrichmentAlgorithmGreedyVariab
 		int n = geneSet.getGeneCount(); // marbles drawn
 
 		//double pValue = FisherExactTest.get().fisherExactTestUpThreshold(k, N, D, n, threshold);
-		double pValue = FisherExactTest.get().fisherExactTestUp(k, N, D, n);
+		double pValue = PvalueCache.get().fisherExactTestUp(k, N, D, n);
 		if (debug) Log.debug("Fisher exact test\tk: " + k + "\tN: " + N + "\tD: " + D + "\tn: " + n + "\tpValue: " + pValue);
 		return new Apfloat(pValue);
 	}
@@ -4,7 +4,7 @@ import org.apfloat.Apfloat;
 import org.snpeff.geneSets.GeneSet;
 import org.snpeff.geneSets.GeneSets;
 import org.snpeff.gsa.ScoreList;
-import org.snpeff.probablility.FisherExactTest;
+import org.snpeff.probablility.PvalueCache;
 import org.snpeff.util.Log;
 
 /**
@@ -90,7 +90,7 @@ public class LeadingEdgeFractionAlgorithm extends FisherPValueGreedyAlgorithm {
 		}
 
 		// Calculate p-value
-		double pvalueFisher = FisherExactTest.get().fisherExactTestUp(count, N, D, tot);
+		double pvalueFisher = PvalueCache.get().fisherExactTestUp(count, N, D, tot);
 		return new Apfloat(pvalueFisher);
 	}
 
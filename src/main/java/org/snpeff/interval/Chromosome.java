@@ -1,5 +1,8 @@
 package org.snpeff.interval;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.snpeff.binseq.DnaSequence;
 import org.snpeff.codons.CodonTable;
 import org.snpeff.codons.CodonTables;
@@ -98,11 +101,19 @@ public class Chromosome extends Marker {
 	 */
 	public boolean detectCircular() {
 		String chr = getChromosomeName();
-		int chrLen = size();
-		for (Gene gene : getGenome().getGenes()) {
-			// Different chromosome? Skip
-			if (!gene.getChromosomeName().equalsIgnoreCase(chr)) continue;
+		List<Gene> genes = new ArrayList<>();
+		for (Gene gene : getGenome().getGenes())
+			if (gene.getChromosomeName().equalsIgnoreCase(chr)) genes.add(gene);
+		return detectCircular(genes);
+	}
 
+	/**
+	 * Is this a circular chromosome? See if any exon (from 'genes', which must be in this chromosome) has evidence of 'circular coordinates'
+	 */
+	public boolean detectCircular(Iterable<Gene> genes) {
+		String chr = getChromosomeName();
+		int chrLen = size();
+		for (Gene gene : genes) {
 			for (Transcript tr : gene) {
 				for (Exon exon : tr) {
 					int ssStart = exon.getStart();
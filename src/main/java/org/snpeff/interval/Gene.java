@@ -614,7 +614,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> {
 			// Apply sequence change to create new 'reference'?
 			if (variant.isNonRef()) {
 				Variant vref = ((VariantNonRef) variant).getVariantRef();
-				tr = tr.apply(vref); // Note: Do we need to check on null transcript? e.g. huge deletion removing the whole transcript
+				tr = (Transcript) tr.applyCached(vref); // Note: Do we need to check on null transcript? e.g. huge deletion removing the whole transcript
 			}
 
 			// Calculate effects
@@ -20,8 +20,8 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 
 	private static final long serialVersionUID = 1636197649250882952L;
 	Map<String, T> subIntervals;
-	List<T> sorted;
-	List<T> sortedStrand;
+	volatile List<T> sorted; // Sorted sub intervals (lazy init, lock-free once calculated)
+	volatile List<T> sortedStrand;
 
 	public IntervalAndSubIntervals() {
 		super();
@@ -253,8 +253,10 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	/**
 	 * Return a collection of sub intervals sorted by natural order
 	 */
-	public synchronized List<T> sorted() {
-		if (sorted != null) return sorted;
+	public List<T> sorted() {
+		List<T> cached = this.sorted;
+		if (cached != null) return cached;
+
 		ArrayList<T> sorted = new ArrayList<>();
 		sorted.addAll(subIntervals());
 		Collections.sort(sorted);
@@ -267,8 +269,9 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	 * Return a collection of sub intervals sorted by start position (if strand is >= 0) or
 	 * by reverse end position (if strand < 0)
 	 */
-	public synchronized List<T> sortedStrand() {
-		if (sortedStrand != null) return sortedStrand;
+	public List<T> sortedStrand() {
+		List<T> cached = this.sortedStrand;
+		if (cached != null) return cached;
 
 		ArrayList<T> sortedStrand = new ArrayList<>();
 		sortedStrand.addAll(subIntervals());
@@ -5,7 +5,9 @@ import org.snpeff.codons.CodonTables;
 import org.snpeff.interval.tree.IntervalForest;
 import org.snpeff.serializer.MarkerSerializer;
 import org.snpeff.serializer.TxtSerializable;
+import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
+import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffects;
 import org.snpeff.util.Gpr;
@@ -119,6 +121,18 @@ public class Marker extends Interval implements TxtSerializable {
         return newMarker;
     }
 
+    /**
+     * Same as 'apply(variant)', but markers already created are reused
+     * (the same 'reference' variant is usually applied many times in
+     * cancer analysis, once per comparison). See MarkerApplyCache
+     */
+    public Marker applyCached(Variant variant) {
+        Config config = Config.get();
+        SnpEffectPredictor sep = config != null ? config.getSnpEffectPredictor() : null;
+        if (sep == null) return apply(variant);
+        return sep.getMarkerApplyCache().apply(this, variant);
+    }
+
     /**
      * Apply a Variant to a marker. Variant is a deletion
      */
@@ -665,7 +679,7 @@ public class Marker extends Interval implements TxtSerializable {
 
         if (variant.isNonRef()) {
             Variant variantRef = ((VariantNonRef) variant).getVariantRef();
-            Marker newMarker = apply(variantRef);
+            Marker newMarker = applyCached(variantRef);
 
             // Has the marker been deleted?
             // Then there is no effect over this marker (it does not exist any more)
@@ -207,13 +207,26 @@ public class MarkerSeq extends Marker {
 		return basesAt(index, len);
 	}
 
+	/**
+	 * Note: The sequence is shared with the clone (copy on write).
+	 * Sequences are never modified in place, changes (e.g. applying
+	 * a variant) always set a new sequence
+	 */
 	@Override
 	public MarkerSeq cloneShallow() {
 		MarkerSeq clone = (MarkerSeq) super.cloneShallow();
-		clone.sequence = sequence.clone();
+		clone.sequence = sequence;
 		return clone;
 	}
 
+	/**
+	 * Base at position 'index' in the sequence (as stored, i.e. no
+	 * complement for negative strand). No string is created
+	 */
+	public char getBase(int index) {
+		return sequence.getBase(index);
+	}
+
 	/**
 	 * Get sequence
 	 *
@@ -226,6 +239,18 @@ public class MarkerSeq extends Marker {
 		return sequence.toString();
 	}
 
+	/**
+	 * Get 'len' bases from the sequence, starting at 'index'
+	 *
+	 * Same as 'getSequence().substring(index, index + len)', but only
+	 * the requested bases are decoded. As in 'getSequence()', bases are
+	 * returned as stored (i.e. no reverse-WC for negative strand)
+	 */
+	public String getSequence(int index, int len) {
+		if (index < 0 || len < 0 || index + len > sequence.length()) throw new IndexOutOfBoundsException("Index: " + index + ", length: " + len + ", sequence length: " + sequence.length());
+		return sequence.getBases(index, len);
+	}
+
 	/**
 	 * Get sequence intersecting 'marker'
 	 *
@@ -294,6 +319,17 @@ public class MarkerSeq extends Marker {
 		else this.sequence = new DnaSequence(sequence); // Use DnaSequence
 	}
 
+	/**
+	 * Set an already encoded sequence (e.g. a sequence mapped from a file)
+	 *
+	 * WARNING: Sequence is always according to coding strand and
+	 * must have the same length as this marker
+	 */
+	public void setSequence(DnaSequence sequence) {
+		if (sequence.length() != size()) throw new RuntimeException("Sequence length (" + sequence.length() + ") does not match marker size (" + size() + "): " + toStr());
+		this.sequence = sequence;
+	}
+
 	@Override
 	public String toString() {
 		return getChromosomeName() + ":" + start + "-" + end //
@@ -1,6 +1,8 @@
 package org.snpeff.interval;
 
 import org.snpeff.fileIterator.BedFileIterator;
+import org.snpeff.fileIterator.BigBedFileIterator;
+import org.snpeff.fileIterator.BigFile;
 import org.snpeff.fileIterator.Gff3FileIterator;
 import org.snpeff.fileIterator.VcfFileIterator;
 import org.snpeff.interval.tree.IntervalForest;
@@ -44,7 +46,7 @@ public class Markers implements Serializable, Collection<Marker> {
 
     /**
      * Read markers from a file
-     * Supported formats: BED, BigBed, VCF, TXT
+     * Supported formats: BED, BigBed, BigWig, VCF, TXT
      */
     public static Markers readMarkers(String fileName) {
         String flLower = fileName.toLowerCase();
@@ -58,7 +60,7 @@ public class Markers implements Serializable, Collection<Marker> {
         else if (flLower.endsWith(".bed")) return new BedFileIterator(fileName).loadMarkers();
         else if (flLower.endsWith(".vcf")) return new VcfFileIterator(fileName).loadMarkers();
         else if (flLower.endsWith(".gff")) return new Gff3FileIterator(fileName).loadMarkers();
-            // else if (flLower.endsWith(".bb")) return new BigBedFileIterator(fileName).loadMarkers();
+        else if (BigFile.isBigFile(flLower)) return new BigBedFileIterator(fileName).loadMarkers();
         else throw new RuntimeException("Unrecognized genomig interval file type '" + fileName + "'");
     }
 
@@ -26,6 +26,11 @@ class CodonPosition {
 
 /**
  * Interval for a transcript, as well as some other information: exons, utrs, cds, etc.
+ * <p>
+ * Lazily calculated values (cds, mRna, introns, etc.) are calculated into a local
+ * variable and then published using a volatile field. Once calculated, reading them
+ * does not require any locking. If two threads calculate the same value at the same
+ * time, they both get the same result, so it doesn't matter which one is kept.
  *
  * @author pcingola
  */
@@ -40,21 +45,22 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
     boolean proteinCoding; // Is this a protein-coding transcript?
     boolean ribosomalSlippage; // Ribosomal slippage causes changes in reading frames. This might be represented as negative length introns (overlapping exons).
     int cdsStart, cdsEnd; // CDS start and end coordinates. Note: If the transcript is in reverse strand, then cdsStart > cdsEnd
+    volatile boolean cdsStartEndDone; // Have cdsStart and cdsEnd been calculated?
     int spliceSiteSize, spliceRegionExonSize, spliceRegionIntronMin, spliceRegionIntronMax; // Splice sizes
     int upDownLength; // Upstream and downstream size
     BioType bioType; // Transcript biotype
-    String cds; // Coding sequence
-    String mRna; // mRna sequence (includes 5'UTR and 3'UTR)
-    String protein; // Protein sequence
+    volatile String cds; // Coding sequence
+    volatile String mRna; // mRna sequence (includes 5'UTR and 3'UTR)
+    volatile String protein; // Protein sequence
     String version = ""; // Transcript version
     List<Utr> utrs; // UTRs
     List<Cds> cdss; // CDS information
-    List<Intron> introns; // Intron markers
+    volatile List<Intron> introns; // Intron markers
     Upstream upstream; // Upstream interval
     Downstream downstream; // Downstream interval
-    Exon firstCodingExon; // First coding exon; i.e. where transcription start site (TSS) is.
-    int[] aa2pos; // Amino acid to genomic possition mapping
-    int[] cds2pos; // CDS to genomic possition mapping
+    volatile Exon firstCodingExon; // First coding exon; i.e. where transcription start site (TSS) is.
+    volatile int[] aa2pos; // Amino acid to genomic possition mapping
+    volatile int[] cds2pos; // CDS to genomic possition mapping
     TranscriptSupportLevel transcriptSupportLevel = null;
     String tags; // Transcript tags. Multiple tags separated by MULTIPLE_VALUES_SEPARATOR
     String proteinId; // Transcript protein ID
@@ -79,7 +85,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
      *
      * @returns An array mapping 'pos[aaNumber] = chromosmalPos'
      */
-    public synchronized int[] aaNumber2Pos() {
+    public int[] aaNumber2Pos() {
+        int[] aa2pos = this.aa2pos;
         if (aa2pos != null) return aa2pos;
 
         calcCdsStartEnd();
@@ -122,6 +129,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
             if (aaIdxStart >= 0) exon.setAaIdx(aaIdxStart, aaIdxEnd);
         }
 
+        this.aa2pos = aa2pos;
         return aa2pos;
     }
 
@@ -352,7 +360,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
      * mRNA is roughly the same than cDNA. Strictly speaking mRNA
      * has a poly-A tail and 5'cap.
      */
-    public synchronized int baseNumber2MRnaPos(int pos) {
+    public int baseNumber2MRnaPos(int pos) {
         int count = 0;
         for (Exon eint : sortedStrand()) {
             if (eint.intersects(pos)) {
@@ -381,7 +389,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
      *                           - if( usePrevBaseIntron== true)   => The last base in the  exon before 'pos'  (i.e. last coding base before intron)
      * @returns Base number or '-1' if it does not map to a coding base
      */
-    public synchronized int baseNumberCds(int pos, boolean usePrevBaseIntron) {
+    public int baseNumberCds(int pos, boolean usePrevBaseIntron) {
         // Doesn't hit this transcript?
         if (!intersects(pos)) return -1;
 
@@ -433,7 +441,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
      *
      * @returns An array mapping 'cds2pos[cdsBaseNumber] = chromosmalPos'
      */
-    public synchronized int[] baseNumberCds2Pos() {
+    public int[] baseNumberCds2Pos() {
+        int[] cds2pos = this.cds2pos;
         if (cds2pos != null) return cds2pos;
 
         calcCdsStartEnd();
@@ -454,11 +463,12 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
                 if ((cdsMin <= pos) && (pos <= cdsMax)) cds2pos[cdsBaseNum++] = pos;
         }
 
+        this.cds2pos = cds2pos;
         return cds2pos;
     }
 
     public int baseNumberCds2Pos(int cdsBaseNum) {
-        if (cds2pos == null) baseNumberCds2Pos();
+        int[] cds2pos = baseNumberCds2Pos();
         if (cdsBaseNum < 0 || cdsBaseNum >= cds2pos.length) return -1;
         return cds2pos[cdsBaseNum];
     }
@@ -466,64 +476,67 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
     /**
      * Calculate CDS start and CDS end
      */
-    synchronized void calcCdsStartEnd() {
+    void calcCdsStartEnd() {
         // Do we need to calculate these values?
-        // Note: In circular genomes, one of cdsStart / cdsEnd might be less
-        //       than zero (we must check both)
-        if ((cdsStart < 0) && (cdsEnd < 0)) {
-            // Calculate coding start (after 5 prime UTR)
-
-            if (utrs.isEmpty()) {
-                // No UTRs => Use all exons
-                cdsStart = (isStrandPlus() ? end : start); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
-                cdsEnd = (isStrandPlus() ? start : end); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
+        if (cdsStartEndDone) return;
 
-                for (Exon ex : this) {
-                    if (isStrandPlus()) {
-                        cdsStart = Math.min(cdsStart, ex.getStart());
-                        cdsEnd = Math.max(cdsEnd, ex.getEnd());
-                    } else {
-                        cdsStart = Math.max(cdsStart, ex.getEnd());
-                        cdsEnd = Math.min(cdsEnd, ex.getStart());
-                    }
-                }
-            } else {
-                // We have to take into account UTRs
-                cdsStart = (isStrandPlus() ? start : end); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
-                cdsEnd = (isStrandPlus() ? end : start); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
-                int cdsStartNotExon = cdsStart;
-
-                for (Utr utr : utrs) {
-                    if (utr instanceof Utr5prime) {
-                        if (isStrandPlus()) cdsStart = Math.max(cdsStart, utr.getEnd() + 1);
-                        else cdsStart = Math.min(cdsStart, utr.getStart() - 1);
-                    } else if (utr instanceof Utr3prime) {
-                        if (isStrandPlus()) cdsEnd = Math.min(cdsEnd, utr.getStart() - 1);
-                        else cdsEnd = Math.max(cdsEnd, utr.getEnd() + 1);
-                    }
-                }
+        int cdsStart, cdsEnd;
+        if (utrs.isEmpty()) {
+            // No UTRs => Use all exons
+            cdsStart = (isStrandPlus() ? end : start); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
+            cdsEnd = (isStrandPlus() ? start : end); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
 
-                // Make sure cdsStart and cdsEnd lie within an exon
+            for (Exon ex : this) {
                 if (isStrandPlus()) {
-                    cdsStart = firstExonPositionAfter(cdsStart);
-                    cdsEnd = lastExonPositionBefore(cdsEnd);
+                    cdsStart = Math.min(cdsStart, ex.getStart());
+                    cdsEnd = Math.max(cdsEnd, ex.getEnd());
                 } else {
-                    cdsStart = lastExonPositionBefore(cdsStart);
-                    cdsEnd = firstExonPositionAfter(cdsEnd);
+                    cdsStart = Math.max(cdsStart, ex.getEnd());
+                    cdsEnd = Math.min(cdsEnd, ex.getStart());
                 }
+            }
+        } else {
+            // We have to take into account UTRs
+            cdsStart = (isStrandPlus() ? start : end); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
+            cdsEnd = (isStrandPlus() ? end : start); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
+            int cdsStartNotExon = cdsStart;
+
+            for (Utr utr : utrs) {
+                if (utr instanceof Utr5prime) {
+                    if (isStrandPlus()) cdsStart = Math.max(cdsStart, utr.getEnd() + 1);
+                    else cdsStart = Math.min(cdsStart, utr.getStart() - 1);
+                } else if (utr instanceof Utr3prime) {
+                    if (isStrandPlus()) cdsEnd = Math.min(cdsEnd, utr.getStart() - 1);
+                    else cdsEnd = Math.max(cdsEnd, utr.getEnd() + 1);
+                }
+            }
 
-                // We were not able to find cdsStart & cdsEnd within exon limits.
-                // Probably there is something wrong with the database and the transcript does
-                // not have a single coding base (e.g. all of it is UTR).
-                if (cdsStart < 0 || cdsEnd < 0) cdsStart = cdsEnd = cdsStartNotExon;
+            // Make sure cdsStart and cdsEnd lie within an exon
+            if (isStrandPlus()) {
+                cdsStart = firstExonPositionAfter(cdsStart);
+                cdsEnd = lastExonPositionBefore(cdsEnd);
+            } else {
+                cdsStart = lastExonPositionBefore(cdsStart);
+                cdsEnd = firstExonPositionAfter(cdsEnd);
             }
+
+            // We were not able to find cdsStart & cdsEnd within exon limits.
+            // Probably there is something wrong with the database and the transcript does
+            // not have a single coding base (e.g. all of it is UTR).
+            if (cdsStart < 0 || cdsEnd < 0) cdsStart = cdsEnd = cdsStartNotExon;
         }
+
+        // Publish values (cdsStartEndDone must be assigned last)
+        this.cdsStart = cdsStart;
+        this.cdsEnd = cdsEnd;
+        cdsStartEndDone = true;
     }
 
     /**
      * Retrieve coding sequence
      */
-    public synchronized String cds() {
+    public String cds() {
+        String cds = this.cds;
         if (cds != null) return cds;
 
         // Concatenate all exons
@@ -557,6 +570,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
             else cds = sequence.substring(utr5len, subEnd);
         }
 
+        this.cds = cds;
         return cds;
     }
 
@@ -1151,7 +1165,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
     /**
      * Get first coding exon
      */
-    public synchronized Exon getFirstCodingExon() {
+    public Exon getFirstCodingExon() {
+        Exon firstCodingExon = this.firstCodingExon;
         if (firstCodingExon == null) {
             // Get transcription start position
             long cstart = getCdsStart();
@@ -1165,6 +1180,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
                 Gene g = (Gene) getParent();
                 Log.warning(ErrorWarningType.WARNING_EXON_NOT_FOUND, "Cannot find first coding exon for transcript '" + getId() + "', gene name '" + (g != null ? g.getGeneName() : "") + "', gene ID '" + (g != null ? g.getId() : "") + "'");
             }
+
+            this.firstCodingExon = firstCodingExon;
         }
         return firstCodingExon;
     }
@@ -1265,7 +1282,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
     /**
      * Get all introns (lazy init)
      */
-    public synchronized List<Intron> introns() {
+    public List<Intron> introns() {
+        List<Intron> introns = this.introns;
         if (introns == null) {
             introns = new ArrayList<>();
 
@@ -1297,6 +1315,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 
                 exBefore = ex;
             }
+
+            this.introns = introns;
         }
         return introns;
     }
@@ -1503,7 +1523,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
      * Retrieve coding sequence AND the UTRs (mRNA = 5'UTR + CDS + 3'UTR)
      * I.e. Concatenate all exon sequences
      */
-    public synchronized String mRna() {
+    public String mRna() {
+        String mRna = this.mRna;
         if (mRna != null) return mRna;
 
         List<Exon> exons = sortedStrand();
@@ -1514,6 +1535,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
             sequence.append(ex.getSequence());
 
         mRna = sequence.toString();
+        this.mRna = mRna;
         return mRna;
     }
 
@@ -1521,9 +1543,11 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
      * Protein sequence (amino acid sequence produced by this transcripts)
      */
     public String protein() {
+        String protein = this.protein;
         if (protein == null) {
             if (!(Config.get() != null && Config.get().isTreatAllAsProteinCoding()) && !isProteinCoding()) protein = "";
             else protein = codonTable().aa(cds(), true);
+            this.protein = protein;
         }
         return protein;
     }
@@ -1608,6 +1632,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
     }
 
     public void resetCache() {
+        cdsStartEndDone = false;
         cdsStart = -1;
         cdsEnd = -1;
         firstCodingExon = null;
@@ -20,7 +20,7 @@ import org.snpeff.util.GprSeq;
 public class Utr5prime extends Utr {
 
 	private static final long serialVersionUID = 3710420226746056364L;
-	List<Utr5prime> utrs;
+	volatile List<Utr5prime> utrs;
 
 	public Utr5prime() {
 		super();
@@ -32,7 +32,8 @@ public class Utr5prime extends Utr {
 		type = EffectType.UTR_5_PRIME;
 	}
 
-	synchronized List<Utr5prime> get5primeUtrs() {
+	List<Utr5prime> get5primeUtrs() {
+		List<Utr5prime> utrs = this.utrs;
 		if (utrs == null) {
 			Transcript tr = (Transcript) findParent(Transcript.class);
 
@@ -40,6 +41,7 @@ public class Utr5prime extends Utr {
 			utrs = tr.get5primeUtrs();
 			if (isStrandPlus()) Collections.sort(utrs, new IntervalComparatorByStart()); // Sort by start position
 			else Collections.sort(utrs, new IntervalComparatorByEnd(true)); // Sort by end position (reversed)
+			this.utrs = utrs; // Publish after sorting
 		}
 
 		return utrs;
@@ -31,6 +31,7 @@ public class Variant extends Marker {
     protected String alt; // Changed bases
     protected String genotype; // Genotype (i.e. the original 'ALT' in the VCF file). A VCF entry may encode multiple ALTs, and 'ALT' migh get modified when creating the variant. Here we store ALT as originaly show in the VCF.
     protected boolean imprecise = false; // Imprecise variant: coordinates are not exact (E.g. see section "Encoding Structural Variants in VCF" from VCF spec. 4.1)
+    protected transient Realigned realignedLeft; // Result from 'realignLeft()', reused when the same variant is shifted for many genes
 
     public Variant() {
         super();
@@ -435,13 +436,18 @@ public class Variant extends Marker {
      * Create a new variant realigning it towards the leftmost position
      */
     public Variant realignLeft() {
+        // Already realigned? (e.g. variant overlapping many genes)
+        Realigned rl = realignedLeft;
+        if (rl != null && rl.isFor(this)) return rl.variant != null ? rl.variant : this;
+
         GenomicSequences gs = getGenome().getGenomicSequences();
         if (gs == null) return this;
 
         VariantRealign vr = new VariantRealign(this);
         vr.setDebug(Config.get().isDebug());
-        if (!vr.realign()) return this;
-        return vr.getVariantRealigned();
+        Variant variantRealigned = vr.realign() ? vr.getVariantRealigned() : null;
+        realignedLeft = new Realigned(this, variantRealigned);
+        return variantRealigned != null ? variantRealigned : this;
     }
 
     /**
@@ -486,6 +492,35 @@ public class Variant extends Marker {
         return getChromosomeName() + ":" + getStart() + "_" + getReference() + "/" + getAlt();
     }
 
+    /**
+     * Result of realigning a variant, as well as the coordinates
+     * and sequences it was calculated from (if the variant changes,
+     * the result is no longer valid)
+     */
+    static class Realigned {
+        final Marker parent;
+        final int start, end;
+        final String ref, alt;
+        final Variant variant; // Realigned variant (null if the variant was not realigned)
+
+        Realigned(Variant original, Variant variant) {
+            parent = original.getParent();
+            start = original.getStart();
+            end = original.getEnd();
+            ref = original.getReference();
+            alt = original.getAlt();
+            this.variant = variant;
+        }
+
+        boolean isFor(Variant v) {
+            return parent == v.getParent() //
+                    && start == v.getStart() //
+                    && end == v.getEnd() //
+                    && ref.equals(v.getReference()) //
+                    && alt.equals(v.getAlt());
+        }
+    }
+
     public enum VariantType {
         SNP// Single nucleotide polymorphism (i.e. 1 base is changed)
         , MNP // Multiple nucleotide polymorphism (i.e. several bases are changed)
@@ -23,6 +23,8 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 	private static final long serialVersionUID = 1L;
 
 	boolean debug;
+	boolean flat; // Use 'flat' interval trees (IntervalTreeFlat)
+	boolean nearest; // Use interval trees supporting 'nearest' queries (IntervalTreeNearest)
 	String name;
 	HashMap<String, Itree> forest;
 
@@ -156,14 +158,37 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		return forest.keySet();
 	}
 
+	public boolean isNearest() {
+		return nearest;
+	}
+
+	public boolean isFlat() {
+		return flat;
+	}
+
 	/**
 	 * Create new tree.
 	 * In oder to change the implementation, only this method should be changed.
 	 */
 	protected Itree newItree() {
+		if (nearest) return new IntervalTreeNearest();
+		if (flat) return new IntervalTreeFlat();
 		return new IntervalTree();
 	}
 
+	/**
+	 * Find the intervals closest to 'marker' (in the same chromosome), add them to 'results'
+	 * Note: Trees must support 'nearest' queries (see 'setNearest')
+	 *
+	 * @return Distance to the closest intervals or -1 if nothing was found
+	 */
+	public int nearest(Marker marker, Markers results) {
+		Itree tree = getTreeChromo(marker.getChromosomeName());
+		if (tree == null) return -1;
+		if (!(tree instanceof IntervalTreeNearest)) throw new RuntimeException("Interval tree does not support 'nearest' queries: " + tree.getClass().getSimpleName());
+		return ((IntervalTreeNearest) tree).nearest(marker, results);
+	}
+
 	/**
 	 * Query all intervals that intersect with 'interval'
 	 */
@@ -171,6 +196,16 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		return getOrCreateTreeChromo(marker.getChromosomeName()).query(marker);
 	}
 
+	/**
+	 * Query all intervals that intersect with 'marker', add them to 'results'
+	 * @return Number of intervals added to 'results'
+	 */
+	public int query(Marker marker, Markers results) {
+		Itree tree = getTreeChromo(marker.getChromosomeName());
+		if (tree == null) return 0;
+		return tree.query(marker, results);
+	}
+
 	/**
 	 * Query all intervals that intersect with any interval in 'intervals'
 	 */
@@ -212,6 +247,19 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		this.debug = debug;
 	}
 
+	/**
+	 * Use 'flat' interval trees (IntervalTreeFlat) instead of IntervalTree.
+	 * This only affects trees created after this call, so it should be set
+	 * before adding any interval
+	 */
+	public void setFlat(boolean flat) {
+		this.flat = flat;
+	}
+
+	public void setNearest(boolean nearest) {
+		this.nearest = nearest;
+	}
+
 	public void setName(String name) {
 		this.name = name;
 	}
@@ -237,6 +285,16 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		return getOrCreateTreeChromo(chromo).stab(point);
 	}
 
+	/**
+	 * Add all intervals that intersect with 'point' to 'results'
+	 * @return Number of intervals added to 'results'
+	 */
+	public int stab(String chromo, int point, Markers results) {
+		Itree tree = getTreeChromo(chromo);
+		if (tree == null) return 0;
+		return tree.stab(point, results);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
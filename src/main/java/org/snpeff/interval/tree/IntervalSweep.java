@@ -0,0 +1,101 @@
+package org.snpeff.interval.tree;
+
+import java.util.Arrays;
+
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+
+/**
+ * Query intervals (one chromosome) using a sweep line.
+ *
+ * Queries must be sorted by start position (e.g. reads from a coordinate
+ * sorted BAM file). Intervals are sorted by start once, and an 'active'
+ * set is kept: Intervals are added when the sweep line reaches their start
+ * and removed once the sweep line passes their end. Each query only has to
+ * check the active intervals, instead of traversing the interval tree.
+ *
+ * Results are the same as querying an interval tree with the same intervals.
+ *
+ * @author pcingola
+ */
+public class IntervalSweep {
+
+	Marker intervals[]; // Intervals, sorted by start
+	int next; // Index of the next interval to add to the active set
+	Marker active[]; // Active intervals (start before the sweep line, end not passed yet)
+	int activeSize;
+	int lastStart; // Start of the last query (sweep line position)
+
+	public IntervalSweep(Markers markers) {
+		intervals = markers != null ? markers.toArray(new Marker[0]) : new Marker[0];
+		Arrays.sort(intervals, (m1, m2) -> Integer.compare(m1.getStart(), m2.getStart()));
+		active = new Marker[16];
+		lastStart = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Can 'marker' be queried? I.e. queries are sorted by start position
+	 */
+	public boolean canQuery(Marker marker) {
+		return marker.getStart() >= lastStart;
+	}
+
+	/**
+	 * Number of active intervals
+	 */
+	public int getActiveSize() {
+		return activeSize;
+	}
+
+	/**
+	 * Query intervals intersecting 'marker'
+	 */
+	public Markers query(Marker marker) {
+		Markers results = new Markers();
+		query(marker, results);
+		return results;
+	}
+
+	/**
+	 * Query intervals intersecting 'marker', add them to 'results'
+	 * Note: Queries must be sorted by start position
+	 */
+	public void query(Marker marker, Markers results) {
+		int start = marker.getStart(), end = marker.getEnd();
+		if (start < lastStart) throw new RuntimeException("Queries must be sorted by start position. Query start: " + start + ", previous query start: " + lastStart);
+		lastStart = start;
+
+		// Remove intervals ending before the sweep line (they cannot intersect any further query)
+		int j = 0;
+		for (int i = 0; i < activeSize; i++)
+			if (active[i].getEnd() >= start) active[j++] = active[i];
+		Arrays.fill(active, j, activeSize, null);
+		activeSize = j;
+
+		// Add intervals starting before the end of this query
+		for (; (next < intervals.length) && (intervals[next].getStart() <= end); next++) {
+			if (intervals[next].getEnd() < start) continue; // Already passed
+			if (activeSize >= active.length) active = Arrays.copyOf(active, 2 * active.length);
+			active[activeSize++] = intervals[next];
+		}
+
+		// Active intervals intersecting the query
+		// Note: Intervals added by a previous (longer) query may start after this query's end
+		for (int i = 0; i < activeSize; i++)
+			if (active[i].getStart() <= end) results.add(active[i]);
+	}
+
+	/**
+	 * Start over (e.g. to query from the beginning of the chromosome)
+	 */
+	public void reset() {
+		next = 0;
+		Arrays.fill(active, 0, activeSize, null);
+		activeSize = 0;
+		lastStart = Integer.MIN_VALUE;
+	}
+
+	public int size() {
+		return intervals.length;
+	}
+}
@@ -0,0 +1,269 @@
+package org.snpeff.interval.tree;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Interval;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+
+/**
+ * Interval tree stored in flat primitive arrays.
+ *
+ * This is a 'centered' interval tree (same as IntervalTree) but, instead of
+ * node objects, nodes are indexes into 'int[]' arrays. The intervals
+ * intersecting each node's center are stored twice in contiguous
+ * array ranges: sorted by start and sorted by end (descending), so a query
+ * only compares primitive coordinates and stops scanning a node as soon as
+ * there are no more matches.
+ *
+ * Queries can add results to a caller supplied 'Markers', so that a query
+ * does not allocate any memory (other than growing 'results', if needed).
+ *
+ * @author pcingola
+ */
+public class IntervalTreeFlat implements Itree, Serializable {
+
+	private static final long serialVersionUID = -2361851318394427460L;
+
+	protected Markers intervals; // Intervals added to the tree
+	protected boolean inSync;
+	protected int numNodes;
+	protected int center[]; // Node's center coordinate
+	protected int left[]; // Left child (-1 if none)
+	protected int right[]; // Right child (-1 if none)
+	protected int from[]; // Node's intervals are in range [from, to) of the arrays below
+	protected int to[];
+	protected int starts[]; // Interval starts, sorted within each node
+	protected Marker byStart[]; // Markers, sorted by start within each node
+	protected int ends[]; // Interval ends, sorted (descending) within each node
+	protected Marker byEnd[]; // Markers, sorted by end (descending) within each node
+
+	public IntervalTreeFlat() {
+		this(null);
+	}
+
+	/**
+	 * Instantiate an interval tree with a list of intervals
+	 */
+	public IntervalTreeFlat(Markers intervals) {
+		this.intervals = new Markers();
+		if (intervals != null) this.intervals.add(intervals);
+		inSync = this.intervals.isEmpty();
+		reset(0);
+	}
+
+	@Override
+	public void add(Marker interval) {
+		intervals.add(interval);
+		inSync = false;
+	}
+
+	@Override
+	public void add(Markers markers) {
+		intervals.add(markers);
+		inSync = false;
+	}
+
+	@Override
+	public void build() {
+		if (inSync) return;
+
+		Marker markers[] = intervals.toArray();
+		reset(markers.length);
+
+		int idxs[] = new int[markers.length];
+		for (int i = 0; i < idxs.length; i++)
+			idxs[i] = i;
+		build(markers, idxs);
+
+		inSync = true;
+	}
+
+	/**
+	 * Build a node using markers[idxs[]]
+	 * @return Node index (-1 if no node was created)
+	 */
+	protected int build(Marker markers[], int idxs[]) {
+		if (idxs.length == 0) return -1;
+
+		// Center: median of all start and end coordinates
+		int points[] = new int[2 * idxs.length];
+		for (int i = 0, j = 0; i < idxs.length; i++) {
+			points[j++] = markers[idxs[i]].getStart();
+			points[j++] = markers[idxs[i]].getEnd();
+		}
+		Arrays.sort(points);
+		int c = points[idxs.length];
+
+		// Split intervals: to the left, to the right and intersecting center
+		int countLeft = 0, countRight = 0;
+		for (int idx : idxs) {
+			if (markers[idx].getEnd() < c) countLeft++;
+			else if (markers[idx].getStart() > c) countRight++;
+		}
+
+		int idxsLeft[] = new int[countLeft];
+		int idxsRight[] = new int[countRight];
+		long keysStart[] = new long[idxs.length - countLeft - countRight];
+		long keysEnd[] = new long[keysStart.length];
+		int il = 0, ir = 0, ic = 0;
+		for (int idx : idxs) {
+			Marker m = markers[idx];
+			if (m.getEnd() < c) idxsLeft[il++] = idx;
+			else if (m.getStart() > c) idxsRight[ir++] = idx;
+			else {
+				// Sort keys: coordinate in the upper 32 bits, marker index in the lower 32 bits
+				keysStart[ic] = (((long) m.getStart()) << 32) | idx;
+				keysEnd[ic++] = (-((long) m.getEnd()) << 32) | idx;
+			}
+		}
+
+		// Store intervals intersecting center, sorted by start and by end (descending)
+		int node = numNodes++;
+		int first = node > 0 ? to[node - 1] : 0;
+		Arrays.sort(keysStart);
+		Arrays.sort(keysEnd);
+		for (int i = 0; i < keysStart.length; i++) {
+			Marker ms = markers[(int) keysStart[i]];
+			starts[first + i] = ms.getStart();
+			byStart[first + i] = ms;
+
+			Marker me = markers[(int) keysEnd[i]];
+			ends[first + i] = me.getEnd();
+			byEnd[first + i] = me;
+		}
+
+		center[node] = c;
+		from[node] = first;
+		to[node] = first + keysStart.length;
+
+		// Recurse
+		left[node] = build(markers, idxsLeft);
+		right[node] = build(markers, idxsRight);
+
+		return node;
+	}
+
+	@Override
+	public Markers getIntervals() {
+		return intervals;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return intervals.isEmpty();
+	}
+
+	@Override
+	public boolean isInSync() {
+		return inSync;
+	}
+
+	@Override
+	public Iterator<Marker> iterator() {
+		return intervals.iterator();
+	}
+
+	@Override
+	public void load(String fileName, Genome genome) {
+		intervals.load(fileName, genome);
+		inSync = false;
+	}
+
+	@Override
+	public Markers query(Interval interval) {
+		Markers results = new Markers();
+		query(interval.getStart(), interval.getEnd(), results);
+		return results;
+	}
+
+	@Override
+	public int query(Interval interval, Markers results) {
+		return query(interval.getStart(), interval.getEnd(), results);
+	}
+
+	/**
+	 * Add all intervals intersecting [start, end] to 'results'
+	 * @return Number of results added
+	 */
+	public int query(int start, int end, Markers results) {
+		if (!inSync) throw new RuntimeException("Interval tree needs to be updated!");
+		if (numNodes == 0) return 0;
+
+		int sizeBefore = results.size();
+		query(0, start, end, results);
+		return results.size() - sizeBefore;
+	}
+
+	/**
+	 * Query subtree starting at 'node'
+	 */
+	protected void query(int node, int start, int end, Markers results) {
+		while (node >= 0) {
+			int c = center[node];
+			if (end < c) {
+				// Query is to the left of center: Intervals match if they start before query's end
+				for (int i = from[node]; i < to[node] && starts[i] <= end; i++)
+					results.add(byStart[i]);
+				node = left[node];
+			} else if (start > c) {
+				// Query is to the right of center: Intervals match if they end after query's start
+				for (int i = from[node]; i < to[node] && ends[i] >= start; i++)
+					results.add(byEnd[i]);
+				node = right[node];
+			} else {
+				// Query contains center: All intervals match
+				for (int i = from[node]; i < to[node]; i++)
+					results.add(byStart[i]);
+				if (start < c) query(left[node], start, end, results);
+				if (end > c) node = right[node];
+				else break;
+			}
+		}
+	}
+
+	/**
+	 * Allocate arrays for 'size' intervals.
+	 * Note: Each node has at least one interval (the center is
+	 * one of the intervals coordinates), so there are at most
+	 * 'size' nodes
+	 */
+	protected void reset(int size) {
+		numNodes = 0;
+		center = new int[size];
+		left = new int[size];
+		right = new int[size];
+		from = new int[size];
+		to = new int[size];
+		starts = new int[size];
+		byStart = new Marker[size];
+		ends = new int[size];
+		byEnd = new Marker[size];
+	}
+
+	@Override
+	public int size() {
+		return intervals.size();
+	}
+
+	@Override
+	public Markers stab(int point) {
+		Markers results = new Markers();
+		query(point, point, results);
+		return results;
+	}
+
+	@Override
+	public int stab(int point, Markers results) {
+		return query(point, point, results);
+	}
+
+	@Override
+	public String toString() {
+		return "Size: " + size() + ", nodes: " + numNodes + ", in_sync: " + inSync;
+	}
+
+}
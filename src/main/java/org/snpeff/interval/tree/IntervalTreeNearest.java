@@ -0,0 +1,132 @@
+package org.snpeff.interval.tree;
+
+import java.util.Arrays;
+
+import org.snpeff.interval.Interval;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+
+/**
+ * Interval tree that also answers 'nearest' queries.
+ *
+ * In addition to the 'flat' interval tree (used to find intervals
+ * intersecting a query), intervals are stored sorted by start and
+ * sorted by end. If no interval intersects the query, the closest
+ * intervals are the last one ending before the query or the first one
+ * starting after the query. Both are found using a binary search,
+ * so a 'nearest' query is O(log(n) + number_of_results).
+ *
+ * @author pcingola
+ */
+public class IntervalTreeNearest extends IntervalTreeFlat {
+
+	private static final long serialVersionUID = 4263598263108702521L;
+
+	protected int sortedStarts[]; // All interval starts, sorted
+	protected Marker sortedByStart[]; // All markers, sorted by start
+	protected int sortedEnds[]; // All interval ends, sorted
+	protected Marker sortedByEnd[]; // All markers, sorted by end
+
+	/**
+	 * First index 'i' such that 'values[i] >= key' (values.length if there is none)
+	 */
+	static int lowerBound(int values[], int key) {
+		int lo = 0, hi = values.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (values[mid] < key) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	public IntervalTreeNearest() {
+		this(null);
+	}
+
+	public IntervalTreeNearest(Markers intervals) {
+		super(intervals);
+	}
+
+	@Override
+	public void build() {
+		if (inSync && (sortedStarts != null)) return;
+		super.build();
+
+		// Sort keys: coordinate in the upper 32 bits, marker index in the lower 32 bits
+		Marker markers[] = intervals.toArray();
+		long keysStart[] = new long[markers.length];
+		long keysEnd[] = new long[markers.length];
+		for (int i = 0; i < markers.length; i++) {
+			keysStart[i] = (((long) markers[i].getStart()) << 32) | i;
+			keysEnd[i] = (((long) markers[i].getEnd()) << 32) | i;
+		}
+		Arrays.sort(keysStart);
+		Arrays.sort(keysEnd);
+
+		sortedStarts = new int[markers.length];
+		sortedByStart = new Marker[markers.length];
+		sortedEnds = new int[markers.length];
+		sortedByEnd = new Marker[markers.length];
+		for (int i = 0; i < markers.length; i++) {
+			sortedByStart[i] = markers[(int) keysStart[i]];
+			sortedStarts[i] = sortedByStart[i].getStart();
+			sortedByEnd[i] = markers[(int) keysEnd[i]];
+			sortedEnds[i] = sortedByEnd[i].getEnd();
+		}
+	}
+
+	/**
+	 * Find the intervals closest to 'interval' (i.e. at minimum distance), add them to 'results'.
+	 * If any interval intersects 'interval', all intersecting intervals are added (distance zero)
+	 *
+	 * @return Distance to the closest intervals or -1 if the tree is empty
+	 */
+	public int nearest(Interval interval, Markers results) {
+		return nearest(interval.getStart(), interval.getEnd(), results);
+	}
+
+	/**
+	 * Find the intervals closest to [start, end], add them to 'results'
+	 * @return Distance to the closest intervals or -1 if the tree is empty
+	 */
+	public int nearest(int start, int end, Markers results) {
+		if (!inSync || (sortedStarts == null)) throw new RuntimeException("Interval tree needs to be updated!");
+		int n = sortedStarts.length;
+		if (n == 0) return -1;
+
+		// Any intersecting interval?
+		if (query(start, end, results) > 0) return 0;
+
+		// Last interval ending before 'start' and first interval starting after 'end'
+		int idxLeft = lowerBound(sortedEnds, start) - 1;
+		int idxRight = lowerBound(sortedStarts, end + 1);
+		int distLeft = idxLeft >= 0 ? start - sortedEnds[idxLeft] : Integer.MAX_VALUE;
+		int distRight = idxRight < n ? sortedStarts[idxRight] - end : Integer.MAX_VALUE;
+		int dist = Math.min(distLeft, distRight);
+
+		// Add all intervals at minimum distance
+		if (distLeft == dist) {
+			int first = lowerBound(sortedEnds, sortedEnds[idxLeft]);
+			for (int i = first; i <= idxLeft; i++)
+				results.add(sortedByEnd[i]);
+		}
+
+		if (distRight == dist) {
+			for (int i = idxRight; (i < n) && (sortedStarts[i] == sortedStarts[idxRight]); i++)
+				results.add(sortedByStart[i]);
+		}
+
+		return dist;
+	}
+
+	/**
+	 * Find the intervals closest to 'interval'
+	 */
+	public Markers nearest(Interval interval) {
+		Markers results = new Markers();
+		nearest(interval, results);
+		return results;
+	}
+
+}
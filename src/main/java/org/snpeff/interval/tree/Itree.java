@@ -49,6 +49,21 @@ public interface Itree extends Iterable<Marker> {
 	 */
 	public Markers query(Interval interval);
 
+	/**
+	 * Perform an interval query, adding the intervals that
+	 * intersect with 'interval' to 'results'
+	 *
+	 * Note: Implementations can override this method to avoid
+	 * allocating memory on each query (i.e. 'results' can be reused)
+	 *
+	 * @return Number of intervals added to 'results'
+	 */
+	public default int query(Interval interval, Markers results) {
+		Markers res = query(interval);
+		results.add(res);
+		return res.size();
+	}
+
 	/**
 	 * Size: number of entries in this tree
 	 */
@@ -60,4 +75,16 @@ public interface Itree extends Iterable<Marker> {
 	 */
 	public Markers stab(int point);
 
+	/**
+	 * Perform a stabbing query, adding the intervals that
+	 * intersect 'point' to 'results'
+	 *
+	 * @return Number of intervals added to 'results'
+	 */
+	public default int stab(int point, Markers results) {
+		Markers res = stab(point);
+		results.add(res);
+		return res.size();
+	}
+
 }
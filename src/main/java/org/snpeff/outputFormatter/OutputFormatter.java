@@ -93,28 +93,53 @@ public abstract class OutputFormatter {
 		}
 	}
 
+	/**
+	 * Append current section (line) to 'out'
+	 */
+	protected void appendSection(Appendable out) throws IOException {
+		out.append(toString());
+	}
+
 	/**
 	 * Finish up section
 	 */
 	public String endSection(Marker marker) {
 		StringBuilder sb = new StringBuilder();
+		try {
+			endSection(marker, sb);
+		} catch (IOException e) {
+			throw new RuntimeException(e); // This should never happen when appending to a StringBuilder
+		}
+		return supressOutput ? null : sb.toString();
+	}
 
+	/**
+	 * Finish up section: Append header (if needed) and current line to 'out'
+	 */
+	protected void endSection(Marker marker, Appendable out) throws IOException {
 		// Add header?
 		if (showHeader && (sectionNum == 0)) {
 			String header = toStringHeader();
 			if (!header.isEmpty()) {
-				sb.append(header);
-				sb.append("\n");
+				out.append(header);
+				out.append("\n");
 			}
 		}
 
 		// Add current line
-		sb.append(toString());
+		appendSection(out);
 
 		sectionNum++;
 		variantEffects.clear();
+	}
 
-		return supressOutput ? null : sb.toString();
+	/**
+	 * Open output file (if needed)
+	 * @return true if there is an output writer (i.e. output is not sent to STDOUT)
+	 */
+	protected boolean openOut() throws IOException {
+		if ((outputFile != null) && (out == null)) out = new BufferedWriter(new FileWriter(outputFile));
+		return out != null;
 	}
 
 	/**
@@ -123,7 +148,7 @@ public abstract class OutputFormatter {
 	public void print(String outStr) {
 		try {
 			// Open output file?
-			if ((outputFile != null) && (out == null)) out = new BufferedWriter(new FileWriter(outputFile));
+			openOut();
 
 			// Write something?
 			if ((outStr != null) && (!outStr.isEmpty())) {
@@ -161,6 +186,13 @@ public abstract class OutputFormatter {
 		this.outOffset = outOffset;
 	}
 
+	/**
+	 * Write output to 'out' instead of STDOUT or an output file
+	 */
+	public void setOut(BufferedWriter out) {
+		this.out = out;
+	}
+
 	public void setOutputFile(String outputFile) {
 		this.outputFile = outputFile;
 	}
@@ -1,5 +1,7 @@
 package org.snpeff.outputFormatter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -222,14 +224,14 @@ public class VcfOutputFormatter extends OutputFormatter {
 	 */
 	@Override
 	public String endSection(Marker marker) {
-		if (marker == null) {
-			return super.endSection(marker);
-		} else if (marker instanceof VcfEntry) {
-			// Ignore other markers
-			if (vcfEntries != null) vcfEntries.add((VcfEntry) marker);
-			return super.endSection(marker);
-		}
-		return null;
+		if ((marker == null) || (marker instanceof VcfEntry)) return super.endSection(marker);
+		return null; // Ignore other markers
+	}
+
+	@Override
+	protected void endSection(Marker marker, Appendable out) throws IOException {
+		if ((vcfEntries != null) && (marker instanceof VcfEntry)) vcfEntries.add((VcfEntry) marker);
+		super.endSection(marker, out);
 	}
 
 	/**
@@ -254,6 +256,47 @@ public class VcfOutputFormatter extends OutputFormatter {
 		return newLines;
 	}
 
+	/**
+	 * Append current VCF entry.
+	 * When appending to a Writer, the entry is written directly (without creating
+	 * a string for the whole line), which is faster for VCF files having many samples
+	 */
+	@Override
+	protected void appendSection(Appendable out) throws IOException {
+		if ((section == null) || !(out instanceof Writer)) {
+			out.append(toString());
+			return;
+		}
+
+		VcfEntry vcfEntry = (VcfEntry) section;
+		if (needAddInfo) addInfo(vcfEntry);
+		vcfEntry.write((Writer) out);
+	}
+
+	/**
+	 * End this section and print results.
+	 * VCF entries are written directly to the output file (see 'appendSection')
+	 */
+	@Override
+	public void printSection(Marker marker) {
+		if (!(marker instanceof VcfEntry) || supressOutput) {
+			super.printSection(marker);
+			return;
+		}
+
+		try {
+			if (!openOut()) {
+				super.printSection(marker); // Show on STDOUT
+				return;
+			}
+
+			endSection(marker, out);
+			if (section != null) out.write("\n");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public void setFormatVersion(EffFormatVersion formatVersion) {
 		this.formatVersion = formatVersion;
 	}
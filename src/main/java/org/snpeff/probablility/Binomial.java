@@ -17,13 +17,7 @@ public class Binomial {
 	/** Singleton */
 	private static Binomial binomial = null;
 
-	/**
-	 * Cache results for Sum[ log(i) ]
-	 * WARNING: This cache will grow forever
-	 */
-	double sumLog[] = { 0.0 };
-
-	public static Binomial get() {
+	public static synchronized Binomial get() {
 		if (binomial == null) binomial = new Binomial();
 		return binomial;
 	}
@@ -92,27 +86,6 @@ public class Binomial {
 		return cdf;
 	}
 
-	/**
-	 * Update array size
-	 * @param n
-	 */
-	synchronized void newSumLog(int n) {
-		if (n >= sumLog.length) {
-			double sumLogOld[] = sumLog;
-			double sumLogNew[] = new double[n + 1];
-
-			// Copy old values
-			for (int i = 0; i < sumLogOld.length; i++)
-				sumLogNew[i] = sumLogOld[i];
-
-			// Calc new values
-			for (int i = sumLogOld.length; i < sumLogNew.length; i++)
-				sumLogNew[i] = sumLogNew[i - 1] + Math.log(i);
-
-			sumLog = sumLogNew;
-		}
-	}
-
 	/**
 	 * Probability density function
 	 * @param p : probability of a success in a single Bernoulli trial
@@ -132,14 +105,12 @@ public class Binomial {
 	}
 
 	/**
-	 * Calculate the sum of logs and store results in cache
+	 * Calculate the sum of logs (shared log-factorial table)
 	 * @param n
 	 * @return Sum_{i \in 1..n}[ log(i) ] 
 	 */
 	double sumLog(int n) {
-		// Not in the array? => update size
-		if (n >= sumLog.length) newSumLog(n);
-		return sumLog[n];
+		return LogFactorial.logFactorial(n);
 	}
 
 	/**
@@ -16,7 +16,7 @@ public class FisherExactTest {
 
 	Hypergeometric hd;
 
-	public static FisherExactTest get() {
+	public static synchronized FisherExactTest get() {
 		if (fisherExactTest == null) fisherExactTest = new FisherExactTest();
 		return fisherExactTest;
 	}
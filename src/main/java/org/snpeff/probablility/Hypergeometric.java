@@ -1,6 +1,5 @@
 package org.snpeff.probablility;
 
-import java.util.Arrays;
 import java.util.Date;
 import java.util.Random;
 
@@ -42,13 +41,7 @@ public class Hypergeometric {
 	/** A small number */
 	public static double EPSILON = 1E-20;
 
-	/**
-	 * Cache results for Sum[ log(i) ]
-	 * WARNING: This cache will grow forever
-	 */
-	double sumLog[] = { 0.0 };
-
-	public static Hypergeometric get() {
+	public static synchronized Hypergeometric get() {
 		if (hypergeometric == null) hypergeometric = new Hypergeometric();
 		return hypergeometric;
 	}
@@ -170,31 +163,12 @@ public class Hypergeometric {
 	}
 
 	/**
-	 * Update array size
-	 * @param n
-	 */
-	synchronized void newSumLog(int n) {
-		if (n >= sumLog.length) {
-			// Copy and resize
-			double sumLogNew[] = Arrays.copyOf(sumLog, n + 1);
-
-			// Calc new values
-			for (int i = sumLog.length; i < sumLogNew.length; i++)
-				sumLogNew[i] = sumLogNew[i - 1] + Math.log(i);
-
-			sumLog = sumLogNew;
-		}
-	}
-
-	/**
-	 * Calculate the sum of logs and store results in cache
+	 * Calculate the sum of logs (shared log-factorial table)
 	 * @param n
 	 * @return Sum_{i \in 1..n}[ log(i) ]
 	 */
 	double sumLog(int n) {
-		// Not in the array? => update size
-		if (n >= sumLog.length) newSumLog(n);
-		return sumLog[n];
+		return LogFactorial.logFactorial(n);
 	}
 
 	/**
@@ -0,0 +1,67 @@
+package org.snpeff.probablility;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A table of log-factorials: log(n!) = Sum_{i in 1..n}[ log(i) ]
+ *
+ * The table is shared by every distribution in this package and grows on
+ * demand. Access is lock free: readers never block, and a thread needing
+ * a larger table creates one and publishes it (if several threads grow the
+ * table at the same time, they calculate exactly the same values).
+ *
+ * @author pcingola
+ */
+public class LogFactorial {
+
+	public static final int INITIAL_SIZE = 1024;
+
+	private static final AtomicReference<double[]> table = new AtomicReference<>(extend(new double[] { 0.0 }, INITIAL_SIZE));
+
+	/**
+	 * Copy a table and calculate new values
+	 */
+	static double[] extend(double tableOld[], int size) {
+		double tableNew[] = new double[size];
+		System.arraycopy(tableOld, 0, tableNew, 0, tableOld.length);
+		for (int i = tableOld.length; i < size; i++)
+			tableNew[i] = tableNew[i - 1] + Math.log(i);
+		return tableNew;
+	}
+
+	/**
+	 * Grow the table so that it has at least 'n + 1' entries
+	 */
+	static double[] grow(int n) {
+		while (true) {
+			double t[] = table.get();
+			if (n < t.length) return t;
+
+			// Grow at least twice the size, to amortize copies
+			int size = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(n + 1L, 2L * t.length));
+			double tNew[] = extend(t, size);
+			if (table.compareAndSet(t, tNew)) return tNew;
+		}
+	}
+
+	/**
+	 * Log factorial
+	 * @return log(n!) = Sum_{i in 1..n}[ log(i) ]
+	 */
+	public static double logFactorial(int n) {
+		double t[] = table.get();
+		if (n >= t.length) t = grow(n);
+		return t[n];
+	}
+
+	/**
+	 * Current table size (number of cached values)
+	 */
+	public static int size() {
+		return table.get().length;
+	}
+
+	private LogFactorial() {
+	}
+
+}
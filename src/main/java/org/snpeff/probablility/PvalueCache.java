@@ -0,0 +1,242 @@
+package org.snpeff.probablility;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+/**
+ * Memoized p-values, shared by statistical tests that are evaluated many times
+ * (e.g. gene set analysis performs millions of Fisher exact tests, but there are
+ * only a few distinct (N, D, n) combinations).
+ *
+ * For each (N, D, n), the upper and lower tails of the hypergeometric distribution
+ * are calculated once (for all 'k') and stored. Tails use the shared
+ * log-factorial table (see LogFactorial). On underflow, p-values are reported
+ * as Double.MIN_NORMAL (same as FisherExactTest).
+ *
+ * This class is thread safe and lock free (two threads may calculate
+ * the same tails concurrently, but the results are identical).
+ *
+ * @author pcingola
+ */
+public class PvalueCache {
+
+	/** Maximum number of p-values cached (summed over all (N, D, n) entries) */
+	public static long MAX_CACHED_VALUES = 10 * 1000 * 1000;
+
+	/** Singleton */
+	private static final PvalueCache pvalueCache = new PvalueCache();
+
+	/**
+	 * Hypergeometric tails for one (N, D, n)
+	 */
+	static class Tails {
+		final int kMin; // Minimum possible 'k'
+		final double up[]; // up[i] = P( K >= kMin + i )
+		final double down[]; // down[i] = P( K <= kMin + i )
+
+		Tails(int N, int D, int n) {
+			kMin = Math.max(n + D - N, 0);
+			int kMax = Math.min(n, D);
+			int len = kMax - kMin + 1;
+
+			// Probability for each 'k'
+			Hypergeometric hd = Hypergeometric.get();
+			double pdf[] = new double[len];
+			for (int i = 0; i < len; i++)
+				pdf[i] = hd.hypergeometric(kMin + i, N, D, n);
+
+			// Cumulative values
+			up = new double[len];
+			down = new double[len];
+			double sum = 0;
+			for (int i = len - 1; i >= 0; i--) {
+				sum += pdf[i];
+				up[i] = pvalue(sum);
+			}
+
+			sum = 0;
+			for (int i = 0; i < len; i++) {
+				sum += pdf[i];
+				down[i] = pvalue(sum);
+			}
+		}
+
+		/**
+		 * Number of values needed to store tails for (N, D, n)
+		 */
+		static long size(int N, int D, int n) {
+			return 2L * (Math.min(n, D) - Math.max(n + D - N, 0) + 1);
+		}
+
+		/**
+		 * Cumulative probability within the support: Zero means underflow (report minimum double)
+		 */
+		static double pvalue(double sum) {
+			if (sum <= 0) return Double.MIN_NORMAL;
+			return Math.min(sum, 1.0);
+		}
+
+		/**
+		 * P( K <= k )
+		 */
+		double down(int k) {
+			int i = k - kMin;
+			if (i < 0) return 0.0;
+			if (i >= down.length) return down[down.length - 1];
+			return down[i];
+		}
+
+		/**
+		 * P( K >= k )
+		 */
+		double up(int k) {
+			int i = k - kMin;
+			if (i < 0) return up[0];
+			if (i >= up.length) return 0.0;
+			return up[i];
+		}
+	}
+
+	/**
+	 * Key for (N, D, n)
+	 */
+	static class TailsKey {
+		final int N, D, n;
+
+		TailsKey(int N, int D, int n) {
+			this.N = N;
+			this.D = D;
+			this.n = n;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof TailsKey)) return false;
+			TailsKey k = (TailsKey) o;
+			return N == k.N && D == k.D && n == k.n;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * N + D) * 31 + n;
+		}
+	}
+
+	ConcurrentHashMap<TailsKey, Tails> tailsCache = new ConcurrentHashMap<>();
+	AtomicLong cachedValues = new AtomicLong(); // Number of values in 'tailsCache' (approximate when threads compete)
+	NormalDistribution standardNormal = new NormalDistribution(0, 1);
+
+	public static PvalueCache get() {
+		return pvalueCache;
+	}
+
+	private PvalueCache() {
+	}
+
+	/**
+	 * Clear all cached values
+	 */
+	public void clear() {
+		tailsCache.clear();
+		cachedValues.set(0);
+	}
+
+	/**
+	 * Fisher's exact test for less than 'k' (lower tail)
+	 * Same as FisherExactTest.fisherExactTestDown(k, N, D, n)
+	 *
+	 * @param k : white marbles drawn
+	 * @param N : Total marbles
+	 * @param D : White marbles => N-D : Black marbles
+	 * @param n : marbles drawn => N-n : not drawn
+	 */
+	public double fisherExactTestDown(int k, int N, int D, int n) {
+		// Zero marbles drawn? => Nothing to calculate
+		if (n == 0) {
+			if (k == 1) return 1;
+			return 0.0;
+		}
+
+		Tails tails = tails(N, D, n);
+		if (tails == null) return FisherExactTest.get().fisherExactTestDown(k, N, D, n);
+		return tails.down(k - 1);
+	}
+
+	/**
+	 * Fisher's exact test for 'k' or more (upper tail)
+	 * Same as FisherExactTest.fisherExactTestUp(k, N, D, n)
+	 *
+	 * @param k : white marbles drawn
+	 * @param N : Total marbles
+	 * @param D : White marbles => N-D : Black marbles
+	 * @param n : marbles drawn => N-n : not drawn
+	 */
+	public double fisherExactTestUp(int k, int N, int D, int n) {
+		if (k == 0) return 1.0;
+		if (n == 0) return 0.0; // Zero marbles drawn? => Nothing to calculate
+
+		Tails tails = tails(N, D, n);
+		if (tails == null) return FisherExactTest.get().fisherExactTestUp(k, N, D, n);
+		return tails.up(k);
+	}
+
+	/**
+	 * Fisher's exact test for 'k' or more, compared to a 'threshold'
+	 * Same as FisherExactTest.fisherExactTestUp(k, N, D, n, threshold)
+	 *
+	 * @return Cumulative probability or 1.0 (if cumulative is over the threshold)
+	 */
+	public double fisherExactTestUp(int k, int N, int D, int n, double threshold) {
+		if (k == 0) return 1;
+
+		// If 'k' is less then the mean, then it's the p-value will be more then the threshold (if threshold is above 1/2)
+		double mean = FisherExactTest.get().mean(k, N, D, n);
+		if ((k < mean) && (threshold < 0.5)) return 1;
+
+		// Note: The threshold is not applied to the last value of 'k' (same as FisherExactTest)
+		double pvalue = fisherExactTestUp(k, N, D, n);
+		if (k >= Math.min(n, D)) return pvalue;
+		return pvalue >= threshold ? 1.0 : pvalue;
+	}
+
+	/**
+	 * Cumulative standard normal distribution: P( Z <= z )
+	 */
+	public double normalCdf(double z) {
+		return standardNormal.cumulativeProbability(z);
+	}
+
+	public int size() {
+		return tailsCache.size();
+	}
+
+	/**
+	 * Number of p-values cached
+	 */
+	public long sizeValues() {
+		return cachedValues.get();
+	}
+
+	/**
+	 * Get (or calculate) tails for (N, D, n)
+	 * @return Tails or null if parameters are invalid or tails are too long to be cached
+	 */
+	Tails tails(int N, int D, int n) {
+		if ((N < 0) || (D < 0) || (n < 0) || (D > N) || (n > N)) return null;
+		long size = Tails.size(N, D, n);
+		if (size > MAX_CACHED_VALUES) return null;
+
+		TailsKey key = new TailsKey(N, D, n);
+		Tails tails = tailsCache.get(key);
+		if (tails != null) return tails;
+
+		// Calculate and add to cache
+		tails = new Tails(N, D, n);
+		if (cachedValues.get() + size > MAX_CACHED_VALUES) clear(); // Cache too large? Start over
+		if (tailsCache.putIfAbsent(key, tails) == null) cachedValues.addAndGet(size);
+		return tails;
+	}
+
+}
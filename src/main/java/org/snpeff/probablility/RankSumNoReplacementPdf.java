@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apfloat.Apcomplex;
 import org.apfloat.Apfloat;
@@ -34,6 +35,8 @@ public class RankSumNoReplacementPdf {
 
 	/** Cache size roughly (N * NT)^2 */
 	public static int CACHE_MAX_N = 30;
+	/** Maximum number of CDF results memoized (for any 'n') */
+	public static int CDF_MEMO_MAX_SIZE = 1000 * 1000;
 	public static String DEFAULT_CACHE_FILE = "/pdf_rank_sum_no_replacement.txt";
 	public static int warnCDF = 0;
 
@@ -41,8 +44,9 @@ public class RankSumNoReplacementPdf {
 	String cacheFile; // Cache file
 	int cacheHit, cacheMiss; // Cache statistics
 	HashMap<String, Apfloat> cachePdf, cacheCdf; // A cache to speedup calculations  cache[n][nt][r]
+	ConcurrentHashMap<String, Apfloat> cdfMemo = new ConcurrentHashMap<>(); // CDF results, any algorithm
 
-	public static RankSumNoReplacementPdf get() {
+	public static synchronized RankSumNoReplacementPdf get() {
 		if (rankSumNoReplacementPdf == null) rankSumNoReplacementPdf = new RankSumNoReplacementPdf();
 		return rankSumNoReplacementPdf;
 	}
@@ -143,7 +147,7 @@ public class RankSumNoReplacementPdf {
 		}
 	}
 
-	public void cacheSetPdf(int n, int nt, long r, double pdf) {
+	public synchronized void cacheSetPdf(int n, int nt, long r, double pdf) {
 		cacheSetPdf(n, nt, r, 1, 0, new Apfloat(pdf));
 	}
 
@@ -180,6 +184,21 @@ public class RankSumNoReplacementPdf {
 	 * @return
 	 */
 	public Apfloat cdf(int n, int nt, long r) {
+		// Gene set analysis evaluates the same (n, nt, r) many times
+		String key = cacheKey(n, nt, r, 0, 0);
+		Apfloat cdf = cdfMemo.get(key);
+		if (cdf != null) return cdf;
+
+		cdf = cdfCalc(n, nt, r);
+		if (cdfMemo.size() >= CDF_MEMO_MAX_SIZE) cdfMemo.clear(); // Memo too large? Start over
+		cdfMemo.put(key, cdf);
+		return cdf;
+	}
+
+	/**
+	 * Calculate CDF (see 'cdf' method)
+	 */
+	Apfloat cdfCalc(int n, int nt, long r) {
 		Apfloat cdf;
 		long minR = minRankSum(n, nt);
 		long maxR = maxRankSum(n, nt);
@@ -237,7 +256,7 @@ public class RankSumNoReplacementPdf {
 	 * @param r : rank sum value
 	 * @return The probability that selecting 'nt' elements out of 'n' ranked elements, the rank sum is less or equal to 'r'
 	 */
-	public Apfloat cdfExact(int n, int nt, long r) {
+	public synchronized Apfloat cdfExact(int n, int nt, long r) {
 		// Is it in the cache?
 		Apfloat cdf = cacheGetCdf(n, nt, r);
 		if (RankSumPdf.isOk(cdf)) {
@@ -473,7 +492,7 @@ public class RankSumNoReplacementPdf {
 	 * @param r : rank sum value
 	 * @return The probability that selecting 'nt' elements out of 'n' ranked elements, the rank sum is equal to 'r'
 	 */
-	public Apfloat pdfExact(int n, int nt, long r, long rmin, int out) {
+	public synchronized Apfloat pdfExact(int n, int nt, long r, long rmin, int out) {
 		// Quick sanity checks (variable's limits)
 		long minR = (int) ((nt + 1) * ((double) nt) / 2);
 		long minR2 = nt * (rmin - 1) + minR;
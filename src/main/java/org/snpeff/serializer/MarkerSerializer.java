@@ -111,6 +111,53 @@ public class MarkerSerializer {
         return doNotSave != null && doNotSave.contains(m);
     }
 
+    /**
+     * Assign parents: Replace 'fake' parents (MarkerParentId) by the 'real' ones
+     */
+    protected Markers assignParents() {
+        Markers markers = new Markers();
+        for (TxtSerializable tm : byId.values()) {
+            if (tm instanceof Marker) {
+                Marker m = (Marker) tm;
+
+                // Do we need to replace parent?
+                if (m.getParent() instanceof MarkerParentId) {
+                    // Find parent ID
+                    MarkerParentId mpid = (MarkerParentId) m.getParent();
+                    int parentId = mpid.getParentId();
+
+                    // Find and set parent
+                    Marker parent = getMarkerById(parentId);
+                    m.setParent(parent);
+                }
+
+                // Add to markers
+                markers.add(m);
+            }
+        }
+
+        return markers;
+    }
+
+    /**
+     * Check that the database was created by a compatible program version
+     */
+    protected void checkVersion(String fileName, String soft, String versionNumber) {
+        // Check for compatibility
+        if (!soft.equals(SnpEff.SOFTWARE_NAME))
+            throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version. Try installing the appropriate database.");
+
+        // Check version number
+        List<String> dbCompatibleVersions = Config.get().getDatabaseCompatibilityVersions();
+        if (!dbCompatibleVersions.contains(versionNumber))
+            throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version:"//
+                    + "\n\tDatabase version    : '" + versionNumber + "'"//
+                    + "\n\tProgram version     : '" + SnpEff.VERSION_MAJOR + "'" //
+                    + "\n\tCompatible versions : '" + dbCompatibleVersions + "'"//
+                    + "\nTry installing the appropriate database." //
+            );
+    }
+
     /**
      * Load data from file
      */
@@ -126,24 +173,7 @@ public class MarkerSerializer {
             if (lineNum == 0) {
                 // First line should be 'header' showing version number
                 String[] fields = line.split("\t");
-                if (fields.length > 1) {
-                    String soft = fields[0];
-                    String versionNumber = fields[1];
-
-                    // Check for compatibility
-                    if (!soft.equals(SnpEff.SOFTWARE_NAME))
-                        throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version. Try installing the appropriate database.");
-
-                    // Check version number
-                    List<String> dbCompatibleVersions = Config.get().getDatabaseCompatibilityVersions();
-                    if (!dbCompatibleVersions.contains(versionNumber))
-                        throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version:"//
-                                + "\n\tDatabase version    : '" + versionNumber + "'"//
-                                + "\n\tProgram version     : '" + SnpEff.VERSION_MAJOR + "'" //
-                                + "\n\tCompatible versions : '" + dbCompatibleVersions + "'"//
-                                + "\nTry installing the appropriate database." //
-                        );
-                }
+                if (fields.length > 1) checkVersion(fileName, fields[0], fields[1]);
             } else {
                 parsedField = 0;
                 fields = line.split("\t", -1);
@@ -156,64 +186,7 @@ public class MarkerSerializer {
                 String idStr = fields[1];
                 int id = Gpr.parseIntSafe(idStr);
 
-                Marker m = null;
-                switch (type) {
-                    case GENOME:
-                        if (genome == null) m = new Genome();
-                        else m = genome;
-                        break;
-                    case CHROMOSOME:
-                        m = new Chromosome();
-                        break;
-                    case SEQUENCE:
-                        m = new MarkerSeq();
-                        break;
-                    case GENE:
-                        m = new Gene();
-                        break;
-                    case TRANSCRIPT:
-                        m = new Transcript();
-                        break;
-                    case CDS:
-                        m = new Cds();
-                        break;
-                    case EXON:
-                        m = new Exon();
-                        break;
-                    case UTR_3_PRIME:
-                        m = new Utr3prime();
-                        break;
-                    case UTR_5_PRIME:
-                        m = new Utr5prime();
-                        break;
-                    case RARE_AMINO_ACID:
-                        m = new RareAminoAcid();
-                        break;
-                    case SPLICE_SITE_ACCEPTOR:
-                        m = new SpliceSiteAcceptor();
-                        break;
-                    case SPLICE_SITE_BRANCH:
-                        m = new SpliceSiteBranch();
-                        break;
-                    case SPLICE_SITE_BRANCH_U12:
-                        m = new SpliceSiteBranchU12();
-                        break;
-                    case SPLICE_SITE_DONOR:
-                        m = new SpliceSiteDonor();
-                        break;
-                    case NEXT_PROT:
-                        m = new NextProt();
-                        break;
-                    case MOTIF:
-                        m = new Motif();
-                        break;
-                    case REGULATION:
-                        m = new Regulation();
-                        break;
-
-                    default:
-                        throw new RuntimeException("Unimplemented for type '" + type + "'");
-                }
+                Marker m = newMarker(type);
 
                 try {
                     // Parse line
@@ -230,31 +203,52 @@ public class MarkerSerializer {
             lineNum++;
         }
 
-        //---
-        // Assign parents
-        //---
-        Markers markers = new Markers();
-        for (TxtSerializable tm : byId.values()) {
-            if (tm instanceof Marker) {
-                Marker m = (Marker) tm;
-
-                // Do we need to replace parent?
-                if (m.getParent() instanceof MarkerParentId) {
-                    // Find parent ID
-                    MarkerParentId mpid = (MarkerParentId) m.getParent();
-                    int parentId = mpid.getParentId();
-
-                    // Find and set parent
-                    Marker parent = getMarkerById(parentId);
-                    m.setParent(parent);
-                }
+        return assignParents();
+    }
 
-                // Add to markers
-                markers.add(m);
-            }
+    /**
+     * Create a new (empty) marker of a given type
+     */
+    protected Marker newMarker(EffectType type) {
+        switch (type) {
+            case GENOME:
+                return (genome == null ? new Genome() : genome);
+            case CHROMOSOME:
+                return new Chromosome();
+            case SEQUENCE:
+                return new MarkerSeq();
+            case GENE:
+                return new Gene();
+            case TRANSCRIPT:
+                return new Transcript();
+            case CDS:
+                return new Cds();
+            case EXON:
+                return new Exon();
+            case UTR_3_PRIME:
+                return new Utr3prime();
+            case UTR_5_PRIME:
+                return new Utr5prime();
+            case RARE_AMINO_ACID:
+                return new RareAminoAcid();
+            case SPLICE_SITE_ACCEPTOR:
+                return new SpliceSiteAcceptor();
+            case SPLICE_SITE_BRANCH:
+                return new SpliceSiteBranch();
+            case SPLICE_SITE_BRANCH_U12:
+                return new SpliceSiteBranchU12();
+            case SPLICE_SITE_DONOR:
+                return new SpliceSiteDonor();
+            case NEXT_PROT:
+                return new NextProt();
+            case MOTIF:
+                return new Motif();
+            case REGULATION:
+                return new Regulation();
+
+            default:
+                throw new RuntimeException("Unimplemented for type '" + type + "'");
         }
-
-        return markers;
     }
 
     /**
@@ -284,12 +278,19 @@ public class MarkerSerializer {
 
         // Print line
         String line = m.serializeSave(this);
-        outFile.print(line + "\n");
+        saveLine(m, line);
         lineNum++;
 
         return id;
     }
 
+    /**
+     * Write a serialized marker
+     */
+    protected void saveLine(Marker m, String line) {
+        outFile.print(line + "\n");
+    }
+
     /**
      * Save data to file
      */
@@ -0,0 +1,453 @@
+package org.snpeff.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.snpeff.SnpEff;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.util.Gpr;
+
+/**
+ * Serialize markers to (and from) a binary, memory mappable, file.
+ *
+ * Markers are split into sections: One 'genome' section (genome and chromosomes)
+ * and one section per chromosome (all markers in that chromosome). Each section
+ * stores the basic marker fields as primitive columns and the remaining (marker
+ * specific) fields in a string table, using the same encoding as MarkerSerializer.
+ *
+ * This allows loading only a subset of chromosomes (the 'genome' section is always loaded).
+ *
+ * File format:
+ *
+ *     Header:
+ *         byte[8]    : MAGIC
+ *         int        : Header length (bytes after this field)
+ *         int        : Format version
+ *         UTF        : Software name
+ *         UTF        : Software version
+ *         int + UTF* : Marker types table (EffectType names)
+ *         int        : Number of sections, followed by one entry per section:
+ *                          UTF  : Section name (chromosome name, empty for 'genome' section)
+ *                          long : Offset (bytes after the header)
+ *                          int  : Size in bytes
+ *                          int  : Number of markers
+ *
+ *     Section with 'n' markers (columns, in the same order markers were serialized):
+ *         int[n]   : Serialization ID
+ *         int[n]   : Parent's serialization ID
+ *         int[n]   : Start
+ *         int[n]   : End
+ *         short[n] : Type (index in types table)
+ *         byte[n]  : Strand (1 if strand minus)
+ *         int[n+1] : Offsets in string table
+ *         byte[]   : String table (UTF-8): Marker ID followed by marker specific fields, tab separated
+ *
+ * @author pcingola
+ */
+public class MarkerSerializerColumnar extends MarkerSerializer {
+
+	public static final byte[] MAGIC = "SnpEffCl".getBytes(StandardCharsets.US_ASCII);
+	public static final int FORMAT_VERSION = 1;
+	public static final String GENOME_SECTION = "";
+
+	// Field numbers for fields stored as columns (see Marker.serializeSave)
+	static final int FIELD_TYPE = 0;
+	static final int FIELD_ID = 1;
+	static final int FIELD_PARENT_ID = 2;
+	static final int FIELD_START = 3;
+	static final int FIELD_END = 4;
+	static final int FIELD_MARKER_ID = 5;
+	static final int FIELD_STRAND = 6;
+	static final int FIELDS_COLUMNS = 7; // Number of fields stored as columns
+
+	/**
+	 * A section of the file: All markers in a chromosome
+	 */
+	class Section {
+		String name;
+		int size;
+		int[] ids, parentIds, starts, ends;
+		short[] types;
+		byte[] strands;
+		ByteArrayOutputStream strings;
+		List<Integer> strOffsets;
+
+		Section(String name) {
+			this.name = name;
+			ids = new int[1024];
+			parentIds = new int[1024];
+			starts = new int[1024];
+			ends = new int[1024];
+			types = new short[1024];
+			strands = new byte[1024];
+			strings = new ByteArrayOutputStream();
+			strOffsets = new ArrayList<>();
+		}
+
+		void add(short type, int id, int parentId, int start, int end, boolean strandMinus, String str) {
+			if (size >= ids.length) {
+				int len = 2 * ids.length;
+				ids = Arrays.copyOf(ids, len);
+				parentIds = Arrays.copyOf(parentIds, len);
+				starts = Arrays.copyOf(starts, len);
+				ends = Arrays.copyOf(ends, len);
+				types = Arrays.copyOf(types, len);
+				strands = Arrays.copyOf(strands, len);
+			}
+
+			ids[size] = id;
+			parentIds[size] = parentId;
+			starts[size] = start;
+			ends[size] = end;
+			types[size] = type;
+			strands[size] = (byte) (strandMinus ? 1 : 0);
+			strOffsets.add(strings.size());
+			strings.writeBytes(str.getBytes(StandardCharsets.UTF_8));
+			size++;
+		}
+
+		/**
+		 * Serialize section (columns) to bytes
+		 */
+		byte[] toBytes() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			for (int i = 0; i < size; i++)
+				out.writeInt(ids[i]);
+			for (int i = 0; i < size; i++)
+				out.writeInt(parentIds[i]);
+			for (int i = 0; i < size; i++)
+				out.writeInt(starts[i]);
+			for (int i = 0; i < size; i++)
+				out.writeInt(ends[i]);
+			for (int i = 0; i < size; i++)
+				out.writeShort(types[i]);
+			out.write(strands, 0, size);
+			for (int offset : strOffsets)
+				out.writeInt(offset);
+			out.writeInt(strings.size());
+			strings.writeTo(out);
+			out.close();
+			return bytes.toByteArray();
+		}
+	}
+
+	Set<String> chromosomes; // Only load these chromosomes (null means 'load all')
+	Map<String, Section> sections; // Sections to be saved
+	Map<String, Short> typeIdx; // Types table (save)
+	List<String> typeNames; // Types table
+
+	// Current record (load)
+	String typeName;
+	int id, parentId, start, end;
+	boolean strandMinus;
+	String[] strFields;
+
+	/**
+	 * Is this file in 'columnar' format?
+	 */
+	public static boolean isColumnar(String fileName) {
+		if (!Gpr.canRead(fileName)) return false;
+		try (FileInputStream in = new FileInputStream(fileName)) {
+			byte[] magic = in.readNBytes(MAGIC.length);
+			return Arrays.equals(MAGIC, magic);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public MarkerSerializerColumnar(Genome genome) {
+		super(genome);
+	}
+
+	@Override
+	public String getNextField() {
+		int fieldNum = parsedField++;
+		switch (fieldNum) {
+		case FIELD_TYPE:
+			return typeName;
+		case FIELD_ID:
+			return Integer.toString(id);
+		case FIELD_PARENT_ID:
+			return Integer.toString(parentId);
+		case FIELD_START:
+			return Integer.toString(start);
+		case FIELD_END:
+			return Integer.toString(end);
+		case FIELD_STRAND:
+			return Boolean.toString(strandMinus);
+		default:
+			// Marker ID and marker specific fields are in the string table
+			int idx = (fieldNum == FIELD_MARKER_ID ? 0 : fieldNum - FIELDS_COLUMNS + 1);
+			return idx < strFields.length ? strFields[idx] : "";
+		}
+	}
+
+	@Override
+	public boolean getNextFieldBoolean() {
+		if (parsedField == FIELD_STRAND) {
+			parsedField++;
+			return strandMinus;
+		}
+		return super.getNextFieldBoolean();
+	}
+
+	@Override
+	public int getNextFieldInt() {
+		switch (parsedField) {
+		case FIELD_ID:
+			parsedField++;
+			return id;
+		case FIELD_PARENT_ID:
+			parsedField++;
+			return parentId;
+		case FIELD_START:
+			parsedField++;
+			return start;
+		case FIELD_END:
+			parsedField++;
+			return end;
+		default:
+			return super.getNextFieldInt();
+		}
+	}
+
+	/**
+	 * Load all markers from file
+	 */
+	@Override
+	public Markers load(String fileName) {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ); //
+				DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))) //
+		) {
+			//---
+			// Read header (sections are mapped from the same channel)
+			//---
+			byte[] magic = in.readNBytes(MAGIC.length);
+			if (!Arrays.equals(MAGIC, magic)) throw new RuntimeException("Database file '" + fileName + "' is not in columnar format");
+			int headerLen = in.readInt();
+			long dataStart = MAGIC.length + 4 + headerLen;
+
+			int formatVersion = in.readInt();
+			if (formatVersion != FORMAT_VERSION) throw new RuntimeException("Database file '" + fileName + "' has unsupported format version " + formatVersion + " (expected " + FORMAT_VERSION + ")");
+			String soft = in.readUTF();
+			String version = in.readUTF();
+			checkVersion(fileName, soft, version);
+
+			// Types table
+			int numTypes = in.readInt();
+			typeNames = new ArrayList<>(numTypes);
+			EffectType[] types = new EffectType[numTypes];
+			for (int i = 0; i < numTypes; i++) {
+				typeNames.add(in.readUTF());
+				types[i] = EffectType.valueOf(typeNames.get(i));
+			}
+
+			// Sections
+			int numSections = in.readInt();
+			for (int i = 0; i < numSections; i++) {
+				String name = in.readUTF();
+				long offset = in.readLong();
+				int size = in.readInt();
+				int numMarkers = in.readInt();
+
+				// Load this section?
+				if (!name.equals(GENOME_SECTION) && (chromosomes != null) && !chromosomes.contains(name)) continue;
+
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + offset, size);
+				loadSection(fileName, name, buffer, numMarkers, types);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading file '" + fileName + "'", e);
+		}
+
+		return assignParents();
+	}
+
+	/**
+	 * Create all markers in a section
+	 */
+	void loadSection(String fileName, String name, ByteBuffer buffer, int n, EffectType[] types) {
+		// Read columns
+		int[] ids = new int[n], parentIds = new int[n], starts = new int[n], ends = new int[n], strOffsets = new int[n + 1];
+		short[] typeIdxs = new short[n];
+		byte[] strands = new byte[n];
+		buffer.asIntBuffer().get(ids);
+		buffer.position(buffer.position() + 4 * n);
+		buffer.asIntBuffer().get(parentIds);
+		buffer.position(buffer.position() + 4 * n);
+		buffer.asIntBuffer().get(starts);
+		buffer.position(buffer.position() + 4 * n);
+		buffer.asIntBuffer().get(ends);
+		buffer.position(buffer.position() + 4 * n);
+		buffer.asShortBuffer().get(typeIdxs);
+		buffer.position(buffer.position() + 2 * n);
+		buffer.get(strands);
+		buffer.asIntBuffer().get(strOffsets);
+		buffer.position(buffer.position() + 4 * (n + 1));
+		int stringsStart = buffer.position();
+
+		// Create markers
+		byte[] strBytes = new byte[0];
+		for (int i = 0; i < n; i++) {
+			EffectType type = types[typeIdxs[i]];
+			typeName = typeNames.get(typeIdxs[i]);
+			id = ids[i];
+			parentId = parentIds[i];
+			start = starts[i];
+			end = ends[i];
+			strandMinus = strands[i] != 0;
+
+			// Decode string fields
+			int len = strOffsets[i + 1] - strOffsets[i];
+			if (strBytes.length < len) strBytes = new byte[2 * len];
+			buffer.position(stringsStart + strOffsets[i]);
+			buffer.get(strBytes, 0, len);
+			strFields = new String(strBytes, 0, len, StandardCharsets.UTF_8).split("\t", -1);
+			parsedField = 0;
+
+			Marker m = newMarker(type);
+			try {
+				m.serializeParse(this);
+			} catch (Throwable t) {
+				throw new RuntimeException("Error parsing marker " + i + " in section '" + name + "' from file '" + fileName + "'\n\tType: " + type + ", ID: " + id + "\n\tField [" + parsedField + "]", t);
+			}
+
+			byId.put(id, m);
+		}
+	}
+
+	/**
+	 * Save data to file
+	 */
+	@Override
+	public void save(String fileName, Markers markers) {
+		lineNum = 0;
+		currId = 0;
+		sections = new LinkedHashMap<>();
+		typeIdx = new HashMap<>();
+		typeNames = new ArrayList<>();
+		sections.put(GENOME_SECTION, new Section(GENOME_SECTION));
+
+		// Serialize all markers
+		for (Marker m : markers)
+			save(m);
+
+		try {
+			// Serialize sections
+			List<byte[]> sectionBytes = new ArrayList<>();
+			for (Section section : sections.values())
+				sectionBytes.add(section.toBytes());
+
+			// Create header
+			ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			DataOutputStream header = new DataOutputStream(headerBytes);
+			header.writeInt(FORMAT_VERSION);
+			header.writeUTF(SnpEff.SOFTWARE_NAME);
+			header.writeUTF(SnpEff.VERSION_MAJOR);
+			header.writeInt(typeNames.size());
+			for (String typeName : typeNames)
+				header.writeUTF(typeName);
+
+			header.writeInt(sections.size());
+			long offset = 0;
+			int i = 0;
+			for (Section section : sections.values()) {
+				int size = sectionBytes.get(i++).length;
+				header.writeUTF(section.name);
+				header.writeLong(offset);
+				header.writeInt(size);
+				header.writeInt(section.size);
+				offset += size;
+			}
+			header.close();
+
+			// Write file
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(fileName));
+			out.write(MAGIC);
+			out.writeInt(headerBytes.size());
+			headerBytes.writeTo(out);
+			for (byte[] bytes : sectionBytes)
+				out.write(bytes);
+			out.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Add serialized marker to its section
+	 */
+	@Override
+	protected void saveLine(Marker m, String line) {
+		// Find section
+		String sectionName = GENOME_SECTION;
+		if (!(m instanceof Genome) && !(m instanceof Chromosome)) sectionName = m.getChromosomeName();
+		Section section = sections.get(sectionName);
+		if (section == null) {
+			section = new Section(sectionName);
+			sections.put(sectionName, section);
+		}
+
+		// Split line: Columns are stored as primitive types, the rest in the string table
+		String[] fields = line.split("\t", FIELDS_COLUMNS + 1);
+		Short type = typeIdx.get(fields[FIELD_TYPE]);
+		if (type == null) {
+			type = (short) typeNames.size();
+			typeNames.add(fields[FIELD_TYPE]);
+			typeIdx.put(fields[FIELD_TYPE], type);
+		}
+
+		String str = fields[FIELD_MARKER_ID];
+		if (fields.length > FIELDS_COLUMNS) str += "\t" + fields[FIELDS_COLUMNS];
+
+		section.add(type //
+				, Gpr.parseIntSafe(fields[FIELD_ID]) //
+				, Gpr.parseIntSafe(fields[FIELD_PARENT_ID]) //
+				, Gpr.parseIntSafe(fields[FIELD_START]) //
+				, Gpr.parseIntSafe(fields[FIELD_END]) //
+				, Gpr.parseBoolSafe(fields[FIELD_STRAND]) //
+				, str //
+		);
+	}
+
+	/**
+	 * Only load markers in these chromosomes (null means all chromosomes)
+	 */
+	public void setChromosomes(Collection<String> chrs) {
+		if (chrs == null) {
+			chromosomes = null;
+			return;
+		}
+
+		chromosomes = new HashSet<>();
+		for (String chr : chrs)
+			chromosomes.add(Chromosome.simpleName(chr));
+	}
+
+}
@@ -71,6 +71,8 @@ public class Config implements Serializable, Iterable<String> {
     boolean errorOnMissingChromo; // Error if chromosome is missing
     boolean errorChromoHit; // Error if chromosome is not hit in a query
     boolean expandIub = true; // Expand IUB codes in variants?
+    boolean databaseColumnar = false; // Save database in binary 'columnar' format
+    boolean sequencePacked = false; // Save (large) chromosome sequences in packed, memory mappable, format
     boolean hgvs = true; // Use HGVS notation?
     boolean hgvsShift = true; // Shift variants according to HGVS notation (towards the most 3prime possible coordinate)
     boolean hgvsOneLetterAa = false; // Use HGVS 1 letter amino acid in HGVS notation?
@@ -91,6 +93,7 @@ public class Config implements Serializable, Iterable<String> {
     LinkedHashMap<String, String> nameById;
     HashMap<String, String> bundleByGenomeId;
     SnpEffectPredictor snpEffectPredictor;
+    Collection<String> loadChromosomes; // Only load these chromosomes from database (null means all chromosomes)
     String databaseRepository = "";
     String databaseRepositoryKey = "";
     String versionsUrl = "";
@@ -489,6 +492,10 @@ public class Config implements Serializable, Iterable<String> {
         return genomeById.get(genomeId);
     }
 
+    public Collection<String> getLoadChromosomes() {
+        return loadChromosomes;
+    }
+
     public String getGenomeVersion() {
         return genomeVersion;
     }
@@ -606,6 +613,22 @@ public class Config implements Serializable, Iterable<String> {
         configInstance = this;
     }
 
+    public boolean isDatabaseColumnar() {
+        return databaseColumnar;
+    }
+
+    public void setDatabaseColumnar(boolean databaseColumnar) {
+        this.databaseColumnar = databaseColumnar;
+    }
+
+    public boolean isSequencePacked() {
+        return sequencePacked;
+    }
+
+    public void setSequencePacked(boolean sequencePacked) {
+        this.sequencePacked = sequencePacked;
+    }
+
     public boolean isDebug() {
         return debug;
     }
@@ -670,6 +693,14 @@ public class Config implements Serializable, Iterable<String> {
         this.hgvsTrId = hgvsTrId;
     }
 
+    /**
+     * Only load these chromosomes from the database (null means all chromosomes).
+     * This only has effect on databases saved in 'columnar' format
+     */
+    public void setLoadChromosomes(Collection<String> loadChromosomes) {
+        this.loadChromosomes = loadChromosomes;
+    }
+
     public boolean isOnlyRegulation() {
         return onlyRegulation;
     }
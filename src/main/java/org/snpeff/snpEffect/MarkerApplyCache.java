@@ -0,0 +1,134 @@
+package org.snpeff.snpEffect;
+
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Variant;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded (least recently used) cache of markers having a variant applied.
+ *
+ * In cancer analysis (somatic vs germline comparisons), the 'reference'
+ * variant is applied to every marker hit by the variant (e.g. genes and
+ * their transcripts, see Marker.variantEffectNonRef and Gene.variantEffect).
+ * The same reference variant is usually applied several times (once for
+ * each comparison), and applying a variant to a gene creates new
+ * transcripts (exons, UTRs, introns, splice sites, etc.).
+ * This cache allows to create each 'applied' marker only once.
+ *
+ * Markers are identified by object identity, variants by
+ * chromosome, coordinates, reference and alternative alleles.
+ *
+ * Note: Cached markers are shared, so they must not be modified.
+ * This class is thread safe.
+ *
+ * @author pcingola
+ */
+public class MarkerApplyCache {
+
+    public static final int DEFAULT_SIZE = 1000;
+
+    int maxSize;
+    long hits, misses;
+    LinkedHashMap<Key, Marker> cache;
+
+    /**
+     * Cache key: A marker (object identity) and a variant
+     */
+    static class Key {
+        final Marker marker;
+        final String variant;
+
+        Key(Marker marker, Variant variant) {
+            this.marker = marker;
+            this.variant = VariantEffectsCache.key(variant);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return marker == k.marker && variant.equals(k.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(marker) + variant.hashCode();
+        }
+    }
+
+    public MarkerApplyCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public MarkerApplyCache(int maxSize) {
+        this.maxSize = maxSize;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Marker> eldest) {
+                return size() > MarkerApplyCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Apply a variant to a marker, reusing a previously created marker if available
+     * @return Same as 'marker.apply(variant)'
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Marker> T apply(T marker, Variant variant) {
+        // Variant does not change this marker? Nothing to cache
+        if (!marker.shouldApply(variant)) return marker;
+
+        Key key = new Key(marker, variant);
+        synchronized (this) {
+            Marker mApplied = cache.get(key);
+            if (mApplied != null || cache.containsKey(key)) {
+                hits++;
+                return (T) mApplied;
+            }
+            misses++;
+        }
+
+        // Apply variant (outside the lock)
+        T mApplied = (T) marker.apply(variant);
+        synchronized (this) {
+            cache.put(key, mApplied);
+        }
+        return mApplied;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return "Marker apply cache: size " + cache.size() + " / " + maxSize //
+                + ", hits: " + hits //
+                + ", misses: " + misses //
+                + ", hit rate: " + (total > 0 ? String.format("%.1f%%", 100.0 * hits / total) : "-") //
+                ;
+    }
+
+}
@@ -1,9 +1,12 @@
 package org.snpeff.snpEffect;
 
 import org.snpeff.binseq.GenomicSequences;
+import org.snpeff.fileIterator.BigFile;
 import org.snpeff.interval.*;
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.Itree;
 import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.serializer.MarkerSerializerColumnar;
 import org.snpeff.util.Gpr;
 
 import java.io.Serializable;
@@ -31,6 +34,10 @@ public class SnpEffectPredictor implements Serializable {
     Genome genome;
     Markers markers; // All other markers are stored here (e.g. custom markers, intergenic, etc.)
     IntervalForest intervalForest; // Interval forest by chromosome name
+    IntervalForest geneForest; // Genes only, by chromosome name (used for huge structural variants and closest genes)
+    IntervalForest closestForest; // Transcript features (exons, introns, UTRs, up/downstream, etc.), used to find closest features
+    transient MarkerApplyCache markerApplyCache; // Markers having a 'reference' variant applied (cancer analysis)
+    transient List<BigFile> indexedTracks; // Custom annotations queried from indexed files (BigBed / BigWig), not loaded into the forest
 
     public SnpEffectPredictor(Genome genome) {
         this.genome = genome;
@@ -48,7 +55,13 @@ public class SnpEffectPredictor implements Serializable {
             throw new RuntimeException("\tERROR: Cannot read file '" + snpEffPredFile + "'.\n\tYou can try to download the database by running the following command:\n\t\tjava -jar snpEff.jar download " + config.getGenome().getVersion() + "\n");
 
         // Load markers from file
-        MarkerSerializer ms = new MarkerSerializer(config.getGenome());
+        MarkerSerializer ms;
+        if (MarkerSerializerColumnar.isColumnar(snpEffPredFile)) {
+            // Columnar format: We can load only some chromosomes
+            MarkerSerializerColumnar msc = new MarkerSerializerColumnar(config.getGenome());
+            msc.setChromosomes(config.getLoadChromosomes());
+            ms = msc;
+        } else ms = new MarkerSerializer(config.getGenome());
         Markers markers = ms.load(snpEffPredFile);
 
         // Find genome
@@ -99,6 +112,15 @@ public class SnpEffectPredictor implements Serializable {
         markers.add(marker);
     }
 
+    /**
+     * Add an indexed custom annotation file (BigBed / BigWig)
+     * Features are not loaded, the file is queried for each variant
+     */
+    public void addIndexedTrack(BigFile bigFile) {
+        if (indexedTracks == null) indexedTracks = new ArrayList<>();
+        indexedTracks.add(bigFile);
+    }
+
     /**
      * Add a set of markers
      */
@@ -110,6 +132,7 @@ public class SnpEffectPredictor implements Serializable {
      * Create interval trees (forest)
      */
     public void buildForest() {
+        markerApplyCache = null; // Markers may have changed
         intervalForest = new IntervalForest();
         intervalForest.setDebug(debug);
 
@@ -128,6 +151,9 @@ public class SnpEffectPredictor implements Serializable {
         for (Gene gene : genome.getGenes())
             intervalForest.add(gene);
 
+        // Genes only forest: Huge structural variants only need to find affected genes
+        buildGeneForest();
+
         //---
         // Create (and add) up-down stream, splice sites, intergenic, etc
         //---
@@ -146,6 +172,22 @@ public class SnpEffectPredictor implements Serializable {
         buildPerGene();
     }
 
+    /**
+     * Create an interval forest having only genes.
+     * Finding genes affected by a huge structural variant is then proportional to
+     * the number of genes affected, instead of the number of genes in the genome.
+     * It also supports 'nearest' queries (closest gene)
+     */
+    void buildGeneForest() {
+        closestForest = null;
+        geneForest = new IntervalForest();
+        geneForest.setNearest(true);
+        geneForest.setDebug(debug);
+        for (Gene gene : genome.getGenes())
+            geneForest.add(gene);
+        geneForest.build();
+    }
+
     /**
      * Build 'per gene' information
      */
@@ -217,10 +259,49 @@ public class SnpEffectPredictor implements Serializable {
         return genome;
     }
 
+    /**
+     * Interval forest of transcript features, used to find closest features.
+     * It is created the first time it is needed (see 'queryClosest')
+     */
+    public synchronized IntervalForest getClosestForest() {
+        if (closestForest == null) {
+            IntervalForest forest = new IntervalForest();
+            forest.setNearest(true);
+            forest.setDebug(debug);
+
+            // Same features as 'queryDeep', excluding genes, transcripts, intergenic and chromosomes
+            for (Itree tree : intervalForest) {
+                for (Marker m : tree) {
+                    if (m instanceof Gene) {
+                        for (Marker gm : m.query(m))
+                            if (isTranscriptFeature(gm)) forest.add(gm);
+                    } else if (isTranscriptFeature(m)) forest.add(m);
+                }
+            }
+
+            forest.build();
+            closestForest = forest;
+        }
+        return closestForest;
+    }
+
+    public IntervalForest getGeneForest() {
+        return geneForest;
+    }
+
     public IntervalForest getIntervalForest() {
         return intervalForest;
     }
 
+    /**
+     * Cache of markers having a variant applied (used in cancer analysis).
+     * It is created the first time it is needed
+     */
+    public synchronized MarkerApplyCache getMarkerApplyCache() {
+        if (markerApplyCache == null) markerApplyCache = new MarkerApplyCache();
+        return markerApplyCache;
+    }
+
     public Markers getMarkers() {
         return markers;
     }
@@ -265,10 +346,18 @@ public class SnpEffectPredictor implements Serializable {
         this.upDownStreamLength = upDownStreamLength;
     }
 
+    /**
+     * Is this a marker within a transcript (e.g. exon, intron, UTR, upstream, etc.)?
+     */
+    boolean isTranscriptFeature(Marker m) {
+        if ((m instanceof Chromosome) || (m instanceof Intergenic) || (m instanceof Gene) || (m instanceof Transcript)) return false;
+        return m.findParent(Transcript.class) != null;
+    }
+
     /**
      * Is the chromosome missing in this marker?
      */
-    boolean isChromosomeMissing(Marker marker) {
+    public boolean isChromosomeMissing(Marker marker) {
         // Missing chromosome in marker?
         if (marker.getChromosome() == null) return true;
 
@@ -317,7 +406,30 @@ public class SnpEffectPredictor implements Serializable {
      * Return a collection of intervals that intersect 'marker'
      */
     public Markers query(Marker marker) {
-        return marker.query(intervalForest);
+        Markers results = marker.query(intervalForest);
+        queryIndexedTracks(marker, results);
+        return results;
+    }
+
+    /**
+     * Query indexed custom annotation files, add results to 'results'
+     */
+    void queryIndexedTracks(Marker marker, Markers results) {
+        if (indexedTracks == null) return;
+        for (BigFile bigFile : indexedTracks)
+            bigFile.query(marker, results);
+    }
+
+    /**
+     * Find closest transcript features (e.g. exons, introns, UTRs, splice
+     * sites, upstream, downstream, etc.) to this marker.
+     * All features at the minimum distance are returned (features
+     * intersecting 'marker' are at distance zero)
+     */
+    public Markers queryClosest(Marker marker) {
+        Markers closest = new Markers();
+        getClosestForest().nearest(marker, closest);
+        return closest;
     }
 
     /**
@@ -336,55 +448,18 @@ public class SnpEffectPredictor implements Serializable {
      * is returned.
      */
     public Gene queryClosestGene(Marker inputInterval) {
-        int initialExtension = 1000;
-
-        String chrName = inputInterval.getChromosomeName();
-        Chromosome chr = genome.getChromosome(chrName);
-        if (chr == null) return null;
-
-        if (chr.size() > 0) {
-            // Extend interval to capture 'close' genes
-            for (int extend = initialExtension; extend < chr.size(); extend *= 2) {
-                int start = Math.max(inputInterval.getStart() - extend, 0);
-                int end = inputInterval.getEnd() + extend;
-                Marker extended = new Marker(chr, start, end, false, "");
-
-                // Find all genes that intersect with the interval
-                Markers markers = query(extended);
-                Markers genes = new Markers();
-                int minDist = Integer.MAX_VALUE;
-                for (Marker m : markers) {
-                    if (m instanceof Gene) {
-                        int dist = m.distance(inputInterval);
-                        if (dist < minDist) {
-                            genes.add(m);
-                            minDist = dist;
-                        }
-                    }
-                }
-
-                // Found something?
-                if (genes.size() > 0) {
-                    // Find a gene having distance 'minDist'. Prefer coding genes
-                    Gene minDistGene = null;
-
-                    for (Marker m : genes) {
-                        int dist = m.distance(inputInterval);
-                        if (dist == minDist) {
-                            Gene gene = (Gene) m;
-                            if (minDistGene == null) minDistGene = gene;
-                            else if (!minDistGene.isProteinCoding() && gene.isProteinCoding()) minDistGene = gene;
-                        }
-                    }
-
-                    return minDistGene;
-                }
-
-            }
+        Markers genes = new Markers();
+        if (geneForest.nearest(inputInterval, genes) < 0) return null;
+
+        // Find a gene having minimum distance. Prefer coding genes
+        Gene minDistGene = null;
+        for (Marker m : genes) {
+            Gene gene = (Gene) m;
+            if (minDistGene == null) minDistGene = gene;
+            else if (!minDistGene.isProteinCoding() && gene.isProteinCoding()) minDistGene = gene;
         }
 
-        // Nothing found
-        return null;
+        return minDistGene;
     }
 
     /**
@@ -395,9 +470,16 @@ public class SnpEffectPredictor implements Serializable {
         if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(marker))
             throw new RuntimeException("Chromosome missing for marker: " + marker);
 
+        return queryDeep(marker, query(marker));
+    }
+
+    /**
+     * Same as queryDeep(marker), using 'intersects' as the result of querying
+     * the interval forest (e.g. obtained from an IntervalSweep)
+     */
+    public Markers queryDeep(Marker marker, Markers intersects) {
         boolean hitChromo = false;
         Markers hits = new Markers();
-        Markers intersects = query(marker);
 
         if (intersects.size() > 0) {
             for (Marker m : intersects) {
@@ -592,7 +674,7 @@ public class SnpEffectPredictor implements Serializable {
     public void save(Config config) {
         // Save genome and markers
         String databaseFile = config.getFileSnpEffectPredictor();
-        save(databaseFile);
+        save(databaseFile, config.isDatabaseColumnar());
 
         // Save genomic sequences
         GenomicSequences gs = genome.getGenomicSequences();
@@ -604,6 +686,13 @@ public class SnpEffectPredictor implements Serializable {
      * Save predictor to a binary file
      */
     public void save(String fileName) {
+        save(fileName, false);
+    }
+
+    /**
+     * Save predictor to a binary file, optionally using 'columnar' format
+     */
+    public void save(String fileName, boolean columnar) {
         // Add al markers
         Markers markersToSave = new Markers();
         markersToSave.add(genome);
@@ -617,7 +706,8 @@ public class SnpEffectPredictor implements Serializable {
         markersToSave.add(getMarkers());
 
         // Save markers to file
-        markersToSave.save(fileName);
+        if (columnar) new MarkerSerializerColumnar(genome).save(fileName, markersToSave);
+        else markersToSave.save(fileName);
     }
 
     public void setDebug(boolean debug) {
@@ -750,6 +840,65 @@ public class SnpEffectPredictor implements Serializable {
         }
     }
 
+    /**
+     * Predict the effects of a batch of variants
+     *
+     * Input is usually sorted by position (e.g. a VCF file), so variants are
+     * processed using a 'cursor': The interval tree is only looked up when the
+     * chromosome changes and consecutive variants having the same coordinates
+     * (e.g. all variants in a multi-allelic VCF entry) share one query.
+     * Unsorted input gives the same results (it is just less efficient).
+     *
+     * Note: Structural variants and translocations are calculated using 'variantEffect(variant)'
+     *
+     * @return A list of effects, in the same order as 'variants'
+     */
+    public List<VariantEffects> variantEffects(List<Variant> variants) {
+        List<VariantEffects> variantsEffects = new ArrayList<>(variants.size());
+        boolean errorOnMissingChromo = Config.get().isErrorOnMissingChromo();
+
+        // Cursor: Current chromosome's tree and latest query
+        String chrName = null;
+        Itree tree = null;
+        boolean chrMissing = false;
+        Variant prev = null; // Latest variant queried
+        Markers intersects = new Markers(); // Results from latest query
+
+        for (Variant variant : variants) {
+            // Structural variants require special treatment
+            if (variant.isBnd() || (variant.isStructural() && (variant.size() > SMALL_VARIANT_SIZE_THRESHOLD))) {
+                variantsEffects.add(variantEffect(variant));
+                continue;
+            }
+
+            // New chromosome? Move cursor
+            if (!variant.getChromosomeName().equals(chrName)) {
+                chrName = variant.getChromosomeName();
+                chrMissing = errorOnMissingChromo && isChromosomeMissing(variant);
+                tree = chrMissing ? null : intervalForest.getOrCreateTreeChromo(chrName);
+                prev = null;
+            }
+
+            VariantEffects variantEffects = new VariantEffects();
+            if (chrMissing) {
+                variantEffects.addErrorWarning(variant, ErrorWarningType.ERROR_CHROMOSOME_NOT_FOUND);
+            } else {
+                // Query interval tree, unless the previous variant has the same coordinates
+                if ((prev == null) || (prev.getStart() != variant.getStart()) || (prev.getEnd() != variant.getEnd())) {
+                    intersects.clear();
+                    tree.query(variant, intersects);
+                    queryIndexedTracks(variant, intersects);
+                    prev = variant;
+                }
+
+                variantEffect(variant, variantEffects, intersects);
+            }
+            variantsEffects.add(variantEffects);
+        }
+
+        return variantsEffects;
+    }
+
     /**
      * Calculate translocations variant effects
      */
@@ -840,15 +989,24 @@ public class SnpEffectPredictor implements Serializable {
         return variantEffectStructuralLargeGenes(variant, variantEffects, effGene, effTr, effExon, effExonPartial);
     }
 
+    /**
+     * Genes intersecting a variant, sorted by position
+     */
+    Markers queryGenes(Variant variant) {
+        Markers genes = new Markers();
+        geneForest.query(variant, genes);
+        return genes.sort();
+    }
+
     /**
      * Add large structural variant effects: Genes and transcripts
      */
     Markers variantEffectStructuralLargeGenes(Variant variant, VariantEffects variantEffects, EffectType effGene, EffectType effTr, EffectType effExon, EffectType effExonPartial) {
         Markers intersect = new Markers();
 
-        // Check all genes in the genome
-        for (Gene g : genome.getGenes()) {
-            // Does the variant affect the gene?
+        // Check all genes affected by the variant
+        for (Marker m : queryGenes(variant)) {
+            Gene g = (Gene) m;
             if (variant.intersects(g)) {
                 intersect.add(g);
                 variantEffects.add(variant, g, effGene, "");
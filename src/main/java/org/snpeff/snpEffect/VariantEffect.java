@@ -33,6 +33,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
     protected int codonDegeneracy = -1; // Codon degeneracy (negative number mens 'information not available')
     protected String aaRef = "", aaAlt = ""; // Amino acid changes
     protected String aasAroundOld = "", aasAroundNew = ""; // Amino acids around
+    protected String hgvsDna, hgvsProt; // HGVS notation, only stored for effects that do not change (see 'cacheHgvs')
     public VariantEffect(Variant variant) {
         this.variant = variant;
         effectTypes = new ArrayList<>();
@@ -100,6 +101,15 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
         }
     }
 
+    /**
+     * Calculate and store HGVS notation, so it is not calculated again every time the effect is shown.
+     * Note: Only use on effects that do not change anymore (e.g. cached effects)
+     */
+    public void cacheHgvs() {
+        hgvsDna = getHgvsDna();
+        hgvsProt = getHgvsProt();
+    }
+
     /**
      * Create a string for codon effect
      *
@@ -562,15 +572,15 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
         if (!Config.get().isHgvs()) return "";
 
         // Calculate protein level and dna level changes
-        String hgvsProt = getHgvsProt();
-        String hgvsDna = getHgvsDna();
+        String prot = getHgvsProt();
+        String dna = getHgvsDna();
 
         // Build output
         StringBuilder hgvs = new StringBuilder();
-        if (hgvsProt != null) hgvs.append(hgvsProt);
-        if (hgvsDna != null) {
+        if (prot != null) hgvs.append(prot);
+        if (dna != null) {
             if (hgvs.length() > 0) hgvs.append('/');
-            hgvs.append(hgvsDna);
+            hgvs.append(dna);
         }
 
         return hgvs.toString();
@@ -581,9 +591,10 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
      */
     public String getHgvsDna() {
         if (!Config.get().isHgvs()) return "";
+        if (hgvsDna != null) return hgvsDna;
 
-        HgvsDna hgvsDna = new HgvsDna(this);
-        String hgvs = hgvsDna.toString();
+        HgvsDna hgvsDnaChange = new HgvsDna(this);
+        String hgvs = hgvsDnaChange.toString();
         return hgvs != null ? hgvs : "";
     }
 
@@ -592,6 +603,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
      */
     public String getHgvsProt() {
         if (!Config.get().isHgvs()) return "";
+        if (hgvsProt != null) return hgvsProt;
 
         HgvsProtein hgvsProtein = new HgvsProtein(this);
         String hgvs = hgvsProtein.toString();
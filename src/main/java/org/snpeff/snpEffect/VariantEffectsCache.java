@@ -0,0 +1,112 @@
+package org.snpeff.snpEffect;
+
+import org.snpeff.interval.Variant;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded (least recently used) cache of variant effects.
+ *
+ * In multi-sample or cohort runs the same variants appear over and over
+ * again, so we can avoid calculating their effects more than once.
+ * Variants are identified by chromosome, coordinates, reference and
+ * alternative alleles. Only 'plain' variants are cached (e.g. translocations
+ * are not, since they have additional information).
+ *
+ * Note: Cached effects are shared, so they must not be modified.
+ * This class is thread safe.
+ *
+ * @author pcingola
+ */
+public class VariantEffectsCache {
+
+    int maxSize;
+    long hits, misses;
+    LinkedHashMap<String, VariantEffects> cache;
+
+    public VariantEffectsCache(int maxSize) {
+        this.maxSize = maxSize;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VariantEffects> eldest) {
+                return size() > VariantEffectsCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Can this variant be cached?
+     */
+    public static boolean canCache(Variant variant) {
+        return variant.getClass() == Variant.class;
+    }
+
+    /**
+     * Get cached effects
+     * @return Cached effects or null if the variant is not in the cache
+     */
+    public synchronized VariantEffects get(Variant variant) {
+        VariantEffects variantEffects = cache.get(key(variant));
+        if (variantEffects != null) hits++;
+        else misses++;
+        return variantEffects;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Key used to identify a variant
+     */
+    static String key(Variant variant) {
+        return variant.getChromosomeName() //
+                + "\t" + variant.getStart() //
+                + "\t" + variant.getEnd() //
+                + "\t" + variant.getReference() //
+                + "\t" + variant.getAlt() //
+                + "\t" + variant.getGenotype() //
+                + "\t" + variant.getVariantType() //
+                + "\t" + variant.isImprecise() //
+                ;
+    }
+
+    /**
+     * Add effects to the cache
+     */
+    public void put(Variant variant, VariantEffects variantEffects) {
+        // HGVS notation is calculated every time an effect is shown, store it (outside the lock)
+        for (VariantEffect variantEffect : variantEffects)
+            variantEffect.cacheHgvs();
+
+        synchronized (this) {
+            cache.put(key(variant), variantEffects);
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return "Variant effects cache: size " + cache.size() + " / " + maxSize //
+                + ", hits: " + hits //
+                + ", misses: " + misses //
+                + ", hit rate: " + (total > 0 ? String.format("%.1f%%", 100.0 * hits / total) : "-") //
+                ;
+    }
+
+}
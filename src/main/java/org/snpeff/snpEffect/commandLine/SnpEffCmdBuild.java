@@ -34,6 +34,8 @@ public class SnpEffCmdBuild extends SnpEff {
     boolean checkNumOk = true; // Require some transcripts to be checked (count checked transcripts should be more than zero)
     boolean checkCds = true; // Try to check CDS sequences
     boolean checkProtein = true; // Try to check protein sequences
+    boolean columnar = false; // Save database in binary 'columnar' format
+    boolean packedSequences = false; // Save chromosome sequences in packed (memory mappable) format
     boolean storeAlignments; // Store alignments (only used for some test cases)
     boolean storeSequences = true; // Store full sequences
     boolean regSortedByType = false;
@@ -79,6 +81,7 @@ public class SnpEffCmdBuild extends SnpEff {
             snpEffCmdCds.setDebug(debug);
             snpEffCmdCds.setStoreAlignments(storeAlignments);
             snpEffCmdCds.setCheckNumOk(checkNumOk);
+            snpEffCmdCds.setNumThreads(multiThreaded ? numWorkers : 1); // Compare transcripts using multiple threads
             if( maxErrorRate >= 0) snpEffCmdCds.setMaxErrorRate(maxErrorRate);
             okCds = snpEffCmdCds.run();
             if (!okCds && verbose) Log.info("\tCDS sequences comparison failed!");
@@ -114,6 +117,7 @@ public class SnpEffCmdBuild extends SnpEff {
             snpEffCmdProtein.setDebug(debug);
             snpEffCmdProtein.setStoreAlignments(storeAlignments);
             snpEffCmdProtein.setCheckNumOk(checkNumOk);
+            snpEffCmdProtein.setNumThreads(multiThreaded ? numWorkers : 1); // Compare transcripts using multiple threads
             snpEffCmdProtein.setProteinByTrId(proteinByTrId);
             if( maxErrorRate >= 0) snpEffCmdProtein.setMaxErrorRate(maxErrorRate);
             okProtein = snpEffCmdProtein.run();
@@ -149,6 +153,7 @@ public class SnpEffCmdBuild extends SnpEff {
         factory.setVerbose(verbose);
         factory.setDebug(debug);
         factory.setStoreSequences(storeSequences);
+        if (multiThreaded) factory.setNumThreads(numWorkers); // Read reference sequences using multiple threads
         return factory;
     }
 
@@ -232,6 +237,14 @@ public class SnpEffCmdBuild extends SnpEff {
                         geneDatabaseFormat = GeneDatabaseFormat.BIOMART;
                         break;
 
+                    case "-columnar":
+                        columnar = true;
+                        break;
+
+                    case "-packedseqs":
+                        packedSequences = true;
+                        break;
+
                     case "-storeseqs":
                         storeSequences = true;
                         break;
@@ -407,6 +420,8 @@ public class SnpEffCmdBuild extends SnpEff {
     public boolean run() {
         if (verbose) Log.info("Building database for '" + genomeVer + "'");
         loadConfig(); // Read configuration file
+        config.setDatabaseColumnar(columnar);
+        config.setSequencePacked(packedSequences);
 
         // Create SnpEffectPredictor
         if (!onlyRegulation) {
@@ -471,11 +486,13 @@ public class SnpEffCmdBuild extends SnpEff {
         System.err.println("\t-refseq                      : Use RefSeq table from UCSC.");
         System.err.println("\nDatabase build options:");
         System.err.println("\t-cellType <type>             : Only build regulation tracks for cellType <type>.");
+        System.err.println("\t-columnar                    : Save database in binary 'columnar' format (allows loading only some chromosomes). Default: " + columnar);
         System.err.println("\t-maxErrorRate <num>          : Maximum allowed error rate (number between 0.0 and 1.0). Default: 0.05");
         System.err.println("\t-noCheckCds                  : Skip CDS sequences check.");
         System.err.println("\t-noCheckProtein              : Skip Protein sequences check.");
         System.err.println("\t-noStoreSeqs                 : Do not store sequence in binary files. Default: " + !storeSequences);
         System.err.println("\t-onlyReg                     : Only build regulation tracks.");
+        System.err.println("\t-packedSeqs                  : Store sequences of large chromosomes in packed, memory mappable, files. Default: " + packedSequences);
         System.err.println("\t-regSortedByType             : The 'regulation.gff' file is sorted by 'regulation type' instead of sorted by chromosome:pos. Default: " + regSortedByType);
         System.err.println("\t-storeSeqs                   : Store sequence in binary files. Default: " + storeSequences);
 
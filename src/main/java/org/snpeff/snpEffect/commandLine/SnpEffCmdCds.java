@@ -2,6 +2,7 @@ package org.snpeff.snpEffect.commandLine;
 
 import org.snpeff.SnpEff;
 import org.snpeff.align.SmithWaterman;
+import org.snpeff.align.SmithWatermanScore;
 import org.snpeff.codons.CodonTable;
 import org.snpeff.codons.CodonTables;
 import org.snpeff.fileIterator.FastaFileIterator;
@@ -10,9 +11,15 @@ import org.snpeff.interval.Transcript;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.Log;
+import org.snpeff.util.Tuple;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * Command line: Calculate coding sequences from a file and compare them to the ones calculated from our data structures
@@ -27,14 +34,16 @@ public class SnpEffCmdCds extends SnpEff {
     public static boolean onlyOneError = false; // This is used in some test-cases
     public static double MAX_ERROR_RATE = 0.06; // Maximum allowed error is 6% (otherwise test fails)
     public static int MAX_ALIGN_LENGTH = 33000;
+    public static int MAX_ALIGN_BAND = 1000; // Band used to score sequences too long to be aligned (see SmithWatermanScore)
 
     boolean storeAlignments; // Store alignments (used for some test cases)
     boolean checkNumOk = true; // Require transcripts to be checked (more than zero)
     double maxErrorRate = MAX_ERROR_RATE; // Maximum allowed error
     int totalErrors = 0;
     int totalOk = 0;
-    int totalWarnings = 0;
+    AtomicInteger totalWarnings = new AtomicInteger(); // Updated from many threads
     int totalNotFound = 0;
+    int numThreads = 1; // Number of threads used to compare transcripts
     String cdsFile = "";
     HashMap<String, String> cdsByTrId;
 
@@ -67,6 +76,148 @@ public class SnpEffCmdCds extends SnpEff {
         }
     }
 
+    /**
+     * Align sequences and return alignment score.
+     * Sequences too long to be aligned (i.e. the score matrix and traceback would
+     * need too much memory) are only scored, in a band around the diagonal
+     */
+    public static int alignmentScore(SmithWaterman sw, String seq, String seqRef) {
+        if (Math.max(seq.length(), seqRef.length()) < MAX_ALIGN_LENGTH) {
+            sw.align();
+            return sw.getAlignmentScore();
+        }
+        return new SmithWatermanScore(seq, seqRef, MAX_ALIGN_BAND).score();
+    }
+
+    /**
+     * Compare CDS for one transcript
+     * Note: This method may be called from many threads at the same time (see cdsCompare)
+     *
+     * @return Status ('+' OK, '.' missing, '*' error) and reference CDS (null if missing)
+     */
+    Tuple<Character, String> cdsCompare(Transcript tr) {
+        char status = ' ';
+
+        String cds = tr.cds().toUpperCase();
+        String mRna = tr.mRna().toUpperCase();
+        String cdsReference = cdsByTrId.get(tr.getId());
+
+        if (cdsReference != null) cdsReference = cdsReference.toUpperCase();
+
+        if (cdsReference == null) {
+            status = '.';
+            if (debug) Log.warningln("Cannot find reference CDS for transcript '" + tr.getId() + "'");
+        } else if (cds.isEmpty()) {
+            status = '.';
+            if (debug) Log.warningln("Empty CDS for transcript '" + tr.getId() + "'");
+        } else if (cds.equals(cdsReference)) {
+            status = '+';
+            if (debug) Log.infoln("OK:CDS for transcript '" + tr.getId() + "', match");
+
+            // Sanity check: Start and stop codons
+            if ((cds != null) && (cds.length() >= 3)) {
+                CodonTable ctable = CodonTables.getInstance().getTable(config.getGenome(), tr.getChromosomeName());
+
+                // Check start codon
+                String startCodon = cds.substring(0, 3);
+                if (!ctable.isStart(startCodon)) {
+                    if (debug)
+                        Log.warningln("CDS for transcript '" + tr.getId() + "' does not start with a start codon:\t" + startCodon + "\t" + cds);
+                    totalWarnings.incrementAndGet();
+                }
+
+                // Check stop codon
+                String stopCodon = cds.substring(cds.length() - 3);
+                if (!ctable.isStop(stopCodon)) {
+                    if (debug)
+                        Log.warningln("WARNING: CDS for transcript '" + tr.getId() + "' does not end with a stop codon:\t" + stopCodon + "\t" + cds);
+                    totalWarnings.incrementAndGet();
+                }
+            }
+        } else if (mRna.equals(cdsReference)) { // May be the file has mRNA instead of CDS?
+            status = '+';
+            if (debug) Log.infoln("OK: mRNA for transcript '" + tr.getId() + "', match");
+        } else if ((mRna.length() < cdsReference.length()) // CDS longer than mRNA? May be it is actually an mRNA + poly-A tail (instead of a CDS)
+                && cdsReference.substring(mRna.length()).replace('A', ' ').trim().isEmpty() // May be it is an mRNA and it has a ploy-A tail added
+                && cdsReference.startsWith(mRna) // Compare cutting poly-A tail
+        ) {
+            // OK, it was a mRNA +  polyA
+            status = '+';
+            if (debug) Log.infoln("OK: mRNA + polyA for transcript '" + tr.getId() + "', match");
+        } else if ((mRna.length() > cdsReference.length()) // PolyA in the reference?
+                && mRna.substring(cdsReference.length()).replace('A', ' ').trim().isEmpty() //
+                && mRna.substring(0, cdsReference.length()).equals(mRna) //
+        ) {
+            // OK, it was a mRNA +  polyA
+            status = '+';
+            if (debug) Log.infoln("OK: CDS + polyA for transcript '" + tr.getId() + "', match");
+        } else if (cdsReference.indexOf(cds) >= 0) { // CDS fully included in reference?
+            status = '+';
+            if (debug) Log.infoln("OK: CDS is a substring from reference, for transcript '" + tr.getId() + "'");
+        } else {
+            status = '*';
+
+            if (debug || storeAlignments || onlyOneError) {
+                // Create a string indicating differences
+                SmithWaterman sw = new SmithWaterman(cds, cdsReference);
+                int score = alignmentScore(sw, cds, cdsReference);
+                int maxScore = Math.min(cds.length(), cdsReference.length());
+
+                if (debug || onlyOneError) {
+                    Log.infoln("ERROR: CDSs do not match for transcript " + tr.getId() //
+                            + "\tStrand:" + tr.isStrandMinus()//
+                            + "\tExons: " + tr.numChilds() //
+                            + "\n" //
+                            + String.format("\tSnpEff CDS  (%6d) : '%s'\n", cds.length(), cds.toLowerCase()) //
+                            + String.format("\tReference   (%6d) : '%s'\n", cdsReference.length(), cdsReference.toLowerCase()) //
+                            + "\tAlignment (Snpeff CDS vs Reference CDS)." //
+                            + "\tScore: " + score //
+                            + "\tMax. possible score: " + maxScore //
+                            + "\tDiff: " + (maxScore - score) //
+                            + "\n" + sw //
+                    );
+                    Log.infoln("Transcript details:\n" + tr);
+                }
+                if (onlyOneError) {
+                    Log.infoln("Transcript details:\n" + tr);
+                    throw new RuntimeException("Showing only one error!");
+                }
+            }
+        }
+
+        return new Tuple<>(status, cdsReference);
+    }
+
+    /**
+     * Compare CDS for all transcripts in the list
+     * Transcripts are compared using a work-stealing pool, unless we are
+     * in debug mode (messages would be mixed) or we stop at the first error
+     *
+     * @return Status and reference CDS for each transcript (same order as 'trList')
+     */
+    @SuppressWarnings("unchecked")
+    Tuple<Character, String>[] cdsCompare(List<Transcript> trList) {
+        Tuple<Character, String>[] results = new Tuple[trList.size()];
+        if (numThreads <= 1 || debug || onlyOneError) {
+            for (int i = 0; i < results.length; i++)
+                results[i] = cdsCompare(trList.get(i));
+            return results;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            pool.submit(() -> IntStream.range(0, results.length).parallel().forEach(i -> results[i] = cdsCompare(trList.get(i)))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while comparing CDS", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error comparing CDS", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
     /**
      * Compare all CDS
      */
@@ -82,141 +233,59 @@ public class SnpEffCmdCds extends SnpEff {
             System.err.print("\t");
         }
 
-        // Compare all genes
+        // Compare all transcripts
+        List<Transcript> trList = new ArrayList<>();
         for (Gene gene : config.getGenome().getGenes())
-            for (Transcript tr : gene) {
-                char status = ' ';
-
-                boolean ok = false;
-                String cds = tr.cds().toUpperCase();
-                String mRna = tr.mRna().toUpperCase();
-                String cdsReference = cdsByTrId.get(tr.getId());
-
-                if (cdsReference != null) cdsReference = cdsReference.toUpperCase();
-
-                if (cdsReference == null) {
-                    status = '.';
-                    if (debug) Log.warningln("Cannot find reference CDS for transcript '" + tr.getId() + "'");
-                } else if (cds.isEmpty()) {
-                    status = '.';
-                    if (debug) Log.warningln("Empty CDS for transcript '" + tr.getId() + "'");
-                } else if (cds.equals(cdsReference)) {
-                    status = '+';
-                    if (debug) Log.infoln("OK:CDS for transcript '" + tr.getId() + "', match");
-
-                    // Sanity check: Start and stop codons
-                    if ((cds != null) && (cds.length() >= 3)) {
-                        CodonTable ctable = CodonTables.getInstance().getTable(config.getGenome(), tr.getChromosomeName());
-
-                        // Check start codon
-                        String startCodon = cds.substring(0, 3);
-                        if (!ctable.isStart(startCodon)) {
-                            if (debug)
-                                Log.warningln("CDS for transcript '" + tr.getId() + "' does not start with a start codon:\t" + startCodon + "\t" + cds);
-                            totalWarnings++;
-                        }
-
-                        // Check stop codon
-                        String stopCodon = cds.substring(cds.length() - 3);
-                        if (!ctable.isStop(stopCodon)) {
-                            if (debug)
-                                Log.warningln("WARNING: CDS for transcript '" + tr.getId() + "' does not end with a stop codon:\t" + stopCodon + "\t" + cds);
-                            totalWarnings++;
-                        }
-                    }
-                } else if (mRna.equals(cdsReference)) { // May be the file has mRNA instead of CDS?
-                    status = '+';
-                    if (debug) Log.infoln("OK: mRNA for transcript '" + tr.getId() + "', match");
-                } else if ((mRna.length() < cdsReference.length()) // CDS longer than mRNA? May be it is actually an mRNA + poly-A tail (instead of a CDS)
-                        && cdsReference.substring(mRna.length()).replace('A', ' ').trim().isEmpty() // May be it is an mRNA and it has a ploy-A tail added
-                        && cdsReference.startsWith(mRna) // Compare cutting poly-A tail
-                ) {
-                    // OK, it was a mRNA +  polyA
-                    status = '+';
-                    if (debug) Log.infoln("OK: mRNA + polyA for transcript '" + tr.getId() + "', match");
-                } else if ((mRna.length() > cdsReference.length()) // PolyA in the reference?
-                        && mRna.substring(cdsReference.length()).replace('A', ' ').trim().isEmpty() //
-                        && mRna.substring(0, cdsReference.length()).equals(mRna) //
-                ) {
-                    // OK, it was a mRNA +  polyA
-                    status = '+';
-                    if (debug) Log.infoln("OK: CDS + polyA for transcript '" + tr.getId() + "', match");
-                } else if (cdsReference.indexOf(cds) >= 0) { // CDS fully included in reference?
-                    status = '+';
-                    if (debug) Log.infoln("OK: CDS is a substring from reference, for transcript '" + tr.getId() + "'");
-                } else {
-                    status = '*';
-
-                    if (debug || storeAlignments || onlyOneError) {
-                        // Create a string indicating differences
-                        SmithWaterman sw = new SmithWaterman(cds, cdsReference);
-                        if (Math.max(cds.length(), cdsReference.length()) < MAX_ALIGN_LENGTH) sw.align();
-
-                        int maxScore = Math.min(cds.length(), cdsReference.length());
-                        int score = sw.getAlignmentScore();
-
-                        if (debug || onlyOneError) {
-                            Log.infoln("ERROR: CDSs do not match for transcript " + tr.getId() //
-                                    + "\tStrand:" + tr.isStrandMinus()//
-                                    + "\tExons: " + tr.numChilds() //
-                                    + "\n" //
-                                    + String.format("\tSnpEff CDS  (%6d) : '%s'\n", cds.length(), cds.toLowerCase()) //
-                                    + String.format("\tReference   (%6d) : '%s'\n", cdsReference.length(), cdsReference.toLowerCase()) //
-                                    + "\tAlignment (Snpeff CDS vs Reference CDS)." //
-                                    + "\tScore: " + score //
-                                    + "\tMax. possible score: " + maxScore //
-                                    + "\tDiff: " + (maxScore - score) //
-                                    + "\n" + sw //
-                            );
-                            Log.infoln("Transcript details:\n" + tr);
-                        }
-                        if (onlyOneError) {
-                            Log.infoln("Transcript details:\n" + tr);
-                            throw new RuntimeException("Showing only one error!");
-                        }
-                    }
-                }
-
-
-                // Update counters
-                switch (status) {
-                    case '.':
-                        totalNotFound++;
-                        break;
-
-                    case '+':
-                        totalOk++;
-                        ok = true;
-						if (debug) System.out.println("\nFASTA_CDS_OK\t>" + tr.getId() + "\nFASTA_CDS_OK\t" + cdsReference);
-                        break;
-
-                    case '*':
-                        totalErrors++;
-						if (debug) System.out.println("\nFASTA_CDS_ERROR\t>" + tr.getId() + "\nFASTA_CDS_ERROR\t" + cdsReference);
-                        break;
+            for (Transcript tr : gene)
+                trList.add(tr);
+        Tuple<Character, String>[] results = cdsCompare(trList);
+
+        // Update counters (in the same order as transcripts)
+        for (int idx = 0; idx < trList.size(); idx++) {
+            Transcript tr = trList.get(idx);
+            char status = results[idx].first;
+            String cdsReference = results[idx].second;
+            boolean ok = false;
+
+            // Update counters
+            switch (status) {
+                case '.':
+                    totalNotFound++;
+                    break;
+
+                case '+':
+                    totalOk++;
+                    ok = true;
+                    if (debug) System.out.println("\nFASTA_CDS_OK\t>" + tr.getId() + "\nFASTA_CDS_OK\t" + cdsReference);
+                    break;
+
+                case '*':
+                    totalErrors++;
+                    if (debug) System.out.println("\nFASTA_CDS_ERROR\t>" + tr.getId() + "\nFASTA_CDS_ERROR\t" + cdsReference);
+                    break;
+
+                case ' ':
+                    break;
+
+                default:
+                    throw new RuntimeException("Unknown status '" + status + "'");
+            }
 
-                    case ' ':
-                        break;
+            // Update transcript DnaCheck status
+            if (ok) tr.setDnaCheck(true);
 
-                    default:
-                        throw new RuntimeException("Unknown status '" + status + "'");
+            // Show a mark
+            if (verbose && (status != ' ')) {
+                if (status == '.' && !tr.isProteinCoding()) {
+                    // OK, may be this is a non-protein coding transcript and that's why we could not find the CDS
+                } else {
+                    System.out.print(status);
+                    i++;
+                    if (i % 100 == 0) System.out.print("\n\t");
                 }
 
-                // Update transcript DnaCheck status
-                if (ok) tr.setDnaCheck(true);
-
-                // Show a mark
-                if (verbose && (status != ' ')) {
-                    if (status == '.' && !tr.isProteinCoding()) {
-                        // OK, may be this is a non-protein coding transcript and that's why we could not find the CDS
-                    } else {
-                        System.out.print(status);
-                        i++;
-                        if (i % 100 == 0) System.out.print("\n\t");
-                    }
-
-                }
             }
+        }
 
         double perc = ((double) totalErrors) / ((double) (totalErrors + totalOk));
         System.out.println("\n\tCDS check:\t" //
@@ -391,12 +460,32 @@ public class SnpEffCmdCds extends SnpEff {
         return sb.toString();
     }
 
+    public int getTotalErrors() {
+        return totalErrors;
+    }
+
+    public int getTotalNotFound() {
+        return totalNotFound;
+    }
+
+    public int getTotalOk() {
+        return totalOk;
+    }
+
+    public int getTotalWarnings() {
+        return totalWarnings.get();
+    }
+
     public void setCheckNumOk(boolean checkNumOk) {
         this.checkNumOk = checkNumOk;
     }
 
     public void setMaxErrorRate(double maxErrorRate) { this.maxErrorRate = maxErrorRate; }
 
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
     public void setStoreAlignments(boolean storeAlignments) {
         this.storeAlignments = storeAlignments;
     }
@@ -5,9 +5,7 @@ import java.util.HashSet;
 import org.snpeff.SnpEff;
 import org.snpeff.fileIterator.BedFileIterator;
 import org.snpeff.fileIterator.VcfFileIterator;
-import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Gene;
-import org.snpeff.interval.Intergenic;
 import org.snpeff.interval.Marker;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Transcript;
@@ -104,59 +102,17 @@ public class SnpEffCmdClosest extends SnpEff {
 	}
 
 	/**
-	 * Find closest marker
+	 * Find closest markers (all markers at minimum distance)
 	 */
 	Markers findClosestMarker(Marker queryMarker) {
-		int initialExtension = 1000;
-
-		Chromosome chr = queryMarker.getChromosome();
-		if ((chr != null) && (chr.size() > 0)) {
-
-			// Extend interval to capture 'close' markers
-			for (int extend = initialExtension; extend < chr.size(); extend *= 2) {
-				int start = Math.max(queryMarker.getStart() - extend, 0);
-				int end = queryMarker.getEnd() + extend;
-				Marker extended = new Marker(chr, start, end, false, "");
-
-				// Find all markers that intersect with 'extended interval'
-				Markers markers = snpEffectPredictor.queryDeep(extended);
-
-				// Find minimum distance
-				int minDistance = minDistance(queryMarker, markers);
-				if (minDistance < Integer.MAX_VALUE) {
-					// All markers that are at minimum distance
-					Markers closest = findClosestMarkers(queryMarker, markers, minDistance);
-					return closest;
-				}
-			}
-		}
-
-		// Nothing found
-		return null;
-	}
+		Markers markers = snpEffectPredictor.queryClosest(queryMarker);
+		if (markers.isEmpty()) return null; // Nothing found
 
-	/**
-	 * Find closest marker to query (in markers collection)
-	 */
-	Markers findClosestMarkers(Marker queryMarker, Markers markers, int maxDistance) {
+		// Do not repeat information
 		Markers closest = new Markers();
 		HashSet<String> done = new HashSet<String>();
-
-		for (Marker m : markers) {
-			// We don't care about these
-			if ((m instanceof Chromosome) || (m instanceof Intergenic) || (m instanceof Gene) || (m instanceof Transcript)) continue;
-
-			// Find marker at distance less than 'distance'
-			int dist = m.distance(queryMarker);
-
-			if ((dist <= maxDistance) && (findTranscript(m) != null)) {
-				String idChain = m.idChain();
-				if (!done.contains(idChain)) { // Do not repeat information
-					closest.add(m);
-					done.add(idChain);
-				}
-			}
-		}
+		for (Marker m : markers)
+			if (done.add(m.idChain())) closest.add(m);
 
 		return closest;
 	}
@@ -169,22 +125,6 @@ public class SnpEffCmdClosest extends SnpEff {
 		return (Transcript) m.findParent(Transcript.class);
 	}
 
-	/**
-	 * Find minimum distance
-	 */
-	int minDistance(Marker queryMarker, Markers markers) {
-		int minDist = Integer.MAX_VALUE;
-		for (Marker m : markers) {
-			// We don't care about these
-			if ((m instanceof Chromosome) || (m instanceof Intergenic) || (m instanceof Gene) || (m instanceof Transcript)) continue;
-
-			// Find closest marker that has a transcript
-			int dist = m.distance(queryMarker);
-			if ((dist <= minDist) && (findTranscript(m) != null)) minDist = dist;
-		}
-		return minDist;
-	}
-
 	/**
 	 * Parse command line arguments
 	 */
@@ -143,6 +143,7 @@ public class SnpEffCmdCount extends SnpEff {
 		countReadsOnMarkers = new CountReadsOnMarkers(snpEffectPredictor);
 
 		countReadsOnMarkers.setVerbose(verbose);
+		countReadsOnMarkers.setNumThreads(multiThreaded ? numWorkers : 1); // Indexed BAM files are counted using one thread per chromosome
 		for (String file : fileNames)
 			countReadsOnMarkers.addFile(file);
 		countReadsOnMarkers.count();
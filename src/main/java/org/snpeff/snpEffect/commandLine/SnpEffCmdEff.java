@@ -1,19 +1,31 @@
 package org.snpeff.snpEffect.commandLine;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.StreamSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.snpeff.SnpEff;
 import org.snpeff.fileIterator.BedFileIterator;
+import org.snpeff.fileIterator.LineFileIterator;
+import org.snpeff.fileIterator.SortedBedTrack;
 import org.snpeff.fileIterator.VariantFileIterator;
 import org.snpeff.fileIterator.VcfFileIterator;
 import org.snpeff.filter.VariantEffectFilter;
@@ -26,24 +38,32 @@ import org.snpeff.outputFormatter.BedAnnotationOutputFormatter;
 import org.snpeff.outputFormatter.BedOutputFormatter;
 import org.snpeff.outputFormatter.OutputFormatter;
 import org.snpeff.outputFormatter.VcfOutputFormatter;
+import org.snpeff.serializer.MarkerSerializerColumnar;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.ProteinFastaWriter;
 import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffect.EffectImpact;
 import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.snpEffect.VariantEffectsCache;
 import org.snpeff.snpEffect.VcfAnnotator;
 import org.snpeff.stats.CountByType;
 import org.snpeff.stats.VariantEffectStats;
 import org.snpeff.stats.VariantStats;
 import org.snpeff.stats.VcfStats;
+import org.snpeff.util.BgzfInputStream;
+import org.snpeff.util.BgzfOutputStream;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.Log;
+import org.snpeff.util.OrderedPipeline;
 import org.snpeff.util.Timer;
 import org.snpeff.util.Tuple;
 import org.snpeff.vcf.EffFormatVersion;
 import org.snpeff.vcf.Pedigree;
 import org.snpeff.vcf.VcfEntry;
+import org.snpeff.vcf.VcfHeader;
+import org.snpeff.vcf.VcfRegionFile;
+import org.snpeff.vcf.VcfShard;
 
 import freemarker.template.Configuration;
 import freemarker.template.DefaultObjectWrapper;
@@ -67,8 +87,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	public static final String DEFAULT_SUMMARY_GENES_FILE = "snpEff_genes.txt";
 
 	public static final int SHOW_EVERY = 10 * 1000;
+	public static final long MAX_INPUT_SIZE_LOAD_CHROMOSOMES = 100 * 1024 * 1024; // Only scan input files smaller than this to decide which chromosomes to load
+	public static final Pattern BND_MATE_PATTERN = Pattern.compile("[\\[\\]]([^\\[\\],]+):\\d+[\\[\\]]"); // Translocation mate in a VCF ALT field, e.g. 'N[chr5:1000['
 
 	boolean anyCancerSample;
+	boolean bgzip = false; // Compress output using BGZF
 	boolean cancer = false; // Perform cancer comparisons
 	boolean chromoPlots = true; // Create mutations by chromosome plots?
 	boolean createSummaryCsv = false;
@@ -79,7 +102,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	boolean useLocalTemplate = false; // Use template from 'local' file instead of 'jar' (this is only used for development and debugging)
 	boolean useOicr = false; // Use OICR tag
 	boolean useSequenceOntology = true; // Use Sequence Ontology terms
+	boolean showShards = false; // Show shards (regions) and exit
+	int shardNum = 0; // Only annotate this shard from 'shardList' (one-based). Zero means all shards
+	int shardSize = 0; // Split input file into shards of this size (bases)
 	int totalErrs = 0;
+	int variantEffectsCacheSize = 0; // Cache effects for up to this many variants (zero means no cache)
 	int countVcfEntries = 0;
 	long countInputLines = 0;
 	long countVariants = 0;
@@ -88,6 +115,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	String chrStr = "";
 	String inputFile = ""; // Input file
 	String fastaProt; // Write protein seuqnces to this file
+	String shardList; // File with a list of regions (shards) to annotate
+	VcfShard region; // Only annotate variants in this region
+	List<VcfShard> shards; // Annotate these regions in parallel
 	ProteinFastaWriter proteinFastaWriter = null; // Writed protein sequences to file
 	String summaryFileCsv; // HTML Summary file name
 	String summaryFileHtml; // CSV Summary file name
@@ -97,9 +127,12 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	VariantEffectFilter variantEffectResutFilter; // Filter prediction results
 	ArrayList<String> filterIntervalFiles;// Files used for filter intervals
 	ArrayList<String> inputFiles;
+	ArrayList<String> sortedIntervalFiles; // Sorted custom interval files (merge-joined with the input, not loaded into memory)
+	List<SortedBedTrack> sortedTracks; // Sorted custom intervals
 	IntervalForest filterIntervals; // Filter only variants that match these intervals
 	VariantStats variantStats;
 	VariantEffectStats variantEffectStats;
+	VariantEffectsCache variantEffectsCache; // Effects of recently annotated variants
 	SnpEffectPredictor snpEffectPredictor;
 	VcfStats vcfStats;
 	List<VcfEntry> vcfEntriesDebug = null; // Use for debugging or testing (in some test-cases)
@@ -115,6 +148,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		inputFile = ""; // variant input file
 		variantEffectResutFilter = new VariantEffectFilter(); // Filter prediction results
 		filterIntervalFiles = new ArrayList<>(); // Files used for filter intervals
+		sortedIntervalFiles = new ArrayList<>(); // Sorted custom interval files
 		summaryFileHtml = DEFAULT_SUMMARY_HTML_FILE;
 		summaryFileCsv = DEFAULT_SUMMARY_CSV_FILE;
 		summaryGenesFile = DEFAULT_SUMMARY_GENES_FILE;
@@ -132,6 +166,8 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	public boolean annotate(String inputFile, String outputFile) {
 		// Initialize
 		annotateInit(outputFile);
+		if (bgzip) outputFormatter.setOut(bgzipWriter(outputFile));
+		else if (outputFile == null && !suppressOutput) outputFormatter.setOut(stdoutWriter());
 		VcfFileIterator vcf = null;
 
 		// Iterate over input files
@@ -155,6 +191,23 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return !err;
 	}
 
+	/**
+	 * Annotate a VCF stream and write results to 'out' (e.g. 'server' mode).
+	 * Note: The database must be already loaded (see 'setConfig')
+	 */
+	public boolean annotate(BufferedReader in, BufferedWriter out) {
+		if (inputFormat != InputFormat.VCF) throw new RuntimeException("Cannot annotate streams using input format '" + inputFormat + "'");
+		if ((variantEffectResutFilter != null) && !variantEffectResutFilter.anythingSet()) variantEffectResutFilter = null;
+
+		annotateInit((String) null);
+		outputFormatter.setOut(out);
+		VcfFileIterator vcf = annotateVcf(new VcfFileIterator(in, config.getGenome()));
+		outputFormatter.close();
+
+		boolean err = annotateFinish(vcf);
+		return !err;
+	}
+
 	/**
 	 * Annotate a VCF entry
 	 */
@@ -193,14 +246,15 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			// Next section deals with cancer: Somatic vs Germline comparisons
 			boolean impactLowOrHigher = false; // Does this entry have an impact (other than MODIFIER)?
 			List<Variant> variants = vcfEntry.variants();
-			for (Variant variant : variants) {
+			List<VariantEffects> variantsEffects = variantEffects(variants, querySortedTracks(vcfEntry));
+			for (int i = 0; i < variants.size(); i++) {
 				countVariants++;
 				showProgress(); // Show progress
-				impactLowOrHigher |= annotateVariant(variant); // Annotate variant
+				impactLowOrHigher |= annotateVariant(variants.get(i), variantsEffects.get(i)); // Annotate variant
 			}
 
 			// Perform cancer annotations
-			if (anyCancerSample && impactLowOrHigher) annotateVariantCancer(variants, vcfEntry);
+			if (anyCancerSample && impactLowOrHigher) annotateVariantCancer(outputFormatter, variants, vcfEntry);
 
 			// Finish up this section
 			outputFormatter.printSection(vcfEntry);
@@ -241,7 +295,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 				if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
 
 				// Calculate effects
-				VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
+				VariantEffects variantEffects = variantEffect(variant);
 
 				// Create new 'section'
 				outputFormatter.startSection(variant);
@@ -274,6 +328,12 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 
 		if (vcfFile != null) vcfFile.close();
 
+		// Close sorted custom interval files
+		if (sortedTracks != null) {
+			for (SortedBedTrack sortedTrack : sortedTracks)
+				sortedTrack.close();
+		}
+
 		// Close output protein file
 		if(proteinFastaWriter != null) proteinFastaWriter.close();
 
@@ -292,6 +352,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			ok &= summary(SUMMARY_GENES_TEMPLATE, summaryGenesFile, true);
 		}
 
+		if (verbose && variantEffectsCache != null) Log.info(variantEffectsCache);
 		if (totalErrs > 0) System.err.println(totalErrs + " errors.");
 		return !ok;
 	}
@@ -312,12 +373,23 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		countVcfEntries = 0;
 		annotateTimer = new Timer();
 
+		// Cache effects (shared by all input files)
+		if (variantEffectsCacheSize > 0 && variantEffectsCache == null) variantEffectsCache = new VariantEffectsCache(variantEffectsCacheSize);
+
 		// Create 'stats' objects
 		variantStats = new VariantStats(config.getGenome());
 		variantEffectStats = new VariantEffectStats(config.getGenome());
 		variantEffectStats.setUseSequenceOntology(useSequenceOntology);
 		vcfStats = new VcfStats();
 
+		// Sorted custom intervals are merge-joined with the input
+		sortedTracks = new ArrayList<>();
+		for (String fileName : sortedIntervalFiles) {
+			SortedBedTrack sortedTrack = new SortedBedTrack(fileName);
+			sortedTrack.setVerbose(verbose);
+			sortedTracks.add(sortedTrack);
+		}
+
 		if (fastaProt != null) {
 			this.proteinFastaWriter = new ProteinFastaWriter(fastaProt, fastaProtNoRef, verbose);
 		}
@@ -369,24 +441,44 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 * Annotate a single variant
 	 *
 	 * @param variant
+	 * @param variantEffects : Variant's effects (null for non-variant sites)
 	 * @return true if there is any impact 'Low' or higher
 	 */
-	boolean annotateVariant(Variant variant) {
-		// Calculate effects: By default do not annotate non-variant sites
-		if (!variant.isVariant()) return false;
+	boolean annotateVariant(Variant variant, VariantEffects variantEffects) {
+		// By default do not annotate non-variant sites
+		if (variantEffects == null) return false;
 
-		boolean impactModerateOrHigh = false; // Does this entry have a 'MODERATE' or 'HIGH' impact?
-		boolean impactLowOrHigher = false; // Does this entry have an impact (other than MODIFIER)?
+		annotateVariantOutput(outputFormatter, variant, variantEffects);
+		annotateVariantStats(variant, variantEffects);
 
-		// Perform basic statistics about this variant
-		if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
-
-		VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
+		return isImpactLowOrHigher(variantEffects);
+	}
 
+	/**
+	 * Add variant effects to output formatter
+	 */
+	void annotateVariantOutput(OutputFormatter outputFormatter, Variant variant, VariantEffects variantEffects) {
 		// Create new 'section'
 		outputFormatter.startSection(variant);
 
 		// Add variat effects to output
+		for (VariantEffect variantEffect : variantEffects)
+			outputFormatter.add(variantEffect);
+
+		// Finish up this section
+		outputFormatter.printSection(variant);
+	}
+
+	/**
+	 * Update statistics, counters and protein output for an annotated variant.
+	 * Note: This method is not thread safe, in multi-threaded mode it is only invoked by the writer thread
+	 */
+	void annotateVariantStats(Variant variant, VariantEffects variantEffects) {
+		boolean impactModerateOrHigh = false; // Does this entry have a 'MODERATE' or 'HIGH' impact?
+
+		// Perform basic statistics about this variant
+		if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
+
 		for (VariantEffect variantEffect : variantEffects) {
 			if (createSummaryHtml || createSummaryCsv) variantEffectStats.sample(variantEffect); // Perform basic statistics about this result
 
@@ -394,50 +486,32 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			if (variantEffect.hasError()) errByType.inc(variantEffect.getError());
 			if (variantEffect.hasWarning()) warnByType.inc(variantEffect.getWarning());
 
-			// Does this entry have an impact (other than MODIFIER)?
-			impactLowOrHigher |= (variantEffect.getEffectImpact() != EffectImpact.MODIFIER);
 			impactModerateOrHigh |= (variantEffect.getEffectImpact() == EffectImpact.MODERATE) || (variantEffect.getEffectImpact() == EffectImpact.HIGH);
-
-			outputFormatter.add(variantEffect);
 			countEffects++;
 		}
 
-		// Finish up this section
-		outputFormatter.printSection(variant);
-
 		// Output protein changes to FASTA file
 		if (proteinFastaWriter != null && impactModerateOrHigh) proteinFastaWriter.write(variant, variantEffects);
-
-		return impactLowOrHigher;
 	}
 
 	/**
 	 * Compare two genotypes
 	 */
-	void annotateVariantCancer(List<Variant> variants, int altGtNum, int refGtNum) {
+	void annotateVariantCancer(OutputFormatter outputFormatter, List<Variant> variants, int altGtNum, int refGtNum) {
 		VariantNonRef varNonRef = variantCancer(variants, altGtNum, refGtNum);
 
 		// No net variation? Skip
 		if (!varNonRef.isVariant()) return;
 
-		// Calculate effects
+		// Calculate effects and show results (note, we don't add these to the statistics)
 		VariantEffects variantEffects = snpEffectPredictor.variantEffect(varNonRef);
-
-		// Create new 'section'
-		outputFormatter.startSection(varNonRef);
-
-		// Show results (note, we don't add these to the statistics)
-		for (VariantEffect variantEffect : variantEffects)
-			outputFormatter.add(variantEffect);
-
-		// Finish up this section
-		outputFormatter.printSection(varNonRef);
+		annotateVariantOutput(outputFormatter, varNonRef, variantEffects);
 	}
 
 	/**
 	 * Do we analyze cancer samples? Here we deal with Somatic vs Germline comparisons
 	 */
-	void annotateVariantCancer(List<Variant> variants, VcfEntry vcfEntry) {
+	void annotateVariantCancer(OutputFormatter outputFormatter, List<Variant> variants, VcfEntry vcfEntry) {
 		if (!shouldAnnotateVariantCancer(variants, vcfEntry)) return;
 
 		// Calculate all required comparisons
@@ -448,7 +522,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			// We have to compare comp.first vs comp.second
 			int altGtNum = comp.first; // comp.first is 'derived' (our new ALT)
 			int refGtNum = comp.second; // comp.second is 'original' (our new REF)
-			annotateVariantCancer(variants, altGtNum, refGtNum);
+			annotateVariantCancer(outputFormatter, variants, altGtNum, refGtNum);
 		}
 	}
 
@@ -457,22 +531,38 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 * input format VCF, which has a different iteration modality
 	 */
 	VcfFileIterator annotateVcf(String inputFile) {
-		// Open VCF file
-		VcfFileIterator vcfFile = new VcfFileIterator(inputFile, config.getGenome());
+		if (region != null) {
+			// Only annotate one region of an indexed file
+			if (verbose) Log.info("Annotating region '" + region + "' from file '" + inputFile + "'");
+			VcfRegionFile vcfRegionFile = new VcfRegionFile(inputFile);
+			BufferedReader reader = vcfRegionFile.reader(region, BgzfInputStream.DEFAULT_THREADS);
+			vcfRegionFile.close();
+			return annotateVcf(new VcfFileIterator(reader, config.getGenome()));
+		}
+
+		if (isSharded()) {
+			annotateVcfShards(inputFile);
+			return null;
+		}
+
+		return annotateVcf(new VcfFileIterator(inputFile, config.getGenome()));
+	}
+
+	VcfFileIterator annotateVcf(VcfFileIterator vcfFile) {
 		vcfFile.setDebug(debug);
 
 		// Iterate over VCF entries
 		if (multiThreaded) {
-			// Multi-thread loop
-			StreamSupport.stream(vcfFile.spliterator(), true).forEach(this::annotate);
+			// Multi-thread pipeline
+			annotateVcfMultiThreaded(vcfFile);
 		} else {
 			// Single thread
 			for (VcfEntry vcfEntry : vcfFile)
 				annotate(vcfEntry);
-		}
 
-		// Empty file? Show at least the header
-		if (countVcfEntries == 0) outputFormatter.print(vcfFile.getVcfHeader().toString());
+			// Empty file? Show at least the header
+			if (countVcfEntries == 0) outputFormatter.print(vcfFile.getVcfHeader().toString());
+		}
 
 		// Show errors and warnings
 		if (verbose) {
@@ -483,18 +573,368 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return vcfFile;
 	}
 
+	/**
+	 * Multi-threaded annotation of a VCF file:
+	 *   - VCF entries are read and parsed by a 'reader' thread
+	 *   - Variant effects are calculated by 'numWorkers' threads
+	 *   - Statistics and output are updated by this thread, in the same order as the input file
+	 */
+	void annotateVcfMultiThreaded(VcfFileIterator vcfFile) {
+		// Read header (and pedigree) before any worker starts
+		vcfFile.readHeader();
+		VcfHeader vcfHeader = vcfFile.getVcfHeader();
+		if (cancer) {
+			pedigree = readPedigree(vcfFile);
+			anyCancerSample = pedigree.anyDerived();
+		}
+
+		// Add our own lines and show header
+		printVcfHeader(vcfHeader);
+
+		// Output formatters are not thread safe: Each worker uses its own copy
+		ThreadLocal<OutputFormatter> workerOutputFormatter = ThreadLocal.withInitial(() -> {
+			OutputFormatter of = outputFormatter.clone();
+			of.setShowHeader(false);
+			return of;
+		});
+
+		// Sorted custom intervals are merge-joined with the input, so they
+		// are queried by the pipeline's reader thread (i.e. in input order)
+		Iterator<Tuple<VcfEntry, Markers>> input = new Iterator<Tuple<VcfEntry, Markers>>() {
+			@Override
+			public boolean hasNext() {
+				return vcfFile.hasNext();
+			}
+
+			@Override
+			public Tuple<VcfEntry, Markers> next() {
+				VcfEntry vcfEntry = vcfFile.next();
+				return new Tuple<>(vcfEntry, querySortedTracks(vcfEntry));
+			}
+		};
+
+		OrderedPipeline<Tuple<VcfEntry, Markers>, VcfEntryAnnotated> pipeline = new OrderedPipeline<>(numWorkers //
+				, in -> annotateWorker(workerOutputFormatter.get(), in.first, in.second) //
+				, this::annotateWriter //
+		);
+		pipeline.setVerbose(verbose);
+		pipeline.run(input);
+	}
+
+	/**
+	 * Annotate shards (genomic regions) of an indexed VCF file in parallel:
+	 *   - Each shard is annotated by a worker thread into a temporary file
+	 *   - Temporary files are appended to the output by this thread, in the same order as the shards
+	 */
+	void annotateVcfShards(String inputFile) {
+		VcfRegionFile vcfRegionFile = new VcfRegionFile(inputFile);
+		try {
+			List<VcfShard> shards = getShards(vcfRegionFile);
+			if (verbose) Log.info("Annotating " + shards.size() + " shards from file '" + vcfRegionFile + "' using " + numWorkers + " threads");
+
+			// Show header (including our own lines) only once, shards only add VCF entries
+			VcfFileIterator vcfHeaderFile = new VcfFileIterator(new BufferedReader(new StringReader(vcfRegionFile.getHeader())), config.getGenome());
+			printVcfHeader(vcfHeaderFile.readHeader());
+
+			OrderedPipeline<VcfShard, Tuple<File, SnpEffCmdEff>> pipeline = new OrderedPipeline<>(numWorkers //
+					, shard -> annotateShardWorker(vcfRegionFile, shard) //
+					, this::annotateShardWriter //
+			);
+			pipeline.setBatchSize(1);
+			pipeline.setVerbose(verbose);
+			pipeline.run(shards.iterator());
+		} finally {
+			vcfRegionFile.close();
+		}
+	}
+
+	/**
+	 * Annotate a shard into a temporary file (invoked concurrently by worker threads).
+	 * Each shard uses its own 'SnpEffCmdEff', sharing the (already loaded) database
+	 * and the (already parsed) command line options
+	 */
+	Tuple<File, SnpEffCmdEff> annotateShardWorker(VcfRegionFile vcfRegionFile, VcfShard shard) {
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		copyValuesEff(cmdEff);
+		cmdEff.setConfig(config);
+		cmdEff.setFilterIntervals(filterIntervals);
+		cmdEff.variantEffectsCache = variantEffectsCache; // Shared by all shards
+		cmdEff.multiThreaded = false;
+		cmdEff.verbose = false;
+
+		try {
+			File file = File.createTempFile("snpEff_shard_", ".vcf");
+			file.deleteOnExit();
+			try (BufferedReader in = vcfRegionFile.reader(shard, 1); BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+				cmdEff.annotate(in, out);
+			}
+			return new Tuple<>(file, cmdEff);
+		} catch (IOException e) {
+			throw new RuntimeException("Error annotating shard '" + shard + "'", e);
+		}
+	}
+
+	/**
+	 * Append an annotated shard (without header lines) to the output and update counters.
+	 * Only invoked from one thread, in the same order as the shards
+	 */
+	void annotateShardWriter(Tuple<File, SnpEffCmdEff> shardResult) {
+		File file = shardResult.first;
+		SnpEffCmdEff cmdEff = shardResult.second;
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			for (String line; (line = reader.readLine()) != null;) {
+				if (line.startsWith("#")) continue; // Header was already shown (see 'annotateVcfShards')
+				outputFormatter.print(line);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading temporary file '" + file + "'", e);
+		}
+		file.delete();
+
+		countInputLines += cmdEff.countInputLines;
+		countVcfEntries += cmdEff.countVcfEntries;
+		countVariants += cmdEff.countVariants;
+		countEffects += cmdEff.countEffects;
+		totalErrs += cmdEff.totalErrs;
+	}
+
+	/**
+	 * Annotate a VCF entry (multi-threaded mode).
+	 * Invoked concurrently by worker threads, so we must not update any shared state here
+	 */
+	VcfEntryAnnotated annotateWorker(OutputFormatter outputFormatter, VcfEntry vcfEntry, Markers sortedTracksHits) {
+		VcfEntryAnnotated vcfEntryAnn = new VcfEntryAnnotated(vcfEntry);
+
+		// Create new 'section'
+		outputFormatter.startSection(vcfEntry);
+
+		try {
+			// Skip if there are filter intervals and they are not matched
+			if ((filterIntervals != null) && (filterIntervals.query(vcfEntry).isEmpty())) {
+				vcfEntryAnn.filteredOut = true;
+				return vcfEntryAnn;
+			}
+
+			// Analyze all changes in this VCF entry
+			boolean impactLowOrHigher = false; // Does this entry have an impact (other than MODIFIER)?
+			List<Variant> variants = vcfEntry.variants();
+			List<VariantEffects> variantsEffects = variantEffects(variants, sortedTracksHits);
+			for (int i = 0; i < variants.size(); i++) {
+				Variant variant = variants.get(i);
+				VariantEffects variantEffects = variantsEffects.get(i);
+				if (variantEffects != null) {
+					annotateVariantOutput(outputFormatter, variant, variantEffects);
+					impactLowOrHigher |= isImpactLowOrHigher(variantEffects);
+				}
+				vcfEntryAnn.add(variant, variantEffects);
+			}
+
+			// Perform cancer annotations
+			if (anyCancerSample && impactLowOrHigher) annotateVariantCancer(outputFormatter, variants, vcfEntry);
+		} catch (Throwable t) {
+			vcfEntryAnn.error = t;
+		}
+
+		// Finish up this section (even if there was an error)
+		vcfEntryAnn.output = outputFormatter.endSection(vcfEntry);
+		return vcfEntryAnn;
+	}
+
+	/**
+	 * Update statistics and write an annotated VCF entry (multi-threaded mode).
+	 * Only invoked from one thread, in the same order as the input file
+	 */
+	void annotateWriter(VcfEntryAnnotated vcfEntryAnn) {
+		VcfEntry vcfEntry = vcfEntryAnn.getVcfEntry();
+		countInputLines++; // Count input VCF lines (not including comment lines)
+		countVcfEntries++; // Count VCF entries (same as input lines)
+
+		// VCF entry statistics
+		if (createSummaryHtml || createSummaryCsv) vcfStats.sample(vcfEntry);
+		if (vcfEntryAnn.filteredOut) return;
+
+		// Variant statistics
+		for (int i = 0; i < vcfEntryAnn.variants.size(); i++) {
+			countVariants++;
+			showProgress(); // Show progress
+
+			VariantEffects variantEffects = vcfEntryAnn.variantEffects.get(i);
+			if (variantEffects != null) annotateVariantStats(vcfEntryAnn.variants.get(i), variantEffects);
+		}
+
+		if (vcfEntryAnn.hasError()) {
+			totalErrs++;
+			Throwable t = vcfEntryAnn.error;
+			Log.error(t, "Error while processing VCF entry (line " + vcfEntry.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t);
+			if (testing) throw new RuntimeException("Error while processing VCF entry (line " + vcfEntry.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t, t);
+		}
+
+		// Show results
+		if (vcfEntriesDebug != null) vcfEntriesDebug.add(vcfEntry);
+		outputFormatter.print(vcfEntryAnn.output);
+	}
+
+	/**
+	 * Copy 'ann' options (already parsed) to another command.
+	 * Options for summary files, regions and shards are not copied
+	 */
+	void copyValuesEff(SnpEffCmdEff cmdEff) {
+		copyValues(cmdEff);
+		cmdEff.args = args;
+		cmdEff.cancer = cancer;
+		cmdEff.cancerSamples = cancerSamples;
+		cmdEff.chrStr = chrStr;
+		cmdEff.fastaProtNoRef = fastaProtNoRef;
+		cmdEff.formatVersion = formatVersion;
+		cmdEff.inputFormat = inputFormat;
+		cmdEff.lossOfFunction = lossOfFunction;
+		cmdEff.outputFormat = outputFormat;
+		cmdEff.sortedIntervalFiles = sortedIntervalFiles;
+		cmdEff.useGeneId = useGeneId;
+		cmdEff.useOicr = useOicr;
+		cmdEff.useSequenceOntology = useSequenceOntology;
+		cmdEff.variantEffectResutFilter = variantEffectResutFilter;
+		cmdEff.variantEffectsCacheSize = variantEffectsCacheSize;
+		cmdEff.createSummaryHtml = cmdEff.createSummaryCsv = false;
+	}
+
+	public long getCountVariants() {
+		return countVariants;
+	}
+
 	public VariantEffectStats getChangeEffectResutStats() {
 		return variantEffectStats;
 	}
 
+	public IntervalForest getFilterIntervals() {
+		return filterIntervals;
+	}
+
+	/**
+	 * Shards to annotate in parallel: Either from a 'shardList' file or by splitting the input file
+	 */
+	List<VcfShard> getShards(VcfRegionFile vcfRegionFile) {
+		if (shards != null) return shards;
+		return vcfRegionFile.shards(shardSize);
+	}
+
 	public int getTotalErrs() {
 		return totalErrs;
 	}
 
+	public VariantEffectsCache getVariantEffectsCache() {
+		return variantEffectsCache;
+	}
+
 	public VariantStats getvariantStats() {
 		return variantStats;
 	}
 
+	/**
+	 * Chromosomes used in the input file.
+	 * Returns null (i.e. all chromosomes) if the database is not in 'columnar'
+	 * format or the input cannot be scanned (e.g. STDIN or large files)
+	 */
+	public Set<String> inputChromosomes() {
+		if (inputFiles != null || inputFile.isEmpty() || inputFile.equals("-")) return null;
+
+		Set<String> chromos = new HashSet<>();
+		if (region != null) {
+			// Only annotating one region: We only need to scan the region for translocations
+			if (!MarkerSerializerColumnar.isColumnar(config.getFileSnpEffectPredictor())) return null;
+			chromos.add(region.getChr());
+			VcfRegionFile vcfRegionFile = new VcfRegionFile(inputFile);
+			try (BufferedReader reader = vcfRegionFile.reader(region, 1)) {
+				for (String line; (line = reader.readLine()) != null;)
+					if (!line.startsWith("#")) addBndMateChromosomes(line, chromos);
+			} catch (IOException e) {
+				throw new RuntimeException("Error reading region '" + region + "' from file '" + inputFile + "'", e);
+			} finally {
+				vcfRegionFile.close();
+			}
+			return chromos;
+		}
+
+		File file = new File(inputFile);
+		if (!file.canRead() || file.length() > MAX_INPUT_SIZE_LOAD_CHROMOSOMES) return null;
+		if (!MarkerSerializerColumnar.isColumnar(config.getFileSnpEffectPredictor())) return null;
+
+		LineFileIterator lfi = new LineFileIterator(inputFile);
+		for (String line : lfi) {
+			if (line.isEmpty() || line.startsWith("#") || line.startsWith("track") || line.startsWith("browser")) continue;
+			int idx = line.indexOf('\t');
+			chromos.add(idx < 0 ? line : line.substring(0, idx));
+			if (inputFormat == InputFormat.VCF) addBndMateChromosomes(line, chromos);
+		}
+		lfi.close();
+
+		if (verbose) Log.info("Input file '" + inputFile + "' uses " + chromos.size() + " chromosomes: " + chromos);
+		return chromos;
+	}
+
+	/**
+	 * Are we annotating several shards of the input file in parallel?
+	 */
+	boolean isSharded() {
+		return shards != null || shardSize > 0;
+	}
+
+	/**
+	 * Does any of the effects have an impact other than MODIFIER?
+	 */
+	boolean isImpactLowOrHigher(VariantEffects variantEffects) {
+		for (VariantEffect variantEffect : variantEffects)
+			if (variantEffect.getEffectImpact() != EffectImpact.MODIFIER) return true;
+		return false;
+	}
+
+	/**
+	 * Add chromosomes from translocation mates in a VCF line's ALT field (e.g. 'N[chr5:1000[' or ']chr5:1000]N')
+	 */
+	void addBndMateChromosomes(String line, Set<String> chromos) {
+		if (line.indexOf('[') < 0 && line.indexOf(']') < 0) return; // Fast check: No translocations in this line
+
+		String[] fields = line.split("\t", 6);
+		if (fields.length < 5) return;
+		Matcher matcher = BND_MATE_PATTERN.matcher(fields[4]);
+		while (matcher.find())
+			chromos.add(matcher.group(1));
+	}
+
+	/**
+	 * Output writer compressing using BGZF (multi-threaded)
+	 * @param outputFile : Output file name, or null for STDOUT
+	 */
+	BufferedWriter bgzipWriter(String outputFile) {
+		try {
+			OutputStream os = outputFile != null ? new FileOutputStream(outputFile) : System.out;
+			BgzfOutputStream bgzf = new BgzfOutputStream(os);
+			bgzf.setCloseOut(outputFile != null); // Do not close STDOUT
+			return new BufferedWriter(new OutputStreamWriter(bgzf), BgzfOutputStream.MAX_UNCOMPRESSED_BLOCK_SIZE);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot open output file '" + outputFile + "'", e);
+		}
+	}
+
+	/**
+	 * A buffered writer to STDOUT (closing the writer does not close STDOUT)
+	 */
+	BufferedWriter stdoutWriter() {
+		OutputStream os = new FilterOutputStream(System.out) {
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+		};
+		return new BufferedWriter(new OutputStreamWriter(os), 64 * 1024);
+	}
+
 	/**
 	 * Create a suitable output file name
 	 */
@@ -529,6 +969,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		default:
 			throw new RuntimeException("Unimplemented option for output file type " + outputFormat);
 		}
+		if (bgzip) outputFile += ".gz";
 
 		// Create summary file names
 		if (createSummaryCsv) summaryFileCsv = Gpr.dirName(inputFile) + "/" + base + "_summary.csv";
@@ -562,6 +1003,10 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 					//---
 					// Output options
 					//---
+					case "-bgzip":
+						bgzip = true; // Compress output
+						break;
+
 					case "-chr":
 						chrStr = args[++i];
 						break;
@@ -657,6 +1102,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 						formatVersion = EffFormatVersion.FORMAT_EFF_4;
 						break;
 
+					case "-cachesize":
+						if ((i + 1) < args.length) variantEffectsCacheSize = Gpr.parseIntSafe(args[++i]);
+						else usage("Missing size in command line option '-cacheSize'");
+						break;
+
 					case "-geneid":
 						useGeneId = true; // Use gene ID instead of gene name
 						break;
@@ -696,6 +1146,35 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 						else usage("Option '-fi' without config filter_interval_file argument");
 						break;
 
+					case "-intervalsorted":
+						if ((i + 1) < args.length) sortedIntervalFiles.add(args[++i]);
+						else usage("Option '-intervalSorted' without interval file argument");
+						break;
+
+					case "-region":
+						if ((i + 1) < args.length) region = VcfShard.parse(args[++i]);
+						else usage("Missing region in command line option '-region'");
+						break;
+
+					case "-shard":
+						if ((i + 1) < args.length) shardNum = Gpr.parseIntSafe(args[++i]);
+						else usage("Missing shard number in command line option '-shard'");
+						break;
+
+					case "-shardlist":
+						if ((i + 1) < args.length) shardList = args[++i];
+						else usage("Missing file name in command line option '-shardList'");
+						break;
+
+					case "-shardsize":
+						if ((i + 1) < args.length) shardSize = Gpr.parseIntSafe(args[++i]);
+						else usage("Missing size in command line option '-shardSize'");
+						break;
+
+					case "-showshards":
+						showShards = true;
+						break;
+
 					case "-i":
 						// Input format
 						if ((i + 1) < args.length) {
@@ -789,13 +1268,36 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		if (!isOutVcf && cancer) usage("Canccer annotation is only supported when when output is in VCF format");
 
 		// Sanity check for multi-threaded version
-		if (multiThreaded) {
-			createSummaryHtml = false; // This is implied ( '-t' => '-noStats' )
-			createSummaryCsv = false;
-		}
-		if (multiThreaded && cancer) usage("Cancer analysis is currently not supported in multi-threaded mode.");
 		if (multiThreaded && !isOutVcf) usage("Multi-threaded option is only supported when when output is in VCF format");
-		if (multiThreaded && (createSummaryHtml || createSummaryCsv)) usage("Multi-threaded option should be used with 'noStats'.");
+
+		// Sanity checks for regions and shards
+		if (shardNum > 0) {
+			if (shardList == null) usage("Option '-shard' requires a shard list ('-shardList')");
+			if (region != null) usage("Options '-region' and '-shard' cannot be used together");
+			List<VcfShard> shardsInList = VcfShard.readList(shardList);
+			if (shardNum > shardsInList.size()) usage("Shard number " + shardNum + " is out of range, shard list '" + shardList + "' has " + shardsInList.size() + " shards");
+			region = shardsInList.get(shardNum - 1);
+		} else if (shardList != null) shards = VcfShard.readList(shardList);
+
+		if (variantEffectsCacheSize < 0) usage("Invalid cache size " + variantEffectsCacheSize);
+		if (shardSize < 0) usage("Invalid shard size " + shardSize);
+		if (region != null || showShards || isSharded()) {
+			if (inputFormat != InputFormat.VCF) usage("Regions and shards are only supported when the input is in VCF format");
+			if (inputFile.equals("-") || isFileList) usage("Regions and shards require an indexed input file (STDIN and file lists are not supported)");
+			if (region != null && isSharded()) usage("Option '-region' cannot be used together with '-shardSize' or '-shardList'");
+			if (showShards && !isSharded()) usage("Option '-showShards' requires either '-shardSize' or '-shardList'");
+		}
+		if (isSharded() && fastaProt != null) usage("Option '-fastaProt' is not supported when annotating shards in parallel");
+		if (isSharded() && !isOutVcf) usage("Annotating shards in parallel is only supported when output is in VCF format");
+	}
+
+	/**
+	 * Add our own lines to a VCF header and show it
+	 */
+	void printVcfHeader(VcfHeader vcfHeader) {
+		for (String newHeaderLine : ((VcfOutputFormatter) outputFormatter).getNewHeaderLines())
+			vcfHeader.addLine(newHeaderLine);
+		outputFormatter.print(vcfHeader.toString());
 	}
 
 	/**
@@ -821,6 +1323,26 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return markers.size();
 	}
 
+	/**
+	 * Read all filter interval files and build interval forest
+	 */
+	void readFilterIntFiles() {
+		filterIntervals = null;
+		for (String filterIntFile : filterIntervalFiles) {
+			if (filterIntervals == null) filterIntervals = new IntervalForest();
+			if (verbose) Log.info("Reading filter interval file '" + filterIntFile + "'");
+			int count = readFilterIntFile(filterIntFile);
+			if (verbose) Log.info("done (" + count + " intervals loaded). ");
+		}
+
+		// Build interval forest for filter (if any)
+		if (filterIntervals != null) {
+			if (verbose) Log.info("Building filter interval forest");
+			filterIntervals.build();
+			if (verbose) Log.info("done.");
+		}
+	}
+
 	/**
 	 * Read pedigree either from VCF header or from cancerSample file
 	 */
@@ -853,28 +1375,36 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		// Nothing to filter out => don't waste time
 		if (!variantEffectResutFilter.anythingSet()) variantEffectResutFilter = null;
 
-		filterIntervals = null;
+		// Show shards and exit
+		if (showShards) {
+			VcfRegionFile vcfRegionFile = new VcfRegionFile(inputFile);
+			for (VcfShard shard : getShards(vcfRegionFile))
+				System.out.println(shard);
+			vcfRegionFile.close();
+			return new ArrayList<>();
+		}
+
+		// Statistics from each shard cannot be merged
+		if (isSharded() && (createSummaryHtml || createSummaryCsv)) {
+			if (!quiet) Log.warning("Summary statistics are not created when annotating shards in parallel");
+			createSummaryHtml = createSummaryCsv = false;
+		}
+
+		// Each shard reads sorted interval files: Without an index, they are read from the beginning
+		if (isSharded() && !quiet) {
+			for (String fileName : sortedIntervalFiles)
+				if (!SortedBedTrack.hasIndex(fileName)) Log.warning("Sorted interval file '" + fileName + "' is not indexed, each shard reads it from the beginning (you can index it using 'bgzip' and 'tabix -p bed')");
+		}
 
 		loadConfig(); // Read config file
+		config.setLoadChromosomes(inputChromosomes()); // Only load chromosomes used in the input (if the database supports it)
 		loadDb(); // Load database
 
 		// Check if we can open the input file (no need to check if it is STDIN)
 		if (!Gpr.canRead(inputFile)) usage("Cannot open input file '" + inputFile + "'");
 
 		// Read filter interval files
-		for (String filterIntFile : filterIntervalFiles) {
-			if (filterIntervals == null) filterIntervals = new IntervalForest();
-			if (verbose) Log.info("Reading filter interval file '" + filterIntFile + "'");
-			int count = readFilterIntFile(filterIntFile);
-			if (verbose) Log.info("done (" + count + " intervals loaded). ");
-		}
-
-		// Build interval forest for filter (if any)
-		if (filterIntervals != null) {
-			if (verbose) Log.info("Building filter interval forest");
-			filterIntervals.build();
-			if (verbose) Log.info("done.");
-		}
+		readFilterIntFiles();
 
 		// Store VCF results in a list?
 		if (createList) vcfEntriesDebug = new ArrayList<>();
@@ -905,6 +1435,10 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return vcfEntriesDebug;
 	}
 
+	public void setFilterIntervals(IntervalForest filterIntervals) {
+		this.filterIntervals = filterIntervals;
+	}
+
 	public void setFormatVersion(EffFormatVersion formatVersion) {
 		this.formatVersion = formatVersion;
 	}
@@ -1014,17 +1548,24 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.err.println("\tvariants_file                   : Default is STDIN");
 		System.err.println("\n");
 		System.err.println("\nOptions:");
+		System.err.println("\t-bgzip                          : Compress output using BGZF (same as 'bgzip', multi-threaded). Default: " + bgzip);
 		System.err.println("\t-chr <string>                   : Prepend 'string' to chromosome name (e.g. 'chr1' instead of '1'). Only on TXT output.");
 		System.err.println("\t-classic                        : Use old style annotations instead of Sequence Ontology and Hgvs.");
 		System.err.println("\t-csvStats <file>                : Create CSV summary file.");
 		System.err.println("\t-download                       : Download reference genome if not available. Default: " + download);
 		System.err.println("\t-i <format>                     : Input format [ vcf, bed ]. Default: VCF.");
 		System.err.println("\t-fileList                       : Input actually contains a list of files to process.");
+		System.err.println("\t-region <chr:start-end>         : Only annotate variants in this region. Input must be indexed (tabix for 'bgzip' compressed files).");
+		System.err.println("\t-shardList <file>               : Split input into the regions listed in 'file' (one per line, 'chr:start-end' or BED format) and annotate them in parallel.");
+		System.err.println("\t-shard <num>                    : Only annotate region number 'num' (one-based) from '-shardList' (e.g. cluster array jobs).");
+		System.err.println("\t-shardSize <num>                : Split input into regions of 'num' bases and annotate them in parallel. Input must be indexed.");
+		System.err.println("\t-showShards                     : Show regions (from '-shardSize' or '-shardList') and exit (e.g. to create a '-shardList' file).");
 		System.err.println("\t-o <format>                     : Output format [ vcf, gatk, bed, bedAnn ]. Default: VCF.");
 		System.err.println("\t-s , -stats, -htmlStats         : Create HTML summary file.  Default is '" + DEFAULT_SUMMARY_HTML_FILE + "'");
 		System.err.println("\t-noStats                        : Do not create stats (summary) file");
 		System.err.println("\nResults filter options:");
 		System.err.println("\t-fi , -filterInterval  <file>   : Only analyze changes that intersect with the intervals specified in this file (you may use this option many times)");
+		System.err.println("\t-intervalSorted <file>          : Use custom intervals from a sorted BED file (optionally bgzip compressed and tabix indexed). Intervals are merge-joined with the (sorted) input instead of being loaded into memory (you may use this option many times)");
 		System.err.println("\t-no-downstream                  : Do not show DOWNSTREAM changes");
 		System.err.println("\t-no-intergenic                  : Do not show INTERGENIC changes");
 		System.err.println("\t-no-intron                      : Do not show INTRON changes");
@@ -1034,6 +1575,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.err.println("\nAnnotations options:");
 		System.err.println("\t-cancer                         : Perform 'cancer' comparisons (Somatic vs Germline). Default: " + cancer);
 		System.err.println("\t-cancerSamples <file>           : Two column TXT file defining 'oringinal \\t derived' samples.");
+		System.err.println("\t-cacheSize <num>                : Cache effects of up to 'num' variants, so recurrent variants (e.g. many files or samples) are annotated only once. Default: " + variantEffectsCacheSize);
 		System.err.println("\t-fastaProt <file>               : Create an output file containing the resulting protein sequences.");
 		System.err.println("\t-fastaProtNoRef                 : Do not add reference sequences to the output (only valid when -fastaProt). Default: " + fastaProtNoRef);
 		System.err.println("\t-formatEff                      : Use 'EFF' field compatible with older versions (instead of 'ANN').");
@@ -1055,6 +1597,74 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.exit(-1);
 	}
 
+	/**
+	 * Calculate variant effects, using the cache (if enabled)
+	 */
+	VariantEffects variantEffect(Variant variant) {
+		if (variantEffectsCache == null || !VariantEffectsCache.canCache(variant)) return snpEffectPredictor.variantEffect(variant);
+
+		VariantEffects variantEffects = variantEffectsCache.get(variant);
+		if (variantEffects == null) {
+			variantEffects = snpEffectPredictor.variantEffect(variant);
+			variantEffectsCache.put(variant, variantEffects);
+		}
+		return variantEffects;
+	}
+
+	/**
+	 * Query sorted custom interval files. Intervals may intersect any variant in 'vcfEntry'
+	 * Note: Sorted tracks are merge-joined with the input, so this must be invoked in input order
+	 *
+	 * @return Intervals found (null if there are no sorted custom interval files)
+	 */
+	Markers querySortedTracks(VcfEntry vcfEntry) {
+		if (vcfEntry == null || sortedTracks == null || sortedTracks.isEmpty()) return null;
+
+		// Note: Variants can start one base after the VCF entry's end (e.g. insertions)
+		Markers hits = new Markers();
+		for (SortedBedTrack sortedTrack : sortedTracks)
+			sortedTrack.query(vcfEntry.getChromosomeName(), vcfEntry.getStart(), vcfEntry.getEnd() + 1, hits);
+		return hits;
+	}
+
+	/**
+	 * Calculate effects for a list of variants (e.g. all variants in a VCF entry), using the cache (if enabled)
+	 * Variants not in the cache are annotated as one batch (see SnpEffectPredictor.variantEffects)
+	 *
+	 * @param sortedTracksHits : Intervals from sorted custom interval files, added to the effects of each variant they intersect (can be null)
+	 * @return A list of effects, in the same order as 'variants'. Non-variant sites are not annotated (effects are 'null')
+	 */
+	List<VariantEffects> variantEffects(List<Variant> variants, Markers sortedTracksHits) {
+		List<VariantEffects> variantsEffects = new ArrayList<>(variants.size());
+		List<Variant> batch = new ArrayList<>(variants.size());
+		for (Variant variant : variants) {
+			VariantEffects variantEffects = null;
+			if (variant.isVariant()) {
+				if (variantEffectsCache != null && VariantEffectsCache.canCache(variant)) variantEffects = variantEffectsCache.get(variant);
+				if (variantEffects == null) batch.add(variant);
+			}
+			variantsEffects.add(variantEffects);
+		}
+		if (batch.isEmpty()) return variantsEffects;
+
+		// Annotate variants not found in cache
+		List<VariantEffects> batchEffects = snpEffectPredictor.variantEffects(batch);
+		for (int i = 0, j = 0; i < variants.size(); i++) {
+			Variant variant = variants.get(i);
+			if (variant.isVariant() && variantsEffects.get(i) == null) {
+				VariantEffects variantEffects = batchEffects.get(j++);
+				if (sortedTracksHits != null) {
+					for (Marker custom : sortedTracksHits)
+						custom.variantEffect(variant, variantEffects); // Only adds an effect if 'custom' intersects 'variant'
+				}
+				variantsEffects.set(i, variantEffects);
+				if (variantEffectsCache != null && VariantEffectsCache.canCache(variant)) variantEffectsCache.put(variant, variantEffects);
+			}
+		}
+
+		return variantsEffects;
+	}
+
 	/**
 	 * Create a cancer variant using alt and ref genotypes
 	 */
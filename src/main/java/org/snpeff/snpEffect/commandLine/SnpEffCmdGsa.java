@@ -8,6 +8,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import org.snpeff.SnpEff;
 import org.snpeff.collections.AutoHashMap;
@@ -66,6 +70,7 @@ public class SnpEffCmdGsa extends SnpEff {
 	int numberofGeneSetsToSelect = 20;
 	int initGeneSetSize = 100;
 	int randIterations = 0;
+	long randSeed = System.currentTimeMillis(); // Random seed used for random scores
 	double maxPvalueAdjusted = 0.05;
 	double maxPvalue = Double.NaN;
 	double interestingPerc = 0.05;
@@ -86,6 +91,7 @@ public class SnpEffCmdGsa extends SnpEff {
 	AutoHashMap<String, ScoreList> geneScores; // A map of geneId -> List[scores]
 	HashMap<String, Double> geneScore; // A <gene, score> map
 	HashSet<String> genesInteresting; // A set of interesting genes
+	List<String> randOutputs; // Enrichment results for each random iteration
 	EnrichmentAlgorithmType enrichmentAlgorithmType = EnrichmentAlgorithmType.RANKSUM_GREEDY;
 
 	public SnpEffCmdGsa() {
@@ -186,15 +192,15 @@ public class SnpEffCmdGsa extends SnpEff {
 	/**
 	 * Create interesting genes
 	 */
-	void createInterestingGenes() {
-		if (!geneInterestingFile.isEmpty()) createInterestingGenesFile();
-		else createInterestingGenesScores();
+	void createInterestingGenes(GeneSets geneSets, HashMap<String, Double> geneScore) {
+		if (!geneInterestingFile.isEmpty()) createInterestingGenesFile(geneSets);
+		else createInterestingGenesScores(geneSets, geneScore);
 	}
 
 	/**
 	 * Create interesting genes
 	 */
-	void createInterestingGenesFile() {
+	void createInterestingGenesFile(GeneSets geneSets) {
 		int hasGene = 0;
 
 		// Interesting genes from file
@@ -214,7 +220,7 @@ public class SnpEffCmdGsa extends SnpEff {
 	/**
 	 * Create interesting genes
 	 */
-	void createInterestingGenesScores() {
+	void createInterestingGenesScores(GeneSets geneSets, HashMap<String, Double> geneScore) {
 		// Get
 		ScoreList scores = new ScoreList();
 		for (double pval : geneScore.values())
@@ -291,9 +297,10 @@ public class SnpEffCmdGsa extends SnpEff {
 	}
 
 	/**
-	 * Perform enrichment analysis
+	 * Create an enrichment algorithm for 'geneSets', using 'geneScore' values
+	 * Note: Only 'geneSets' is modified, so several copies of the gene sets can be analyzed at the same time
 	 */
-	void enrichmentAnalysis() {
+	EnrichmentAlgorithm enrichmentAlgorithm(GeneSets geneSets, HashMap<String, Double> geneScore, int numThreads) {
 		GeneSetsRanked geneSetsRanked = null;
 
 		// Initialize gene set values
@@ -348,7 +355,7 @@ public class SnpEffCmdGsa extends SnpEff {
 		}
 
 		// Create 'interesting' genes
-		if (enrichmentAlgorithmType.isBinary()) createInterestingGenes();
+		if (enrichmentAlgorithmType.isBinary()) createInterestingGenes(geneSets, geneScore);
 
 		// Initialize algorithm parameters
 		algorithm.setMaxGeneSetSize(maxGeneSetSize);
@@ -357,6 +364,7 @@ public class SnpEffCmdGsa extends SnpEff {
 		algorithm.setMaxPvalueAdjusted(maxPvalueAdjusted);
 		algorithm.setVerbose(verbose);
 		algorithm.setDebug(debug);
+		algorithm.setNumThreads(numThreads);
 
 		// if (enrichmentAlgorithmType.isRank() && enrichmentAlgorithmType.isGreedy()) {
 		if (enrichmentAlgorithmType.isGreedy()) {
@@ -364,13 +372,39 @@ public class SnpEffCmdGsa extends SnpEff {
 			((EnrichmentAlgorithmGreedyVariableSize) algorithm).setInitialSize(initGeneSetSize);
 		}
 
+		return algorithm;
+	}
+
+	/**
+	 * Perform enrichment analysis
+	 */
+	void enrichmentAnalysis() {
+		EnrichmentAlgorithm algorithm = enrichmentAlgorithm(geneSets, geneScore, multiThreaded ? numWorkers : 1);
+
 		// Run algorithm
 		algorithm.select();
+		save(algorithm.getOutput());
+	}
 
-		if (saveFile != null) {
-			if (verbose) Log.info("Saving results to '" + saveFile + "'");
-			Gpr.toFile(saveFile, algorithm.getOutput());
-		}
+	/**
+	 * Perform enrichment analysis on a copy of the gene sets, using random scores
+	 * @return Enrichment results
+	 */
+	String enrichmentAnalysisRand(List<String> genes, SplittableRandom rand, int numThreads) {
+		// Create random Scores based on input
+		HashMap<String, Double> geneScoreRand = new HashMap<String, Double>();
+		for (String gene : genes)
+			geneScoreRand.put(gene, rand.nextDouble());
+
+		// Results are shown later, in iteration order
+		EnrichmentAlgorithm algorithm = enrichmentAlgorithm(geneSets.copyGeneSets(), geneScoreRand, numThreads);
+		algorithm.setSuppressOutput(true);
+		algorithm.select();
+		return algorithm.getOutput().toString();
+	}
+
+	public List<String> getRandOutputs() {
+		return randOutputs;
 	}
 
 	/**
@@ -550,6 +584,7 @@ public class SnpEffCmdGsa extends SnpEff {
 				else if (arg.equals("-maxSetSize")) maxGeneSetSize = Gpr.parseIntSafe(args[++i]);
 				else if (arg.equals("-initSetSize")) initGeneSetSize = Gpr.parseIntSafe(args[++i]);
 				else if (arg.equals("-rand")) randIterations = Gpr.parseIntSafe(args[++i]);
+				else if (arg.equals("-randSeed")) randSeed = Gpr.parseLongSafe(args[++i]);
 				else if (arg.equals("-interesting")) interestingPerc = Gpr.parseDoubleSafe(args[++i]);
 				else if (arg.equals("-mapClosestGene")) useClosestGene = true;
 				else if (arg.equals("-geneId")) useGeneId = true;
@@ -805,23 +840,54 @@ public class SnpEffCmdGsa extends SnpEff {
 
 	/**
 	 * Run enrichment analysis using random scores
+	 *
+	 * Each iteration analyzes its own copy of the gene sets, so iterations
+	 * are independent and run in parallel when multi-threaded. Results are
+	 * shown in iteration order.
 	 */
 	protected boolean runAnalisisRand() {
-		HashMap<String, Double> geneScoreOri = geneScore; // Save original scores
-
-		for (int iter = 1; iter <= randIterations; iter++) {
-			Log.info("Random scores. Iteration " + iter);
-
-			// Create random Scores based on input
-			geneScore = new HashMap<String, Double>();
-			for (String gene : geneScoreOri.keySet())
-				geneScore.put(gene, Math.random());
+		// Genes are sorted, so that random scores only depend on 'randSeed'
+		List<String> genes = new ArrayList<String>(geneScore.keySet());
+		Collections.sort(genes);
+		SplittableRandom rand = new SplittableRandom(randSeed);
+
+		// Each iteration has its own random sequence
+		SplittableRandom randIters[] = new SplittableRandom[randIterations];
+		for (int i = 0; i < randIterations; i++)
+			randIters[i] = rand.split();
+
+		String outputs[] = new String[randIterations];
+		int numThreads = multiThreaded ? numWorkers : 1;
+		if ((numThreads <= 1) || (randIterations < 2)) {
+			// Run iterations one after another (the algorithm may still use several threads)
+			for (int i = 0; i < randIterations; i++) {
+				Log.info("Random scores. Iteration " + (i + 1));
+				outputs[i] = enrichmentAnalysisRand(genes, randIters[i], numThreads);
+			}
+		} else {
+			// Run iterations in parallel, one thread per iteration
+			Log.info("Random scores. Iterations: " + randIterations + ", threads: " + numThreads);
+			ForkJoinPool pool = new ForkJoinPool(numThreads);
+			try {
+				pool.submit(() -> IntStream.range(0, randIterations).parallel().forEach(i -> outputs[i] = enrichmentAnalysisRand(genes, randIters[i], 1))).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
 
-			// Perform enrichment analysis
-			enrichmentAnalysis();
+		// Show results
+		randOutputs = new ArrayList<String>();
+		for (int i = 0; i < randIterations; i++) {
+			System.out.print(outputs[i]);
+			save(outputs[i]);
+			randOutputs.add(outputs[i]);
 		}
 
-		geneScore = geneScoreOri; // Restore original values
 		if (verbose) Log.info("Done.");
 		return true;
 	}
@@ -862,6 +928,16 @@ public class SnpEffCmdGsa extends SnpEff {
 		return ok;
 	}
 
+	/**
+	 * Save enrichment results to 'saveFile' (if any)
+	 */
+	void save(CharSequence results) {
+		if (saveFile != null) {
+			if (verbose) Log.info("Saving results to '" + saveFile + "'");
+			Gpr.toFile(saveFile, results);
+		}
+	}
+
 	/**
 	 * Get one score (Score) per gene
 	 */
@@ -914,6 +990,7 @@ public class SnpEffCmdGsa extends SnpEff {
 		System.err.println("\t-maxPvalueAdj <num>           : Maximum adjusted p-value to show result. Default: " + maxPvalueAdjusted);
 		System.err.println("\t-saveGeneScoreFile <file>     : Save gene scores to file.");
 		System.err.println("\t-rand <num>                   : Perform 'num' iterations using random scores. Default: " + randIterations);
+		System.err.println("\t-randSeed <num>               : Random seed used for random scores. Default: current time");
 		System.err.println("\n\tAlgorithm specific options: FISHER and FISHER_GREEDY");
 		System.err.println("\t-interesting <num>            : Consider a gene 'interesting' if the score is in the 'num' percentile. Default: " + interestingPerc);
 		System.err.println("\t-geneInterestingFile <file>   : Use 'interesting' genes from file instead of calculating them.");
@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import org.snpeff.SnpEff;
 import org.snpeff.align.SmithWaterman;
@@ -25,6 +28,7 @@ import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryEmbl;
 import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGenBank;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.Log;
+import org.snpeff.util.Tuple;
 
 /**
  * Command line: Read protein sequences from a file and compare them to the ones calculated from our data structures
@@ -47,6 +51,7 @@ public class SnpEffCmdProtein extends SnpEff {
 	int totalOk = 0;
 	int totalWarnings = 0;
 	int totalNotFound = 0;
+	int numThreads = 1; // Number of threads used to compare transcripts
 	String configFile = Config.DEFAULT_CONFIG_FILE;
 	String proteinFile = "";
 	Map<String, String> proteinById; // Protein sequence by ID (transcript ID, protein ID, etc.)
@@ -224,6 +229,103 @@ public class SnpEffCmdProtein extends SnpEff {
 		if (proteinFile.isEmpty()) usage("Missing protein_file parameter");
 	}
 
+	/**
+	 * Compare protein for one transcript
+	 * Note: This method may be called from many threads at the same time (see proteinCompare)
+	 *
+	 * @return Status ('+' OK, '.' missing, '*' error, ' ' not checked) and reference protein (null if missing)
+	 */
+	Tuple<Character, String> proteinCompare(Transcript tr) {
+		char status = ' ';
+		String protein = tr.protein();
+		String proteinReference = proteinById.get(tr.getId());
+
+		// Not found using transcript ID? Try protein ID
+		if( proteinReference == null && tr.hasProteinId()) {
+			proteinReference = proteinById.get(tr.getProteinId());
+            }
+		String reference = proteinReference; // Note: 'proteinReference' is reformatted when showing alignments
+
+		if (proteinReference == null) {
+			if (tr.isProteinCoding()) {
+				status = '.';
+				if (debug) Log.warningln("Cannot find Protein for transcript " + tr.getId());
+			}
+		} else if (equals(protein, proteinReference)) {
+			status = '+';
+		} else {
+			status = '*';
+
+			if (debug || storeAlignments || onlyOneError) {
+				protein = proteinFormat(protein);
+				proteinReference = proteinFormat(proteinReference);
+
+				SmithWaterman sw = new SmithWaterman(protein, proteinReference);
+				int score = SnpEffCmdCds.alignmentScore(sw, protein, proteinReference);
+				int maxScore = Math.min(protein.length(), proteinReference.length());
+
+				if (storeAlignments) {
+					synchronized (alignmentByTrId) {
+						alignmentByTrId.put(tr.getId(), sw);
+					}
+				}
+
+				if (debug || onlyOneError) {
+					Log.infoln("\nERROR: Proteins do not match for transcript " + tr.getId() //
+							+ "\tStrand:" + (tr.isStrandPlus() ? "+" : "-") //
+							+ "\tExons: " + tr.numChilds() //
+							+ "\n" //
+							+ String.format("\tSnpEff protein     (%6d) : '%s'\n", protein.length(), protein) //
+							+ String.format("\tReference protein  (%6d) : '%s'\n", proteinReference.length(), proteinReference) //
+							+ "\tAlignment (Snpeff protein vs Reference protein)." //
+							+ "\tScore: " + score //
+							+ "\tMax. possible score: " + maxScore //
+							+ "\tDiff: " + (maxScore - score) //
+							+ "\n" + sw //
+					);
+					Log.info("Transcript details:\n" + tr);
+				}
+			}
+
+			if (onlyOneError) {
+				Log.info("Transcript details:\n" + tr);
+				throw new RuntimeException("DIE");
+			}
+		}
+
+		return new Tuple<>(status, reference);
+	}
+
+	/**
+	 * Compare proteins for all transcripts in the list
+	 * Transcripts are compared using a work-stealing pool, unless we are
+	 * in debug mode (messages would be mixed) or we stop at the first error
+	 *
+	 * @return Status and reference protein for each transcript (same order as 'trList')
+	 */
+	@SuppressWarnings("unchecked")
+	Tuple<Character, String>[] proteinCompare(List<Transcript> trList) {
+		Tuple<Character, String>[] results = new Tuple[trList.size()];
+		if (numThreads <= 1 || debug || onlyOneError) {
+			for (int i = 0; i < results.length; i++)
+				results[i] = proteinCompare(trList.get(i));
+			return results;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			pool.submit(() -> IntStream.range(0, results.length).parallel().forEach(i -> results[i] = proteinCompare(trList.get(i)))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while comparing proteins", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error comparing proteins", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return results;
+	}
+
 	/**
 	 * Compare list of proteins
 	 */
@@ -254,60 +356,11 @@ public class SnpEffCmdProtein extends SnpEff {
 
 		// Check each transcript
 		int countNotFound = 0, countOk = 0, countErrors = 0;
-		for (Transcript tr : trList) {
-			char status = ' ';
-			String protein = tr.protein();
-			String proteinReference = proteinById.get(tr.getId());
-
-			// Not found using transcript ID? Try protein ID
-			if( proteinReference == null && tr.hasProteinId()) {
-				proteinReference = proteinById.get(tr.getProteinId());
-            }
-
-			if (proteinReference == null) {
-				if (tr.isProteinCoding()) {
-					status = '.';
-					if (debug) Log.warningln("Cannot find Protein for transcript " + tr.getId());
-				}
-			} else if (equals(protein, proteinReference)) {
-				status = '+';
-			} else {
-				status = '*';
-
-				if (debug || storeAlignments || onlyOneError) {
-					protein = proteinFormat(protein);
-					proteinReference = proteinFormat(proteinReference);
-
-					SmithWaterman sw = new SmithWaterman(protein, proteinReference);
-					if (Math.max(protein.length(), proteinReference.length()) < SnpEffCmdCds.MAX_ALIGN_LENGTH) sw.align();
-
-					if (storeAlignments) alignmentByTrId.put(tr.getId(), sw);
-
-					int maxScore = Math.min(protein.length(), proteinReference.length());
-					int score = sw.getAlignmentScore();
-
-					if (debug || onlyOneError) {
-						Log.infoln("\nERROR: Proteins do not match for transcript " + tr.getId() //
-								+ "\tStrand:" + (tr.isStrandPlus() ? "+" : "-") //
-								+ "\tExons: " + tr.numChilds() //
-								+ "\n" //
-								+ String.format("\tSnpEff protein     (%6d) : '%s'\n", protein.length(), protein) //
-								+ String.format("\tReference protein  (%6d) : '%s'\n", proteinReference.length(), proteinReference) //
-								+ "\tAlignment (Snpeff protein vs Reference protein)." //
-								+ "\tScore: " + score //
-								+ "\tMax. possible score: " + maxScore //
-								+ "\tDiff: " + (maxScore - score) //
-								+ "\n" + sw //
-						);
-						Log.info("Transcript details:\n" + tr);
-					}
-				}
-
-				if (onlyOneError) {
-					Log.info("Transcript details:\n" + tr);
-					throw new RuntimeException("DIE");
-				}
-			}
+		Tuple<Character, String>[] results = proteinCompare(trList);
+		for (int idx = 0; idx < trList.size(); idx++) {
+			Transcript tr = trList.get(idx);
+			char status = results[idx].first;
+			String proteinReference = results[idx].second;
 
 			// Update counters
 			boolean ok = false;
@@ -576,6 +629,10 @@ public class SnpEffCmdProtein extends SnpEff {
 
 	public void setMaxErrorRate(double maxErrorRate) { this.maxErrorRate = maxErrorRate; }
 
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setStoreAlignments(boolean storeAlignments) {
 		this.storeAlignments = storeAlignments;
 	}
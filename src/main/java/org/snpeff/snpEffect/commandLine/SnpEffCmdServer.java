@@ -0,0 +1,356 @@
+package org.snpeff.snpEffect.commandLine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.snpeff.SnpEff;
+import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+import org.snpeff.util.Timer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Command line program: Annotation server
+ *
+ * Databases are loaded only once, then VCF files are annotated on request.
+ * Each request is annotated by a new 'SnpEffCmdEff' (i.e. same logic as
+ * the 'ann' command) sharing the already loaded predictor.
+ *
+ * Requests (HTTP):
+ * 		POST /ann/genome_version	: Request body is a VCF file, response is the annotated VCF file
+ * 		GET  /status				: Genomes loaded, number of requests and latency
+ *
+ * Annotated VCF files are buffered in memory and sent once annotation finishes,
+ * so the status code reflects the outcome: 200 if the whole file was annotated,
+ * 500 (and an error message) otherwise. A client never receives a truncated VCF
+ * with a 200 status.
+ *
+ * @author pcingola
+ */
+public class SnpEffCmdServer extends SnpEff {
+
+	public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1"; // Only accept local connections by default
+	public static final int DEFAULT_PORT = 8080;
+	public static final String PATH_ANN = "/ann";
+	public static final String PATH_STATUS = "/status";
+
+	int port = DEFAULT_PORT;
+	String bindAddress = DEFAULT_BIND_ADDRESS;
+	List<String> genomeVers = new ArrayList<>(); // Genomes to load
+	List<String> annArgs = new ArrayList<>(); // Options for 'ann' command, used on every request
+	SnpEffCmdEff annTemplate; // 'ann' command having all 'annArgs' parsed. Values are copied to each request's 'ann' command
+	Map<String, Config> configByGenome = new LinkedHashMap<>();
+	Map<String, IntervalForest> filterIntervalsByGenome = new HashMap<>();
+	HttpServer server;
+	ExecutorService executor;
+	CountDownLatch stopped;
+	AtomicLong countRequests = new AtomicLong();
+	AtomicLong countErrors = new AtomicLong();
+	AtomicLong latencySum = new AtomicLong(); // Sum of all requests latencies (milliseconds)
+	AtomicLong latencyMax = new AtomicLong(); // Maximum latency (milliseconds)
+
+	public SnpEffCmdServer() {
+		super();
+	}
+
+	/**
+	 * Annotate a VCF file (request body) and send the annotated VCF as response
+	 */
+	void annotate(HttpExchange exchange) throws IOException {
+		Timer timer = new Timer();
+		long reqNum = countRequests.incrementAndGet();
+		String genomeVer = requestGenome(exchange);
+		boolean ok = false;
+		long countVariants = 0;
+
+		try {
+			if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+				send(exchange, 405, "Method '" + exchange.getRequestMethod() + "' not allowed, use 'POST'\n");
+				return;
+			}
+
+			Config config = configByGenome.get(genomeVer);
+			if (config == null) {
+				send(exchange, 404, "Genome '" + genomeVer + "' not found. Available genomes: " + configByGenome.keySet() + "\n");
+				return;
+			}
+
+			// Annotate. The response is buffered, so we can report an error if annotation fails
+			SnpEffCmdEff cmdEff = newCmdEff(genomeVer);
+			ByteArrayOutputStream annotated = new ByteArrayOutputStream();
+			BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody()));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(annotated));
+			ok = cmdEff.annotate(in, out);
+			countVariants = cmdEff.getCountVariants();
+
+			if (ok) send(exchange, 200, annotated.toByteArray());
+			else send(exchange, 500, "Error annotating request " + reqNum + ", genome '" + genomeVer + "'\n");
+		} catch (Throwable t) {
+			ok = false;
+			Log.error(t, "Error processing request " + reqNum + ", genome '" + genomeVer + "': " + t.getMessage());
+			sendError(exchange, "Error annotating request " + reqNum + ", genome '" + genomeVer + "': " + t.getMessage() + "\n");
+		} finally {
+			exchange.close();
+
+			// Update stats
+			long latency = timer.elapsed();
+			if (!ok) countErrors.incrementAndGet();
+			latencySum.addAndGet(latency);
+			latencyMax.accumulateAndGet(latency, Math::max);
+			if (!quiet) Log.info("Request " + reqNum + "\tgenome: '" + genomeVer + "'\tvariants: " + countVariants + "\tlatency: " + latency + " ms" + (ok ? "" : "\tERROR"));
+		}
+	}
+
+	public int getPort() {
+		return server != null ? server.getAddress().getPort() : port;
+	}
+
+	/**
+	 * Load all databases
+	 */
+	void loadGenomes() {
+		annTemplate = newAnnTemplate(genomeVers.get(0));
+
+		String genomeVerOri = genomeVer;
+		Boolean treatAllAsProteinCodingFirst = null;
+		for (String gv : genomeVers) {
+			genomeVer = gv;
+			if (genomeVers.size() > 1) config = null; // Each genome uses its own config
+			loadConfig();
+			loadDb();
+			configByGenome.put(gv, config);
+
+			// Sanity check: Some parameters are shared by all genomes (see Config.get())
+			if (treatAllAsProteinCodingFirst == null) treatAllAsProteinCodingFirst = config.isTreatAllAsProteinCoding();
+			else if (treatAllAsProteinCodingFirst != config.isTreatAllAsProteinCoding()) Log.warning(null, "Genomes use different 'treatAllAsProteinCoding' values, using '" + config.isTreatAllAsProteinCoding() + "' for all genomes. Please set '-treatAllAsProteinCoding' explicitly.");
+
+			// Read filter interval files (if any), these are shared by all requests
+			SnpEffCmdEff cmdEff = newCmdEff(gv);
+			cmdEff.readFilterIntFiles();
+			filterIntervalsByGenome.put(gv, cmdEff.getFilterIntervals());
+		}
+		genomeVer = genomeVerOri;
+	}
+
+	/**
+	 * Create an 'ann' command and parse 'ann' options. This is done only once, when the server starts
+	 */
+	SnpEffCmdEff newAnnTemplate(String genomeVer) {
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		copyValues(cmdEff);
+		cmdEff.setGenomeVer(genomeVer);
+
+		// Parse 'ann' options. Summary files make no sense for a request
+		List<String> args = new ArrayList<>(annArgs);
+		args.add("-noStats");
+		cmdEff.parseArgs(args.toArray(new String[0]));
+		return cmdEff;
+	}
+
+	/**
+	 * Create an 'ann' command for genome 'genomeVer', using the (already loaded) database
+	 * Options are copied from 'annTemplate' (they are not parsed again)
+	 */
+	SnpEffCmdEff newCmdEff(String genomeVer) {
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		annTemplate.copyValuesEff(cmdEff);
+		cmdEff.setGenomeVer(genomeVer);
+		cmdEff.setConfig(configByGenome.get(genomeVer));
+		cmdEff.setFilterIntervals(filterIntervalsByGenome.get(genomeVer));
+		return cmdEff;
+	}
+
+	/**
+	 * Parse command line arguments
+	 */
+	@Override
+	public void parseArgs(String[] args) {
+		this.args = args;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+
+			if (arg.equals("--")) {
+				// All remaining arguments are 'ann' options
+				for (i++; i < args.length; i++)
+					annArgs.add(args[i]);
+			} else if (isOpt(arg)) {
+				switch (arg.toLowerCase()) {
+				case "-bind":
+					if ((i + 1) < args.length) bindAddress = args[++i];
+					else usage("Missing value for parameter '-bind'");
+					break;
+
+				case "-port":
+					if ((i + 1) < args.length) port = Gpr.parseIntSafe(args[++i]);
+					else usage("Missing value for parameter '-port'");
+					break;
+
+				case "-threads":
+					if ((i + 1) < args.length) numWorkers = Gpr.parseIntSafe(args[++i]);
+					else usage("Missing value for parameter '-threads'");
+					break;
+
+				default:
+					usage("Unknown option '" + arg + "'");
+				}
+			} else genomeVers.add(arg);
+		}
+
+		// Sanity checks
+		if (genomeVers.isEmpty()) usage("Missing genome_version parameter");
+		if (port < 0) usage("Invalid port number " + port);
+		if (numWorkers <= 0) usage("Number of threads must be positive");
+	}
+
+	/**
+	 * Genome version requested. E.g. '/ann/GRCh38.99' => 'GRCh38.99'
+	 * If the path has no genome and only one genome is loaded, use that genome
+	 */
+	String requestGenome(HttpExchange exchange) {
+		String path = exchange.getRequestURI().getPath();
+		String genomeVer = path.length() > PATH_ANN.length() ? path.substring(PATH_ANN.length() + 1) : "";
+		if (genomeVer.isEmpty() && configByGenome.size() == 1) return configByGenome.keySet().iterator().next();
+		return genomeVer;
+	}
+
+	/**
+	 * Run server, block until it is stopped
+	 */
+	@Override
+	public boolean run() {
+		start();
+		try {
+			stopped.await();
+		} catch (InterruptedException e) {
+			stop();
+		}
+		return true;
+	}
+
+	/**
+	 * Send a (short) response
+	 */
+	void send(HttpExchange exchange, int code, String msg) throws IOException {
+		send(exchange, code, msg.getBytes());
+	}
+
+	/**
+	 * Send a response
+	 */
+	void send(HttpExchange exchange, int code, byte[] bytes) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	/**
+	 * Send an 'internal server error' response.
+	 * Nothing is sent if the response headers were already sent (e.g. the
+	 * client closed the connection while the response was being written)
+	 */
+	void sendError(HttpExchange exchange, String msg) {
+		if (exchange.getResponseCode() >= 0) return;
+		try {
+			send(exchange, 500, msg);
+		} catch (IOException e) {
+			Log.error(e, "Error sending response: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Load databases and start server (does not block)
+	 */
+	public void start() {
+		loadGenomes();
+
+		try {
+			stopped = new CountDownLatch(1);
+			server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+			server.createContext(PATH_ANN, this::annotate);
+			server.createContext(PATH_STATUS, this::status);
+			executor = Executors.newFixedThreadPool(numWorkers);
+			server.setExecutor(executor);
+			server.start();
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot start server on " + bindAddress + ":" + port, e);
+		}
+
+		if (!quiet) Log.info("Server listening on " + bindAddress + ":" + getPort() + ", threads: " + numWorkers + ", genomes: " + configByGenome.keySet());
+	}
+
+	/**
+	 * Server status: Genomes and requests statistics
+	 */
+	void status(HttpExchange exchange) throws IOException {
+		long count = countRequests.get();
+		StringBuilder sb = new StringBuilder();
+		sb.append("version\t" + VERSION_SHORT + "\n");
+		sb.append("genomes\t" + String.join(",", configByGenome.keySet()) + "\n");
+		sb.append("threads\t" + numWorkers + "\n");
+		sb.append("requests\t" + count + "\n");
+		sb.append("errors\t" + countErrors.get() + "\n");
+		sb.append("latency_avg_ms\t" + (count > 0 ? latencySum.get() / count : 0) + "\n");
+		sb.append("latency_max_ms\t" + latencyMax.get() + "\n");
+		send(exchange, 200, sb.toString());
+		exchange.close();
+	}
+
+	/**
+	 * Stop server
+	 */
+	public void stop() {
+		if (server != null) server.stop(0);
+		if (executor != null) executor.shutdown();
+		if (stopped != null) stopped.countDown();
+	}
+
+	/**
+	 * Show usage and exit
+	 */
+	@Override
+	public void usage(String message) {
+		if (message != null) {
+			System.err.println("Error        :\t" + message);
+			System.err.println("Command line :\t" + commandLineStr(false) + "\n");
+			if (testing) throw new RuntimeException("Error: " + message);
+		}
+
+		System.err.println("snpEff version " + VERSION);
+		System.err.println("Usage: snpEff server [options] genome_version_1 [genome_version_2 ...] [-- ann_options]");
+		System.err.println("\nAnnotation server: Load databases once, then annotate VCF files sent over HTTP.");
+		System.err.println("\tPOST /ann/genome_version : Annotate VCF file (request body). Response is the annotated VCF");
+		System.err.println("\tGET  /status             : Server status (genomes, number of requests, latency)");
+		System.err.println("\nOptions:");
+		System.err.println("\t-bind <address>      : Bind to this address. Default: " + DEFAULT_BIND_ADDRESS + " (only local connections)");
+		System.err.println("\t-port <num>          : Listen on this port. Default: " + DEFAULT_PORT);
+		System.err.println("\t-threads <num>       : Number of requests processed concurrently. Default: " + numWorkers);
+		System.err.println("\t-- ann_options       : All arguments after '--' are 'ann' options, used on every request (see 'snpEff ann -h')");
+		System.err.println("\nNote: When several genomes are loaded, generic options (e.g. '-treatAllAsProteinCoding') are shared by all of them.");
+
+		usageGenericAndDb();
+
+		System.exit(-1);
+	}
+
+}
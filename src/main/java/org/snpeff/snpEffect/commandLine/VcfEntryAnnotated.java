@@ -0,0 +1,47 @@
+package org.snpeff.snpEffect.commandLine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.vcf.VcfEntry;
+
+/**
+ * Annotation results for a VCF entry.
+ *
+ * Used in multi-threaded mode: These are calculated by a worker
+ * thread and then consumed (in input order) by the writer thread,
+ * which updates statistics and writes the output
+ *
+ * @author pcingola
+ */
+public class VcfEntryAnnotated {
+
+	VcfEntry vcfEntry;
+	boolean filteredOut; // Entry does not match filter intervals
+	String output; // Formatted output (null if nothing should be printed)
+	Throwable error; // Error while annotating this entry (if any)
+	List<Variant> variants; // All variants in this entry
+	List<VariantEffects> variantEffects; // Effects for each variant in 'variants' (null for non-variant sites)
+
+	public VcfEntryAnnotated(VcfEntry vcfEntry) {
+		this.vcfEntry = vcfEntry;
+		variants = new ArrayList<>();
+		variantEffects = new ArrayList<>();
+	}
+
+	public void add(Variant variant, VariantEffects varEffs) {
+		variants.add(variant);
+		variantEffects.add(varEffs);
+	}
+
+	public VcfEntry getVcfEntry() {
+		return vcfEntry;
+	}
+
+	public boolean hasError() {
+		return error != null;
+	}
+
+}
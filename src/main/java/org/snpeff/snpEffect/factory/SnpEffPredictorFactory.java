@@ -8,8 +8,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.snpeff.fileIterator.FastaFileIterator;
+import org.snpeff.fileIterator.FastaIndexedFile;
 import org.snpeff.interval.Cds;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.CircularCorrection;
@@ -50,6 +56,7 @@ public abstract class SnpEffPredictorFactory {
 	boolean verbose = false;
 	int lineNum;
 	int inOffset; // This amount is subtracted to all position coordinates
+	int numThreads = 1; // Number of threads used to add sequences to exons
 	int totalSeqsAdded = 0, totalSeqsIgnored = 0; // Number of sequences added and ignored
 	String fileName;
 	String fastaFile; // Only used for debugging or testing
@@ -161,28 +168,37 @@ public abstract class SnpEffPredictorFactory {
 	 * Add genomic reference sequences
 	 */
 	protected void addSequences(String chr, String chrSeq) {
+		addSequences(getOrCreateChromosome(chr), chrSeq, genesByChromo().get(chr.toLowerCase()));
+	}
+
+	/**
+	 * Add genomic reference sequences to all exons in 'genes' (genes in chromosome 'chromo')
+	 * Note: This method may be invoked concurrently for different chromosomes
+	 */
+	protected void addSequences(Chromosome chromo, String chrSeq, List<Gene> genes) {
 		// Update chromosome length
+		String chr = chromo.getId();
 		int chrLen = chrSeq.length();
-		Chromosome chromo = getOrCreateChromosome(chr);
 		chromo.setLength(chrLen);
-		chromo.detectCircular();
+		if (genes == null) genes = Collections.emptyList();
+		chromo.detectCircular(genes);
 
 		// Add sequences for each gene
 		int seqsAdded = 0, seqsIgnored = 0;
 
 		if (storeSequences) {
 			if (verbose) Log.info("\t\tAdding genomic sequences to genes: ");
-			int count = genome.getGenomicSequences().addGeneSequences(chr, chrSeq);
+			int count;
+			synchronized (genome.getGenomicSequences()) {
+				count = genome.getGenomicSequences().addGeneSequences(chr, chrSeq);
+			}
 			if (verbose) Log.info("\tDone (" + count + " sequences added).");
 		}
 
 		if (verbose) Log.info("\t\tAdding genomic sequences to exons: ");
 
 		// Find and add sequences for all exons in this chromosome
-		for (Gene gene : genome.getGenes()) {
-			// Different chromosome? Skip
-			if (!gene.getChromosomeName().equalsIgnoreCase(chr)) continue;
-
+		for (Gene gene : genes) {
 			for (Transcript tr : gene) {
 				// Circular chromosomes coordinates are corrected in this step
 				CircularCorrection cc = new CircularCorrection(tr, chrLen);
@@ -243,8 +259,10 @@ public abstract class SnpEffPredictorFactory {
 		}
 
 		if (verbose) Log.info("\tDone (" + seqsAdded + " sequences added, " + seqsIgnored + " ignored).");
-		totalSeqsAdded += seqsAdded;
-		totalSeqsIgnored += seqsIgnored;
+		synchronized (this) {
+			totalSeqsAdded += seqsAdded;
+			totalSeqsIgnored += seqsIgnored;
+		}
 	}
 
 	/**
@@ -615,6 +633,16 @@ public abstract class SnpEffPredictorFactory {
 
 	}
 
+	/**
+	 * Genes by chromosome name (lower case)
+	 */
+	Map<String, List<Gene>> genesByChromo() {
+		Map<String, List<Gene>> genesByChromo = new HashMap<>();
+		for (Gene gene : genome.getGenes())
+			genesByChromo.computeIfAbsent(gene.getChromosomeName().toLowerCase(), k -> new ArrayList<>()).add(gene);
+		return genesByChromo;
+	}
+
 	/**
 	 * Get a chromosome. If it doesn't exist, create it
 	 */
@@ -685,16 +713,10 @@ public abstract class SnpEffPredictorFactory {
 		for (String file : files) {
 
 			if (Gpr.canRead(file)) {
-				if (verbose) Log.info("\tReading FASTA file: '" + file + "'");
-
-				// Read fasta sequence
-				FastaFileIterator ffi = new FastaFileIterator(file);
-				for (String seq : ffi) {
-					String chromo = ffi.getName();
-					chromoNamesReference.add(chromo);
-					if (verbose) Log.info("\t\tReading sequence '" + chromo + "', length: " + seq.length());
-					addSequences(chromo, seq); // Add all sequences
-				}
+				if (verbose) Log.info("\tReading FASTA file: '" + file + "'" + (numThreads > 1 ? ", using " + numThreads + " threads" : ""));
+				Map<String, List<Gene>> genesByChromo = genesByChromo();
+				if (numThreads > 1 && FastaIndexedFile.hasIndex(file)) readExonSequencesIndexed(file, genesByChromo);
+				else readExonSequences(file, genesByChromo);
 				return;
 			} else if (verbose) Log.info("\tFASTA file: '" + file + "' not found.");
 		}
@@ -702,6 +724,78 @@ public abstract class SnpEffPredictorFactory {
 		throw new RuntimeException("Cannot find reference sequence.");
 	}
 
+	/**
+	 * Read sequences from a FASTA file (sequentially).
+	 * In multi-threaded mode, sequences are added to exons by worker threads
+	 * while the next sequence is being read (at most 'numThreads' sequences
+	 * are kept in memory)
+	 */
+	void readExonSequences(String file, Map<String, List<Gene>> genesByChromo) {
+		ExecutorService executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads) : null;
+		Semaphore inMemory = new Semaphore(numThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			FastaFileIterator ffi = new FastaFileIterator(file);
+			for (String seq : ffi) {
+				String chromo = ffi.getName();
+				chromoNamesReference.add(chromo);
+				if (verbose) Log.info("\t\tReading sequence '" + chromo + "', length: " + seq.length());
+				Chromosome chr = getOrCreateChromosome(chromo);
+				List<Gene> genes = genesByChromo.get(chromo.toLowerCase());
+
+				if (executor == null) {
+					addSequences(chr, seq, genes); // Add all sequences
+				} else {
+					inMemory.acquireUninterruptibly();
+					futures.add(executor.submit(() -> {
+						try {
+							addSequences(chr, seq, genes);
+						} finally {
+							inMemory.release();
+						}
+					}));
+				}
+			}
+			waitFor(futures);
+		} finally {
+			if (executor != null) executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Read sequences from an indexed FASTA file (see 'samtools faidx').
+	 * Each worker thread reads one chromosome at a time, so at most
+	 * 'numThreads' sequences are kept in memory
+	 */
+	void readExonSequencesIndexed(String file, Map<String, List<Gene>> genesByChromo) {
+		FastaIndexedFile fasta = new FastaIndexedFile(file);
+
+		// Largest sequences first
+		List<String> names = new ArrayList<>(fasta.getNames());
+		names.sort((n1, n2) -> fasta.getLength(n2) - fasta.getLength(n1));
+
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (String name : names) {
+				String chromo = Chromosome.simpleName(name);
+				chromoNamesReference.add(chromo);
+				Chromosome chr = getOrCreateChromosome(chromo);
+				List<Gene> genes = genesByChromo.get(chromo.toLowerCase());
+
+				futures.add(executor.submit(() -> {
+					String seq = fasta.getSequence(name);
+					if (verbose) Log.info("\t\tReading sequence '" + chromo + "', length: " + seq.length());
+					addSequences(chr, seq, genes);
+				}));
+			}
+			waitFor(futures);
+		} finally {
+			executor.shutdownNow();
+			fasta.close();
+		}
+	}
+
 	/**
 	 * Remove empty chromosomes
 	 */
@@ -752,6 +846,10 @@ public abstract class SnpEffPredictorFactory {
 		this.fileName = fileName;
 	}
 
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setRandom(Random random) {
 		this.random = random;
 	}
@@ -844,6 +942,23 @@ public abstract class SnpEffPredictorFactory {
 				if (tr.utrFromCds(debug)) mark(i++);
 	}
 
+	/**
+	 * Wait for all tasks to finish, re-throw any exception
+	 */
+	void waitFor(List<Future<?>> futures) {
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+				throw new RuntimeException(cause);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 	/**
 	 * Warning: Show a warning message (show some details)
 	 * @param msg
@@ -37,7 +37,7 @@ public class CountByKey<T> implements Serializable {
 	 * @param hash
 	 * @param key
 	 */
-	void inc(HashMap<T, Long> hash, T key, int toAdd) {
+	void inc(HashMap<T, Long> hash, T key, long toAdd) {
 		Long count = hash.get(key);
 		if (count == null) count = 0L;
 		count += toAdd;
@@ -60,6 +60,14 @@ public class CountByKey<T> implements Serializable {
 		inc(countByKey, key, increment);
 	}
 
+	/**
+	 * Increment counter for a given type
+	 * @param key
+	 */
+	public void inc(T key, long increment) {
+		inc(countByKey, key, increment);
+	}
+
 	public boolean isEmpty() {
 		return countByKey.isEmpty();
 	}
@@ -129,7 +129,7 @@ public class CountByType implements Serializable {
 	/**
 	 * Increment counter in a hash
 	 */
-	long inc(HashMap<String, Long> hash, String type, int toAdd) {
+	long inc(HashMap<String, Long> hash, String type, long toAdd) {
 		Long count = hash.get(type);
 		if (count == null) count = 0L;
 		count += toAdd;
@@ -148,6 +148,13 @@ public class CountByType implements Serializable {
 		return inc(countByType, type, increment);
 	}
 
+	/**
+	 * Increment counter for a given type
+	 */
+	public long inc(String type, long increment) {
+		return inc(countByType, type, increment);
+	}
+
 	/**
 	 * Is this empty
 	 */
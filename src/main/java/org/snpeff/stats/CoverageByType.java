@@ -10,4 +10,12 @@ public class CoverageByType extends AutoHashMap<String, PosStats> {
 		super(new PosStats());
 	}
 
+	/**
+	 * Add coverage from another CoverageByType (e.g. counted in a different thread)
+	 */
+	public void add(CoverageByType coverageByType) {
+		for (String type : coverageByType.keySet())
+			getOrCreate(type).add(coverageByType.get(type));
+	}
+
 }
@@ -39,6 +39,17 @@ public class PosStats extends ChrPosStats {
 		init(maxBins);
 	}
 
+	/**
+	 * Add counts from another PosStats (e.g. counted in a different thread)
+	 */
+	public void add(PosStats posStats) {
+		if (posStats.count.length != count.length) throw new RuntimeException("Cannot add statistics having different number of bins: " + count.length + " vs " + posStats.count.length);
+		for (int i = 0; i < count.length; i++)
+			count[i] += posStats.count[i];
+		total += posStats.total;
+		maxIndex = Math.max(maxIndex, posStats.maxIndex);
+	}
+
 	/**
 	 * Create random counts (used for debugging)
 	 * @param maxLen
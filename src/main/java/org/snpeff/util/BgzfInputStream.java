@@ -0,0 +1,262 @@
+package org.snpeff.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read a BGZF compressed file (e.g. created by 'bgzip'), inflating blocks in parallel
+ *
+ * BGZF files are a series of small (up to 64KB) gzip blocks. The size of each
+ * compressed block is in the block's header, so blocks can be read sequentially
+ * (which is fast) and inflated by a pool of threads (which is slow). Inflated
+ * blocks are returned in the same order as in the file.
+ *
+ * Reference: SAM specification, section 4.1 "The BGZF compression format"
+ *
+ * @author pcingola
+ */
+public class BgzfInputStream extends InputStream {
+
+	public static final int DEFAULT_THREADS = Math.max(1, Math.min(Gpr.NUM_CORES, 4));
+	public static final int BLOCKS_PER_THREAD = 8; // Number of blocks being inflated (or waiting to be read) per thread
+	public static final int GZIP_HEADER_SIZE = 12; // Gzip header, up to (and including) XLEN
+	public static final int GZIP_FOOTER_SIZE = 8; // CRC32 and ISIZE
+	public static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+	static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	InputStream in;
+	ExecutorService executor;
+	Deque<Future<byte[]>> pending; // Blocks being inflated, in file order
+	int maxPending;
+	boolean eof; // Have we reached the end of the underlying stream?
+	byte[] block = new byte[0]; // Current (inflated) block
+	int pos; // Position within current block
+	long blockNum; // Number of blocks read
+
+	/**
+	 * Is this stream BGZF compressed?
+	 * Note: The stream must support 'mark' (e.g. BufferedInputStream), it is reset after checking
+	 */
+	public static boolean isBgzf(InputStream in) throws IOException {
+		if (!in.markSupported()) throw new IOException("Input stream must support 'mark'");
+
+		byte[] header = new byte[GZIP_HEADER_SIZE + 4];
+		in.mark(header.length);
+		int len = 0;
+		try {
+			while (len < header.length) {
+				int n = in.read(header, len, header.length - len);
+				if (n < 0) break;
+				len += n;
+			}
+		} finally {
+			in.reset();
+		}
+
+		return len >= header.length //
+				&& (header[0] & 0xff) == 31 && (header[1] & 0xff) == 139 // Gzip magic number
+				&& header[2] == 8 // Deflate
+				&& (header[3] & 4) != 0 // FLG.FEXTRA: Has 'extra' fields
+				&& header[12] == 'B' && header[13] == 'C' // BGZF extra sub-field
+		;
+	}
+
+	/**
+	 * Wrap an input stream
+	 * @return A 'BgzfInputStream' if the stream is BGZF compressed, otherwise a (buffered) input stream
+	 */
+	public static InputStream open(InputStream in, int numThreads) throws IOException {
+		BufferedInputStream bin = new BufferedInputStream(in, MAX_BLOCK_SIZE);
+		if (isBgzf(bin)) return new BgzfInputStream(bin, numThreads);
+		return bin;
+	}
+
+	public BgzfInputStream(InputStream in) {
+		this(in, DEFAULT_THREADS);
+	}
+
+	public BgzfInputStream(InputStream in, int numThreads) {
+		this.in = in;
+		numThreads = Math.max(1, numThreads);
+		maxPending = numThreads * BLOCKS_PER_THREAD;
+		pending = new ArrayDeque<>(maxPending);
+
+		// Idle threads are terminated, so streams that are never closed do not leak threads
+		ThreadPoolExecutor tpe = new ThreadPoolExecutor(numThreads, numThreads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread t = new Thread(r, "bgzf-inflate");
+			t.setDaemon(true);
+			return t;
+		});
+		tpe.allowCoreThreadTimeOut(true);
+		executor = tpe;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return block.length - pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		pending.clear();
+		in.close();
+	}
+
+	/**
+	 * Inflate a BGZF block
+	 * @param cdata : Compressed data, CRC32 and ISIZE
+	 */
+	byte[] inflate(byte[] cdata, long blockNum) throws IOException {
+		int clen = cdata.length - GZIP_FOOTER_SIZE;
+		int crc = readInt32(cdata, clen);
+		int isize = readInt32(cdata, clen + 4);
+		if (isize < 0 || isize > MAX_BLOCK_SIZE) throw new IOException("Invalid BGZF block " + blockNum + ": Uncompressed size " + isize);
+
+		byte[] data = new byte[isize];
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		inflater.setInput(cdata, 0, clen);
+		try {
+			int len = 0;
+			while (len < isize && !inflater.finished()) {
+				int n = inflater.inflate(data, len, isize - len);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+				len += n;
+			}
+			if (len != isize) throw new IOException("Invalid BGZF block " + blockNum + ": Expected " + isize + " bytes, got " + len);
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid BGZF block " + blockNum + ": " + e.getMessage(), e);
+		}
+
+		// Check CRC
+		CRC32 crc32 = new CRC32();
+		crc32.update(data, 0, isize);
+		if ((int) crc32.getValue() != crc) throw new IOException("Invalid BGZF block " + blockNum + ": CRC error");
+
+		return data;
+	}
+
+	/**
+	 * Get next inflated block (empty blocks are skipped)
+	 * @return false if there are no more blocks
+	 */
+	boolean nextBlock() throws IOException {
+		do {
+			// Read compressed blocks and submit them
+			while (!eof && pending.size() < maxPending) {
+				byte[] cdata = readBlock();
+				if (cdata == null) eof = true;
+				else {
+					long num = blockNum++;
+					pending.add(executor.submit(() -> inflate(cdata, num)));
+				}
+			}
+
+			if (pending.isEmpty()) return false;
+
+			// Get next block (in order)
+			try {
+				block = pending.poll().get();
+				pos = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) throw (IOException) cause;
+				throw new IOException(cause);
+			}
+		} while (block.length == 0);
+
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (pos >= block.length && !nextBlock()) return -1;
+		return block[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		if (pos >= block.length && !nextBlock()) return -1;
+
+		int n = Math.min(len, block.length - pos);
+		System.arraycopy(block, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	/**
+	 * Read a compressed block from the underlying stream
+	 * @return Compressed data (including CRC32 and ISIZE), or null on end of stream
+	 */
+	byte[] readBlock() throws IOException {
+		byte[] header = new byte[GZIP_HEADER_SIZE];
+		int len = readFully(header, 0, header.length);
+		if (len == 0) return null; // End of stream
+		if (len < header.length) throw new EOFException("Truncated BGZF block " + blockNum);
+
+		if ((header[0] & 0xff) != 31 || (header[1] & 0xff) != 139 || header[2] != 8 || (header[3] & 4) == 0) throw new IOException("Invalid BGZF block " + blockNum + ": Not a gzip block with 'extra' fields");
+
+		// Parse 'extra' sub-fields, find block size
+		int xlen = readInt16(header, 10);
+		byte[] extra = new byte[xlen];
+		if (readFully(extra, 0, xlen) < xlen) throw new EOFException("Truncated BGZF block " + blockNum);
+
+		int bsize = -1;
+		for (int i = 0; i + 4 <= xlen;) {
+			int slen = readInt16(extra, i + 2);
+			if (extra[i] == 'B' && extra[i + 1] == 'C' && slen == 2) bsize = readInt16(extra, i + 4);
+			i += 4 + slen;
+		}
+		if (bsize < 0) throw new IOException("Invalid BGZF block " + blockNum + ": Missing 'BC' field");
+
+		// Read compressed data
+		int clen = bsize + 1 - GZIP_HEADER_SIZE - xlen;
+		if (clen < GZIP_FOOTER_SIZE) throw new IOException("Invalid BGZF block " + blockNum + ": Block size " + (bsize + 1));
+		byte[] cdata = new byte[clen];
+		if (readFully(cdata, 0, clen) < clen) throw new EOFException("Truncated BGZF block " + blockNum);
+
+		return cdata;
+	}
+
+	/**
+	 * Read 'len' bytes, unless the end of the stream is reached
+	 * @return Number of bytes read
+	 */
+	int readFully(byte[] b, int off, int len) throws IOException {
+		int count = 0;
+		while (count < len) {
+			int n = in.read(b, off + count, len - count);
+			if (n < 0) break;
+			count += n;
+		}
+		return count;
+	}
+
+	static int readInt16(byte[] b, int idx) {
+		return (b[idx] & 0xff) | ((b[idx + 1] & 0xff) << 8);
+	}
+
+	static int readInt32(byte[] b, int idx) {
+		return (b[idx] & 0xff) | ((b[idx + 1] & 0xff) << 8) | ((b[idx + 2] & 0xff) << 16) | ((b[idx + 3] & 0xff) << 24);
+	}
+
+}
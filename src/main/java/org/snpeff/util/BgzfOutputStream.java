@@ -0,0 +1,207 @@
+package org.snpeff.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Write a BGZF compressed file (same format as 'bgzip', so it can be indexed by 'tabix'),
+ * deflating blocks in parallel
+ *
+ * Data is split into blocks (up to 64KB), each block is compressed by a pool
+ * of threads and written in order. An empty 'end of file' block is added when
+ * the stream is closed.
+ *
+ * Reference: SAM specification, section 4.1 "The BGZF compression format"
+ *
+ * @author pcingola
+ */
+public class BgzfOutputStream extends OutputStream {
+
+	public static final int DEFAULT_THREADS = Math.max(1, Math.min(Gpr.NUM_CORES, 8));
+	public static final int BLOCKS_PER_THREAD = 4; // Number of blocks being deflated (or waiting to be written) per thread
+	public static final int MAX_UNCOMPRESSED_BLOCK_SIZE = 0xff00; // Same as 'bgzip': Compressed data always fits in a 64KB block
+	public static final int BLOCK_HEADER_SIZE = 18;
+	public static final int BLOCK_FOOTER_SIZE = 8;
+
+	// Empty block marking the end of a BGZF file
+	public static final byte[] EOF_BLOCK = { //
+			31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 66, 67, 2, 0, 27, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0 //
+	};
+
+	static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+	OutputStream out;
+	ExecutorService executor;
+	Deque<Future<byte[]>> pending; // Blocks being deflated, in order
+	int maxPending;
+	byte[] buffer = new byte[MAX_UNCOMPRESSED_BLOCK_SIZE];
+	int len; // Number of bytes in buffer
+	boolean closeOut = true; // Close underlying stream?
+	boolean finished;
+
+	/**
+	 * Compress a block
+	 */
+	static byte[] deflate(byte[] data, int len) throws IOException {
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setInput(data, 0, len);
+		deflater.finish();
+
+		byte[] block = new byte[BgzfInputStream.MAX_BLOCK_SIZE];
+		int clen = 0;
+		int max = block.length - BLOCK_HEADER_SIZE - BLOCK_FOOTER_SIZE;
+		while (!deflater.finished() && clen < max)
+			clen += deflater.deflate(block, BLOCK_HEADER_SIZE + clen, max - clen);
+		if (!deflater.finished()) throw new IOException("Compressed BGZF block too large");
+
+		// Header
+		int bsize = BLOCK_HEADER_SIZE + clen + BLOCK_FOOTER_SIZE;
+		System.arraycopy(EOF_BLOCK, 0, block, 0, 16);
+		writeInt16(block, 16, bsize - 1);
+
+		// Footer
+		CRC32 crc32 = new CRC32();
+		crc32.update(data, 0, len);
+		writeInt32(block, BLOCK_HEADER_SIZE + clen, (int) crc32.getValue());
+		writeInt32(block, BLOCK_HEADER_SIZE + clen + 4, len);
+
+		return Arrays.copyOf(block, bsize);
+	}
+
+	static void writeInt16(byte[] b, int idx, int value) {
+		b[idx] = (byte) value;
+		b[idx + 1] = (byte) (value >>> 8);
+	}
+
+	static void writeInt32(byte[] b, int idx, int value) {
+		b[idx] = (byte) value;
+		b[idx + 1] = (byte) (value >>> 8);
+		b[idx + 2] = (byte) (value >>> 16);
+		b[idx + 3] = (byte) (value >>> 24);
+	}
+
+	public BgzfOutputStream(OutputStream out) {
+		this(out, DEFAULT_THREADS);
+	}
+
+	public BgzfOutputStream(OutputStream out, int numThreads) {
+		this.out = out;
+		numThreads = Math.max(1, numThreads);
+		maxPending = numThreads * BLOCKS_PER_THREAD;
+		pending = new ArrayDeque<>(maxPending);
+
+		ThreadPoolExecutor tpe = new ThreadPoolExecutor(numThreads, numThreads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread t = new Thread(r, "bgzf-deflate");
+			t.setDaemon(true);
+			return t;
+		});
+		tpe.allowCoreThreadTimeOut(true);
+		executor = tpe;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			executor.shutdown();
+			if (closeOut) out.close();
+		}
+	}
+
+	/**
+	 * Write all pending data and the 'end of file' block, without closing the underlying stream
+	 */
+	public void finish() throws IOException {
+		if (finished) return;
+		flush();
+		out.write(EOF_BLOCK);
+		out.flush();
+		finished = true;
+	}
+
+	/**
+	 * Write all pending data.
+	 * Note: This creates a new block, so flushing often results in poor compression
+	 */
+	@Override
+	public void flush() throws IOException {
+		submit();
+		while (!pending.isEmpty())
+			writeBlock();
+		out.flush();
+	}
+
+	/**
+	 * Submit current buffer to be compressed
+	 */
+	void submit() throws IOException {
+		if (len == 0) return;
+
+		byte[] data = buffer;
+		int dataLen = len;
+		pending.add(executor.submit(() -> deflate(data, dataLen)));
+		buffer = new byte[MAX_UNCOMPRESSED_BLOCK_SIZE];
+		len = 0;
+
+		// Too many blocks pending? Write the first one
+		while (pending.size() >= maxPending)
+			writeBlock();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int length) throws IOException {
+		if (finished) throw new IOException("Stream already finished");
+		while (length > 0) {
+			int n = Math.min(length, buffer.length - len);
+			System.arraycopy(b, off, buffer, len, n);
+			len += n;
+			off += n;
+			length -= n;
+			if (len >= buffer.length) submit();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (finished) throw new IOException("Stream already finished");
+		buffer[len++] = (byte) b;
+		if (len >= buffer.length) submit();
+	}
+
+	/**
+	 * Write first pending block (wait until it is compressed)
+	 */
+	void writeBlock() throws IOException {
+		try {
+			out.write(pending.poll().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Should the underlying stream be closed when this stream is closed? (e.g. set to 'false' for STDOUT)
+	 */
+	public void setCloseOut(boolean closeOut) {
+		this.closeOut = closeOut;
+	}
+
+}
@@ -275,6 +275,15 @@ public class Gpr {
 		return "";
 	}
 
+	/**
+	 * Open a gzip compressed file.
+	 * BGZF compressed files (e.g. created by 'bgzip') are decompressed using multiple threads
+	 */
+	public static InputStream gzipInputStream(String fileName) throws IOException {
+		InputStream in = BgzfInputStream.open(new FileInputStream(fileName), BgzfInputStream.DEFAULT_THREADS);
+		return in instanceof BgzfInputStream ? in : new GZIPInputStream(in);
+	}
+
 //	/**
 //	 * Generate an evenly separated pallette of colors
 //	 * @param num	Number of colors
@@ -493,11 +502,11 @@ public class Gpr {
 
 		try {
 			if (fileName.equals("-")) {
-				return new BufferedReader(new InputStreamReader(System.in));
+				return new BufferedReader(new InputStreamReader(BgzfInputStream.open(System.in, BgzfInputStream.DEFAULT_THREADS))); // STDIN might be BGZF compressed
 			} else if (fileName.endsWith(".gz") || fileName.endsWith(".bgz") || gzip) {
 				// This is a gzip compressed file
 				File inputFile = new File(fileName);
-				if (inputFile.exists()) return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(new File(fileName)))));
+				if (inputFile.exists()) return new BufferedReader(new InputStreamReader(gzipInputStream(fileName)));
 				else throw new RuntimeException("File not found '" + inputFile.getAbsolutePath() + "'");
 			} else {
 				// Try opening the file
@@ -508,7 +517,7 @@ public class Gpr {
 					for (String ext : GZIP_EXTENTIONS) {
 						String fileNameGz = fileName + ext;
 						inputFile = new File(fileNameGz);
-						if (inputFile.exists()) return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(new File(fileNameGz)))));
+						if (inputFile.exists()) return new BufferedReader(new InputStreamReader(gzipInputStream(fileNameGz)));
 					}
 					throw new RuntimeException("File not found '" + fileName + "'");
 				}
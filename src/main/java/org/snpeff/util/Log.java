@@ -137,8 +137,9 @@ public class Log {
 
     /**
      * Show a warning message (up to MAX_ERRORS times)
+     * Note: Synchronized, since warnings can be shown from several threads
      */
-    public static void warning(ErrorWarningType warnType, String msg) {
+    public static synchronized void warning(ErrorWarningType warnType, String msg) {
         if (warnType != null) {
             if (!warnCount.containsKey(warnType)) warnCount.put(warnType, 0);
 
@@ -0,0 +1,140 @@
+package org.snpeff.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A bounded producer / workers / ordered writer pipeline:
+ *
+ *    - One 'reader' thread iterates over the input and groups items in batches
+ *    - 'numWorkers' threads process batches (i.e. apply 'worker' function to each item)
+ *    - The calling thread consumes results (i.e. 'writer') in exactly the same order as the input
+ *
+ * Batches waiting to be written are kept in a bounded queue, so the reader
+ * blocks when it gets too far ahead of the writer (back-pressure).
+ *
+ * Note: The 'worker' function is invoked concurrently, so it must be thread safe.
+ * The 'writer' is always invoked from the calling thread, so it doesn't need to be.
+ *
+ * @author pcingola
+ */
+public class OrderedPipeline<I, O> {
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final int BATCHES_PER_WORKER = 4; // Number of pending batches per worker
+
+	boolean verbose = false;
+	int batchSize = DEFAULT_BATCH_SIZE;
+	int numWorkers;
+	Function<I, O> worker;
+	Consumer<O> writer;
+
+	public OrderedPipeline(int numWorkers, Function<I, O> worker, Consumer<O> writer) {
+		this.numWorkers = Math.max(1, numWorkers);
+		this.worker = worker;
+		this.writer = writer;
+	}
+
+	/**
+	 * Apply 'worker' to all items in a batch
+	 */
+	List<O> process(List<I> batch) {
+		List<O> results = new ArrayList<>(batch.size());
+		for (I in : batch)
+			results.add(worker.apply(in));
+		return results;
+	}
+
+	/**
+	 * Read input, create batches and submit them to the workers.
+	 * An empty batch marks the end of the input
+	 */
+	void read(Iterator<I> input, ExecutorService workers, BlockingQueue<Future<List<O>>> pending) {
+		try {
+			try {
+				List<I> batch = new ArrayList<>(batchSize);
+				while (input.hasNext()) {
+					batch.add(input.next());
+					if (batch.size() >= batchSize) {
+						List<I> b = batch;
+						pending.put(workers.submit(() -> process(b)));
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+
+				// Last (partial) batch
+				if (!batch.isEmpty()) {
+					List<I> b = batch;
+					pending.put(workers.submit(() -> process(b)));
+				}
+
+				pending.put(CompletableFuture.completedFuture(new ArrayList<>()));
+			} catch (RuntimeException | Error e) {
+				// Error while reading input: Let the writer know
+				pending.put(CompletableFuture.failedFuture(e));
+			}
+		} catch (InterruptedException e) {
+			// Pipeline has been aborted
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Run the pipeline, return number of items processed
+	 */
+	public long run(Iterator<I> input) {
+		BlockingQueue<Future<List<O>>> pending = new ArrayBlockingQueue<>(numWorkers * BATCHES_PER_WORKER);
+		ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+		Thread reader = new Thread(() -> read(input, workers, pending), getClass().getSimpleName() + "-reader");
+		reader.setDaemon(true);
+		if (verbose) Log.info("Starting pipeline: " + numWorkers + " workers, batch size " + batchSize);
+
+		long count = 0;
+		try {
+			reader.start();
+
+			// Write results in input order
+			while (true) {
+				List<O> results = pending.take().get();
+				if (results.isEmpty()) break; // Empty batch: End of input
+				for (O out : results)
+					writer.accept(out);
+				count += results.size();
+			}
+
+			reader.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Pipeline interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new RuntimeException(cause);
+		} finally {
+			reader.interrupt();
+			workers.shutdownNow();
+		}
+
+		return count;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+}
@@ -0,0 +1,160 @@
+package org.snpeff.vcf;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.snpeff.interval.Chromosome;
+
+/**
+ * A 'tabix' index (i.e. 'file.vcf.gz.tbi')
+ *
+ * Only the 'linear index' is loaded: For each 16Kb window in a sequence, it
+ * has the (virtual) file offset of the first record overlapping the window.
+ * This is enough to jump to the beginning of a genomic region.
+ *
+ * Reference: "The Tabix index file format" (htslib, 'tabix.pdf')
+ *
+ * @author pcingola
+ */
+public class TabixIndex {
+
+	public static final String EXTENSION = ".tbi";
+	public static final int LINEAR_INDEX_SHIFT = 14; // Windows are 16Kb
+	public static final byte[] MAGIC = { 'T', 'B', 'I', 1 };
+
+	String fileName;
+	List<String> chromos; // Sequence names, in the same order as the file
+	Map<String, long[]> linearIndexByChr; // Linear index, by sequence (simple) name
+
+	/**
+	 * Index file name for a data file
+	 */
+	public static String indexFileName(String fileName) {
+		return fileName + EXTENSION;
+	}
+
+	public TabixIndex(String fileName) {
+		this.fileName = fileName;
+		chromos = new ArrayList<>();
+		linearIndexByChr = new HashMap<>();
+	}
+
+	/**
+	 * Sequence names, in the same order as they appear in the data file
+	 */
+	public List<String> getChromos() {
+		return chromos;
+	}
+
+	/**
+	 * Upper bound of the last position in a sequence (one-based), according to the linear index
+	 * @return 0 if 'chr' is not in the index
+	 */
+	public int getMaxPos(String chr) {
+		long[] ioff = linearIndexByChr.get(Chromosome.simpleName(chr));
+		if (ioff == null) return 0;
+		return ioff.length << LINEAR_INDEX_SHIFT;
+	}
+
+	/**
+	 * Load index file
+	 */
+	public void load() {
+		try (DataInputStream in = new DataInputStream(new GZIPInputStream(new FileInputStream(fileName)))) {
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			for (int i = 0; i < MAGIC.length; i++)
+				if (magic[i] != MAGIC[i]) throw new RuntimeException("Invalid tabix index file '" + fileName + "'");
+
+			int nRef = readInt32(in);
+			for (int i = 0; i < 6; i++) // Skip: format, col_seq, col_beg, col_end, meta, skip
+				readInt32(in);
+
+			// Sequence names (NUL terminated)
+			byte[] names = new byte[readInt32(in)];
+			in.readFully(names);
+			for (int i = 0, start = 0; i < names.length; i++) {
+				if (names[i] == 0) {
+					chromos.add(new String(names, start, i - start));
+					start = i + 1;
+				}
+			}
+			if (chromos.size() != nRef) throw new RuntimeException("Invalid tabix index file '" + fileName + "': Expected " + nRef + " sequence names, found " + chromos.size());
+
+			// Indexes
+			for (String chr : chromos) {
+				// Binning index: Not used
+				int nBin = readInt32(in);
+				for (int i = 0; i < nBin; i++) {
+					readInt32(in); // Bin
+					int nChunk = readInt32(in);
+					skip(in, 16L * nChunk);
+				}
+
+				// Linear index
+				long[] ioff = new long[readInt32(in)];
+				for (int i = 0; i < ioff.length; i++)
+					ioff[i] = readInt64(in);
+				linearIndexByChr.put(Chromosome.simpleName(chr), ioff);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading tabix index file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Virtual file offset where records overlapping 'chr:start' may begin.
+	 * Records before 'start' may be found after this offset (they should be skipped)
+	 *
+	 * @param start : Start coordinate (one-based)
+	 * @return Virtual file offset or -1 if there are no records at or after 'chr:start'
+	 */
+	public long offset(String chr, int start) {
+		long[] ioff = linearIndexByChr.get(Chromosome.simpleName(chr));
+		if (ioff == null) return -1;
+
+		int window = Math.max(0, start - 1) >> LINEAR_INDEX_SHIFT;
+		if (window >= ioff.length) return -1;
+
+		// Empty windows may have a zero offset (older 'tabix' versions): Use the previous non-zero window
+		for (int i = window; i >= 0; i--)
+			if (ioff[i] != 0) return ioff[i];
+		return 0;
+	}
+
+	int readInt32(DataInputStream in) throws IOException {
+		return Integer.reverseBytes(in.readInt());
+	}
+
+	long readInt64(DataInputStream in) throws IOException {
+		return Long.reverseBytes(in.readLong());
+	}
+
+	void skip(InputStream in, long len) throws IOException {
+		while (len > 0) {
+			long n = in.skip(len);
+			if (n <= 0) {
+				if (in.read() < 0) throw new EOFException("Unexpected end of tabix index file '" + fileName + "'");
+				n = 1;
+			}
+			len -= n;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (String chr : chromos)
+			sb.append(chr + "\twindows: " + linearIndexByChr.get(Chromosome.simpleName(chr)).length + "\n");
+		return sb.toString();
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.snpeff.vcf;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -122,6 +124,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	protected String formatFields[];
 	protected String genotypeFields[]; // Raw fields from VCF file
 	protected String genotypeFieldsStr; // Raw fields from VCF file (one string, tab separated)
+	protected int genotypeFieldsStart = -1; // Genotype fields start at this position in 'line' (they are not copied unless needed). Negative if there are no genotype fields
 	protected byte genotypeScores[];
 	protected HashMap<String, String> info;
 	protected String infoStr = "";
@@ -197,6 +200,33 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return !invalid;
 	}
 
+	/**
+	 * Split 'str' (starting at position 'fromIndex') using separator 'sep'
+	 * Same as 'str.substring(fromIndex).split(sep)', but no intermediate strings
+	 * (or regular expressions) are created. Trailing empty fields are removed.
+	 */
+	public static String[] split(String str, int fromIndex, char sep) {
+		// Remove trailing separators
+		int end = str.length();
+		while ((end > fromIndex) && (str.charAt(end - 1) == sep))
+			end--;
+		if (end == fromIndex) return end < str.length() ? EMPTY_STRING_ARRAY : new String[] { "" };
+
+		// Count fields
+		int count = 1;
+		for (int i = fromIndex; i < end; i++)
+			if (str.charAt(i) == sep) count++;
+
+		// Split
+		String fields[] = new String[count];
+		for (int i = 0, idx = fromIndex; i < count; i++) {
+			int next = (i < count - 1) ? str.indexOf(sep, idx) : end;
+			fields[i] = str.substring(idx, next);
+			idx = next + 1;
+		}
+		return fields;
+	}
+
 	/**
 	 * Pad with 'N' characters up length 'len'
 	 */
@@ -379,20 +409,17 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 */
 	public Boolean calcHetero() {
 		// No genotyping information? => Use number of ALT field
-		if (genotypeFieldsStr == null) return isMultiallelic();
+		if (!hasGenotypeFields()) return isMultiallelic();
 
 		Boolean isHetero = null;
 
 		// No genotype fields => Parse fields (we only parse them if there is only one GT field)
 		if (genotypeFields == null) {
-
-			// Are there more than two tabs? (i.e. more than one format field + one genotype field)
-			int countFields, fromIndex;
-			for (countFields = 0, fromIndex = 0; (fromIndex >= 0) && (countFields < 1); countFields++, fromIndex++)
-				fromIndex = genotypeFieldsStr.indexOf('\t', fromIndex);
+			// Any tabs? (i.e. more than one genotype field)
+			boolean single = (genotypeFieldsStr != null ? genotypeFieldsStr.indexOf('\t') : line.indexOf('\t', genotypeFieldsStart)) < 0;
 
 			// OK only one genotype field => Parse it in order to extract homo info.
-			if (countFields == 1) parseGenotypes();
+			if (single) parseGenotypes();
 		}
 
 		// OK only one genotype field => calculate if it is heterozygous
@@ -593,7 +620,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	public String[] getFormatFields() {
 		if (formatFields == null) {
 			if (format == null) formatFields = new String[0];
-			else formatFields = format.split(":");
+			else formatFields = split(format, 0, ':');
 		}
 		return formatFields;
 	}
@@ -878,8 +905,15 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return vcfFileIterator.getVcfHeader().getVcfHeaderInfo(filedName) != null;
 	}
 
+	/**
+	 * Do we have raw (i.e. not parsed) genotype fields?
+	 */
+	boolean hasGenotypeFields() {
+		return (genotypeFieldsStr != null) || (genotypeFieldsStart >= 0);
+	}
+
 	public boolean hasGenotypes() {
-		return ((vcfGenotypes != null) && (vcfGenotypes.size() > 0)) || (genotypeFieldsStr != null);
+		return ((vcfGenotypes != null) && (vcfGenotypes.size() > 0)) || hasGenotypeFields();
 	}
 
 	public boolean hasInfo(String infoFieldName) {
@@ -1048,8 +1082,23 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Parse a 'line' from a 'vcfFileIterator'
 	 */
 	public void parse() {
-		// Parse line
-		String fields[] = line.split("\t", 10); // Only pare the fist 9 fields (i.e. do not parse genotypes)
+		// Parse line: Only split the fist 9 fields (i.e. do not parse genotypes, only record where they start)
+		String fields[] = new String[9];
+		int numFields = 0;
+		genotypeFieldsStart = -1;
+		genotypeFieldsStr = null;
+		for (int idx = 0; numFields < fields.length;) {
+			int tab = line.indexOf('\t', idx);
+			if (tab < 0) {
+				fields[numFields++] = line.substring(idx);
+				break;
+			}
+
+			fields[numFields++] = line.substring(idx, tab);
+			idx = tab + 1;
+			if (numFields == fields.length) genotypeFieldsStart = idx;
+		}
+		if (numFields < fields.length) fields = Arrays.copyOf(fields, numFields);
 
 		// Is line OK?
 		if (fields.length >= 4) {
@@ -1091,12 +1140,9 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			// But INFO fields can affect Start & End coordinates, for example in cases of imprecise variants
 			this.end = parseEnd();
 
-			// Genotype format
+			// Genotype format. Genotype fields are parsed lazily
 			format = null;
 			if (fields.length > 8) format = vcfFileIterator.readField(fields, 8); // This field is optional, So it can be null or EMPTY ('.')
-
-			// Add genotype fields (lazy parse)
-			if (fields.length > 9) genotypeFieldsStr = fields[9];
 		} else throw new RuntimeException("Impropper VCF entry: Not enough fields (missing tab separators?).\n" + line);
 	}
 
@@ -1242,10 +1288,10 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			vcfGenotypes = new ArrayList<>();
 
 			// No genotype string? => Nothing to do
-			if (genotypeFieldsStr == null) return;
+			if (!hasGenotypeFields()) return;
 
 			// Split genotypes and parse them
-			genotypeFields = genotypeFieldsStr.split("\t");
+			genotypeFields = genotypeFieldsStr != null ? split(genotypeFieldsStr, 0, '\t') : split(line, genotypeFieldsStart, '\t');
 			for (int i = 0; i < genotypeFields.length; i++) {
 				String gen = genotypeFields[i];
 				if (gen.equals(VcfFileIterator.MISSING)) gen = "";
@@ -1260,7 +1306,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	void parseInfo() {
 		// Parse info entries
 		info = new HashMap<>();
-		for (String inf : infoStr.split(SUB_FIELD_SEP)) {
+		for (String inf : split(infoStr, 0, ';')) {
 			String vp[] = inf.split("=", 2);
 
 			if (vp.length > 1) info.put(vp[0], vp[1]); // Key = Value pair
@@ -1320,26 +1366,50 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	}
 
+	/**
+	 * Find an INFO entry (i.e. 'key=value' or 'key' for flags)
+	 * @return Position where the entry starts in 'infoStr' (searching from 'fromIndex'), -1 if not found
+	 */
+	int infoKeyIndex(String key, int fromIndex) {
+		if (infoStr == null || key.isEmpty()) return -1;
+
+		for (int idx = fromIndex; (idx = infoStr.indexOf(key, idx)) >= 0; idx++) {
+			// Entry must start at the beginning of the field or after a separator
+			if (idx > 0 && infoStr.charAt(idx - 1) != ';') continue;
+
+			// Entry must end after 'key' or have a value
+			int end = idx + key.length();
+			if (end == infoStr.length() || infoStr.charAt(end) == '=' || infoStr.charAt(end) == ';') return idx;
+		}
+		return -1;
+	}
+
 	/**
 	 * Remove INFO field
 	 */
 	public void removeInfo(String key) {
 		// Not in info field? => Nothing to do
-		if (!infoStr.contains(key)) return;
-
-		StringBuilder infoStrNew = new StringBuilder();
-		for (String infoEntry : infoStr.split(SUB_FIELD_SEP)) {
-			String keyValuePair[] = infoEntry.split("=", 2);
+		if (infoKeyIndex(key, 0) < 0) return;
 
-			// Not the key we want to remove? => Add it
-			if (!keyValuePair[0].equals(key)) {
-				if (infoStrNew.length() > 0) infoStrNew.append(';');
-				infoStrNew.append(infoEntry);
-			}
+		StringBuilder infoStrNew = new StringBuilder(infoStr.length());
+		int idx = 0;
+		for (int keyIdx; (keyIdx = infoKeyIndex(key, idx)) >= 0;) {
+			// Copy entries before 'key', skip 'key' entry
+			infoStrNew.append(infoStr, idx, keyIdx);
+			int end = infoStr.indexOf(';', keyIdx);
+			idx = end < 0 ? infoStr.length() : end + 1;
 		}
+		infoStrNew.append(infoStr, idx, infoStr.length());
+
+		// Remove separators left at the beginning or end
+		int start = 0, end = infoStrNew.length();
+		while (start < end && infoStrNew.charAt(start) == ';')
+			start++;
+		while (end > start && infoStrNew.charAt(end - 1) == ';')
+			end--;
 
 		// Create new string
-		infoStr = infoStrNew.toString();
+		infoStr = infoStrNew.substring(start, end);
 
 		// Update info hash
 		if (info != null) info.remove(key);
@@ -1389,6 +1459,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	public void setGenotypeStr(String genotypeFieldsStr) {
 		this.genotypeFieldsStr = genotypeFieldsStr;
+		genotypeFieldsStart = -1;
 	}
 
 	public void setLineNum(int lineNum) {
@@ -1407,29 +1478,27 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 				+ "/" + getAltsStr();
 	}
 
+	/**
+	 * Are there genotype fields that have not been parsed (i.e. raw strings)?
+	 */
+	boolean hasRawGenotypes() {
+		return (format != null) //
+				&& ((vcfGenotypes == null) || vcfGenotypes.isEmpty()) //
+				&& ((genotypeFieldsStr != null) || (genotypeFieldsStart >= 0));
+	}
+
 	@Override
 	public String toString() {
-		boolean deleteLastTab = true;
-
-		StringBuilder sb = new StringBuilder(toStringNoGt());
-		sb.append("\t");
-
-		// Is there any 'format' field? It is optional, so it could be 'null'
-		if (format != null) {
-			sb.append((format.isEmpty() ? "." : format) + "\t");
-
-			// If we have vcfGenotypes parsed, use them
-			if ((vcfGenotypes != null) && !vcfGenotypes.isEmpty()) {
-				for (VcfGenotype vg : vcfGenotypes)
-					sb.append(vg + "\t");
-			} else if (genotypeFieldsStr != null) { // If vcfGenotypes have not been parsed, use raw fields
-				sb.append(genotypeFieldsStr);
-				deleteLastTab = false;
-			}
+		int gtLen = genotypeFieldsStr != null ? genotypeFieldsStr.length() : (genotypeFieldsStart >= 0 ? line.length() - genotypeFieldsStart : 0);
+		StringBuilder sb = new StringBuilder(128 + (infoStr != null ? infoStr.length() : 0) + gtLen);
+		toStringNoRawGt(sb);
+
+		// If vcfGenotypes have not been parsed, use raw fields
+		if (hasRawGenotypes()) {
+			if (genotypeFieldsStr != null) sb.append(genotypeFieldsStr);
+			else sb.append(line, genotypeFieldsStart, line.length()); // Raw fields, copied directly from the original line
 		}
 
-		if (deleteLastTab) sb.deleteCharAt(sb.length() - 1); // Delete last tab
-
 		return sb.toString();
 	}
 
@@ -1437,6 +1506,15 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Show only first eight fields (no genotype entries)
 	 */
 	public String toStringNoGt() {
+		StringBuilder sb = new StringBuilder(128 + (infoStr != null ? infoStr.length() : 0));
+		toStringNoGt(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Append first eight fields (no genotype entries)
+	 */
+	void toStringNoGt(StringBuilder sb) {
 		// Use original chromosome name or named from chromosome object
 		String chr = null;
 		if (chromosomeName != null) chr = chromosomeName;
@@ -1444,22 +1522,54 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		else if (parent != null) chr = getChromosomeName();
 		else chr = ".";
 
-		StringBuilder sb = new StringBuilder(chr //
-				+ "\t" + (start + 1) //
-				+ "\t" + (id.isEmpty() ? "." : id) //
-		);
+		sb.append(chr);
+		sb.append('\t').append(start + 1);
+		sb.append('\t').append(id.isEmpty() ? "." : id);
 
 		// REF and ALT
-		String refStr = (ref == null || ref.isEmpty() ? "." : ref);
-		sb.append("\t" + refStr);
-		sb.append("\t" + getAltsStr());
+		sb.append('\t').append(ref == null || ref.isEmpty() ? "." : ref);
+		sb.append('\t').append(getAltsStr());
 
 		// Quality, filter, info, format...
-		sb.append("\t" + (quality != null ? quality + "" : "."));
-		sb.append("\t" + ((filter == null) || filter.isEmpty() ? "." : filter));
-		sb.append("\t" + ((infoStr == null) || infoStr.isEmpty() ? "." : infoStr));
+		sb.append('\t');
+		if (quality != null) sb.append(quality.doubleValue());
+		else sb.append('.');
+		sb.append('\t').append((filter == null) || filter.isEmpty() ? "." : filter);
+		sb.append('\t').append((infoStr == null) || infoStr.isEmpty() ? "." : infoStr);
+	}
 
-		return sb.toString();
+	/**
+	 * Append all fields, except raw genotype fields (see 'hasRawGenotypes').
+	 * If there are raw genotype fields, a tab is appended (so they can be appended next)
+	 */
+	void toStringNoRawGt(StringBuilder sb) {
+		toStringNoGt(sb);
+
+		// Is there any 'format' field? It is optional, so it could be 'null'
+		if (format == null) return;
+		sb.append('\t').append(format.isEmpty() ? "." : format);
+
+		if ((vcfGenotypes != null) && !vcfGenotypes.isEmpty()) {
+			// If we have vcfGenotypes parsed, use them
+			for (VcfGenotype vg : vcfGenotypes)
+				sb.append('\t').append(vg);
+		} else if (hasRawGenotypes()) sb.append('\t');
+	}
+
+	/**
+	 * Write this entry (same as 'toString()') without creating a string for the whole line.
+	 * Raw genotype fields are written directly from the original line, this is
+	 * much faster for VCF files having many samples.
+	 */
+	public void write(Writer out) throws IOException {
+		StringBuilder sb = new StringBuilder(128 + (infoStr != null ? infoStr.length() : 0));
+		toStringNoRawGt(sb);
+		out.append(sb);
+
+		if (hasRawGenotypes()) {
+			if (genotypeFieldsStr != null) out.write(genotypeFieldsStr);
+			else out.write(line, genotypeFieldsStart, line.length() - genotypeFieldsStart);
+		}
 	}
 
 	/**
@@ -19,6 +19,7 @@ public class VcfGenotype {
 	int genotype[];
 	int ploidy;
 	boolean phased;
+	boolean gtParsed; // Has the GT field been parsed?
 	double gQuality;
 	int depth;
 	int genotypeLikelihoodPhred[];
@@ -91,7 +92,7 @@ public class VcfGenotype {
 	 * @return
 	 */
 	public int[] getGenotype() {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 		return genotype;
 	}
 
@@ -105,7 +106,7 @@ public class VcfGenotype {
 	 * @return
 	 */
 	public String getGenotype(int idx) {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		if (genotype == null) return ""; // Missing genotype
 
@@ -127,7 +128,7 @@ public class VcfGenotype {
 	 * @return
 	 */
 	public int getGenotypeCode() {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		// No genotype info?
 		if (genotype == null) return -1; // Missing genotype
@@ -150,7 +151,7 @@ public class VcfGenotype {
 	 * @return
 	 */
 	public int getGenotypeCodeIgnoreMissing() {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		// No genotype info?
 		if (genotype == null) return -1;
@@ -167,7 +168,7 @@ public class VcfGenotype {
 	 * @return
 	 */
 	public String getGenotypeStr() {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		StringBuilder sb = new StringBuilder();
 
@@ -225,7 +226,7 @@ public class VcfGenotype {
 	 * Is this genotype homozygous? (either REF or ALT)
 	 */
 	public boolean isHomozygous() {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		if (genotype != null) {
 			// Any genotype is different? => not homozygous
@@ -242,7 +243,7 @@ public class VcfGenotype {
 	 * Is this genotype homozygous ALT?
 	 */
 	public boolean isHomozygousAlt() {
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		if (genotype != null) {
 			// Any genotype is different? => not homozygous
@@ -260,7 +261,7 @@ public class VcfGenotype {
 	 * @return
 	 */
 	public boolean isMissing() {
-		parseFields();
+		parseGenotype();
 
 		// The field is missing?
 		if (genotype == null) return true;
@@ -273,7 +274,7 @@ public class VcfGenotype {
 	}
 
 	public boolean isPhased() {
-		parseFields();
+		parseGenotype();
 		return phased;
 	}
 
@@ -283,7 +284,7 @@ public class VcfGenotype {
 	 */
 	public boolean isRef() {
 		if (values.isEmpty()) return false;
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		if (genotype != null) {
 			// Any genotype is different than REF? => This is a variant
@@ -301,7 +302,7 @@ public class VcfGenotype {
 	 */
 	public boolean isVariant() {
 		if (values.isEmpty()) return false;
-		parseFields(); // Lazy parse
+		parseGenotype(); // Lazy parse
 
 		if (genotype != null) {
 			// Any genotype is different than REF? => This is a variant
@@ -326,7 +327,7 @@ public class VcfGenotype {
 			if (values.isEmpty()) return; // Values are missing? Nothing to do
 
 			String format[] = vcfEntry.getFormatFields();
-			String fieldValues[] = values.split(":");
+			String fieldValues[] = VcfEntry.split(values, 0, ':');
 
 			int min = Math.min(fieldValues.length, format.length);
 
@@ -341,40 +342,112 @@ public class VcfGenotype {
 			}
 
 		} catch (Exception e) {
-			throw new RuntimeException("Error parsing fields on line:" //
-					+ "\n\tFormat   : '" + vcfEntry.getFormat() + "'" //
-					+ "\n\tValues   : '" + values + "'" //
-					+ "\n\tVcf line : " + vcfEntry //
-					, e);
+			throw parseError(e);
 		}
 	}
 
+	/**
+	 * Parse only the GT field (without splitting all other fields)
+	 */
+	void parseGenotype() {
+		if (gtParsed || (fields != null)) return;
+		gtParsed = true;
+		genotype = null;
+		phased = false;
+
+		if (values.isEmpty()) return; // Values are missing? Nothing to do
+
+		try {
+			// Find GT field's index
+			String format[] = vcfEntry.getFormatFields();
+			int gtIdx;
+			for (gtIdx = 0; gtIdx < format.length; gtIdx++)
+				if (format[gtIdx].equals("GT")) break;
+			if (gtIdx >= format.length) return; // No GT field
+
+			// Find value's start and end
+			int start = 0;
+			for (int i = 0; i < gtIdx; i++) {
+				start = values.indexOf(':', start) + 1;
+				if (start <= 0) return; // Value not present
+			}
+			int end = values.indexOf(':', start);
+			if (end < 0) end = values.length();
+
+			parseGt(values, start, end);
+		} catch (Exception e) {
+			throw parseError(e);
+		}
+	}
+
+	RuntimeException parseError(Exception e) {
+		return new RuntimeException("Error parsing fields on line:" //
+				+ "\n\tFormat   : '" + vcfEntry.getFormat() + "'" //
+				+ "\n\tValues   : '" + values + "'" //
+				+ "\n\tVcf line : " + vcfEntry //
+				, e);
+	}
+
 	/**
 	 * Parse GT field
 	 */
 	void parseGt(String value) {
-		String gtStr[] = null;
-		if (value.indexOf('|') >= 0) {
-			gtStr = value.split("\\|");
-			phased = true; // Phased
-		} else {
-			gtStr = value.split("/");
-			phased = false; // Not phased
+		parseGt(value, 0, value.length());
+	}
+
+	/**
+	 * Parse GT field: 'value.substring(start, end)'
+	 * Alleles are parsed in place, i.e. no strings are created
+	 */
+	void parseGt(String value, int start, int end) {
+		int pipe = value.indexOf('|', start);
+		phased = (pipe >= 0) && (pipe < end);
+		char sep = phased ? '|' : '/';
+
+		// Trailing empty alleles are ignored (same as 'split')
+		int endOri = end;
+		while ((end > start) && (value.charAt(end - 1) == sep))
+			end--;
+		if ((end == start) && (endOri > start)) {
+			genotype = new int[0];
+			return;
 		}
 
-		// Create fields
-		genotype = new int[gtStr.length];
-		for (int i = 0; i < genotype.length; i++)
-			if (gtStr[i].isEmpty() || gtStr[i].equals(".")) genotype[i] = -1; // Genotype '-1' means missing values
-			else {
-				genotype[i] = Gpr.parseIntSafe(gtStr[i]);
-
-				// Sanity check
-				if ((genotype[i] - 1) >= vcfEntry.getAlts().length) {
-					boolean plural = vcfEntry.getAlts().length > 1;
-					throw new RuntimeException("Error: Bad genotype field '" + value + "'. Genotype says '" + genotype[i] + "' but there " + (plural ? "are" : "is") + " only '" + vcfEntry.getAlts().length + "' allele" + (plural ? "s" : "") + " ('" + vcfEntry.getAltsStr() + "').");
-				}
+		// Count alleles
+		int count = 1;
+		for (int i = start; i < end; i++)
+			if (value.charAt(i) == sep) count++;
+
+		// Parse each allele
+		genotype = new int[count];
+		for (int i = 0, idx = start; i < count; i++) {
+			int next = (i < count - 1) ? value.indexOf(sep, idx) : end;
+			genotype[i] = parseAllele(value, idx, next);
+
+			// Sanity check
+			if ((genotype[i] - 1) >= vcfEntry.getAlts().length) {
+				boolean plural = vcfEntry.getAlts().length > 1;
+				throw new RuntimeException("Error: Bad genotype field '" + value.substring(start, endOri) + "'. Genotype says '" + genotype[i] + "' but there " + (plural ? "are" : "is") + " only '" + vcfEntry.getAlts().length + "' allele" + (plural ? "s" : "") + " ('" + vcfEntry.getAltsStr() + "').");
 			}
+
+			idx = next + 1;
+		}
+	}
+
+	/**
+	 * Parse allele number 'value.substring(start, end)'
+	 * @return Allele number or '-1' if missing (i.e. empty or '.')
+	 */
+	int parseAllele(String value, int start, int end) {
+		if ((end == start) || ((end - start == 1) && value.charAt(start) == '.')) return -1; // Genotype '-1' means missing values
+
+		int num = 0;
+		for (int i = start; i < end; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9' || (i - start) >= 9) return Gpr.parseIntSafe(value.substring(start, end)); // Not a simple number, use a 'safe' parse
+			num = num * 10 + (c - '0');
+		}
+		return num;
 	}
 
 	/**
@@ -419,6 +492,7 @@ public class VcfGenotype {
 
 		// Invalidate previous parsing
 		fields = null;
+		gtParsed = false;
 	}
 
 	/**
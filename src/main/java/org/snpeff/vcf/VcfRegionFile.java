@@ -0,0 +1,260 @@
+package org.snpeff.vcf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.snpeff.interval.Chromosome;
+import org.snpeff.util.BgzfInputStream;
+import org.snpeff.util.Gpr;
+
+/**
+ * Random access to genomic regions of a (position sorted) VCF file.
+ * This is used to split a VCF file into 'shards' that can be annotated independently.
+ *
+ * Files can be either:
+ *   - BGZF compressed (i.e. 'bgzip'), indexed by 'tabix' (file.vcf.gz.tbi)
+ *   - Uncompressed, indexed on the fly using 'FileIndexChrPos'
+ *
+ * @author pcingola
+ */
+public class VcfRegionFile {
+
+	String fileName;
+	boolean bgzf;
+	String header; // VCF header lines
+	TabixIndex tabixIndex; // Index for BGZF files
+	FileIndexChrPos fileIndex; // Index for uncompressed files
+
+	/**
+	 * Reader for a genomic region: Returns the VCF header followed by all VCF lines within the region
+	 */
+	static class RegionReader extends Reader {
+
+		BufferedReader in;
+		VcfShard shard;
+		String chrSimple;
+		boolean seenChr; // Have we seen any line from 'shard.chr'?
+		String lastChr; // Last chromosome name (not simplified) and whether it matches shard.chr
+		boolean lastChrMatches;
+		String buffer; // Current chunk of data (header or line)
+		int pos; // Position in 'buffer'
+
+		RegionReader(String header, BufferedReader in, VcfShard shard, boolean seenChr) {
+			this.in = in;
+			this.shard = shard;
+			this.seenChr = seenChr;
+			chrSimple = Chromosome.simpleName(shard.getChr());
+			buffer = header;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (in != null) in.close();
+		}
+
+		/**
+		 * Next line within the region
+		 * @return null if there are no more lines in the region
+		 */
+		String nextLine() throws IOException {
+			if (in == null) return null;
+
+			for (String line; (line = in.readLine()) != null;) {
+				if (line.isEmpty() || line.charAt(0) == '#') continue;
+
+				int tab1 = line.indexOf('\t');
+				if (tab1 < 0) continue;
+				int tab2 = line.indexOf('\t', tab1 + 1);
+				if (tab2 < 0) tab2 = line.length();
+
+				// Same chromosome?
+				String chr = line.substring(0, tab1);
+				if (!chr.equals(lastChr)) {
+					lastChr = chr;
+					lastChrMatches = Chromosome.simpleName(chr).equals(chrSimple);
+				}
+				if (!lastChrMatches) {
+					if (seenChr) break; // Past the end of the chromosome
+					continue;
+				}
+				seenChr = true;
+
+				int linePos = Gpr.parseIntSafe(line.substring(tab1 + 1, tab2));
+				if (linePos > shard.getEnd()) break; // Past the end of the region
+				if (linePos >= shard.getStart()) return line;
+			}
+
+			// No more lines in this region
+			in.close();
+			in = null;
+			return null;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			while (buffer == null || pos >= buffer.length()) {
+				String line = nextLine();
+				if (line == null) return -1;
+				buffer = line + "\n";
+				pos = 0;
+			}
+
+			int n = Math.min(len, buffer.length() - pos);
+			buffer.getChars(pos, pos + n, cbuf, off);
+			pos += n;
+			return n;
+		}
+	}
+
+	public VcfRegionFile(String fileName) {
+		this.fileName = fileName;
+		open();
+	}
+
+	/**
+	 * Close index
+	 */
+	public void close() {
+		if (fileIndex != null) fileIndex.close();
+	}
+
+	/**
+	 * Chromosomes in the file, in the same order as the file
+	 */
+	public List<String> getChromos() {
+		if (tabixIndex != null) return tabixIndex.getChromos();
+
+		List<String> chromos = new ArrayList<>(fileIndex.getChromos());
+		chromos.sort(Comparator.comparingLong(chr -> fileIndex.getStart(chr)));
+		return chromos;
+	}
+
+	/**
+	 * Last position in a chromosome (one-based). Note: This is an upper bound for 'tabix' indexed files
+	 */
+	public int getMaxPos(String chr) {
+		if (tabixIndex != null) return tabixIndex.getMaxPos(chr);
+
+		synchronized (fileIndex) {
+			long end = fileIndex.getEnd(chr);
+			if (end < 0) return 0;
+			return fileIndex.pos(fileIndex.getLine(end).line) + FileIndexChrPos.POS_OFFSET;
+		}
+	}
+
+	/**
+	 * VCF header lines (read from the beginning of the file)
+	 */
+	public synchronized String getHeader() {
+		if (header == null) {
+			StringBuilder sb = new StringBuilder();
+			try (BufferedReader reader = Gpr.reader(fileName)) {
+				for (String line; (line = reader.readLine()) != null && line.startsWith("#");)
+					sb.append(line).append('\n');
+			} catch (IOException e) {
+				throw new RuntimeException("Error reading header from file '" + fileName + "'", e);
+			}
+			header = sb.toString();
+		}
+		return header;
+	}
+
+	public boolean isBgzf() {
+		return bgzf;
+	}
+
+	/**
+	 * Open file and load (or create) index
+	 */
+	void open() {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+			bgzf = BgzfInputStream.isBgzf(in);
+			in.mark(2);
+			boolean gzip = (in.read() == 31) && (in.read() == 139);
+			if (gzip && !bgzf) throw new RuntimeException("File '" + fileName + "' is compressed, but not using BGZF (use 'bgzip' and 'tabix' to compress and index it)");
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+
+		if (bgzf) {
+			String indexFile = TabixIndex.indexFileName(fileName);
+			if (!Gpr.canRead(indexFile)) throw new RuntimeException("Cannot read tabix index file '" + indexFile + "' (you can create it using 'tabix -p vcf " + fileName + "')");
+			tabixIndex = new TabixIndex(indexFile);
+			tabixIndex.load();
+		} else {
+			fileIndex = new FileIndexChrPos(fileName);
+			fileIndex.open();
+			fileIndex.index();
+		}
+	}
+
+	/**
+	 * Open a reader for a genomic region: It returns the VCF header followed by all
+	 * VCF lines within the region, so it can be used to create a 'VcfFileIterator'
+	 *
+	 * @param numThreads : Number of threads used to decompress BGZF files
+	 */
+	public BufferedReader reader(VcfShard shard, int numThreads) {
+		try {
+			BufferedReader in = null;
+			boolean seenChr = true;
+
+			if (bgzf) {
+				long voffset = tabixIndex.offset(shard.getChr(), shard.getStart());
+				if (voffset >= 0) {
+					// Virtual offset: Compressed block position and offset within uncompressed block
+					FileInputStream fis = new FileInputStream(fileName);
+					fis.getChannel().position(voffset >>> 16);
+					InputStream bin = new BgzfInputStream(new BufferedInputStream(fis, BgzfInputStream.MAX_BLOCK_SIZE), numThreads);
+					bin.readNBytes((int) (voffset & 0xffff));
+					in = new BufferedReader(new InputStreamReader(bin));
+					seenChr = (voffset != 0); // Scanning from the beginning of the file: Other chromosomes may come first
+				}
+			} else {
+				long offset = -1;
+				synchronized (fileIndex) {
+					if (fileIndex.getStart(shard.getChr()) >= 0) offset = fileIndex.find(shard.getChr(), shard.getStart() - FileIndexChrPos.POS_OFFSET, true);
+				}
+				if (offset >= 0) {
+					FileInputStream fis = new FileInputStream(fileName);
+					fis.getChannel().position(offset);
+					in = new BufferedReader(new InputStreamReader(fis));
+				}
+			}
+
+			return new BufferedReader(new RegionReader(getHeader(), in, shard, seenChr));
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading region '" + shard + "' from file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Split the file into shards of (up to) 'shardSize' bases
+	 */
+	public List<VcfShard> shards(int shardSize) {
+		if (shardSize <= 0) throw new RuntimeException("Invalid shard size " + shardSize);
+
+		List<VcfShard> shards = new ArrayList<>();
+		for (String chr : getChromos()) {
+			int maxPos = getMaxPos(chr);
+			for (long start = 1; start <= maxPos; start += shardSize)
+				shards.add(new VcfShard(chr, (int) start, (int) Math.min(start + shardSize - 1, maxPos)));
+		}
+		return shards;
+	}
+
+	@Override
+	public String toString() {
+		return fileName + (bgzf ? " (BGZF, tabix index)" : "");
+	}
+
+}
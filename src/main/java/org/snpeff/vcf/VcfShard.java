@@ -0,0 +1,76 @@
+package org.snpeff.vcf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.snpeff.util.Gpr;
+
+/**
+ * A genomic region used to split (shard) a VCF file, e.g. 'chr1:1-10000000'
+ * Coordinates are one-based, inclusive (same as 'tabix' and 'samtools' regions)
+ *
+ * @author pcingola
+ */
+public class VcfShard {
+
+	String chr;
+	int start, end;
+
+	/**
+	 * Parse a region, formatted either as 'chr:start-end', 'chr' or a BED line ('chr \t start \t end', zero-based start)
+	 */
+	public static VcfShard parse(String region) {
+		region = region.trim();
+		String[] fields = region.split("\t");
+		if (fields.length >= 3) return new VcfShard(fields[0], Gpr.parseIntSafe(fields[1]) + 1, Gpr.parseIntSafe(fields[2]));
+
+		int idx = region.lastIndexOf(':');
+		if (idx < 0) return new VcfShard(region, 1, Integer.MAX_VALUE);
+
+		String chr = region.substring(0, idx);
+		String[] startEnd = region.substring(idx + 1).replace(",", "").split("-");
+		int start = Gpr.parseIntSafe(startEnd[0]);
+		int end = startEnd.length > 1 ? Gpr.parseIntSafe(startEnd[1]) : Integer.MAX_VALUE;
+		if (start <= 0 || end < start) throw new RuntimeException("Invalid region '" + region + "'");
+		return new VcfShard(chr, start, end);
+	}
+
+	/**
+	 * Read a list of regions from a file (one per line). Empty lines and comments ('#') are ignored
+	 */
+	public static List<VcfShard> readList(String fileName) {
+		String lines = Gpr.readFile(fileName);
+		if (lines == null) throw new RuntimeException("Cannot read shard list file '" + fileName + "'");
+
+		List<VcfShard> shards = new ArrayList<>();
+		for (String line : lines.split("\n")) {
+			if (line.isBlank() || line.startsWith("#")) continue;
+			shards.add(parse(line));
+		}
+		return shards;
+	}
+
+	public VcfShard(String chr, int start, int end) {
+		this.chr = chr;
+		this.start = start;
+		this.end = end;
+	}
+
+	public String getChr() {
+		return chr;
+	}
+
+	public int getEnd() {
+		return end;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	@Override
+	public String toString() {
+		return chr + ":" + start + "-" + end;
+	}
+
+}
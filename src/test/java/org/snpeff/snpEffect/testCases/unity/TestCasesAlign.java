@@ -3,11 +3,16 @@ package org.snpeff.snpEffect.testCases.unity;
 
 import org.junit.jupiter.api.Test;
 import org.snpeff.align.NeedlemanWunsch;
+import org.snpeff.align.SmithWaterman;
+import org.snpeff.align.SmithWatermanScore;
 import org.snpeff.align.StringDiff;
 import org.snpeff.align.VcfRefAltAlign;
 import org.snpeff.util.Log;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * test cases for Sequence alignment
@@ -130,4 +135,73 @@ public class TestCasesAlign {
         }
     }
 
+    /**
+     * Random sequence
+     */
+    String randSeq(Random rand, int len) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < len; i++)
+            sb.append("ACGT".charAt(rand.nextInt(4)));
+        return sb.toString();
+    }
+
+    /**
+     * Add a few random mismatches, insertions and deletions
+     */
+    String mutate(Random rand, String seq, int num) {
+        StringBuilder sb = new StringBuilder(seq);
+        for (int i = 0; (i < num) && (sb.length() > 0); i++) {
+            int pos = rand.nextInt(sb.length());
+            switch (rand.nextInt(3)) {
+                case 0:
+                    sb.setCharAt(pos, "ACGT".charAt(rand.nextInt(4)));
+                    break;
+                case 1:
+                    sb.insert(pos, randSeq(rand, 1 + rand.nextInt(5)));
+                    break;
+                default:
+                    sb.delete(pos, Math.min(sb.length(), pos + 1 + rand.nextInt(5)));
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : seq; // Do not return an empty sequence
+    }
+
+    /**
+     * Score only (no traceback) must be the same as Smith-Waterman's alignment score
+     */
+    @Test
+    public void test_03_SmithWatermanScore() {
+        Log.debug("Test");
+        Random rand = new Random(20261017);
+        for (int i = 0; i < 200; i++) {
+            String a = randSeq(rand, 1 + rand.nextInt(100));
+            String b = (i % 2 == 0) ? mutate(rand, a, rand.nextInt(10)) : randSeq(rand, 1 + rand.nextInt(100));
+
+            SmithWaterman sw = new SmithWaterman(a, b);
+            sw.align();
+            int score = new SmithWatermanScore(a, b).score();
+            if (verbose) Log.info("a: " + a + "\nb: " + b + "\nScore: " + score + "\n" + sw);
+            assertEquals(sw.getAlignmentScore(), score, "a: " + a + "\nb: " + b);
+        }
+    }
+
+    /**
+     * Banded score can never be higher than the full score, and it
+     * is the same when there are only a few short indels
+     */
+    @Test
+    public void test_04_SmithWatermanScore_banded() {
+        Log.debug("Test");
+        Random rand = new Random(20261018);
+        for (int i = 0; i < 200; i++) {
+            String a = randSeq(rand, 1 + rand.nextInt(300));
+            String b = (i % 2 == 0) ? mutate(rand, a, rand.nextInt(5)) : randSeq(rand, 1 + rand.nextInt(300));
+
+            int score = new SmithWatermanScore(a, b).score();
+            int scoreBand = new SmithWatermanScore(a, b, 1 + rand.nextInt(10)).score();
+            assertTrue(scoreBand <= score, "Banded score " + scoreBand + " is higher than full score " + score + "\na: " + a + "\nb: " + b);
+            if (i % 2 == 0) assertEquals(score, new SmithWatermanScore(a, b, 30).score(), "a: " + a + "\nb: " + b);
+        }
+    }
+
 }
@@ -0,0 +1,137 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for multi-threaded annotations ('ann -t'): Results must
+ * be the same as single-threaded annotations
+ *
+ * @author pcingola
+ */
+public class TestCasesAnnMultiThreaded extends TestCasesBase {
+
+    public static final String BASES = "ACGT";
+
+    public TestCasesAnnMultiThreaded() {
+        super();
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        numGenes = 3;
+        maxTranscripts = 3;
+    }
+
+    /**
+     * Annotate a VCF file, return the output file's contents followed by the CSV summary
+     */
+    String annotate(String vcfFile, boolean multiThreaded, String... options) throws IOException {
+        File csvFile = File.createTempFile("test_ann_threads", ".csv");
+        csvFile.deleteOnExit();
+        new File(Gpr.dirName(csvFile.getPath()) + "/" + Gpr.baseName(csvFile.getPath(), ".csv") + ".genes.txt").deleteOnExit();
+
+        List<String> args = new ArrayList<>(List.of(options));
+        args.add("-noStats");
+        args.add("-csvStats");
+        args.add(csvFile.getPath());
+        args.add(genomeName);
+        args.add(vcfFile);
+
+        SnpEffCmdEff cmdEff = cmdEff(args.toArray(new String[0]));
+        cmdEff.setMultiThreaded(multiThreaded);
+        cmdEff.setNumWorkers(4);
+        String out = annotate(cmdEff, vcfFile);
+
+        // Summary, without lines depending on the date and command line
+        StringBuilder sb = new StringBuilder(out);
+        sb.append("# Errors: " + cmdEff.getTotalErrs() + ", variants: " + cmdEff.getCountVariants() + "\n");
+        for (String line : Gpr.readFile(csvFile.getPath()).split("\n"))
+            if (!line.startsWith("Date ,") && !line.startsWith("Command_line_arguments ,")) sb.append(line + "\n");
+        return sb.toString();
+    }
+
+    /**
+     * Compare results line by line
+     */
+    void compare(String expected, String result) {
+        String[] linesExp = expected.split("\n");
+        String[] lines = result.split("\n");
+        for (int i = 0; i < Math.min(linesExp.length, lines.length); i++)
+            assertEquals(linesExp[i], lines[i], "Line " + (i + 1) + " does not match");
+        assertEquals(linesExp.length, lines.length, "Number of lines does not match");
+    }
+
+    /**
+     * A VCF file with random SNPs, mostly within genes.
+     * In 'cancer' mode, the file has germline and somatic samples
+     */
+    String vcfFile(int numVariants, boolean cancer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("##fileformat=VCFv4.1\n");
+        if (cancer) {
+            sb.append("##PEDIGREE=<Derived=Somatic,Original=Germline>\n");
+            sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tGermline\tSomatic\n");
+        } else sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+
+        int step = chromoBases.length / numVariants;
+        for (int pos = rand.nextInt(step); pos < chromoBases.length; pos += 1 + rand.nextInt(step)) {
+            char ref = Character.toUpperCase(chromoBases[pos]);
+            int refIdx = BASES.indexOf(ref);
+            char alt1 = BASES.charAt((refIdx + 1) % BASES.length());
+            char alt2 = BASES.charAt((refIdx + 2) % BASES.length());
+
+            sb.append(chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + ref);
+            if (cancer) sb.append("\t" + alt1 + "," + alt2 + "\t.\tPASS\t.\tGT\t1/0\t2/1\n");
+            else sb.append("\t" + alt1 + "\t.\tPASS\t.\n");
+        }
+
+        File file = File.createTempFile("test_ann_threads", ".vcf");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Multi-threaded annotations and statistics must be the same as single-threaded ones
+     */
+    @Test
+    public void test_01_ann() throws IOException {
+        Log.debug("Test");
+        String vcfFile = vcfFile(500, false);
+        String expected = annotate(vcfFile, false);
+        assertTrue(expected.contains("ANN="));
+
+        String result = annotate(vcfFile, true);
+        if (verbose) Log.info("Result:\n" + result);
+        compare(expected, result);
+    }
+
+    /**
+     * Multi-threaded cancer annotations must be the same as single-threaded ones
+     */
+    @Test
+    public void test_02_ann_cancer() throws IOException {
+        Log.debug("Test");
+        String vcfFile = vcfFile(500, true);
+        String expected = annotate(vcfFile, false, "-cancer");
+        assertTrue(expected.contains("ANN="));
+        assertTrue(expected.matches("(?s).*[=,][ACGT]-[ACGT]\\|.*"), "No cancer annotations found (i.e. 'ALT-REF' alleles)");
+
+        String result = annotate(vcfFile, true, "-cancer");
+        if (verbose) Log.info("Result:\n" + result);
+        compare(expected, result);
+    }
+
+}
@@ -9,6 +9,7 @@ import org.snpeff.interval.*;
 import org.snpeff.interval.Variant.VariantType;
 import org.snpeff.snpEffect.*;
 import org.snpeff.snpEffect.VariantEffect.EffectImpact;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
 import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryRand;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.Log;
@@ -16,6 +17,8 @@ import org.snpeff.vcf.EffFormatVersion;
 import org.snpeff.vcf.VcfEffect;
 import org.snpeff.vcf.VcfEntry;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -98,6 +101,28 @@ public class TestCasesBase {
         initSnpEffPredictor();
     }
 
+    /**
+     * Annotate a VCF file, return the output file's contents (without 'SnpEff' header lines)
+     */
+    protected String annotate(SnpEffCmdEff cmdEff, String vcfFile) throws IOException {
+        return annotate(cmdEff, vcfFile, true);
+    }
+
+    /**
+     * Annotate a VCF file, return the output file's contents
+     * @param removeSnpEffHeaders : Remove '##SnpEff' header lines (they depend on the command line)
+     */
+    protected String annotate(SnpEffCmdEff cmdEff, String vcfFile, boolean removeSnpEffHeaders) throws IOException {
+        File outFile = File.createTempFile("test_ann", ".vcf");
+        outFile.deleteOnExit();
+        assertTrue(cmdEff.annotate(vcfFile, outFile.getPath()));
+
+        StringBuilder sb = new StringBuilder();
+        for (String line : Gpr.readFile(outFile.getPath()).split("\n"))
+            if (!removeSnpEffHeaders || !line.startsWith("##SnpEff")) sb.append(line + "\n");
+        return sb.toString();
+    }
+
     /**
      * Apply a variant to a transcript and check resulting CDS sequence, protein
      * sequence and exon coordinates
@@ -194,6 +219,19 @@ public class TestCasesBase {
         assertTrue(found, "Effect not found: '" + effectExpected + "' in variant " + variant);
     }
 
+    /**
+     * Create an 'ann' command using this test case's genome and predictor
+     */
+    protected SnpEffCmdEff cmdEff(String... args) {
+        SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+        cmdEff.setConfig(config);
+        cmdEff.setVerbose(verbose);
+        cmdEff.setQuiet(!verbose);
+        cmdEff.setTesting(true);
+        cmdEff.parseArgs(args);
+        return cmdEff;
+    }
+
     /**
      * Get file's format version
      */
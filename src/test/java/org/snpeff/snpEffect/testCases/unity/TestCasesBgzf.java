@@ -0,0 +1,150 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.util.BgzfInputStream;
+import org.snpeff.util.BgzfOutputStream;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+import org.snpeff.vcf.VcfEntry;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for BGZF (multi-threaded) compression and decompression
+ *
+ * @author pcingola
+ */
+public class TestCasesBgzf {
+
+    protected boolean debug = false;
+    protected boolean verbose = false || debug;
+
+    public TestCasesBgzf() {
+        super();
+    }
+
+    byte[] compress(byte[] data, int numThreads) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BgzfOutputStream out = new BgzfOutputStream(baos, numThreads)) {
+            // Write in chunks of different sizes
+            Random rand = new Random(20241017);
+            for (int i = 0; i < data.length; ) {
+                int len = Math.min(data.length - i, rand.nextInt(100000));
+                out.write(data, i, len);
+                i += len;
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Some (compressible) random data
+     */
+    byte[] data(int len) {
+        Random rand = new Random(len);
+        byte[] data = new byte[len];
+        for (int i = 0; i < len; i++)
+            data[i] = (byte) ("ACGT\t\n".charAt(rand.nextInt(6)));
+        return data;
+    }
+
+    byte[] decompress(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Compress and decompress using several threads
+     */
+    @Test
+    public void test_01_round_trip() throws IOException {
+        Log.debug("Test");
+        for (int len : new int[] { 0, 1, 1000, BgzfOutputStream.MAX_UNCOMPRESSED_BLOCK_SIZE, 10 * 1000 * 1000 }) {
+            byte[] data = data(len);
+            for (int numThreads : new int[] { 1, 4 }) {
+                byte[] bgzf = compress(data, numThreads);
+                if (verbose) Log.info("Length: " + len + "\tthreads: " + numThreads + "\tcompressed: " + bgzf.length);
+
+                // Decompress using BGZF reader
+                byte[] dataBgzf = decompress(new BgzfInputStream(new ByteArrayInputStream(bgzf), numThreads));
+                assertTrue(Arrays.equals(data, dataBgzf), "Data differs, length " + len + ", threads " + numThreads);
+
+                // Any gzip reader can decompress BGZF files
+                byte[] dataGz = decompress(new GZIPInputStream(new ByteArrayInputStream(bgzf)));
+                assertTrue(Arrays.equals(data, dataGz), "Data differs (GZIPInputStream), length " + len + ", threads " + numThreads);
+
+                // File always ends with an EOF block
+                byte[] eof = Arrays.copyOfRange(bgzf, bgzf.length - BgzfOutputStream.EOF_BLOCK.length, bgzf.length);
+                assertTrue(Arrays.equals(BgzfOutputStream.EOF_BLOCK, eof));
+            }
+        }
+    }
+
+    /**
+     * Detect BGZF vs plain gzip files, open both using Gpr.reader()
+     */
+    @Test
+    public void test_02_detect() throws IOException {
+        Log.debug("Test");
+        String text = "line 1\nline 2\nline 3\n";
+
+        // Plain gzip file
+        File gz = File.createTempFile("test_bgzf", ".gz");
+        gz.deleteOnExit();
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gz))) {
+            out.write(text.getBytes());
+        }
+        assertFalse(BgzfInputStream.isBgzf(new BufferedInputStream(new FileInputStream(gz))));
+        assertEquals(text, Gpr.readFile(gz.getPath()));
+
+        // BGZF file
+        File bgz = File.createTempFile("test_bgzf", ".gz");
+        bgz.deleteOnExit();
+        try (OutputStream out = new BgzfOutputStream(new FileOutputStream(bgz))) {
+            out.write(text.getBytes());
+        }
+        assertTrue(BgzfInputStream.isBgzf(new BufferedInputStream(new FileInputStream(bgz))));
+        assertTrue(Gpr.gzipInputStream(bgz.getPath()) instanceof BgzfInputStream);
+        assertEquals(text, Gpr.readFile(bgz.getPath()));
+    }
+
+    /**
+     * Read a 'bgzip' compressed VCF file
+     */
+    @Test
+    public void test_03_vcf() {
+        Log.debug("Test");
+        VcfFileIterator vcf = new VcfFileIterator("tests/unity/vcf/test_tabix.vcf.gz");
+        int count = 0;
+        for (VcfEntry ve : vcf) {
+            if (verbose) Log.info(ve);
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
+    /**
+     * Truncated or corrupted files must fail
+     */
+    @Test
+    public void test_04_corrupted() throws IOException {
+        Log.debug("Test");
+        byte[] bgzf = compress(data(1000 * 1000), 2);
+
+        byte[] truncated = Arrays.copyOf(bgzf, bgzf.length / 2);
+        assertThrows(IOException.class, () -> decompress(new BgzfInputStream(new ByteArrayInputStream(truncated), 2)));
+
+        byte[] corrupted = Arrays.copyOf(bgzf, bgzf.length);
+        corrupted[100] ^= 0xff;
+        assertThrows(IOException.class, () -> decompress(new BgzfInputStream(new ByteArrayInputStream(corrupted), 2)));
+    }
+
+}
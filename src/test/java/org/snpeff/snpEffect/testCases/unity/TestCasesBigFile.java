@@ -0,0 +1,261 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.fileIterator.BigBedFileIterator;
+import org.snpeff.fileIterator.BigFile;
+import org.snpeff.interval.Variant;
+import org.snpeff.interval.VariantWithScore;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for BigBed / BigWig files
+ *
+ * Note: Test files are created by a minimal writer (one chromosome, R-tree
+ * having only one level), since UCSC tools are not available.
+ *
+ * @author pcingola
+ */
+public class TestCasesBigFile extends TestCasesBase {
+
+    public static final int FEATURES_PER_BLOCK = 16;
+
+    public TestCasesBigFile() {
+        super();
+    }
+
+    /**
+     * Create random features: start, end (half open) and score
+     */
+    List<int[]> features(int num, int maxLen) {
+        List<int[]> features = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < num; i++) {
+            start += rand.nextInt(2 * chromosome.size() / num);
+            if (start >= chromosome.size() - maxLen) break;
+            features.add(new int[]{start, start + 1 + rand.nextInt(maxLen), rand.nextInt(1000)});
+        }
+        return features;
+    }
+
+    /**
+     * Brute force query: Features intersecting [start, end] (closed interval)
+     */
+    Set<String> query(List<int[]> features, int start, int end) {
+        Set<String> res = new HashSet<>();
+        for (int[] f : features)
+            if (f[0] <= end && f[1] - 1 >= start) res.add(f[0] + "_" + (f[1] - 1) + "_" + f[2]);
+        return res;
+    }
+
+    /**
+     * Query using the index
+     */
+    Set<String> query(BigFile bigFile, int start, int end) {
+        Set<String> res = new HashSet<>();
+        for (BigFile.Feature f : bigFile.query(chromosome.getId(), start, end))
+            assertTrue(res.add(f.start + "_" + f.end + "_" + ((int) f.score)), "Duplicated feature " + f);
+        return res;
+    }
+
+    /**
+     * Compare random queries to brute force
+     */
+    void checkQueries(BigFile bigFile, List<int[]> features) {
+        for (int i = 0; i < 1000; i++) {
+            int start = rand.nextInt(chromosome.size());
+            int end = Math.min(chromosome.size() - 1, start + rand.nextInt(200));
+            assertEquals(query(features, start, end), query(bigFile, start, end), "Query: " + start + "-" + end);
+        }
+    }
+
+    @Test
+    public void test_01_bigbed_query() throws IOException {
+        Log.debug("Test");
+        List<int[]> features = features(500, 50);
+        for (boolean compress : new boolean[]{false, true}) {
+            try (BigFile bigFile = new BigFile(write(features, true, compress))) {
+                if (verbose) Log.info(bigFile);
+                assertTrue(bigFile.isBigBed());
+                assertEquals(features.size(), bigFile.getDataCount());
+                checkQueries(bigFile, features);
+            }
+        }
+    }
+
+    @Test
+    public void test_02_bigwig_query() throws IOException {
+        Log.debug("Test");
+        List<int[]> features = features(500, 20);
+        try (BigFile bigFile = new BigFile(write(features, false, true))) {
+            if (verbose) Log.info(bigFile);
+            assertTrue(bigFile.isBigWig());
+            checkQueries(bigFile, features);
+        }
+    }
+
+    @Test
+    public void test_03_bigbed_iterator() throws IOException {
+        Log.debug("Test");
+        List<int[]> features = features(500, 50);
+        Set<String> expected = query(features, 0, chromosome.size());
+
+        Set<String> found = new HashSet<>();
+        for (Variant v : new BigBedFileIterator(write(features, true, true)))
+            found.add(v.getStart() + "_" + v.getEnd() + "_" + ((int) ((VariantWithScore) v).getScore()));
+        assertEquals(expected, found);
+    }
+
+    /**
+     * Annotate variants using an indexed custom track
+     */
+    @Test
+    public void test_04_custom_annotation() throws IOException {
+        Log.debug("Test");
+        List<int[]> features = features(200, 50);
+        BigFile bigFile = new BigFile(write(features, true, true));
+        snpEffectPredictor.addIndexedTrack(bigFile);
+
+        for (int i = 0; i < 500; i++) {
+            int pos = rand.nextInt(chromosome.size());
+            Variant variant = new Variant(chromosome, pos, "A", "T");
+
+            int countCustom = 0;
+            for (VariantEffect veff : snpEffectPredictor.variantEffect(variant))
+                if (veff.getEffectType() == EffectType.CUSTOM) countCustom++;
+            assertEquals(query(features, pos, pos).size(), countCustom, "Variant: " + variant);
+
+            // Batch annotation must find the same custom annotations
+            List<Variant> variants = new ArrayList<>();
+            variants.add(variant);
+            VariantEffects veffs = snpEffectPredictor.variantEffects(variants).get(0);
+            int countCustomBatch = 0;
+            for (VariantEffect veff : veffs)
+                if (veff.getEffectType() == EffectType.CUSTOM) countCustomBatch++;
+            assertEquals(countCustom, countCustomBatch);
+        }
+        bigFile.close();
+    }
+
+    /**
+     * Write a BigBed or BigWig (bedGraph) file having features in one chromosome
+     */
+    String write(List<int[]> features, boolean bigBed, boolean compress) throws IOException {
+        String chr = chromosome.getId();
+        int keySize = chr.length();
+
+        // Data blocks
+        List<byte[]> blocks = new ArrayList<>();
+        List<int[]> blockRanges = new ArrayList<>();
+        int maxBlockSize = 0;
+        for (int i = 0; i < features.size(); i += FEATURES_PER_BLOCK) {
+            List<int[]> fs = features.subList(i, Math.min(i + FEATURES_PER_BLOCK, features.size()));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int maxEnd = 0;
+            if (!bigBed) {
+                // BigWig section header (bedGraph)
+                out.write(le(24).putInt(0).putInt(fs.get(0)[0]).putInt(fs.get(fs.size() - 1)[1]).putInt(0).putInt(0).put((byte) BigFile.WIG_TYPE_BEDGRAPH).put((byte) 0).putShort((short) fs.size()).array());
+            }
+            for (int[] f : fs) {
+                if (bigBed) {
+                    out.write(le(12).putInt(0).putInt(f[0]).putInt(f[1]).array());
+                    out.write(("name_" + f[0] + "\t" + f[2] + "\t+").getBytes(StandardCharsets.UTF_8));
+                    out.write(0);
+                } else {
+                    out.write(le(12).putInt(f[0]).putInt(f[1]).putFloat(f[2]).array());
+                }
+                maxEnd = Math.max(maxEnd, f[1]);
+            }
+
+            byte block[] = out.toByteArray();
+            maxBlockSize = Math.max(maxBlockSize, block.length);
+            if (compress) {
+                Deflater deflater = new Deflater();
+                deflater.setInput(block);
+                deflater.finish();
+                byte buf[] = new byte[block.length + 64];
+                int len = deflater.deflate(buf);
+                deflater.end();
+                block = Arrays.copyOf(buf, len);
+            }
+            blocks.add(block);
+            blockRanges.add(new int[]{fs.get(0)[0], maxEnd});
+        }
+
+        // Offsets
+        long chromTreeOffset = BigFile.HEADER_SIZE;
+        long dataOffset = chromTreeOffset + 32 + 4 + keySize + 8;
+        long indexOffset = dataOffset + 8;
+        for (byte[] block : blocks)
+            indexOffset += block.length;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Header
+        out.write(le(BigFile.HEADER_SIZE) //
+                .putInt(bigBed ? BigFile.MAGIC_BIGBED : BigFile.MAGIC_BIGWIG).putShort((short) 4).putShort((short) 0) //
+                .putLong(chromTreeOffset).putLong(dataOffset).putLong(indexOffset) //
+                .putShort((short) (bigBed ? 6 : 0)).putShort((short) (bigBed ? 6 : 0)) //
+                .putLong(0).putLong(0) //
+                .putInt(compress ? maxBlockSize : 0).putLong(0) //
+                .array());
+
+        // Chromosome tree (one leaf)
+        out.write(le(32).putInt(BigFile.MAGIC_CHROM_TREE).putInt(1).putInt(keySize).putInt(8).putLong(1).putLong(0).array());
+        out.write(le(4).put((byte) 1).put((byte) 0).putShort((short) 1).array());
+        out.write(chr.getBytes(StandardCharsets.UTF_8));
+        out.write(le(8).putInt(0).putInt(chromosome.size()).array());
+
+        // Data
+        out.write(le(8).putLong(bigBed ? features.size() : blocks.size()).array());
+        for (byte[] block : blocks)
+            out.write(block);
+
+        // R-tree (one leaf)
+        int lastEnd = blockRanges.get(blockRanges.size() - 1)[1];
+        out.write(le(BigFile.RTREE_HEADER_SIZE).putInt(BigFile.MAGIC_RTREE).putInt(blocks.size()).putLong(blocks.size()) //
+                .putInt(0).putInt(blockRanges.get(0)[0]).putInt(0).putInt(lastEnd) //
+                .putLong(indexOffset).putInt(FEATURES_PER_BLOCK).putInt(0) //
+                .array());
+        out.write(le(4).put((byte) 1).put((byte) 0).putShort((short) blocks.size()).array());
+        long offset = dataOffset + 8;
+        for (int i = 0; i < blocks.size(); i++) {
+            int range[] = blockRanges.get(i);
+            out.write(le(32).putInt(0).putInt(range[0]).putInt(0).putInt(range[1]).putLong(offset).putLong(blocks.get(i).length).array());
+            offset += blocks.get(i).length;
+        }
+
+        File file = File.createTempFile("test_big_file", bigBed ? ".bb" : ".bw");
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(out.toByteArray());
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Little endian buffer
+     */
+    ByteBuffer le(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+}
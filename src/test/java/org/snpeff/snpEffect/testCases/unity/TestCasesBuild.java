@@ -1,10 +1,24 @@
 package org.snpeff.snpEffect.testCases.unity;
 
 import org.junit.jupiter.api.Test;
+import org.snpeff.fileIterator.FastaIndexedFile;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
 import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGff3;
+import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGtf22;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
 import org.snpeff.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -88,4 +102,76 @@ public class TestCasesBuild extends TestCasesBase {
         throw new RuntimeException("Expected error not found!");
     }
 
+    /**
+     * Build a database from a GTF and a FASTA file, return exon sequences by exon ID
+     */
+    Map<String, String> buildExonSequences(String gtf, String fasta, int numThreads) {
+        Config config = new Config("testHg3775Chr1", Config.DEFAULT_CONFIG_FILE);
+        SnpEffPredictorFactoryGtf22 factory = new SnpEffPredictorFactoryGtf22(config);
+        factory.setFileName(gtf);
+        factory.setFastaFile(fasta);
+        factory.setNumThreads(numThreads);
+        factory.setVerbose(verbose);
+        SnpEffectPredictor sep = factory.create();
+
+        Map<String, String> seqByExon = new HashMap<>();
+        for (Gene g : sep.getGenome().getGenes())
+            for (Transcript tr : g)
+                for (Exon ex : tr)
+                    seqByExon.put(tr.getId() + "_" + ex.getStart() + "_" + ex.getEnd(), ex.getSequence());
+        return seqByExon;
+    }
+
+    /**
+     * Build using several threads (reading an indexed FASTA file) must be the same as a sequential build
+     */
+    @Test
+    public void test_03_build_parallel() throws IOException {
+        Log.debug("Test");
+
+        // Create random chromosomes, genes and exons
+        StringBuilder fasta = new StringBuilder();
+        StringBuilder gtf = new StringBuilder();
+        Map<String, String> expected = new HashMap<>();
+        for (int chr = 1; chr <= 8; chr++) {
+            String seq = GprSeq.randSequence(rand, 5000 + rand.nextInt(20000)).toLowerCase();
+            fasta.append(">" + chr + "\n");
+            for (int i = 0; i < seq.length(); i += 60)
+                fasta.append(seq, i, Math.min(i + 60, seq.length())).append("\n");
+
+            for (int g = 0; g < 20; g++) {
+                boolean strandMinus = rand.nextBoolean();
+                String trId = "tr_" + chr + "_" + g;
+                String attrs = "gene_id \"gene_" + chr + "_" + g + "\"; transcript_id \"" + trId + "\";";
+                int start = rand.nextInt(seq.length() - 1000);
+                gtf.append(chr + "\ttest\ttranscript\t" + (start + 1) + "\t" + (start + 1000) + "\t.\t" + (strandMinus ? '-' : '+') + "\t.\t" + attrs + "\n");
+                for (int e = 0; e < 3; e++, start += 300 + rand.nextInt(30)) {
+                    int end = start + 50 + rand.nextInt(100);
+                    gtf.append(chr + "\ttest\texon\t" + (start + 1) + "\t" + (end + 1) + "\t.\t" + (strandMinus ? '-' : '+') + "\t.\t" + attrs + "\n");
+
+                    String exSeq = seq.substring(start, end + 1);
+                    expected.put(trId + "_" + start + "_" + end, strandMinus ? GprSeq.reverseWc(exSeq) : exSeq);
+                }
+            }
+        }
+
+        File fastaFile = File.createTempFile("test_build_parallel", ".fa");
+        File gtfFile = File.createTempFile("test_build_parallel", ".gtf");
+        fastaFile.deleteOnExit();
+        gtfFile.deleteOnExit();
+        Gpr.toFile(fastaFile.getPath(), fasta);
+        Gpr.toFile(gtfFile.getPath(), gtf);
+
+        // Sequential build
+        Map<String, String> seqByExon = buildExonSequences(gtfFile.getPath(), fastaFile.getPath(), 1);
+        assertEquals(expected, seqByExon);
+
+        // Multi-threaded build, sequential reading (no index)
+        assertEquals(expected, buildExonSequences(gtfFile.getPath(), fastaFile.getPath(), 4));
+
+        // Multi-threaded build, using an indexed FASTA file
+        new File(FastaIndexedFile.createIndex(fastaFile.getPath())).deleteOnExit();
+        assertEquals(expected, buildExonSequences(gtfFile.getPath(), fastaFile.getPath(), 4));
+    }
+
 }
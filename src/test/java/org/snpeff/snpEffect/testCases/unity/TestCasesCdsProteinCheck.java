@@ -0,0 +1,154 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdCds;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdProtein;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for CDS and protein checks ('build' command): Checking
+ * transcripts using many threads must give the same results as using one thread
+ *
+ * @author pcingola
+ */
+public class TestCasesCdsProteinCheck extends TestCasesBase {
+
+    public TestCasesCdsProteinCheck() {
+        super();
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        numGenes = 30;
+        maxTranscripts = 3;
+        onlyPlusStrand = false;
+    }
+
+    /**
+     * Run a CDS check, return totals and 'DNA check' flag for each transcript
+     */
+    String cdsCheck(String cdsFile, int numThreads) {
+        resetChecks();
+        SnpEffCmdCds cmd = new SnpEffCmdCds(genomeName, Config.DEFAULT_CONFIG_FILE, cdsFile);
+        cmd.setConfig(config);
+        cmd.setVerbose(verbose);
+        cmd.setQuiet(!verbose);
+        cmd.setMaxErrorRate(1.0);
+        cmd.setNumThreads(numThreads);
+        cmd.run();
+
+        assertTrue(cmd.getTotalOk() > 0, "No CDS matched");
+        assertTrue(cmd.getTotalErrors() > 0, "No CDS mismatched");
+        assertTrue(cmd.getTotalNotFound() > 0, "No CDS missing");
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("OK: " + cmd.getTotalOk() + ", errors: " + cmd.getTotalErrors() + ", not found: " + cmd.getTotalNotFound() + ", warnings: " + cmd.getTotalWarnings() + "\n");
+        for (Gene g : genome.getGenes())
+            for (Transcript tr : g)
+                sb.append(tr.getId() + "\t" + tr.isDnaCheck() + "\n");
+        return sb.toString();
+    }
+
+    /**
+     * Change one base (or amino acid) in the middle of a sequence
+     */
+    String mutate(String seq) {
+        int mid = seq.length() / 2;
+        char alt = Character.toUpperCase(seq.charAt(mid)) == 'A' ? 'C' : 'A';
+        return seq.substring(0, mid) + alt + seq.substring(mid + 1);
+    }
+
+    /**
+     * Run a protein check, return totals and 'AA check' flag for each transcript
+     */
+    String proteinCheck(String proteinFile, int numThreads) {
+        resetChecks();
+        SnpEffCmdProtein cmd = new SnpEffCmdProtein(config, proteinFile);
+        cmd.setVerbose(verbose);
+        cmd.setQuiet(!verbose);
+        cmd.setMaxErrorRate(1.0);
+        cmd.setNumThreads(numThreads);
+        cmd.run();
+
+        assertTrue(cmd.getTotalOk() > 0, "No protein matched");
+        assertTrue(cmd.getTotalErrors() > 0, "No protein mismatched");
+        assertTrue(cmd.getTotalNotFound() > 0, "No protein missing");
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("OK: " + cmd.getTotalOk() + ", errors: " + cmd.getTotalErrors() + ", not found: " + cmd.getTotalNotFound() + ", warnings: " + cmd.getTotalWarnings() + "\n");
+        for (Gene g : genome.getGenes())
+            for (Transcript tr : g)
+                sb.append(tr.getId() + "\t" + tr.isAaCheck() + "\n");
+        return sb.toString();
+    }
+
+    /**
+     * Create a reference FASTA file: Some transcripts are missing and some do not match
+     */
+    String referenceFasta(boolean cds) throws IOException {
+        File file = File.createTempFile("test_check_" + (cds ? "cds" : "protein"), ".fa");
+        file.deleteOnExit();
+
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for (Gene g : genome.getGenes()) {
+            for (Transcript tr : g) {
+                count++;
+                if (count % 7 == 0) continue; // Missing
+                String seq = cds ? tr.cds() : tr.protein();
+                if ((count % 5 == 0) && (seq.length() > 10)) seq = mutate(seq); // Mismatch
+                sb.append(">" + tr.getId() + "\n" + seq + "\n");
+            }
+        }
+
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Transcript checks are only set to 'true' by a check, so reset them before each run
+     */
+    void resetChecks() {
+        for (Gene g : genome.getGenes())
+            for (Transcript tr : g) {
+                tr.setDnaCheck(false);
+                tr.setAaCheck(false);
+            }
+    }
+
+    /**
+     * CDS check: Same totals and transcript flags using one or many threads
+     */
+    @Test
+    public void test_01_cds_check_threads() throws IOException {
+        Log.debug("Test");
+        String cdsFile = referenceFasta(true);
+        String expected = cdsCheck(cdsFile, 1);
+        if (verbose) Log.info("CDS check:\n" + expected);
+        assertEquals(expected, cdsCheck(cdsFile, 4));
+    }
+
+    /**
+     * Protein check: Same totals and transcript flags using one or many threads
+     */
+    @Test
+    public void test_02_protein_check_threads() throws IOException {
+        Log.debug("Test");
+        String proteinFile = referenceFasta(false);
+        String expected = proteinCheck(proteinFile, 1);
+        if (verbose) Log.info("Protein check:\n" + expected);
+        assertEquals(expected, proteinCheck(proteinFile, 4));
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.*;
+import org.snpeff.util.Log;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for closest gene / closest transcript feature queries
+ *
+ * @author pcingola
+ */
+public class TestCasesClosest extends TestCasesBase {
+
+    public TestCasesClosest() {
+        super();
+    }
+
+    /**
+     * Closest features by querying the interval forest using windows of increasing size
+     */
+    Set<String> closestNaive(Marker query) {
+        for (int extend = 1000; extend < 2 * chromosome.size(); extend *= 2) {
+            Marker extended = new Marker(chromosome, Math.max(query.getStart() - extend, 0), query.getEnd() + extend, false, "");
+
+            int minDist = Integer.MAX_VALUE;
+            Markers markers = snpEffectPredictor.queryDeep(extended);
+            for (Marker m : markers)
+                if (isFeature(m)) minDist = Math.min(minDist, m.distance(query));
+
+            if (minDist < Integer.MAX_VALUE) {
+                Set<String> closest = new TreeSet<>();
+                for (Marker m : markers)
+                    if (isFeature(m) && m.distance(query) == minDist) closest.add(m.idChain());
+                return closest;
+            }
+        }
+        return new TreeSet<>();
+    }
+
+    /**
+     * Closest genes by checking all genes
+     */
+    Set<String> closestGenesNaive(Marker query) {
+        int minDist = Integer.MAX_VALUE;
+        for (Gene g : genome.getGenes())
+            minDist = Math.min(minDist, g.distance(query));
+
+        Set<String> closest = new TreeSet<>();
+        for (Gene g : genome.getGenes())
+            if (g.distance(query) == minDist) closest.add(g.getId());
+        return closest;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        numGenes = 2;
+        maxGeneLen = 3000;
+        maxTranscripts = 4;
+        maxExons = 6;
+        addUtrs = true;
+    }
+
+    boolean isFeature(Marker m) {
+        if ((m instanceof Chromosome) || (m instanceof Intergenic) || (m instanceof Gene) || (m instanceof Transcript)) return false;
+        return m.findParent(Transcript.class) != null;
+    }
+
+    Marker query() {
+        int start = rand.nextInt(chromosome.size());
+        return new Marker(chromosome, start, start + rand.nextInt(20), false, "");
+    }
+
+    @Test
+    public void test_01_closest_gene() {
+        Log.debug("Test");
+        for (int i = 0; i < 1000; i++) {
+            Marker query = query();
+            Gene gene = snpEffectPredictor.queryClosestGene(query);
+            assertNotNull(gene);
+            assertTrue(closestGenesNaive(query).contains(gene.getId()), "Query " + query + ", closest gene: " + gene.getId());
+        }
+    }
+
+    @Test
+    public void test_02_closest_features() {
+        Log.debug("Test");
+        int countIntersect = 0;
+        for (int i = 0; i < 1000; i++) {
+            Marker query = query();
+            Set<String> expected = closestNaive(query);
+
+            Markers closest = snpEffectPredictor.queryClosest(query);
+            Set<String> ids = new TreeSet<>();
+            for (Marker m : closest) {
+                ids.add(m.idChain());
+                if (m.distance(query) == 0) countIntersect++;
+            }
+
+            assertEquals(expected, ids, "Query " + query);
+        }
+        assertTrue(countIntersect > 0);
+    }
+
+}
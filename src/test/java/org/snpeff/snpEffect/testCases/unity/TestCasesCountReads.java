@@ -0,0 +1,300 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.coverage.CountReads;
+import org.snpeff.coverage.CoverageChr;
+import org.snpeff.interval.BioType;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Transcript;
+import org.snpeff.stats.CoverageByType;
+import org.snpeff.stats.PosStats;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for counting reads on markers
+ *
+ * @author pcingola
+ */
+public class TestCasesCountReads extends TestCasesBase {
+
+    public TestCasesCountReads() {
+        super();
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        numGenes = 2;
+        maxTranscripts = 3;
+    }
+
+    /**
+     * Count reads from a BED file, compare to a 'brute force' count
+     */
+    @Test
+    public void test_01_count_bed() throws IOException {
+        Log.debug("Test");
+
+        // Random reads
+        int numReads = 2000, readLen = 100;
+        List<Marker> reads = reads(numReads, readLen);
+        CountReads countReads = count(reads, true);
+        if (verbose) Log.info(countReads.getCountTypes());
+
+        assertEquals(numReads, countReads.getCountTotalReads());
+        assertEquals(readLen, countReads.getReadLengthAvg());
+        assertEquals(0, countReads.getCountExceptions());
+        assertEquals(numReads, countReads.getCountTypes().get(Chromosome.class.getSimpleName()));
+
+        // Compare each gene, transcript and exon to brute force
+        long sumExons = 0;
+        for (Gene g : genome.getGenes()) {
+            check(countReads, g, reads);
+            for (Transcript tr : g) {
+                check(countReads, tr, reads);
+                for (Exon ex : tr)
+                    sumExons += check(countReads, ex, reads);
+            }
+        }
+        assertEquals(sumExons, countReads.getCountTypes().get(Exon.class.getSimpleName()));
+    }
+
+    /**
+     * Counting reads using a sweep line must give the same results as querying the interval forest
+     */
+    @Test
+    public void test_02_sweep() throws IOException {
+        Log.debug("Test");
+        List<Marker> reads = reads(2000, 100);
+        reads.sort(null);
+        compare(count(reads, false), count(reads, true));
+    }
+
+    /**
+     * Unsorted reads: Sweep line is not used, results must be the same
+     */
+    @Test
+    public void test_03_sweep_unsorted() throws IOException {
+        Log.debug("Test");
+        List<Marker> reads = reads(2000, 100);
+        reads.sort(null);
+        Collections.swap(reads, 100, 1900); // Unsorted after read 100
+        compare(count(reads, false), count(reads, true));
+    }
+
+    /**
+     * Coverage per base, compare to 'brute force'
+     */
+    @Test
+    public void test_04_coverage_chr() {
+        Log.debug("Test");
+        int len = 1000;
+        int expected[] = new int[len];
+        CoverageChr coverageChr = new CoverageChr(len);
+        for (int i = 0; i < 500; i++) {
+            int start = rand.nextInt(len);
+            int end = Math.min(len - 1, start + rand.nextInt(100));
+            coverageChr.inc(start, end);
+            for (int j = start; j <= end; j++)
+                expected[j]++;
+
+            // Query coverage while adding regions
+            if (i % 100 == 0) assertArrayEquals(expected, coverageChr.getCount());
+        }
+
+        assertArrayEquals(expected, coverageChr.getCount());
+        long sum = 0;
+        for (int j = 100; j <= 200; j++)
+            sum += expected[j];
+        assertEquals(sum, coverageChr.coverage(100, 200));
+    }
+
+    /**
+     * Counting an indexed BAM file using many threads (one per reference sequence)
+     * must give the same results as counting it sequentially
+     */
+    @Test
+    public void test_05_count_bam_indexed_threads() throws IOException {
+        Log.debug("Test");
+
+        // Add a second chromosome having a gene, so that the BAM file has two reference sequences
+        Chromosome chr2 = new Chromosome(genome, 0, chromosome.getEnd(), "2");
+        genome.add(chr2);
+        Gene gene2 = new Gene(chr2, 100, 900, false, "gene_2", "GENE2", BioType.protein_coding);
+        Transcript tr2 = new Transcript(gene2, 100, 900, false, "tr_2");
+        gene2.add(tr2);
+        tr2.add(new Exon(tr2, 100, 300, false, "ex_2_1", 1));
+        tr2.add(new Exon(tr2, 600, 900, false, "ex_2_2", 2));
+        snpEffectPredictor.add(gene2);
+        snpEffectPredictor.buildForest();
+
+        int numReads = 2000, readLen = 100;
+        List<Marker> reads = reads(numReads / 2, readLen);
+        for (int i = 0; i < numReads / 2; i++) {
+            int start = rand.nextInt(chr2.size() - readLen);
+            reads.add(new Marker(chr2, start, start + readLen - 1));
+        }
+        String bamFile = bamFile(reads);
+
+        CountReads expected = countBam(bamFile, 1);
+        CountReads countReads = countBam(bamFile, 4);
+        if (verbose) Log.info(countReads.getCountTypes());
+
+        assertEquals(numReads, expected.getCountTotalReads());
+        assertEquals(0, expected.getCountExceptions());
+        assertEquals(0, countReads.getCountExceptions());
+        assertEquals(expected.getReadLengthCount(), countReads.getReadLengthCount());
+        assertEquals(expected.getReadLengthSum(), countReads.getReadLengthSum());
+        compare(expected, countReads);
+
+        // Coverage statistics
+        compare(expected.getCoverageByType(), countReads.getCoverageByType());
+        assertEquals(expected.getCoverageByExons().size(), countReads.getCoverageByExons().size());
+        for (int i = 0; i < expected.getCoverageByExons().size(); i++)
+            compare(expected.getCoverageByExons().get(i), countReads.getCoverageByExons().get(i));
+    }
+
+    /**
+     * Create an indexed BAM file from a list of reads
+     */
+    String bamFile(List<Marker> reads) throws IOException {
+        SAMFileHeader header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        for (Chromosome chr : genome)
+            header.addSequence(new SAMSequenceRecord(chr.getId(), chr.getEnd() + 1));
+
+        File bamFile = File.createTempFile("test_count", ".bam");
+        bamFile.deleteOnExit();
+        new File(bamFile.getPath().replace(".bam", ".bai")).deleteOnExit();
+
+        SAMFileWriter writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, false, bamFile);
+        int readNum = 0;
+        for (Marker read : reads) {
+            byte[] bases = new byte[read.size()];
+            Arrays.fill(bases, (byte) 'A');
+
+            SAMRecord samRecord = new SAMRecord(header);
+            samRecord.setReadName("read_" + (readNum++));
+            samRecord.setReferenceName(read.getChromosomeName());
+            samRecord.setAlignmentStart(read.getStart() + 1); // One-based coordinates
+            samRecord.setCigar(new Cigar(List.of(new CigarElement(read.size(), CigarOperator.M))));
+            samRecord.setMappingQuality(60);
+            samRecord.setReadBases(bases);
+            samRecord.setBaseQualities(SAMRecord.NULL_QUALS);
+            writer.addAlignment(samRecord);
+        }
+        writer.close();
+
+        return bamFile.getPath();
+    }
+
+    /**
+     * Compare counts for a marker to 'brute force' count
+     * @return Number of reads hitting the marker
+     */
+    long check(CountReads countReads, Marker m, List<Marker> reads) {
+        long expectedReads = 0, expectedBases = 0;
+        for (Marker read : reads) {
+            if (read.intersects(m)) {
+                expectedReads++;
+                expectedBases += m.intersectSize(read);
+            }
+        }
+
+        assertEquals(expectedReads, countReads.getCountReads().get(m), "Reads do not match for marker " + m);
+        assertEquals(expectedBases, countReads.getCountBases().get(m), "Bases do not match for marker " + m);
+        return expectedReads;
+    }
+
+    /**
+     * Compare counts for all markers
+     */
+    void compare(CountReads expected, CountReads countReads) {
+        assertEquals(expected.getCountTotalReads(), countReads.getCountTotalReads());
+        assertEquals(expected.getCountTypes().toString(), countReads.getCountTypes().toString());
+        assertEquals(expected.getCountReads().keySet(), countReads.getCountReads().keySet());
+        for (Marker m : expected.getCountReads().keySet()) {
+            assertEquals(expected.getCountReads().get(m), countReads.getCountReads().get(m), "Reads do not match for marker " + m);
+            assertEquals(expected.getCountBases().get(m), countReads.getCountBases().get(m), "Bases do not match for marker " + m);
+        }
+    }
+
+    /**
+     * Compare coverage statistics
+     */
+    void compare(CoverageByType expected, CoverageByType coverageByType) {
+        assertEquals(expected.keySet(), coverageByType.keySet());
+        for (String type : expected.keySet()) {
+            PosStats posStatsExp = expected.get(type);
+            PosStats posStats = coverageByType.get(type);
+            assertEquals(posStatsExp.getTotal(), posStats.getTotal(), "Coverage total does not match for type " + type);
+            assertEquals(posStatsExp.size(), posStats.size(), "Coverage size does not match for type " + type);
+            for (int i = 0; i < posStatsExp.size(); i++)
+                assertEquals(posStatsExp.getCount(i), posStats.getCount(i), "Coverage does not match for type " + type + ", bin " + i);
+        }
+    }
+
+    /**
+     * Count reads (stored in a BED file)
+     */
+    CountReads count(List<Marker> reads, boolean sweep) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Marker read : reads)
+            sb.append(read.getChromosomeName() + "\t" + read.getStart() + "\t" + (read.getEnd() + 1) + "\n");
+        File bedFile = File.createTempFile("test_count", ".bed");
+        bedFile.deleteOnExit();
+        Gpr.toFile(bedFile.getPath(), sb);
+
+        CountReads countReads = new CountReads(bedFile.getPath(), snpEffectPredictor);
+        countReads.setVerbose(verbose);
+        countReads.setSweep(sweep);
+        countReads.count();
+        return countReads;
+    }
+
+    /**
+     * Count reads from a BAM file
+     */
+    CountReads countBam(String bamFile, int numThreads) {
+        CountReads countReads = new CountReads(bamFile, snpEffectPredictor);
+        countReads.setVerbose(verbose);
+        countReads.setNumThreads(numThreads);
+        countReads.count();
+        return countReads;
+    }
+
+    /**
+     * Random reads
+     */
+    List<Marker> reads(int numReads, int readLen) {
+        List<Marker> reads = new ArrayList<>();
+        for (int i = 0; i < numReads; i++) {
+            int start = rand.nextInt(chromosome.size() - readLen);
+            reads.add(new Marker(chromosome, start, start + readLen - 1));
+        }
+        return reads;
+    }
+
+}
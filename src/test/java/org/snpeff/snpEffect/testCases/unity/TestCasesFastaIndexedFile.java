@@ -0,0 +1,99 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.fileIterator.FastaFileIterator;
+import org.snpeff.fileIterator.FastaIndexedFile;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for random access to indexed FASTA files
+ *
+ * @author pcingola
+ */
+public class TestCasesFastaIndexedFile {
+
+    boolean verbose = false;
+    Random rand = new Random(20260502);
+
+    /**
+     * Create a FASTA file having random sequences
+     */
+    String fastaFile(List<String> names, List<String> seqs, int lineLen, String newLine) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            sb.append(">" + names.get(i) + " some description" + newLine);
+            String seq = seqs.get(i);
+            for (int j = 0; j < seq.length(); j += lineLen)
+                sb.append(seq, j, Math.min(j + lineLen, seq.length())).append(newLine);
+        }
+
+        File file = File.createTempFile("test_fasta_indexed", ".fa");
+        file.deleteOnExit();
+        new File(file.getPath() + FastaIndexedFile.EXTENSION_FAI).deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Create random sequences, an index and compare to FASTA file iterator
+     */
+    void checkIndexed(int lineLen, String newLine) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<String> seqs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            names.add("chr" + (i + 1));
+            seqs.add(GprSeq.randSequence(rand, i == 0 ? lineLen : 1 + rand.nextInt(10 * 1000)).toUpperCase());
+        }
+        String fasta = fastaFile(names, seqs, lineLen, newLine);
+
+        String faiFile = FastaIndexedFile.createIndex(fasta);
+        if (verbose) Log.info("Index:\n" + Gpr.readFile(faiFile));
+        assertTrue(FastaIndexedFile.hasIndex(fasta));
+
+        // Read sequences in random order
+        FastaIndexedFile fif = new FastaIndexedFile(fasta);
+        assertEquals(names, fif.getNames());
+        for (int i = 0; i < 30; i++) {
+            int idx = rand.nextInt(names.size());
+            assertEquals(seqs.get(idx).length(), fif.getLength(names.get(idx)));
+            assertEquals(seqs.get(idx), fif.getSequence(names.get(idx)));
+        }
+        assertNull(fif.getSequence("chrZZZ"));
+        fif.close();
+
+        // Same sequences as FASTA iterator
+        FastaFileIterator ffi = new FastaFileIterator(fasta);
+        fif = new FastaIndexedFile(fasta);
+        int i = 0;
+        for (String seq : ffi)
+            assertEquals(seq, fif.getSequence(names.get(i++)));
+        assertEquals(names.size(), i);
+        fif.close();
+    }
+
+    @Test
+    public void test_01_indexed() throws IOException {
+        Log.debug("Test");
+        checkIndexed(60, "\n");
+    }
+
+    /**
+     * Different line length and Windows new lines
+     */
+    @Test
+    public void test_02_indexed_crlf() throws IOException {
+        Log.debug("Test");
+        checkIndexed(71, "\r\n");
+    }
+
+}
@@ -2,6 +2,7 @@ package org.snpeff.snpEffect.testCases.unity;
 
 import org.junit.jupiter.api.Test;
 import org.snpeff.binseq.GenomicSequences;
+import org.snpeff.binseq.PackedSequenceFile;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Marker;
@@ -10,9 +11,18 @@ import org.snpeff.util.GprSeq;
 import org.snpeff.util.Log;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test case
@@ -97,7 +107,7 @@ public class TestCasesGenomicSequences {
         // Note that we need to initialize a new set of objects to avoid fetching
         // sequences from the previous ones
         //---
-        Config configRead = new Config(genomeVer);
+        Config configRead = new Config(genomeVer, Config.DEFAULT_CONFIG_FILE, dataDir, null);
         Genome genomeRead = configRead.getGenome();
         GenomicSequences gsRead = new GenomicSequences(genomeRead);
         for (int i = 0; i < numberOfChromos; i++) {
@@ -174,4 +184,139 @@ public class TestCasesGenomicSequences {
         }
     }
 
+    /**
+     * Query sub-sequences (both strands) from many threads concurrently
+     */
+    @Test
+    public void test_03_concurrent_queries() throws Exception {
+        Log.debug("Test");
+        int numberOfChromos = 5;
+        int chrLen = 10 * 1000;
+        int numThreads = 8;
+        int numQueries = 10 * 1000;
+
+        Genome genome = new Genome("test_concurrent");
+        GenomicSequences gs = new GenomicSequences(genome);
+        gs.setDisableLoad(true);
+
+        String[] chrSeqs = new String[numberOfChromos];
+        Random random = new Random(20161017);
+        for (int i = 0; i < numberOfChromos; i++) {
+            chrSeqs[i] = GprSeq.randSequence(random, chrLen).toUpperCase();
+            gs.addChromosomeSequence("chr" + i, chrSeqs[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random rand = new Random(seed);
+                for (int q = 0; q < numQueries; q++) {
+                    int chrNum = rand.nextInt(numberOfChromos);
+                    int start = rand.nextInt(chrLen);
+                    int end = Math.min(chrLen - 1, start + rand.nextInt(100));
+                    boolean strandMinus = rand.nextBoolean();
+
+                    Chromosome chr = genome.getChromosome("chr" + chrNum);
+                    Marker marker = new Marker(chr, start, end, strandMinus, "");
+                    String expected = chrSeqs[chrNum].substring(start, end + 1);
+                    if (strandMinus) expected = GprSeq.reverseWc(expected);
+
+                    assertEquals(expected, gs.querySequence(marker).toUpperCase(), "Sequences do not match for marker " + marker);
+                }
+                return numQueries;
+            }));
+        }
+
+        int count = 0;
+        for (Future<Integer> f : futures)
+            count += f.get();
+        executor.shutdown();
+        assertEquals(numThreads * numQueries, count);
+
+        // No sequences for this chromosome
+        Chromosome chrOther = new Chromosome(genome, 0, chrLen, "other");
+        assertNull(gs.querySequence(new Marker(chrOther, 0, 10, false, "")));
+    }
+
+    /**
+     * Save large chromosomes in packed format (including runs of 'N'),
+     * check that we can recover the exact sequences
+     */
+    @Test
+    public void test_04_packed() throws IOException {
+        Log.debug("Test");
+        int numberOfLargeChromos = 3;
+        int numberOfChromos = 10;
+        int longChrLen = GenomicSequences.CHR_LEN_SEPARATE_FILE + 1;
+        int shortChrLen = 100;
+
+        // Use a temporary data dir, so the test does not depend on (or modify) existing genome files
+        String genomeVer = "test_too_many_chrs";
+        String dataDir = Files.createTempDirectory("snpEff_test_packed").toString();
+        Config config = new Config(genomeVer, Config.DEFAULT_CONFIG_FILE, dataDir, null);
+        config.setSequencePacked(true);
+        Genome genome = config.getGenome();
+        GenomicSequences gs = new GenomicSequences(genome);
+        gs.setVerbose(verbose);
+
+        String dir = config.getDirDataGenomeVersion();
+        new File(dir).mkdirs();
+
+        // Random chromosome sequences, large ones have a few runs of 'N'
+        String[] chrSeqs = new String[numberOfChromos];
+        Random random = new Random(20161018);
+        for (int i = 0; i < numberOfChromos; i++) {
+            String chrSeq = GprSeq.randSequence(random, i < numberOfLargeChromos ? longChrLen : shortChrLen).toUpperCase();
+            if (i < numberOfLargeChromos) {
+                char bases[] = chrSeq.toCharArray();
+                for (int r = 0; r < 20; r++) {
+                    int start = random.nextInt(longChrLen - 1000);
+                    int len = 1 + random.nextInt(i == 0 ? 1 : 1000);
+                    for (int j = start; j < start + len; j++)
+                        bases[j] = 'N';
+                }
+                bases[0] = bases[longChrLen - 1] = 'N'; // Runs at both ends
+                chrSeq = new String(bases);
+            }
+            chrSeqs[i] = chrSeq;
+            gs.addChromosomeSequence("chr" + i, chrSeq);
+        }
+
+        gs.save(config);
+        assertEquals((numberOfLargeChromos + 1), countSequenceBinFiles(dir), "Unexpected number of sequence*.bin files");
+        for (int i = 0; i < numberOfLargeChromos; i++)
+            assertTrue(PackedSequenceFile.isPacked(config.getFileNameSequence(genome.getChromosome("chr" + i).getId())));
+
+        // Read sequences using new objects
+        Config configRead = new Config(genomeVer);
+        Genome genomeRead = configRead.getGenome();
+        GenomicSequences gsRead = new GenomicSequences(genomeRead);
+        for (int i = 0; i < numberOfChromos; i++) {
+            Chromosome chr = genome.getChromosome("chr" + i);
+            Marker marker = new Marker(chr, 0, chrSeqs[i].length() - 1);
+            assertEquals(chrSeqs[i], gsRead.querySequence(marker).toUpperCase(), "Chromosome sequences do not match");
+
+            // Sub-sequences, both strands
+            for (int q = 0; q < 1000; q++) {
+                int start = random.nextInt(chrSeqs[i].length());
+                int end = Math.min(chrSeqs[i].length() - 1, start + random.nextInt(100));
+                boolean strandMinus = random.nextBoolean();
+                marker = new Marker(chr, start, end, strandMinus, "");
+                String expected = chrSeqs[i].substring(start, end + 1);
+                if (strandMinus) expected = GprSeq.reverseWc(expected);
+                assertEquals(expected, gsRead.querySequence(marker).toUpperCase(), "Sequences do not match for marker " + marker);
+
+                // Single bases
+                assertEquals(chrSeqs[i].charAt(start), Character.toUpperCase(gsRead.queryMarkerSequence(marker).getBase(start)));
+            }
+        }
+
+        // Cleanup
+        deleteAllBinFiles(dir);
+        new File(dir).delete();
+        new File(dataDir).delete();
+    }
+
 }
@@ -0,0 +1,179 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdGsa;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for gene set analysis ('gsa' command): Using many threads
+ * must give the same results as using one thread
+ *
+ * @author pcingola
+ */
+public class TestCasesGsa extends TestCasesBase {
+
+    public static final int NUM_GENES = 500;
+    public static final int NUM_GENE_SETS = 60;
+    public static final int NUM_GENE_SETS_ENRICHED = 3;
+    public static final int RAND_ITERATIONS = 6;
+
+    String geneSetsFile;
+    String geneScoreFile;
+
+    public TestCasesGsa() {
+        super();
+    }
+
+    /**
+     * Create a gene sets file and a gene scores file.
+     * Genes in the first gene sets have low scores (i.e. those gene sets are enriched)
+     */
+    void createFiles() throws IOException {
+        Random random = new Random(20140101);
+
+        // Gene sets
+        List<List<String>> geneSets = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NUM_GENE_SETS; i++) {
+            List<String> genes = new ArrayList<>();
+            int size = 5 + random.nextInt(30);
+            for (int j = 0; j < size; j++) {
+                String gene = "GENE_" + random.nextInt(NUM_GENES);
+                if (!genes.contains(gene)) genes.add(gene);
+            }
+            geneSets.add(genes);
+            sb.append("GENE_SET_" + i + "\tdescription_" + i + "\t" + String.join("\t", genes) + "\n");
+        }
+        geneSetsFile = tmpFile("test_gsa_gene_sets", ".gmt");
+        Gpr.toFile(geneSetsFile, sb);
+
+        // Gene scores (p-values)
+        sb = new StringBuilder();
+        for (int i = 0; i < NUM_GENES; i++) {
+            String gene = "GENE_" + i;
+            double pvalue = 0.001 + 0.999 * random.nextDouble();
+            for (int j = 0; j < NUM_GENE_SETS_ENRICHED; j++)
+                if (geneSets.get(j).contains(gene)) pvalue *= 0.001;
+            sb.append(gene + "\t" + pvalue + "\n");
+        }
+        geneScoreFile = tmpFile("test_gsa_gene_scores", ".txt");
+        Gpr.toFile(geneScoreFile, sb);
+    }
+
+    /**
+     * Run gene set analysis, return the results saved to file
+     */
+    SnpEffCmdGsa gsa(String algo, int numThreads, int randIterations, long randSeed, String saveFile) {
+        List<String> args = new ArrayList<>();
+        args.add("-geneScoreFile");
+        args.add(geneScoreFile);
+        args.add("-algo");
+        args.add(algo);
+        args.add("-minSetSize"); // Use 'regular' greedy algorithm
+        args.add("1");
+        args.add("-maxPvalue"); // Show all results
+        args.add("1.1");
+        args.add("-save");
+        args.add(saveFile);
+        if (randIterations > 0) {
+            args.add("-rand");
+            args.add("" + randIterations);
+            args.add("-randSeed");
+            args.add("" + randSeed);
+        }
+        args.add(genomeName);
+        args.add(geneSetsFile);
+
+        SnpEffCmdGsa cmd = new SnpEffCmdGsa();
+        cmd.parseArgs(args.toArray(new String[0]));
+        cmd.setConfig(config);
+        cmd.setVerbose(verbose);
+        cmd.setQuiet(!verbose);
+        cmd.setMultiThreaded(numThreads > 1);
+        cmd.setNumWorkers(numThreads);
+        assertTrue(cmd.run());
+        return cmd;
+    }
+
+    /**
+     * Run gene set analysis (no random iterations), return the results
+     */
+    String gsa(String algo, int numThreads) throws IOException {
+        String saveFile = tmpFile("test_gsa_" + algo, ".txt");
+        gsa(algo, numThreads, 0, 0, saveFile);
+        String results = Gpr.readFile(saveFile);
+        if (verbose) Log.info("Results " + algo + ", threads " + numThreads + ":\n" + results);
+        return results;
+    }
+
+    /**
+     * Run gene set analysis using random scores, return the results for each iteration
+     */
+    List<String> gsaRand(String algo, int numThreads, long randSeed) throws IOException {
+        String saveFile = tmpFile("test_gsa_rand_" + algo, ".txt");
+        SnpEffCmdGsa cmd = gsa(algo, numThreads, RAND_ITERATIONS, randSeed, saveFile);
+        List<String> randOutputs = cmd.getRandOutputs();
+        assertEquals(RAND_ITERATIONS, randOutputs.size());
+        if (verbose) Log.info("Random results " + algo + ", threads " + numThreads + ", seed " + randSeed + ":\n" + String.join("", randOutputs));
+        return randOutputs;
+    }
+
+    String tmpFile(String prefix, String suffix) throws IOException {
+        File file = File.createTempFile(prefix, suffix);
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    /**
+     * Greedy Fisher exact test: Same gene sets selected using one or many threads
+     */
+    @Test
+    public void test_01_fisher_greedy_threads() throws IOException {
+        Log.debug("Test");
+        createFiles();
+        String expected = gsa("FISHER_GREEDY", 1);
+        assertTrue(expected.contains("GENE_SET_"), "No gene set selected");
+        assertEquals(expected, gsa("FISHER_GREEDY", 4));
+    }
+
+    /**
+     * Greedy rank sum test: Same gene sets selected using one or many threads
+     */
+    @Test
+    public void test_02_ranksum_greedy_threads() throws IOException {
+        Log.debug("Test");
+        createFiles();
+        String expected = gsa("RANKSUM_GREEDY", 1);
+        assertTrue(expected.contains("GENE_SET_"), "No gene set selected");
+        assertEquals(expected, gsa("RANKSUM_GREEDY", 4));
+    }
+
+    /**
+     * Random scores: Same seed gives the same results, using one or many threads
+     */
+    @Test
+    public void test_03_rand_seed() throws IOException {
+        Log.debug("Test");
+        createFiles();
+        for (String algo : new String[] { "FISHER_GREEDY", "RANKSUM_GREEDY" }) {
+            List<String> expected = gsaRand(algo, 1, 42);
+            assertFalse(String.join("", expected).isEmpty(), "No results using random scores");
+            assertEquals(expected, gsaRand(algo, 1, 42));
+            assertEquals(expected, gsaRand(algo, 4, 42));
+            assertNotEquals(expected, gsaRand(algo, 4, 43));
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalTree;
+import org.snpeff.interval.tree.IntervalTreeArray;
+import org.snpeff.interval.tree.IntervalTreeFlat;
+import org.snpeff.interval.tree.Itree;
+import org.snpeff.util.Log;
+import org.snpeff.util.Timer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for 'flat' interval tree structure
+ */
+public class TestCasesIntervalTreeFlat extends TestCasesIntervalTree {
+
+    @Override
+    protected Itree newItree(Markers markers) {
+        return new IntervalTreeFlat(markers);
+    }
+
+    /**
+     * Run all queries, return total number of results
+     */
+    long benchmark(Itree tree, Markers queries, boolean reuseResults) {
+        long count = 0;
+        Markers results = new Markers();
+        for (Marker q : queries) {
+            if (reuseResults) {
+                results.clear();
+                count += tree.query(q, results);
+            } else count += tree.query(q).size();
+        }
+        return count;
+    }
+
+    /**
+     * Compare performance and results of IntervalTree, IntervalTreeArray and IntervalTreeFlat
+     */
+    void compareTrees(int chrSize, int numSmall, int numLarge, int numQueries) {
+        // Gene-like intervals (many small, some large)
+        Chromosome chr = new Chromosome(genome, 0, chrSize, "2");
+        Markers intervals = new Markers();
+        intervals.addAll(createRandomSmallMarkers(chr, numSmall));
+        intervals.addAll(createRandomLargeMarkers(chr, numLarge));
+        Markers queries = createRandomSmallMarkers(chr, numQueries);
+
+        Itree[] trees = { new IntervalTree(intervals), new IntervalTreeArray(intervals), new IntervalTreeFlat(intervals) };
+        long expected = -1;
+        for (Itree tree : trees) {
+            tree.build();
+            benchmark(tree, queries, false); // Warm up
+
+            for (boolean reuse : new boolean[] { false, true }) {
+                Timer timer = new Timer();
+                long count = benchmark(tree, queries, reuse);
+                if (verbose) Log.info(tree.getClass().getSimpleName() + "\treuse results: " + reuse + "\telapsed: " + timer.elapsed() + " ms\tresults: " + count);
+
+                if (expected < 0) expected = count;
+                assertEquals(expected, count, "Number of results differ for " + tree.getClass().getSimpleName());
+            }
+        }
+        assertTrue(expected > 0);
+    }
+
+    /**
+     * Stab queries and reusing the results buffer
+     */
+    @Test
+    public void test_03_stab_reuse_results() {
+        Log.debug("Test");
+
+        Itree tree = newItree(markers);
+        tree.build();
+
+        Markers results = new Markers();
+        for (int pos = 0; pos < CHR_SIZE; pos += 7) {
+            Marker m = new Marker(chromosome, pos, pos, false, "");
+            results.clear();
+            int count = tree.stab(pos, results);
+
+            Markers expected = queryNaive(m);
+            assertEquals(expected.size(), count);
+            assertEquals(expected.sort().toString(), results.sort().toString(), "Results differ for position " + pos);
+        }
+
+        // Results are appended to the buffer
+        Marker m = markers.get(0);
+        results.clear();
+        int count1 = tree.query(m, results);
+        int count2 = tree.query(m, results);
+        assertEquals(count1, count2);
+        assertEquals(count1 + count2, results.size());
+    }
+
+    /**
+     * Small trees: empty, one interval, sizes around powers of two
+     */
+    @Test
+    public void test_04_small_trees() {
+        Log.debug("Test");
+
+        Itree empty = newItree(new Markers());
+        empty.build();
+        assertEquals(0, empty.query(new Marker(chromosome, 0, CHR_SIZE, false, "")).size());
+
+        for (int n = 1; n <= 70; n++) {
+            markers = createRandomLargeMarkers(chromosome, n);
+            Itree tree = newItree(markers);
+            tree.build();
+            for (Marker q : createRandomSmallMarkers(chromosome, 100))
+                compareQuery(q, tree);
+            for (Marker q : createRandomLargeMarkers(chromosome, 10))
+                compareQuery(q, tree);
+        }
+    }
+
+    /**
+     * Same number of results for IntervalTree, IntervalTreeArray and IntervalTreeFlat
+     */
+    @Test
+    public void test_05_compare_trees() {
+        Log.debug("Test");
+        compareTrees(CHR_SIZE, NUM_SMALL_INTERVALS, NUM_LARGE_INTERVALS, 10 * 1000);
+    }
+
+    /**
+     * Flat trees in an IntervalForest
+     */
+    @Test
+    public void test_06_forest() {
+        Log.debug("Test");
+
+        IntervalForest forest = new IntervalForest();
+        forest.setFlat(true);
+        forest.add(markers);
+        forest.build();
+        assertTrue(forest.getTreeChromo(chromosome.getId()) instanceof IntervalTreeFlat);
+
+        Markers results = new Markers();
+        for (Marker q : createRandomSmallMarkers(chromosome, 1000)) {
+            results.clear();
+            forest.query(q, results);
+            assertEquals(queryNaive(q).sort().toString(), results.sort().toString());
+        }
+
+        // Unknown chromosome
+        Chromosome chrOther = new Chromosome(genome, 0, CHR_SIZE, "other");
+        assertEquals(0, forest.query(new Marker(chrOther, 0, CHR_SIZE, false, ""), results));
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalTreeNearest;
+import org.snpeff.interval.tree.Itree;
+import org.snpeff.util.Log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for interval trees supporting 'nearest' queries
+ */
+public class TestCasesIntervalTreeNearest extends TestCasesIntervalTree {
+
+    @Override
+    protected Itree newItree(Markers markers) {
+        return new IntervalTreeNearest(markers);
+    }
+
+    /**
+     * Naively find all intervals at minimum distance from 'query'
+     */
+    protected Markers nearestNaive(Markers markers, Marker query) {
+        int minDist = Integer.MAX_VALUE;
+        for (Marker m : markers)
+            minDist = Math.min(minDist, m.distance(query));
+
+        Markers results = new Markers();
+        for (Marker m : markers)
+            if (m.distance(query) == minDist) results.add(m);
+        return results;
+    }
+
+    /**
+     * Nearest intervals: Compare to naive search
+     */
+    @Test
+    public void test_03_nearest() {
+        Log.debug("Test");
+
+        // Only a few intervals, so that most queries do not intersect any of them
+        Markers sparse = createRandomSmallMarkers(chromosome, 50);
+        sparse.addAll(createRandomLargeMarkers(chromosome, 2));
+        IntervalTreeNearest tree = new IntervalTreeNearest(sparse);
+        tree.build();
+
+        int countIntersect = 0;
+        for (int i = 0; i < 10000; i++) {
+            int start = rand.nextInt(CHR_SIZE);
+            Marker query = new Marker(chromosome, start, start + rand.nextInt(10), false, "");
+
+            Markers expected = nearestNaive(sparse, query);
+            Markers results = new Markers();
+            int dist = tree.nearest(query, results);
+            if (dist == 0) countIntersect++;
+
+            assertEquals(expected.get(0).distance(query), dist, "Distance differs for query " + query);
+            assertEquals(expected.sort().toString(), results.sort().toString(), "Results differ for query " + query);
+        }
+        assertTrue(countIntersect > 0);
+        assertTrue(countIntersect < 10000);
+    }
+
+    /**
+     * Ties, empty tree and forest
+     */
+    @Test
+    public void test_04_nearest_forest() {
+        Log.debug("Test");
+        IntervalTreeNearest tree = new IntervalTreeNearest();
+        tree.build();
+        assertEquals(-1, tree.nearest(new Marker(chromosome, 10, 10, false, ""), new Markers()));
+
+        Markers ms = new Markers();
+        ms.add(new Marker(chromosome, 100, 110, false, "left_1"));
+        ms.add(new Marker(chromosome, 90, 110, false, "left_2"));
+        ms.add(new Marker(chromosome, 130, 140, false, "right_1"));
+        ms.add(new Marker(chromosome, 130, 135, false, "right_2"));
+        ms.add(new Marker(chromosome, 131, 132, false, "right_3"));
+
+        IntervalForest forest = new IntervalForest();
+        forest.setNearest(true);
+        forest.add(ms);
+        forest.build();
+
+        Markers results = new Markers();
+        assertEquals(10, forest.nearest(new Marker(chromosome, 120, 120, false, ""), results));
+        assertEquals(4, results.size());
+
+        results = new Markers();
+        assertEquals(5, forest.nearest(new Marker(chromosome, 115, 116, false, ""), results));
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).getId().startsWith("left_"));
+
+        results = new Markers();
+        assertEquals(0, forest.nearest(new Marker(chromosome, 132, 150, false, ""), results));
+        assertEquals(3, results.size());
+    }
+
+}
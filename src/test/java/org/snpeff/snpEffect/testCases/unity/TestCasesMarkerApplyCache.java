@@ -0,0 +1,141 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.interval.VariantNonRef;
+import org.snpeff.snpEffect.MarkerApplyCache;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for markers having a variant applied (cancer analysis)
+ *
+ * @author pcingola
+ */
+public class TestCasesMarkerApplyCache extends TestCasesBase {
+
+    public TestCasesMarkerApplyCache() {
+        super();
+    }
+
+    /**
+     * Effects as strings (sorted)
+     */
+    List<String> effects(VariantEffects variantEffects) {
+        List<String> effs = new ArrayList<>();
+        variantEffects.sort();
+        for (VariantEffect ve : variantEffects)
+            effs.add(ve.toString());
+        return effs;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        randSeed = 20260501;
+        maxTranscripts = 3;
+        initRand();
+    }
+
+    /**
+     * Random SNP or InDel within the gene
+     */
+    Variant variant(int pos) {
+        String ref = "" + Character.toUpperCase(chromoBases[pos]);
+        switch (rand.nextInt(3)) {
+            case 0:
+                return new Variant(chromosome, pos, ref, ref.equals("A") ? "C" : "A");
+            case 1:
+                return new Variant(chromosome, pos, chromoSequence.substring(pos, pos + 1 + rand.nextInt(3)).toUpperCase(), "");
+            default:
+                return new Variant(chromosome, pos, "", "ACG".substring(rand.nextInt(3)));
+        }
+    }
+
+    /**
+     * Applying a variant using the cache is the same as applying it to the marker
+     */
+    @Test
+    public void test_01_apply() {
+        Log.debug("Test");
+        MarkerApplyCache cache = new MarkerApplyCache();
+        int countApplied = 0;
+        for (int i = 0; i < 200; i++) {
+            Variant variant = variant(gene.getStart() + rand.nextInt(gene.size() - 5));
+            for (Transcript tr : gene) {
+                Transcript trExpected = tr.apply(variant);
+                Transcript trApplied = cache.apply(tr, variant);
+                assertEquals(trExpected.toString(), trApplied.toString(), "Variant: " + variant);
+                if (trApplied.isProteinCoding()) assertEquals(trExpected.cds(), trApplied.cds(), "Variant: " + variant);
+
+                // Second time we get the same transcript
+                assertSame(trApplied, cache.apply(tr, variant));
+                if (trApplied != tr) countApplied++;
+            }
+
+            Gene geneApplied = cache.apply(gene, variant);
+            assertEquals(gene.apply(variant).toString(), geneApplied.toString(), "Variant: " + variant);
+            assertSame(geneApplied, cache.apply(gene, variant));
+        }
+
+        if (verbose) Log.info(cache);
+        assertTrue(countApplied > 0);
+        assertTrue(cache.getMisses() > 0);
+        assertTrue(cache.getHits() >= cache.getMisses());
+    }
+
+    /**
+     * Applying a variant does not change the original exons' sequences (sequences are shared until a change is applied)
+     */
+    @Test
+    public void test_02_original_sequences() {
+        Log.debug("Test");
+        List<String> seqs = new ArrayList<>();
+        for (Exon ex : transcript)
+            seqs.add(ex.getSequence());
+
+        for (int i = 0; i < 100; i++) {
+            Variant variant = variant(transcript.getStart() + rand.nextInt(transcript.size() - 5));
+            transcript.apply(variant);
+        }
+
+        int i = 0;
+        for (Exon ex : transcript)
+            assertEquals(seqs.get(i++), ex.getSequence());
+    }
+
+    /**
+     * Somatic vs germline effects: Calculating again (using cached markers) must give the same results
+     */
+    @Test
+    public void test_03_cancer_effects() {
+        Log.debug("Test");
+        MarkerApplyCache cache = snpEffectPredictor.getMarkerApplyCache();
+        for (int i = 0; i < 100; i++) {
+            int pos = transcript.getStart() + rand.nextInt(transcript.size() - 5);
+            Variant variantRef = variant(pos);
+            if (!variantRef.isSnp()) continue;
+            Variant variant = new Variant(chromosome, pos, variantRef.getReference(), "G".equals(variantRef.getAlt()) ? "T" : "G");
+            VariantNonRef variantNonRef = new VariantNonRef(variant, variantRef);
+
+            // Nothing cached
+            cache.clear();
+            List<String> expected = effects(snpEffectPredictor.variantEffect(variantNonRef));
+
+            // Calculate again using the cache
+            long hits = cache.getHits();
+            assertEquals(expected, effects(snpEffectPredictor.variantEffect(variantNonRef)), "Variant: " + variantNonRef);
+            assertTrue(cache.getHits() > hits);
+        }
+    }
+
+}
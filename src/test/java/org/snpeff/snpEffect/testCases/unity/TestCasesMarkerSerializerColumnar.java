@@ -0,0 +1,191 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.*;
+import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.serializer.MarkerSerializerColumnar;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for 'columnar' database format
+ *
+ * @author pcingola
+ */
+public class TestCasesMarkerSerializerColumnar extends TestCasesBase {
+
+    public TestCasesMarkerSerializerColumnar() {
+        super();
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        maxTranscripts = 5;
+        maxExons = 10;
+        addUtrs = true;
+        onlyPlusStrand = false;
+    }
+
+    /**
+     * Markers as a sorted list of strings (so they can be compared)
+     */
+    List<String> markersToStr(Markers markers) {
+        List<String> strs = new ArrayList<>();
+        for (Marker m : markers) {
+            Marker parent = m.getParent();
+            strs.add(m.getClass().getSimpleName() //
+                    + "\t" + m.getId() //
+                    + "\t" + m.getChromosomeName() //
+                    + "\t" + m.getStart() //
+                    + "\t" + m.getEnd() //
+                    + "\t" + m.isStrandMinus() //
+                    + "\t" + (parent != null ? parent.getClass().getSimpleName() + ":" + parent.getId() : "null") //
+                    + "\t" + (m instanceof Genome ? "" : m) //
+            );
+        }
+        Collections.sort(strs);
+        return strs;
+    }
+
+    String tmpFile() {
+        try {
+            File file = File.createTempFile("snpEffectPredictor", ".bin");
+            file.deleteOnExit();
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Save the same predictor using 'text' and 'columnar' formats, both should load the same markers
+     */
+    @Test
+    public void test_01_save_load() {
+        Log.debug("Test");
+
+        // Note: We use a new predictor, since 'snpEffectPredictor' has already
+        // been built (i.e. it has intergenic markers, which are never saved)
+        SnpEffectPredictor sep = new SnpEffectPredictor(snpEffectPredictor.getGenome());
+        String fileTxt = tmpFile();
+        String fileCol = tmpFile();
+        sep.save(fileTxt, false);
+        sep.save(fileCol, true);
+
+        assertFalse(MarkerSerializerColumnar.isColumnar(fileTxt));
+        assertTrue(MarkerSerializerColumnar.isColumnar(fileCol));
+
+        Markers markersTxt = new MarkerSerializer(null).load(fileTxt);
+        Markers markersCol = new MarkerSerializerColumnar(null).load(fileCol);
+        if (verbose) Log.info("Markers: " + markersTxt.size() + " (text), " + markersCol.size() + " (columnar)");
+
+        assertFalse(markersCol.isEmpty());
+        assertEquals(markersTxt.size(), markersCol.size());
+        assertEquals(markersToStr(markersTxt), markersToStr(markersCol));
+    }
+
+    /**
+     * Only load some chromosomes
+     */
+    @Test
+    public void test_02_load_chromosomes() {
+        Log.debug("Test");
+
+        // Create a genome with a few chromosomes
+        Genome genome = new Genome("test_columnar");
+        Markers markers = new Markers();
+        markers.add(genome);
+        for (String chrName : new String[] { "1", "2", "3" }) {
+            Chromosome chr = new Chromosome(genome, 0, 10000, chrName);
+            genome.add(chr);
+            markers.add(chr);
+
+            Gene gene = new Gene(chr, 100, 900, false, "gene_" + chrName, "GENE" + chrName, BioType.protein_coding);
+            Transcript tr = new Transcript(gene, 100, 900, false, "tr_" + chrName);
+            gene.add(tr);
+            Exon ex = new Exon(tr, 100, 200, false, "ex_" + chrName, 1);
+            tr.add(ex);
+            markers.add(gene);
+        }
+
+        String file = tmpFile();
+        new MarkerSerializerColumnar(genome).save(file, markers);
+
+        // Load all chromosomes
+        Markers all = new MarkerSerializerColumnar(null).load(file);
+        assertEquals(markersToStr(new MarkerSerializer(null).load(saveTxt(markers))), markersToStr(all));
+
+        // Load only one chromosome (using a different chromosome name notation)
+        MarkerSerializerColumnar ms = new MarkerSerializerColumnar(null);
+        ms.setChromosomes(List.of("chr2"));
+        Markers chr2 = ms.load(file);
+
+        int countGenes = 0, countChrs = 0;
+        for (Marker m : chr2) {
+            if (m instanceof Chromosome) countChrs++;
+            else if (!(m instanceof Genome)) assertEquals("2", m.getChromosomeName(), "Marker from unexpected chromosome: " + m);
+            if (m instanceof Gene) {
+                countGenes++;
+                Gene gene = (Gene) m;
+                assertEquals("gene_2", gene.getId());
+                assertEquals(1, gene.numChilds());
+                assertEquals("Chromosome", gene.getParent().getClass().getSimpleName());
+            }
+        }
+
+        assertEquals(3, countChrs, "All chromosomes should be loaded");
+        assertEquals(1, countGenes);
+    }
+
+    /**
+     * Chromosomes to load: Translocation mates (BND) must be loaded, even
+     * if the chromosome is not used in the input's CHROM column
+     */
+    @Test
+    public void test_03_input_chromosomes_bnd() throws IOException {
+        Log.debug("Test");
+
+        // Columnar database in a temporary data directory
+        File dataDir = Files.createTempDirectory("snpEff_data").toFile();
+        dataDir.deleteOnExit();
+        config = new Config(genomeName, Config.DEFAULT_CONFIG_FILE, dataDir.getPath(), null);
+        new File(config.getDirDataGenomeVersion()).mkdirs();
+        new SnpEffectPredictor(config.getGenome()).save(config.getFileSnpEffectPredictor(), true);
+        new File(config.getFileSnpEffectPredictor()).deleteOnExit();
+
+        // Translocations to chromosomes '5' and 'X' (only chromosome '1' is in the CHROM column)
+        String vcf = "##fileformat=VCFv4.1\n" //
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n" //
+                + "1\t100\t.\tA\tC\t.\t.\t.\n" //
+                + "1\t200\tbnd_1\tG\tG[5:1000[\t.\t.\tSVTYPE=BND\n" //
+                + "1\t300\tbnd_2\tT\t]chrX:2000]T,T[HLA-A*01:01:01:01:10[\t.\t.\tSVTYPE=BND;NOTE=[not:1]\n" //
+                ;
+        File vcfFile = File.createTempFile("test_columnar", ".vcf");
+        vcfFile.deleteOnExit();
+        Gpr.toFile(vcfFile.getPath(), vcf);
+
+        Set<String> chromos = cmdEff("-noStats", genomeName, vcfFile.getPath()).inputChromosomes();
+        if (verbose) Log.info("Chromosomes: " + chromos);
+        assertEquals(Set.of("1", "5", "chrX", "HLA-A*01:01:01:01"), chromos);
+    }
+
+    String saveTxt(Markers markers) {
+        String file = tmpFile();
+        markers.save(file);
+        return file;
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.util.Log;
+import org.snpeff.util.OrderedPipeline;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test cases for multi-threaded ordered pipeline
+ */
+public class TestCasesOrderedPipeline {
+
+    protected boolean debug = false;
+    protected boolean verbose = false || debug;
+
+    /**
+     * Results must be written in the same order as the input, even if
+     * workers finish in random order
+     */
+    @Test
+    public void test_01_order() {
+        Log.debug("Test");
+
+        int num = 10 * 1000;
+        List<Integer> out = new ArrayList<>();
+        Iterator<Integer> in = IntStream.range(0, num).iterator();
+
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(8, i -> {
+            // Random delay, so that workers finish out of order
+            if (new Random().nextInt(100) == 0) Thread.yield();
+            return 2 * i;
+        }, out::add);
+        pipeline.setBatchSize(7);
+        long count = pipeline.run(in);
+
+        assertEquals(num, count);
+        assertEquals(num, out.size());
+        for (int i = 0; i < num; i++)
+            assertEquals(2 * i, out.get(i).intValue());
+    }
+
+    /**
+     * Empty input
+     */
+    @Test
+    public void test_02_empty() {
+        Log.debug("Test");
+
+        List<Integer> out = new ArrayList<>();
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(4, i -> i, out::add);
+        long count = pipeline.run(new ArrayList<Integer>().iterator());
+
+        assertEquals(0, count);
+        assertEquals(0, out.size());
+    }
+
+    /**
+     * Exceptions in workers are propagated to the caller
+     */
+    @Test
+    public void test_03_exception() {
+        Log.debug("Test");
+
+        Iterator<Integer> in = IntStream.range(0, 1000).iterator();
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(4, i -> {
+            if (i == 500) throw new RuntimeException("Test exception");
+            return i;
+        }, i -> {
+        });
+
+        assertThrows(RuntimeException.class, () -> pipeline.run(in));
+    }
+
+}
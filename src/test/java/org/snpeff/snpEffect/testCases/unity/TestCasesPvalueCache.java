@@ -0,0 +1,183 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.probablility.FisherExactTest;
+import org.snpeff.probablility.LogFactorial;
+import org.snpeff.probablility.PvalueCache;
+import org.snpeff.util.Log;
+import org.snpeff.util.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for log-factorial table and memoized p-values
+ *
+ * @author pcingola
+ */
+public class TestCasesPvalueCache {
+
+    public static double MAX_DIFF = 1E-9;
+
+    boolean verbose = false;
+    Random rand = new Random(20260503);
+
+    void compare(double expected, double p) {
+        double abs = Math.abs(p - expected);
+        if (abs < 1E-300) return;
+        double diff = abs / Math.max(p, expected);
+        assertTrue(diff < MAX_DIFF, "Expected: " + expected + ", got: " + p + ", difference: " + diff);
+    }
+
+    /**
+     * Gene set analysis like workload: Many tests, few (N, D, n) combinations
+     */
+    void compareGeneSetWorkload(int numTests) {
+        int N = 20000, D = 1000;
+        int sizes[] = { 10, 25, 50, 100, 200, 500 };
+
+        // Same random tests for both implementations
+        int ks[] = new int[numTests], ns[] = new int[numTests];
+        for (int i = 0; i < numTests; i++) {
+            ns[i] = sizes[rand.nextInt(sizes.length)];
+            ks[i] = 1 + rand.nextInt(ns[i]);
+        }
+
+        Timer timer = new Timer();
+        double sumOri = 0;
+        for (int i = 0; i < numTests; i++)
+            sumOri += FisherExactTest.get().fisherExactTestUp(ks[i], N, D, ns[i]);
+        long elapsedOri = timer.elapsed();
+
+        timer = new Timer();
+        double sumCache = 0;
+        for (int i = 0; i < numTests; i++)
+            sumCache += PvalueCache.get().fisherExactTestUp(ks[i], N, D, ns[i]);
+        long elapsedCache = timer.elapsed();
+
+        if (verbose) Log.info("Fisher exact test, " + numTests + " tests. Original: " + elapsedOri + " ms, cached: " + elapsedCache + " ms");
+        compare(sumOri, sumCache);
+    }
+
+    /**
+     * Random (valid) Fisher exact test parameters {k, N, D, n}
+     */
+    int[] randParams(int max) {
+        int N = rand.nextInt(max) + 1;
+        int D = rand.nextInt(N) + 1;
+        int n = rand.nextInt(N) + 1;
+        int kMin = Math.max(n + D - N, 0);
+        int k = kMin + rand.nextInt(Math.min(n, D) - kMin + 1);
+        return new int[] { k, N, D, n };
+    }
+
+    @Test
+    public void test_01_logFactorial() throws InterruptedException {
+        Log.debug("Test");
+
+        // Grow the table from several threads
+        int max = 10 * LogFactorial.INITIAL_SIZE;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                Random r = new Random(seed);
+                for (int i = 0; i < 1000; i++)
+                    LogFactorial.logFactorial(r.nextInt(max));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        // Compare to sum of logs
+        double sum = 0;
+        for (int i = 0; i < max; i++) {
+            if (i > 0) sum += Math.log(i);
+            assertEquals(sum, LogFactorial.logFactorial(i), 0.0);
+        }
+        assertTrue(LogFactorial.size() >= max);
+    }
+
+    @Test
+    public void test_02_fisher() {
+        Log.debug("Test");
+        for (int i = 0; i < 10000; i++) {
+            int p[] = randParams(1000);
+            int k = p[0], N = p[1], D = p[2], n = p[3];
+            compare(FisherExactTest.get().fisherExactTestUp(k, N, D, n), PvalueCache.get().fisherExactTestUp(k, N, D, n));
+            compare(FisherExactTest.get().fisherExactTestDown(k, N, D, n), PvalueCache.get().fisherExactTestDown(k, N, D, n));
+        }
+    }
+
+    @Test
+    public void test_03_fisher_threshold() {
+        Log.debug("Test");
+        for (double threshold : new double[] { 0.01, 0.05, 0.5, 1.0 }) {
+            for (int i = 0; i < 10000; i++) {
+                int p[] = randParams(300);
+                int k = p[0], N = p[1], D = p[2], n = p[3];
+                compare(FisherExactTest.get().fisherExactTestUp(k, N, D, n, threshold), PvalueCache.get().fisherExactTestUp(k, N, D, n, threshold));
+            }
+        }
+    }
+
+    @Test
+    public void test_04_values() {
+        Log.debug("Test");
+        // Values from R, see TestCasesFisherExactTest
+        compare(8.28958173422445e-18, PvalueCache.get().fisherExactTestUp(59, 545, 136, 95));
+        compare(2.40265087580901e-06, PvalueCache.get().fisherExactTestUp(36, 345, 190, 41));
+        compare(6.928747246508e-101, PvalueCache.get().fisherExactTestUp(135, 444, 142, 138));
+        assertEquals(0.006349, PvalueCache.get().fisherExactTestUp(25, 60, 30, 40), 0.000001);
+    }
+
+    /**
+     * Gene set analysis like workload: Cached and original p-values agree
+     */
+    @Test
+    public void test_05_gene_set_workload() {
+        Log.debug("Test");
+        compareGeneSetWorkload(1000);
+    }
+
+    /**
+     * Underflow: Report minimum double, same as FisherExactTest
+     */
+    @Test
+    public void test_06_underflow() {
+        Log.debug("Test");
+        int N = 100000, D = 50000, n = 50000;
+        assertEquals(Double.MIN_NORMAL, PvalueCache.get().fisherExactTestUp(n, N, D, n));
+        assertEquals(Double.MIN_NORMAL, PvalueCache.get().fisherExactTestDown(1, N, D, n));
+        assertEquals(FisherExactTest.get().fisherExactTestUp(n - 10, N, D, n, 0.05), PvalueCache.get().fisherExactTestUp(n - 10, N, D, n, 0.05));
+    }
+
+    /**
+     * Cache size is bounded by the total number of values, not the number of entries
+     */
+    @Test
+    public void test_07_cache_size() {
+        Log.debug("Test");
+        long maxCachedValuesOri = PvalueCache.MAX_CACHED_VALUES;
+        try {
+            PvalueCache.MAX_CACHED_VALUES = 1000;
+            PvalueCache.get().clear();
+            for (int i = 0; i < 1000; i++) {
+                int p[] = randParams(1000);
+                int k = p[0], N = p[1], D = p[2], n = p[3];
+                compare(FisherExactTest.get().fisherExactTestUp(k, N, D, n), PvalueCache.get().fisherExactTestUp(k, N, D, n));
+                assertTrue(PvalueCache.get().sizeValues() <= PvalueCache.MAX_CACHED_VALUES, "Too many values cached: " + PvalueCache.get().sizeValues());
+            }
+            assertTrue(PvalueCache.get().size() > 0);
+        } finally {
+            PvalueCache.MAX_CACHED_VALUES = maxCachedValuesOri;
+            PvalueCache.get().clear();
+        }
+    }
+
+}
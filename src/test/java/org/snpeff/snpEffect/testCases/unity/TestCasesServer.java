@@ -0,0 +1,200 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdServer;
+import org.snpeff.util.Log;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for annotation server
+ *
+ * @author pcingola
+ */
+public class TestCasesServer extends TestCasesBase {
+
+    HttpClient client = HttpClient.newHttpClient();
+
+    public TestCasesServer() {
+        super();
+    }
+
+    HttpResponse<String> get(SnpEffCmdServer server, String path) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(uri(server, path)).GET().build();
+        return client.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    HttpResponse<String> post(SnpEffCmdServer server, String path, String body) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(uri(server, path)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Start a server using the test's (in memory) database
+     */
+    SnpEffCmdServer startServer(String... annArgs) {
+        List<String> args = new ArrayList<>(List.of("-port", "0", "-threads", "4", genomeName, "--"));
+        args.addAll(List.of(annArgs));
+
+        SnpEffCmdServer server = new SnpEffCmdServer();
+        server.setConfig(config);
+        server.setTesting(true);
+        server.setVerbose(verbose);
+        server.setQuiet(!verbose);
+        server.parseArgs(args.toArray(new String[0]));
+        server.start();
+        return server;
+    }
+
+    URI uri(SnpEffCmdServer server, String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    /**
+     * A small VCF file: SNPs within the gene
+     */
+    String vcf(int numVariants) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("##fileformat=VCFv4.1\n");
+        sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        for (int i = 0; i < numVariants; i++) {
+            int pos = gene.getStart() + rand.nextInt(gene.size());
+            char ref = Character.toUpperCase(chromoBases[pos]);
+            char alt = ref == 'A' ? 'C' : 'A';
+            sb.append(chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + ref + "\t" + alt + "\t.\t.\t.\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Annotate a VCF file using the server
+     */
+    @Test
+    public void test_01_annotate() throws Exception {
+        Log.debug("Test");
+
+        SnpEffCmdServer server = startServer();
+        try {
+            HttpResponse<String> res = post(server, "/ann/" + genomeName, vcf(10));
+            if (verbose) Log.info("Response:\n" + res.body());
+            assertEquals(200, res.statusCode());
+
+            int countAnn = 0;
+            for (String line : res.body().split("\n"))
+                if (!line.startsWith("#") && line.contains("ANN=")) countAnn++;
+            assertEquals(10, countAnn, "All variants should be annotated");
+
+            // Genome can be omitted if only one genome is loaded
+            res = post(server, "/ann", vcf(1));
+            assertEquals(200, res.statusCode());
+            assertTrue(res.body().contains("ANN="));
+
+            // Unknown genome
+            res = post(server, "/ann/noSuchGenome", vcf(1));
+            assertEquals(404, res.statusCode());
+
+            // Status
+            res = get(server, "/status");
+            if (verbose) Log.info("Status:\n" + res.body());
+            assertEquals(200, res.statusCode());
+            assertTrue(res.body().contains("requests\t3\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Concurrent requests must give the same results as sequential ones
+     */
+    @Test
+    public void test_02_concurrent_requests() throws Exception {
+        Log.debug("Test");
+
+        SnpEffCmdServer server = startServer();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<String> vcfs = new ArrayList<>();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String vcf = vcf(100);
+                vcfs.add(vcf);
+                expected.add(post(server, "/ann", vcf).body());
+            }
+
+            List<Future<HttpResponse<String>>> futures = new ArrayList<>();
+            for (String vcf : vcfs)
+                futures.add(executor.submit(() -> post(server, "/ann", vcf)));
+
+            for (int i = 0; i < futures.size(); i++) {
+                HttpResponse<String> res = futures.get(i).get();
+                assertEquals(200, res.statusCode());
+                assertEquals(expected.get(i), res.body());
+            }
+        } finally {
+            executor.shutdown();
+            server.stop();
+        }
+    }
+
+    /**
+     * A request that fails while being annotated must not return a (truncated) VCF with status 200
+     */
+    @Test
+    public void test_03_annotate_error() throws Exception {
+        Log.debug("Test");
+
+        SnpEffCmdServer server = startServer();
+        try {
+            // Last line has missing fields, so parsing it fails after some variants were annotated
+            String vcf = vcf(10) + chromosome.getId() + "\t" + (gene.getStart() + 1) + "\n";
+            HttpResponse<String> res = post(server, "/ann/" + genomeName, vcf);
+            if (verbose) Log.info("Response:\n" + res.body());
+            assertEquals(500, res.statusCode());
+            assertFalse(res.body().contains("ANN="), "Partial annotations should not be sent");
+
+            // Server is still working
+            res = post(server, "/ann/" + genomeName, vcf(1));
+            assertEquals(200, res.statusCode());
+            assertTrue(res.body().contains("ANN="));
+
+            res = get(server, "/status");
+            assertTrue(res.body().contains("errors\t1\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * 'ann' options (parsed once, when the server starts) are used on every request
+     */
+    @Test
+    public void test_04_ann_options() throws Exception {
+        Log.debug("Test");
+
+        SnpEffCmdServer server = startServer("-classic");
+        try {
+            for (int i = 0; i < 3; i++) {
+                HttpResponse<String> res = post(server, "/ann", vcf(10));
+                if (verbose) Log.info("Response:\n" + res.body());
+                assertEquals(200, res.statusCode());
+                assertTrue(res.body().contains("EFF="), "Option '-classic' should be used on every request");
+                assertFalse(res.body().contains("ANN="), "Option '-classic' should be used on every request");
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+}
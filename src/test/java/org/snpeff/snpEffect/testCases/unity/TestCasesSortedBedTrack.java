@@ -0,0 +1,232 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.fileIterator.SortedBedTrack;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.util.BgzfOutputStream;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+import org.snpeff.vcf.TabixIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for sorted custom interval files (merge-join)
+ *
+ * @author pcingola
+ */
+public class TestCasesSortedBedTrack {
+
+    boolean verbose = false;
+    Random rand = new Random(20260101);
+
+    /**
+     * Brute force query
+     */
+    Set<String> query(List<String[]> intervals, String chr, int start, int end) {
+        Set<String> res = new HashSet<>();
+        for (String[] in : intervals) {
+            int s = Integer.parseInt(in[1]), e = Integer.parseInt(in[2]) - 1;
+            if (in[0].equals(chr) && s <= end && e >= start) res.add(chr + ":" + s + "-" + e);
+        }
+        return res;
+    }
+
+    /**
+     * Query sorted track
+     */
+    Set<String> query(SortedBedTrack sortedTrack, String chr, int start, int end) {
+        Markers results = new Markers();
+        int count = sortedTrack.query(chr, start, end, results);
+        assertEquals(results.size(), count);
+
+        Set<String> res = new HashSet<>();
+        for (Marker m : results)
+            assertTrue(res.add(m.getChromosomeName() + ":" + m.getStart() + "-" + m.getEnd()), "Duplicated interval " + m);
+        return res;
+    }
+
+    /**
+     * Random sorted intervals in a few chromosomes, write them to a BED file
+     */
+    String bedFile(List<String[]> intervals, String[] chrs, int num) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String chr : chrs) {
+            int start = 0;
+            for (int i = 0; i < num; i++) {
+                start += rand.nextInt(100);
+                String[] in = {chr, "" + start, "" + (start + 1 + rand.nextInt(300)), "id_" + chr + "_" + i};
+                intervals.add(in);
+                sb.append(String.join("\t", in) + "\n");
+            }
+        }
+
+        File file = File.createTempFile("test_sorted_track", ".bed");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Compress intervals using BGZF (one block per interval) and create a 'tabix'
+     * index for the compressed file (only the linear index is used, so bins are not created)
+     */
+    String bedFileIndexed(List<String[]> intervals) throws IOException {
+        // Compress, keep virtual offsets for each 16Kb window
+        Map<String, List<Long>> ioffByChr = new LinkedHashMap<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BgzfOutputStream out = new BgzfOutputStream(bytes)) {
+            for (String[] in : intervals) {
+                out.flush(); // Start a new block
+                long voffset = ((long) bytes.size()) << 16;
+
+                List<Long> ioff = ioffByChr.computeIfAbsent(in[0], k -> new ArrayList<>());
+                int windowEnd = (Integer.parseInt(in[2]) - 1) >> TabixIndex.LINEAR_INDEX_SHIFT;
+                for (int w = Integer.parseInt(in[1]) >> TabixIndex.LINEAR_INDEX_SHIFT; w <= windowEnd; w++) {
+                    while (ioff.size() <= w)
+                        ioff.add(0L);
+                    if (ioff.get(w) == 0) ioff.set(w, voffset);
+                }
+
+                out.write((String.join("\t", in) + "\n").getBytes());
+            }
+        }
+
+        File file = File.createTempFile("test_sorted_track", ".bed.gz");
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            bytes.writeTo(fos);
+        }
+
+        // Create index
+        String indexFile = TabixIndex.indexFileName(file.getPath());
+        new File(indexFile).deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(indexFile)))) {
+            out.write(TabixIndex.MAGIC);
+            out.writeInt(Integer.reverseBytes(ioffByChr.size()));
+            for (int v : new int[]{0x10000, 1, 2, 3, '#', 0}) // Format (BED), col_seq, col_beg, col_end, meta, skip
+                out.writeInt(Integer.reverseBytes(v));
+
+            StringBuilder names = new StringBuilder();
+            for (String chr : ioffByChr.keySet())
+                names.append(chr + "\0");
+            out.writeInt(Integer.reverseBytes(names.length()));
+            out.write(names.toString().getBytes());
+
+            for (List<Long> ioff : ioffByChr.values()) {
+                out.writeInt(0); // No bins
+                out.writeInt(Integer.reverseBytes(ioff.size()));
+                for (long voffset : ioff)
+                    out.writeLong(Long.reverseBytes(voffset));
+            }
+        }
+
+        return file.getPath();
+    }
+
+    /**
+     * Sorted queries, same chromosome order as the file
+     */
+    @Test
+    public void test_01_sorted() throws IOException {
+        Log.debug("Test");
+        List<String[]> intervals = new ArrayList<>();
+        String[] chrs = {"1", "2", "3"};
+        try (SortedBedTrack sortedTrack = new SortedBedTrack(bedFile(intervals, chrs, 1000))) {
+            sortedTrack.setVerbose(verbose);
+            for (String chr : chrs) {
+                int start = 0;
+                for (int i = 0; i < 1000; i++) {
+                    start += rand.nextInt(100);
+                    int end = start + rand.nextInt(i % 10 == 0 ? 1000 : 10); // Some long queries
+                    assertEquals(query(intervals, chr, start, end), query(sortedTrack, chr, start, end), "Query " + chr + ":" + start + "-" + end);
+                }
+            }
+            assertEquals(0, sortedTrack.getCountRewind());
+        }
+    }
+
+    /**
+     * Queries in a different chromosome order, chromosomes not in the file and unsorted queries
+     */
+    @Test
+    public void test_02_chromosome_order() throws IOException {
+        Log.debug("Test");
+        List<String[]> intervals = new ArrayList<>();
+        try (SortedBedTrack sortedTrack = new SortedBedTrack(bedFile(intervals, new String[]{"1", "2", "3"}, 500))) {
+            sortedTrack.setVerbose(verbose);
+            for (String chr : new String[]{"2", "X", "1", "3", "2", "Y", "1"}) {
+                int start = rand.nextInt(1000);
+                for (int i = 0; i < 200; i++) {
+                    start += rand.nextInt(100);
+                    if (i == 100) start -= 1000; // Unsorted query
+                    int end = start + rand.nextInt(50);
+                    assertEquals(query(intervals, chr, start, end), query(sortedTrack, chr, start, end), "Query " + chr + ":" + start + "-" + end);
+                }
+            }
+            assertTrue(sortedTrack.getCountRewind() > 0);
+        }
+    }
+
+    /**
+     * Unsorted file must be reported
+     */
+    @Test
+    public void test_03_unsorted_file() throws IOException {
+        Log.debug("Test");
+        File file = File.createTempFile("test_sorted_track", ".bed");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), "1\t100\t200\n1\t50\t60\n");
+
+        try (SortedBedTrack sortedTrack = new SortedBedTrack(file.getPath())) {
+            assertThrows(RuntimeException.class, () -> sortedTrack.query("1", 1000, 2000, new Markers()));
+        }
+    }
+
+    /**
+     * Indexed file: Queries in a region (e.g. a shard) jump to the region
+     * instead of reading the file from the beginning
+     */
+    @Test
+    public void test_04_indexed() throws IOException {
+        Log.debug("Test");
+        List<String[]> intervals = new ArrayList<>();
+        bedFile(intervals, new String[]{"1", "2", "3"}, 2000);
+        String bedFileIndexed = bedFileIndexed(intervals);
+
+        // Each region uses a new track, same as shards
+        for (String chr : new String[]{"2", "X", "1", "3", "2", "1"}) {
+            try (SortedBedTrack sortedTrack = new SortedBedTrack(bedFileIndexed)) {
+                sortedTrack.setVerbose(verbose);
+                assertTrue(sortedTrack.isIndexed());
+
+                int start = rand.nextInt(100000);
+                for (int i = 0; i < 200; i++) {
+                    start += rand.nextInt(100);
+                    if (i == 100) start -= 1000; // Unsorted query
+                    int end = start + rand.nextInt(i % 10 == 0 ? 1000 : 50);
+                    assertEquals(query(intervals, chr, start, end), query(sortedTrack, chr, start, end), "Query " + chr + ":" + start + "-" + end);
+                }
+
+                assertEquals(0, sortedTrack.getCountRewind());
+                assertEquals(2, sortedTrack.getCountSeek());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.fileIterator.BedFileIterator;
+import org.snpeff.interval.Custom;
+import org.snpeff.interval.Marker;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for sorted custom interval files ('ann -intervalSorted'):
+ * Annotations must be the same as loading the intervals ('ann -interval')
+ *
+ * @author pcingola
+ */
+public class TestCasesSortedBedTrackAnn extends TestCasesBase {
+
+    public TestCasesSortedBedTrackAnn() {
+        super();
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        numGenes = 3;
+        maxExons = 1; // Transcripts without introns, so the interval forest can be re-built (see 'loadCustomIntervals')
+    }
+
+    /**
+     * Annotate a VCF file
+     */
+    String annotate(String vcfFile, boolean multiThreaded, String... options) throws IOException {
+        SnpEffCmdEff cmdEff = cmdEff(options);
+        cmdEff.setMultiThreaded(multiThreaded);
+        cmdEff.setNumWorkers(4);
+        return annotate(cmdEff, vcfFile);
+    }
+
+    /**
+     * Random sorted intervals in the test chromosome
+     */
+    String bedFile(int num) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int step = chromoBases.length / num;
+        for (int i = 0, start = 0; i < num; i++, start += 1 + rand.nextInt(step)) {
+            int end = Math.min(chromoBases.length, start + 1 + rand.nextInt(2 * step)); // Some intervals overlap
+            sb.append(chromosome.getId() + "\t" + start + "\t" + end + "\tinterval_" + i + "\n");
+        }
+
+        File file = File.createTempFile("test_sorted_ann", ".bed");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Load custom intervals into the predictor, the same way as '-interval' does
+     */
+    void loadCustomIntervals(String bedFile) {
+        String label = Gpr.removeExt(Gpr.baseName(bedFile));
+        snpEffectPredictor.getMarkers().clear(); // Genomic regions (e.g. intergenic) are created again by 'buildForest()'
+        for (Marker m : new BedFileIterator(bedFile, genome).loadMarkers())
+            snpEffectPredictor.add(new Custom(m.getParent(), m.getStart(), m.getEnd(), false, m.getId(), label));
+        snpEffectPredictor.buildForest();
+    }
+
+    /**
+     * A sorted VCF file with random SNPs, each variant is repeated (so there are cache hits)
+     */
+    String vcfFile(int numVariants) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("##fileformat=VCFv4.1\n");
+        sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        int step = chromoBases.length / numVariants;
+        for (int pos = rand.nextInt(step); pos < chromoBases.length; pos += 1 + rand.nextInt(step)) {
+            char ref = Character.toUpperCase(chromoBases[pos]);
+            char alt = ref == 'A' ? 'C' : 'A';
+            String line = chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + ref + "\t" + alt + "\t.\t.\t.\n";
+            sb.append(line);
+            sb.append(line);
+        }
+
+        File file = File.createTempFile("test_sorted_ann", ".vcf");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Streaming a sorted BED file must give the same CUSTOM annotations as
+     * loading it, single and multi-threaded, with and without a cache
+     */
+    @Test
+    public void test_01_ann_interval_sorted() throws IOException {
+        Log.debug("Test");
+        String bedFile = bedFile(100);
+        String vcfFile = vcfFile(300);
+        String label = Gpr.removeExt(Gpr.baseName(bedFile));
+
+        // Streamed intervals (nothing is loaded in the predictor)
+        String sorted = annotate(vcfFile, false, "-noStats", "-intervalSorted", bedFile, genomeName, vcfFile);
+        String sortedThreads = annotate(vcfFile, true, "-noStats", "-intervalSorted", bedFile, genomeName, vcfFile);
+        String sortedCache = annotate(vcfFile, false, "-noStats", "-cacheSize", "1000", "-intervalSorted", bedFile, genomeName, vcfFile);
+        String sortedCacheThreads = annotate(vcfFile, true, "-noStats", "-cacheSize", "1000", "-intervalSorted", bedFile, genomeName, vcfFile);
+        String sortedEff = annotate(vcfFile, false, "-noStats", "-classic", "-intervalSorted", bedFile, genomeName, vcfFile);
+
+        // Intervals loaded in the predictor (same as '-interval')
+        loadCustomIntervals(bedFile);
+        String expected = annotate(vcfFile, false, "-noStats", genomeName, vcfFile);
+        String expectedEff = annotate(vcfFile, false, "-noStats", "-classic", genomeName, vcfFile);
+        if (verbose) Log.info("Expected:\n" + expected);
+        assertTrue(expected.contains("|custom|MODIFIER|"), "No CUSTOM annotations found");
+        assertTrue(expectedEff.contains("CUSTOM[" + label + "]"), "No CUSTOM annotations found ('EFF' format)");
+
+        assertEquals(expected, sorted, "Single-threaded");
+        assertEquals(expected, sortedThreads, "Multi-threaded");
+        assertEquals(expected, sortedCache, "Single-threaded, using cache");
+        assertEquals(expected, sortedCacheThreads, "Multi-threaded, using cache");
+        assertEquals(expectedEff, sortedEff, "'EFF' format");
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.*;
+import org.snpeff.interval.Variant.VariantType;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.GprSeq;
+import org.snpeff.util.Log;
+import org.snpeff.util.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for huge structural variants (i.e. affecting many genes)
+ *
+ * @author pcingola
+ */
+public class TestCasesStructuralHuge {
+
+    public static final int CHR_SIZE = 10 * 1000 * 1000;
+    public static final int NUM_GENES = 2000;
+
+    boolean verbose = false;
+    Random rand;
+    Genome genome;
+    Chromosome chromosome;
+    SnpEffectPredictor snpEffectPredictor;
+
+    /**
+     * Create a genome having many genes (a few of them overlapping)
+     */
+    @BeforeEach
+    public void before() {
+        rand = new Random(20260417);
+        genome = new Genome("test_huge");
+        chromosome = new Chromosome(genome, 0, CHR_SIZE, "1");
+        genome.add(chromosome);
+        snpEffectPredictor = new SnpEffectPredictor(genome);
+        snpEffectPredictor.add(chromosome);
+
+        int step = CHR_SIZE / NUM_GENES;
+        for (int i = 0; i < NUM_GENES; i++) {
+            int start = i * step + rand.nextInt(step);
+            int end = Math.min(start + 1000 + rand.nextInt(2 * step), CHR_SIZE - 1);
+            boolean strandMinus = rand.nextBoolean();
+            Gene gene = new Gene(chromosome, start, end, strandMinus, "gene" + i, "gene" + i, BioType.protein_coding);
+
+            int numTr = 1 + rand.nextInt(3);
+            for (int t = 0; t < numTr; t++) {
+                Transcript tr = new Transcript(gene, start, end - rand.nextInt(500), strandMinus, "tr" + i + "_" + t);
+                tr.setProteinCoding(true);
+                int rank = 1;
+                for (int exStart = tr.getStart(); exStart + 100 < tr.getEnd(); exStart += 100 + rand.nextInt(1000), rank++) {
+                    Exon exon = new Exon(tr, exStart, exStart + 99, strandMinus, tr.getId() + "_exon_" + rank, rank);
+                    exon.setSequence(GprSeq.randSequence(rand, exon.size()));
+                    tr.add(exon);
+                }
+                tr.rankExons();
+                gene.add(tr);
+            }
+            snpEffectPredictor.add(gene);
+        }
+
+        Config config = new Config(genome);
+        config.setSnpEffectPredictor(snpEffectPredictor);
+        snpEffectPredictor.buildForest();
+    }
+
+    /**
+     * Compare time to find affected genes using a whole genome scan and the genes index
+     */
+    void compareGeneIndex(int numVariants) {
+        List<Variant> variants = variants(numVariants);
+
+        Timer timer = new Timer();
+        long countNaive = 0;
+        for (Variant variant : variants)
+            for (Gene g : genome.getGenes())
+                if (variant.intersects(g)) countNaive++;
+        long elapsedNaive = timer.elapsed();
+
+        timer = new Timer();
+        long count = 0;
+        Markers genes = new Markers();
+        for (Variant variant : variants) {
+            genes.clear();
+            count += snpEffectPredictor.getGeneForest().query(variant, genes);
+        }
+        if (verbose) Log.info("Variants: " + variants.size() + "\tgenes affected: " + count + "\tgenome scan: " + elapsedNaive + " ms\tgenes index: " + timer.elapsed() + " ms");
+
+        assertEquals(countNaive, count);
+    }
+
+    /**
+     * Genes affected by a variant, by checking all genes in the genome
+     */
+    Set<String> genesNaive(Variant variant) {
+        Set<String> geneIds = new TreeSet<>();
+        for (Gene g : genome.getGenes())
+            if (variant.intersects(g)) geneIds.add(g.getId());
+        return geneIds;
+    }
+
+    /**
+     * Genes having a 'gene level' effect (e.g. GENE_DELETED)
+     */
+    Set<String> genesAffected(VariantEffects variantEffects) {
+        Set<String> geneIds = new TreeSet<>();
+        for (VariantEffect variantEffect : variantEffects) {
+            EffectType eff = variantEffect.getEffectType();
+            if (!(variantEffect.getMarker() instanceof Gene)) continue;
+            if (eff == EffectType.GENE_DELETED || eff == EffectType.GENE_DUPLICATION || eff == EffectType.GENE_INVERSION) geneIds.add(variantEffect.getMarker().getId());
+        }
+        return geneIds;
+    }
+
+    /**
+     * Random huge structural variants (deletions, duplications and inversions)
+     */
+    List<Variant> variants(int numVariants) {
+        VariantType[] svTypes = { VariantType.DEL, VariantType.DUP, VariantType.INV };
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < numVariants; i++) {
+            int len = 200000 + rand.nextInt(2 * 1000 * 1000);
+            int start = rand.nextInt(CHR_SIZE - len);
+            Variant variant = new Variant(chromosome, start, start + len, "sv" + i);
+            variant.setVariantType(svTypes[rand.nextInt(svTypes.length)]);
+            variants.add(variant);
+        }
+        return variants;
+    }
+
+    /**
+     * Genes affected by huge structural variants
+     */
+    @Test
+    public void test_01_huge_genes() {
+        Log.debug("Test");
+        for (Variant variant : variants(20)) {
+            assertTrue(variant.isStructuralHuge(), "Variant should be huge: " + variant);
+            Set<String> expected = genesNaive(variant);
+            Set<String> genes = genesAffected(snpEffectPredictor.variantEffect(variant));
+            if (verbose) Log.info(variant + "\tgenes: " + genes.size());
+            assertTrue(expected.size() > 1);
+            assertEquals(expected, genes, "Variant " + variant);
+        }
+    }
+
+    /**
+     * Genes index finds the same genes as a whole genome scan
+     */
+    @Test
+    public void test_02_gene_index() {
+        Log.debug("Test");
+        compareGeneIndex(100);
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.util.GprSeq;
+import org.snpeff.util.Log;
+import org.snpeff.util.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Annotate variants on the same transcripts from many threads
+ * (transcript's lazy caches are calculated concurrently)
+ *
+ * @author pcingola
+ */
+public class TestCasesTranscriptConcurrent extends TestCasesBase {
+
+    public static final int NUM_VARIANTS = 2000;
+    public static final int MAX_THREADS = 8;
+
+    public TestCasesTranscriptConcurrent() {
+        super();
+    }
+
+    /**
+     * Annotate all variants using 'numThreads' threads
+     */
+    List<String> annotate(List<Variant> variants, int numThreads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (Variant variant : variants)
+                futures.add(executor.submit(() -> snpEffectPredictor.variantEffect(variant).toString()));
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> f : futures)
+                results.add(f.get());
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        randSeed = 20161017;
+        addUtrs = true;
+        onlyPlusStrand = false;
+        maxTranscripts = 5;
+        maxExons = 10;
+        minExons = 2;
+    }
+
+    /**
+     * Random SNPs within the gene's coordinates
+     */
+    List<Variant> randomSnps() {
+        Gene gene = genome.getGenes().iterator().next();
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < NUM_VARIANTS; i++) {
+            int pos = gene.getStart() + rand.nextInt(gene.size());
+            char ref = Character.toUpperCase(chromoBases[pos]);
+            char alt = ref;
+            while (alt == ref)
+                alt = Character.toUpperCase(GprSeq.randBase(rand));
+            variants.add(new Variant(chromosome, pos, ref + "", alt + "", ""));
+        }
+        return variants;
+    }
+
+    void resetCaches() {
+        for (Gene g : genome.getGenes())
+            for (Transcript tr : g)
+                tr.resetCache();
+    }
+
+    /**
+     * Concurrent annotations must be the same as single threaded ones,
+     * even when all threads initialize transcript's caches at the same time
+     */
+    @Test
+    public void test_01_concurrent_annotations() throws Exception {
+        Log.debug("Test");
+
+        List<Variant> variants = randomSnps();
+        List<String> expected = annotate(variants, 1);
+
+        for (int numThreads = 2; numThreads <= MAX_THREADS; numThreads *= 2) {
+            resetCaches();
+            List<String> results = annotate(variants, numThreads);
+            for (int i = 0; i < expected.size(); i++)
+                assertEquals(expected.get(i), results.get(i), "Annotations differ for variant " + variants.get(i) + ", threads: " + numThreads);
+        }
+    }
+
+    /**
+     * Annotation throughput as a function of the number of threads
+     */
+    @Test
+    public void test_02_throughput() throws Exception {
+        Log.debug("Test");
+
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            variants.addAll(randomSnps());
+        annotate(variants, MAX_THREADS); // Warm up
+
+        for (int numThreads = 1; numThreads <= MAX_THREADS; numThreads *= 2) {
+            Timer timer = new Timer();
+            List<String> results = annotate(variants, numThreads);
+            long elapsed = Math.max(1, timer.elapsed());
+            if (verbose) Log.info("Threads: " + numThreads + "\tvariants: " + results.size() + "\telapsed: " + elapsed + " ms\tvariants / sec: " + (1000L * results.size() / elapsed));
+            assertEquals(variants.size(), results.size());
+        }
+    }
+
+}
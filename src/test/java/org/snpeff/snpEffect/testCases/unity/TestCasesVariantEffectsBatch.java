@@ -0,0 +1,102 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for batch variant effect prediction (SnpEffectPredictor.variantEffects)
+ *
+ * @author pcingola
+ */
+public class TestCasesVariantEffectsBatch extends TestCasesBase {
+
+    public TestCasesVariantEffectsBatch() {
+        super();
+        numGenes = 5;
+    }
+
+    /**
+     * Batch results must be the same as annotating one variant at a time
+     */
+    void compare(List<Variant> variants) {
+        List<VariantEffects> batch = snpEffectPredictor.variantEffects(variants);
+        assertEquals(variants.size(), batch.size());
+        for (int i = 0; i < variants.size(); i++) {
+            VariantEffects expected = snpEffectPredictor.variantEffect(variants.get(i));
+            if (verbose) Log.info(variants.get(i) + "\n" + batch.get(i));
+            assertEquals(expected.toString(), batch.get(i).toString(), "Variant: " + variants.get(i));
+        }
+    }
+
+    /**
+     * All possible SNPs at a position (i.e. a multi-allelic VCF entry)
+     */
+    List<Variant> snps(Chromosome chr, int pos) {
+        List<Variant> variants = new ArrayList<>();
+        char ref = Character.toUpperCase(chromoBases[pos]);
+        for (char alt : "ACGT".toCharArray())
+            if (alt != ref) variants.add(new Variant(chr, pos, "" + ref, "" + alt));
+        return variants;
+    }
+
+    /**
+     * Random variants (SNPs, insertions and deletions), sorted by position
+     */
+    List<Variant> variants(int num) {
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < num; i++) {
+            int pos = rand.nextInt(chromoBases.length - 10);
+            switch (rand.nextInt(3)) {
+            case 0:
+                variants.addAll(snps(chromosome, pos));
+                break;
+            case 1:
+                variants.add(new Variant(chromosome, pos, "", "+ACG"));
+                break;
+            default:
+                variants.add(new Variant(chromosome, pos, chromoSequence.substring(pos, pos + 3).toUpperCase(), ""));
+                break;
+            }
+        }
+        variants.sort(null);
+        return variants;
+    }
+
+    @Test
+    public void test_01_sorted() {
+        Log.debug("Test");
+        compare(variants(200));
+    }
+
+    @Test
+    public void test_02_unsorted() {
+        Log.debug("Test");
+        List<Variant> variants = variants(200);
+        Collections.shuffle(variants, rand);
+        compare(variants);
+    }
+
+    /**
+     * Variants in chromosomes not in the genome
+     */
+    @Test
+    public void test_03_missing_chromosome() {
+        Log.debug("Test");
+        Chromosome chrMissing = new Chromosome(genome, 0, chromoBases.length, "chrMissing");
+        List<Variant> variants = new ArrayList<>();
+        variants.addAll(snps(chromosome, gene.getStart()));
+        variants.addAll(snps(chrMissing, gene.getStart()));
+        variants.addAll(snps(chromosome, gene.getEnd()));
+        compare(variants);
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.snpEffect.VariantEffectsCache;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for variant effects cache
+ *
+ * @author pcingola
+ */
+public class TestCasesVariantEffectsCache extends TestCasesBase {
+
+    public TestCasesVariantEffectsCache() {
+        super();
+    }
+
+    Variant snp(int pos) {
+        char ref = Character.toUpperCase(chromoBases[pos]);
+        char alt = ref == 'A' ? 'C' : 'A';
+        return new Variant(chromosome, pos, "" + ref, "" + alt);
+    }
+
+    /**
+     * A VCF file with random variants in the gene, each variant appears many times
+     */
+    String vcfFile(int numVariants, int repeat) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("##fileformat=VCFv4.1\n");
+        sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        int[] positions = new int[numVariants];
+        for (int i = 0; i < numVariants; i++)
+            positions[i] = gene.getStart() + rand.nextInt(gene.size());
+
+        for (int r = 0; r < repeat; r++) {
+            for (int pos : positions) {
+                Variant variant = snp(pos);
+                sb.append(chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + variant.getReference() + "\t" + variant.getAlt() + "\t.\t.\t.\n");
+            }
+        }
+
+        File file = File.createTempFile("test_cache", ".vcf");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    /**
+     * Least recently used entries are removed
+     */
+    @Test
+    public void test_01_lru() {
+        Log.debug("Test");
+        VariantEffectsCache cache = new VariantEffectsCache(2);
+        Variant v1 = snp(gene.getStart()), v2 = snp(gene.getStart() + 1), v3 = snp(gene.getStart() + 2);
+        VariantEffects ve1 = snpEffectPredictor.variantEffect(v1);
+        VariantEffects ve2 = snpEffectPredictor.variantEffect(v2);
+        VariantEffects ve3 = snpEffectPredictor.variantEffect(v3);
+
+        assertNull(cache.get(v1));
+        cache.put(v1, ve1);
+        cache.put(v2, ve2);
+        assertSame(ve1, cache.get(v1)); // 'v1' is now the most recently used
+        assertSame(ve1, cache.get(snp(gene.getStart()))); // Same variant, different object
+
+        cache.put(v3, ve3); // Removes 'v2'
+        assertEquals(2, cache.size());
+        assertNull(cache.get(v2));
+        assertSame(ve1, cache.get(v1));
+        assertSame(ve3, cache.get(v3));
+
+        assertEquals(4, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        if (verbose) Log.info(cache);
+    }
+
+    /**
+     * Annotations using a cache must be the same as without a cache
+     */
+    @Test
+    public void test_02_annotate() throws IOException {
+        Log.debug("Test");
+        String vcfFile = vcfFile(50, 10);
+        String expected = annotate(cmdEff("-noStats", genomeName, vcfFile), vcfFile);
+
+        SnpEffCmdEff cmdEff = cmdEff("-noStats", "-cacheSize", "1000", genomeName, vcfFile);
+        assertEquals(expected, annotate(cmdEff, vcfFile));
+
+        // Each distinct variant is calculated only once
+        VariantEffectsCache cache = cmdEff.getVariantEffectsCache();
+        if (verbose) Log.info(cache);
+        assertTrue(cache.size() <= 50);
+        assertEquals(cache.size(), cache.getMisses());
+        assertEquals(500 - cache.size(), cache.getHits());
+
+        // Small cache: Variants are evicted and re-calculated
+        cmdEff = cmdEff("-noStats", "-cacheSize", "5", genomeName, vcfFile);
+        assertEquals(expected, annotate(cmdEff, vcfFile));
+        assertEquals(5, cmdEff.getVariantEffectsCache().size());
+    }
+
+}
@@ -6,6 +6,10 @@ import org.snpeff.binseq.GenomicSequences;
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Variant;
 import org.snpeff.util.Log;
+import org.snpeff.util.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +44,80 @@ public class TestCasesVariantRealignment extends TestCasesBase {
         assertEquals(expectedVariantRealign, vr.getVariantRealigned().toString());
     }
 
+    /**
+     * Compare realignment times on an indel-heavy set of variants:
+     * progressive realignment, realignment using reference bases,
+     * and realigning again (e.g. variant overlapping many genes)
+     */
+    void compareRealign(int chrLen, int numVariants) {
+        Genome genome = genomeRepeats("1", chrLen);
+        List<Variant> variants = indels(genome, "1", numVariants);
+
+        Timer timer = new Timer();
+        int countProg = 0;
+        for (Variant variant : variants)
+            if (new VariantRealign(variant).realignProgressive()) countProg++;
+        long elapsedProg = timer.elapsed();
+
+        timer = new Timer();
+        int count = 0;
+        for (Variant variant : variants)
+            if (variant.realignLeft() != variant) count++;
+        long elapsed = timer.elapsed();
+
+        timer = new Timer();
+        int countMemo = 0;
+        for (Variant variant : variants)
+            if (variant.realignLeft() != variant) countMemo++;
+        long elapsedMemo = timer.elapsed();
+
+        if (verbose) Log.info("Variants: " + variants.size() + "\trealigned: " + count //
+                + "\tprogressive: " + elapsedProg + " ms" //
+                + "\treference bases: " + elapsed + " ms" //
+                + "\trealign again: " + elapsedMemo + " ms" //
+        );
+
+        assertEquals(countProg, count);
+        assertEquals(count, countMemo);
+    }
+
+    /**
+     * Create a genome having one chromosome with a sequence rich in homopolymers and short tandem repeats
+     */
+    Genome genomeRepeats(String chrName, int len) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < len) {
+            String unit = randSeq(1 + rand.nextInt(4));
+            for (int i = rand.nextInt(12); i >= 0; i--)
+                sb.append(unit);
+        }
+        String chrSequence = sb.substring(0, len);
+
+        Genome genome = new Genome("zzz");
+        genome.getOrCreateChromosome(chrName).setSequence(chrSequence);
+        GenomicSequences gs = genome.getGenomicSequences();
+        gs.addChromosomeSequence(chrName, chrSequence);
+        gs.build();
+        return genome;
+    }
+
+    /**
+     * Random insertions and deletions (most of them within repeats)
+     */
+    List<Variant> indels(Genome genome, String chrName, int numVariants) {
+        String chrSequence = genome.getChromosome(chrName).getSequence();
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < numVariants; i++) {
+            int pos = 1 + rand.nextInt(chrSequence.length() - 20);
+            int len = 1 + rand.nextInt(6);
+            String ref = "", alt = "";
+            if (rand.nextBoolean()) ref = chrSequence.substring(pos, pos + len).toUpperCase(); // Deletion
+            else alt = (rand.nextBoolean() ? chrSequence.substring(pos, pos + len) : randSeq(len)).toUpperCase(); // Insertion
+            variants.add(new Variant(genome.getOrCreateChromosome(chrName), pos, ref, alt, ""));
+        }
+        return variants;
+    }
+
     @Override
     protected void init() {
         super.init();
@@ -225,4 +303,73 @@ public class TestCasesVariantRealignment extends TestCasesBase {
         checkRealign("1", "tatgaccagcagcagcagcagcagcagcagcagcag", 6, "CAG", "", "chr1:33_CAG/");
     }
 
+    String randSeq(int len) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < len; i++)
+            sb.append("acgt".charAt(rand.nextInt(4)));
+        return sb.toString();
+    }
+
+    /**
+     * Realignment using reference bases must be the same as progressive realignment
+     */
+    @Test
+    public void test_10_realignBases() {
+        Log.debug("Test");
+        Genome genome = genomeRepeats("1", 100 * 1000);
+        int countRealigned = 0;
+        for (Variant variant : indels(genome, "1", 10 * 1000)) {
+            VariantRealign vrProg = new VariantRealign(variant);
+            boolean realignedProg = vrProg.realignProgressive();
+
+            VariantRealign vr = new VariantRealign(variant);
+            boolean realigned = vr.realign();
+
+            assertEquals(realignedProg, realigned, "Variant: " + variant);
+            if (realigned) {
+                assertEquals(vrProg.getVariantRealigned().toString(), vr.getVariantRealigned().toString(), "Variant: " + variant);
+                countRealigned++;
+            }
+        }
+        if (verbose) Log.info("Realigned variants: " + countRealigned);
+        assertTrue(countRealigned > 0);
+
+        // Variants at the beginning and end of the sequence
+        checkRealign("1", "tacacac", 1, "AC", "", "chr1:5_AC/");
+        checkRealign("1", "tacacac", 1, "", "AC", "chr1:7_/AC");
+    }
+
+    /**
+     * Realigning the same variant (e.g. for each overlapping gene) reuses the result
+     */
+    @Test
+    public void test_11_realignLeft_memo() {
+        Log.debug("Test");
+        Genome genome = genomeRepeats("1", 1000);
+        Variant variant = new Variant(genome.getChromosome("1"), 5, "", "A", "");
+        Variant realigned = variant.realignLeft();
+        assertSame(realigned, variant.realignLeft());
+
+        // Variant is changed: Result must be recalculated
+        variant.setStart(6);
+        variant.setEnd(6);
+        VariantRealign vr = new VariantRealign(variant);
+        Variant expected = vr.realign() ? vr.getVariantRealigned() : variant;
+        assertEquals(expected.toString(), variant.realignLeft().toString());
+
+        // Not realigned: Same variant (not the one the result was calculated for)
+        Variant noShift = new Variant(genome.getChromosome("1"), 0, "", "G", "");
+        Variant clone = noShift.clone();
+        if (noShift.realignLeft() == noShift) assertSame(clone, clone.realignLeft());
+    }
+
+    /**
+     * Realignment using reference bases gives the same results as progressive realignment
+     */
+    @Test
+    public void test_12_realign_compare() {
+        Log.debug("Test");
+        compareRealign(10 * 1000, 1000);
+    }
+
 }
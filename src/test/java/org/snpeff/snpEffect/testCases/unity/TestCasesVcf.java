@@ -12,6 +12,8 @@ import org.snpeff.util.Timer;
 import org.snpeff.vcf.*;
 import org.snpeff.vcf.VcfHeaderInfo.VcfInfoNumber;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -961,4 +963,127 @@ public class TestCasesVcf extends TestCasesBase {
         }
     }
 
+    /**
+     * VcfEntry.split() must be the same as String.split()
+     */
+    @Test
+    public void test_46_split() {
+        Log.debug("Test");
+        String strs[] = { "", "a", "a\tb", "a\t\tb", "\ta", "a\t", "a\t\t", "\t", "\t\t", "\ta\t\tb\t" };
+        for (String str : strs) {
+            assertArrayEquals(str.split("\t"), VcfEntry.split(str, 0, '\t'), "Split '" + str + "'");
+            String pre = "x\ty\t" + str;
+            assertArrayEquals(str.split("\t"), VcfEntry.split(pre, 4, '\t'), "Split '" + pre + "' from index 4");
+        }
+    }
+
+    /**
+     * Genotype fields are not parsed (or copied) unless needed,
+     * but they must be written unchanged
+     */
+    @Test
+    public void test_47_genotypes_lazy() {
+        Log.debug("Test");
+        String vcfHeader = "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3";
+        String vcfLine = "1\t100\t.\tA\tC,G\t.\tPASS\tDP=10\tGT:DP\t0/1:3\t.\t2|1:7";
+
+        VcfEntry ve = VcfFileIterator.fromString(vcfHeader + "\n" + vcfLine).next();
+        assertEquals(vcfLine, ve.toString());
+
+        // Add INFO, genotypes are written unchanged
+        ve.addInfo("ANN", "test");
+        assertEquals(vcfLine.replace("DP=10", "DP=10;ANN=test"), ve.toString());
+
+        // Parse genotypes
+        List<VcfGenotype> gts = ve.getVcfGenotypes();
+        assertEquals(3, gts.size());
+        assertEquals(1, gts.get(0).getGenotypeCode());
+        assertTrue(gts.get(1).isMissing());
+        assertTrue(gts.get(2).isPhased());
+        assertEquals("G|C", gts.get(2).getGenotypeStr());
+        assertEquals("7", gts.get(2).get("DP"));
+        assertEquals(vcfLine.replace("DP=10", "DP=10;ANN=test"), ve.toString());
+
+        // Only one sample
+        vcfHeader = "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1";
+        vcfLine = "1\t100\t.\tA\tC\t.\tPASS\t.\tGT\t1/1";
+        ve = VcfFileIterator.fromString(vcfHeader + "\n" + vcfLine).next();
+        assertFalse(ve.calcHetero());
+        assertEquals(vcfLine, ve.toString());
+    }
+
+    /**
+     * Parse GT field
+     */
+    @Test
+    public void test_48_genotype_gt() {
+        Log.debug("Test");
+        String vcfHeader = "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\tS4\tS5\tS6";
+        String vcfLine = "1\t100\t.\tA\tC,G\t.\tPASS\t.\tDP:GT\t3:0/1\t4:./.\t5:2|2|1\t6:1\t7\t8:10";
+
+        VcfEntry ve = VcfFileIterator.fromString(vcfHeader + "\n" + vcfLine).next();
+        List<VcfGenotype> gts = ve.getVcfGenotypes();
+        assertArrayEquals(new int[] { 0, 1 }, gts.get(0).getGenotype());
+        assertArrayEquals(new int[] { -1, -1 }, gts.get(1).getGenotype());
+        assertArrayEquals(new int[] { 2, 2, 1 }, gts.get(2).getGenotype());
+        assertTrue(gts.get(2).isPhased());
+        assertArrayEquals(new int[] { 1 }, gts.get(3).getGenotype());
+        assertNull(gts.get(4).getGenotype());
+
+        // Allele number out of range
+        assertThrows(RuntimeException.class, () -> gts.get(5).getGenotype());
+    }
+
+    /**
+     * Writing a VCF entry should be the same as 'toString()'
+     */
+    @Test
+    public void test_49_write() throws IOException {
+        Log.debug("Test");
+        String fileName = path("1kg_head.vcf");
+        for (int parse = 0; parse < 3; parse++) {
+            VcfFileIterator vcf = new VcfFileIterator(fileName);
+            for (VcfEntry ve : vcf) {
+                if (parse == 1) ve.getVcfGenotypes(); // Parsed genotypes
+                if (parse == 2) ve.addInfo("ANN", "test"); // Modified entry
+                StringWriter sw = new StringWriter();
+                ve.write(sw);
+                assertEquals(ve.toString(), sw.toString());
+            }
+        }
+
+        // No genotypes, no FORMAT
+        VcfEntry ve = VcfFileIterator.fromString("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n1\t100\t.\tA\tC\t50\tPASS\tDP=10").next();
+        StringWriter sw = new StringWriter();
+        ve.write(sw);
+        assertEquals("1\t100\t.\tA\tC\t50.0\tPASS\tDP=10", sw.toString());
+        assertEquals(ve.toString(), sw.toString());
+    }
+
+    /**
+     * Remove INFO fields
+     */
+    @Test
+    public void test_50_removeInfo() {
+        Log.debug("Test");
+        String vcfHeader = "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO";
+        String vcfLine = "1\t100\t.\tA\tC\t.\tPASS\tANN=a|b;CANN=c;ANNOT;DB;ANN=d";
+
+        VcfEntry ve = VcfFileIterator.fromString(vcfHeader + "\n" + vcfLine).next();
+        ve.removeInfo("ANN");
+        assertEquals("CANN=c;ANNOT;DB", ve.getInfoStr());
+        assertNull(ve.getInfo("ANN"));
+        assertEquals("c", ve.getInfo("CANN"));
+
+        ve.removeInfo("DB"); // Flag at the end
+        assertEquals("CANN=c;ANNOT", ve.getInfoStr());
+        ve.removeInfo("ANNOTATION"); // Not present
+        assertEquals("CANN=c;ANNOT", ve.getInfoStr());
+        ve.removeInfo("CANN"); // At the beginning
+        assertEquals("ANNOT", ve.getInfoStr());
+        ve.removeInfo("ANNOT");
+        assertEquals("", ve.getInfoStr());
+        assertEquals("1\t100\t.\tA\tC\t.\tPASS\t.", ve.toString());
+    }
+
 }
@@ -0,0 +1,253 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.jupiter.api.Test;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Log;
+import org.snpeff.vcf.TabixIndex;
+import org.snpeff.vcf.VcfRegionFile;
+import org.snpeff.vcf.VcfShard;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for annotating regions (shards) of indexed VCF files
+ *
+ * @author pcingola
+ */
+public class TestCasesVcfShards extends TestCasesBase {
+
+    public static final String VCF_FILE = "tests/unity/vcf/test_shards.vcf";
+    public static final String VCF_FILE_BGZF = "tests/unity/vcf/test_shards.vcf.gz";
+
+    public TestCasesVcfShards() {
+        super();
+    }
+
+    /**
+     * Annotate a VCF file, return the output file's contents (without 'SnpEff' header lines)
+     */
+    String annotate(String vcfFile, String... options) throws IOException {
+        return annotate(true, vcfFile, options);
+    }
+
+    /**
+     * Annotate a VCF file, return the output file's contents
+     */
+    String annotate(boolean removeSnpEffHeaders, String vcfFile, String... options) throws IOException {
+        List<String> args = new ArrayList<>(List.of(options));
+        args.add("-noStats");
+        args.add(genomeName);
+        args.add(vcfFile);
+        return annotate(cmdEff(args.toArray(new String[0])), vcfFile, removeSnpEffHeaders);
+    }
+
+    /**
+     * Data lines (i.e. not header) within a region, by scanning the whole file
+     */
+    List<String> linesInRegion(VcfShard region) {
+        List<String> lines = new ArrayList<>();
+        for (String line : Gpr.readFile(VCF_FILE).split("\n")) {
+            if (line.startsWith("#")) continue;
+            String[] fields = line.split("\t");
+            int pos = Gpr.parseIntSafe(fields[1]);
+            if (fields[0].equals(region.getChr()) && region.getStart() <= pos && pos <= region.getEnd()) lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Data lines (i.e. not header) read from a region reader
+     */
+    List<String> read(VcfRegionFile vcfRegionFile, VcfShard region) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = vcfRegionFile.reader(region, 2)) {
+            for (String line; (line = reader.readLine()) != null; )
+                if (!line.startsWith("#")) lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * A VCF file with random SNPs in the test genome
+     */
+    String vcfFile(int numVariants) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("##fileformat=VCFv4.1\n");
+        sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        int step = chromoBases.length / numVariants;
+        for (int pos = rand.nextInt(step); pos < chromoBases.length; pos += 1 + rand.nextInt(step)) {
+            char ref = Character.toUpperCase(chromoBases[pos]);
+            char alt = ref == 'A' ? 'C' : 'A';
+            sb.append(chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + ref + "\t" + alt + "\t.\t.\t.\n");
+        }
+
+        File file = File.createTempFile("test_shards", ".vcf");
+        file.deleteOnExit();
+        Gpr.toFile(file.getPath(), sb);
+        return file.getPath();
+    }
+
+    @Test
+    public void test_01_tabix_index() {
+        Log.debug("Test");
+        TabixIndex tabixIndex = new TabixIndex(TabixIndex.indexFileName(VCF_FILE_BGZF));
+        tabixIndex.load();
+        if (verbose) Log.info(tabixIndex);
+
+        assertEquals(List.of("1", "2", "X"), tabixIndex.getChromos());
+        assertTrue(tabixIndex.getMaxPos("1") >= 400000 - 16384);
+        assertEquals(0, tabixIndex.getMaxPos("chr7"));
+        assertEquals(-1, tabixIndex.offset("1", 1000000));
+        assertTrue(tabixIndex.offset("2", 1) > 0);
+    }
+
+    /**
+     * Read regions from a BGZF (tabix indexed) file and an uncompressed file
+     */
+    @Test
+    public void test_02_regions() throws IOException {
+        Log.debug("Test");
+        List<VcfShard> regions = new ArrayList<>();
+        regions.add(VcfShard.parse("2"));
+        regions.add(VcfShard.parse("chr2:1-100000"));
+        regions.add(VcfShard.parse("X:1-1"));
+        regions.add(VcfShard.parse("1:390000-1000000"));
+        regions.add(VcfShard.parse("1\t16383\t32768")); // BED format
+        regions.add(VcfShard.parse("7:1-1000")); // Not in file
+        for (int i = 0; i < 100; i++) {
+            String chr = new String[] { "1", "2", "X" }[rand.nextInt(3)];
+            int start = 1 + rand.nextInt(400000);
+            regions.add(new VcfShard(chr, start, start + rand.nextInt(50000)));
+        }
+
+        for (String file : new String[] { VCF_FILE, VCF_FILE_BGZF }) {
+            VcfRegionFile vcfRegionFile = new VcfRegionFile(file);
+            assertEquals(file.endsWith(".gz"), vcfRegionFile.isBgzf());
+            assertEquals(List.of("1", "2", "X"), vcfRegionFile.getChromos());
+
+            for (VcfShard region : regions) {
+                List<String> expected = linesInRegion(new VcfShard(region.getChr().replace("chr", ""), region.getStart(), region.getEnd()));
+                List<String> lines = read(vcfRegionFile, region);
+                if (verbose) Log.info(file + "\t" + region + "\tlines: " + lines.size());
+                assertEquals(expected, lines, "File '" + file + "', region " + region);
+            }
+            vcfRegionFile.close();
+        }
+    }
+
+    /**
+     * Split files into shards: All lines should be in exactly one shard, in the same order as the file
+     */
+    @Test
+    public void test_03_shards() throws IOException {
+        Log.debug("Test");
+        List<String> expected = new ArrayList<>();
+        for (String line : Gpr.readFile(VCF_FILE).split("\n"))
+            if (!line.startsWith("#")) expected.add(line);
+
+        for (String file : new String[] { VCF_FILE, VCF_FILE_BGZF }) {
+            VcfRegionFile vcfRegionFile = new VcfRegionFile(file);
+            List<VcfShard> shards = vcfRegionFile.shards(20000);
+            assertTrue(shards.size() > 20);
+
+            List<String> lines = new ArrayList<>();
+            for (VcfShard shard : shards)
+                lines.addAll(read(vcfRegionFile, shard));
+            assertEquals(expected, lines, "File '" + file + "'");
+            vcfRegionFile.close();
+        }
+    }
+
+    /**
+     * Annotating shards in parallel should be the same as annotating the whole file
+     */
+    @Test
+    public void test_04_annotate_shards() throws IOException {
+        Log.debug("Test");
+        String vcfFile = vcfFile(200);
+        String expected = annotate(vcfFile);
+        assertTrue(expected.split("\n").length > 100);
+
+        assertEquals(expected, annotate(vcfFile, "-shardSize", "50"));
+        assertEquals(expected, annotate(vcfFile, "-shardSize", "" + 10 * chromoBases.length));
+
+        // Shard list
+        File shardList = File.createTempFile("test_shards", ".txt");
+        shardList.deleteOnExit();
+        int mid = chromoBases.length / 2;
+        Gpr.toFile(shardList.getPath(), chromosome.getId() + ":1-" + mid + "\n" + chromosome.getId() + "\t" + mid + "\t" + chromoBases.length + "\n");
+        assertEquals(expected, annotate(vcfFile, "-shardList", shardList.getPath()));
+
+        // Each shard in the list (e.g. cluster array job) is a part of the output
+        String shard1 = annotate(vcfFile, "-shardList", shardList.getPath(), "-shard", "1");
+        String shard2 = annotate(vcfFile, "-shardList", shardList.getPath(), "-shard", "2");
+        String shard2NoHeader = shard2.substring(shard2.indexOf("\n" + chromosome.getId() + "\t") + 1);
+        assertEquals(expected, shard1 + shard2NoHeader);
+    }
+
+    /**
+     * Annotate only one region
+     */
+    @Test
+    public void test_05_annotate_region() throws IOException {
+        Log.debug("Test");
+        String vcfFile = vcfFile(200);
+        int start = chromoBases.length / 4, end = chromoBases.length / 2;
+
+        StringBuilder expected = new StringBuilder();
+        for (String line : annotate(vcfFile).split("\n")) {
+            if (!line.startsWith("#")) {
+                int pos = Gpr.parseIntSafe(line.split("\t")[1]);
+                if (pos < start || pos > end) continue;
+            }
+            expected.append(line + "\n");
+        }
+
+        assertEquals(expected.toString(), annotate(vcfFile, "-region", chromosome.getId() + ":" + start + "-" + end));
+    }
+
+    /**
+     * An empty first shard must not replace the output header: The header
+     * must have SnpEff's lines (e.g. 'ANN' INFO field) and be shown only once
+     */
+    @Test
+    public void test_06_annotate_shards_empty_first() throws IOException {
+        Log.debug("Test");
+        String vcfFile = vcfFile(200);
+        String expected = annotate(false, vcfFile);
+
+        // First shard is in a chromosome that is not in the file
+        File shardList = File.createTempFile("test_shards", ".txt");
+        shardList.deleteOnExit();
+        Gpr.toFile(shardList.getPath(), "99:1-1000\n" + chromosome.getId() + ":1-" + chromoBases.length + "\n");
+        String result = annotate(false, vcfFile, "-shardList", shardList.getPath());
+        if (verbose) Log.info("Result:\n" + result);
+
+        assertTrue(result.contains("##SnpEffVersion="));
+        assertTrue(result.contains("##INFO=<ID=ANN,"));
+        assertTrue(result.contains("##INFO=<ID=LOF,"));
+        assertTrue(result.contains("##INFO=<ID=NMD,"));
+        assertEquals(1, result.split("\n#CHROM\t", -1).length - 1, "Header should be shown only once");
+
+        // Same output, except for the command line
+        assertEquals(removeCmdLine(expected), removeCmdLine(result));
+    }
+
+    /**
+     * Remove '##SnpEffCmd' header line
+     */
+    String removeCmdLine(String vcf) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : vcf.split("\n"))
+            if (!line.startsWith("##SnpEffCmd")) sb.append(line + "\n");
+        return sb.toString();
+    }
+
+}